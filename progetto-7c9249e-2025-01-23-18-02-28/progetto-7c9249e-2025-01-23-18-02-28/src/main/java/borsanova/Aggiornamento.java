@@ -0,0 +1,19 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * L'aggiornamento descrive lo stato di un'azione dopo una quotazione, un acquisto o una vendita.
+ *
+ * Gli aggiornamenti vengono consegnati agli ascoltatori iscritti alla borsa dell'azione.
+ * Un ascoltatore lento riceve solo l'ultimo aggiornamento di ogni azione: quelli intermedi vengono scartati,
+ * e la differenza tra le versioni di due aggiornamenti consecutivi indica quante modifiche della borsa sono state saltate.
+ *
+ * @param azione l'azione aggiornata.
+ * @param valore il valore della singola azione dopo la modifica.
+ * @param disponibili la quantità di azioni disponibili per l'acquisto dopo la modifica.
+ * @param scambiate la quantità scambiata dalla modifica: positiva per un acquisto, negativa per una vendita, 0 per una quotazione.
+ * @param versione il numero di modifiche della borsa eseguite fino a questa, compresa.
+ */
+public record Aggiornamento(Azione azione, int valore, int disponibili, int scambiate, long versione) {
+}
@@ -0,0 +1,94 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * Archivio delle quotazioni che conserva ogni campo in un array di interi, indicizzato per posizione.
+ * Le scansioni sull'intero mercato leggono quindi memoria contigua.
+ */
+final class ArchivioColonne implements ArchivioQuotazioni {
+    /**{@code valori} il valore della singola azione di ogni quotazione. */
+    private int[] valori = new int[8];
+    /**{@code quantita} la quantità di azioni esistenti di ogni quotazione. */
+    private int[] quantita = new int[8];
+    /**{@code inCircolazione} la quantità di azioni possedute dagli operatori di ogni quotazione. */
+    private int[] inCircolazione = new int[8];
+    /**{@code dimensione} il numero di quotazioni presenti. */
+    private int dimensione;
+
+    /*-
+     * AF:
+     *    - la quotazione in posizione i, per 0 <= i < dimensione, ha valore valori[i], quantità quantita[i]
+     *      e inCircolazione[i] azioni possedute dagli operatori.
+     * RI:
+     *    - valori.length == quantita.length == inCircolazione.length >= dimensione >= 0.
+     *    - valori[i] > 0 && quantita[i] > 0 && 0 <= inCircolazione[i] <= quantita[i] per ogni 0 <= i < dimensione.
+     */
+
+    /**
+     * Costruisce un archivio vuoto.
+     */
+    ArchivioColonne() {
+    }
+
+    @Override
+    public int aggiungi(int valore, int quantita) {
+        if (dimensione == valori.length) {
+            valori = Arrays.copyOf(valori, dimensione * 2);
+            this.quantita = Arrays.copyOf(this.quantita, dimensione * 2);
+            inCircolazione = Arrays.copyOf(inCircolazione, dimensione * 2);
+        }
+        valori[dimensione] = valore;
+        this.quantita[dimensione] = quantita;
+        return dimensione++;
+    }
+
+    @Override
+    public int dimensione() {
+        return dimensione;
+    }
+
+    @Override
+    public int valore(int indice) {
+        return valori[indice];
+    }
+
+    @Override
+    public void valore(int indice, int valore) {
+        valori[indice] = valore;
+    }
+
+    @Override
+    public int quantita(int indice) {
+        return quantita[indice];
+    }
+
+    @Override
+    public void quantita(int indice, int quantita) {
+        this.quantita[indice] = quantita;
+    }
+
+    @Override
+    public int inCircolazione(int indice) {
+        return inCircolazione[indice];
+    }
+
+    @Override
+    public void aggiungiInCircolazione(int indice, int delta) {
+        inCircolazione[indice] += delta;
+    }
+
+    @Override
+    public long capitalizzazione() {
+        long totale = 0;
+        for (int i = 0; i < dimensione; i++) totale += (long) valori[i] * quantita[i];
+        return totale;
+    }
+
+    @Override
+    public long azioniDisponibili() {
+        long totale = 0;
+        for (int i = 0; i < dimensione; i++) totale += quantita[i] - inCircolazione[i];
+        return totale;
+    }
+}
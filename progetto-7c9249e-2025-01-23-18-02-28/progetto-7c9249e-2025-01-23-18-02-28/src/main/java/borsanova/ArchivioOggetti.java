@@ -0,0 +1,103 @@
+package borsanova;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archivio delle quotazioni che conserva ogni quotazione in un proprio oggetto.
+ */
+final class ArchivioOggetti implements ArchivioQuotazioni {
+    /**{@code quotazioni} contiene una quotazione per ogni posizione. */
+    private final List<Quotazione> quotazioni = new ArrayList<>();
+
+    /*-
+     * AF:
+     *    - la quotazione in posizione i è quotazioni.get(i).
+     * RI:
+     *    - quotazioni != null && q != null per ogni q in quotazioni.
+     *    - q.valore > 0 && q.quantita > 0 && 0 <= q.inCircolazione <= q.quantita per ogni q in quotazioni.
+     */
+
+    /**
+     * Costruisce un archivio vuoto.
+     */
+    ArchivioOggetti() {
+    }
+
+    /**
+     * Lo stato variabile di una singola quotazione.
+     */
+    private static final class Quotazione {
+        /**{@code valore} il valore della singola azione. */
+        private int valore;
+        /**{@code quantita} la quantità di azioni esistenti. */
+        private int quantita;
+        /**{@code inCircolazione} la quantità di azioni possedute dagli operatori. */
+        private int inCircolazione;
+
+        /**
+         * Costruisce una quotazione senza azioni in circolazione.
+         * @param valore il valore della singola azione.
+         * @param quantita la quantità di azioni esistenti.
+         */
+        private Quotazione(int valore, int quantita) {
+            this.valore = valore;
+            this.quantita = quantita;
+        }
+    }
+
+    @Override
+    public int aggiungi(int valore, int quantita) {
+        quotazioni.add(new Quotazione(valore, quantita));
+        return quotazioni.size() - 1;
+    }
+
+    @Override
+    public int dimensione() {
+        return quotazioni.size();
+    }
+
+    @Override
+    public int valore(int indice) {
+        return quotazioni.get(indice).valore;
+    }
+
+    @Override
+    public void valore(int indice, int valore) {
+        quotazioni.get(indice).valore = valore;
+    }
+
+    @Override
+    public int quantita(int indice) {
+        return quotazioni.get(indice).quantita;
+    }
+
+    @Override
+    public void quantita(int indice, int quantita) {
+        quotazioni.get(indice).quantita = quantita;
+    }
+
+    @Override
+    public int inCircolazione(int indice) {
+        return quotazioni.get(indice).inCircolazione;
+    }
+
+    @Override
+    public void aggiungiInCircolazione(int indice, int delta) {
+        quotazioni.get(indice).inCircolazione += delta;
+    }
+
+    @Override
+    public long capitalizzazione() {
+        long totale = 0;
+        for (Quotazione q : quotazioni) totale += (long) q.valore * q.quantita;
+        return totale;
+    }
+
+    @Override
+    public long azioniDisponibili() {
+        long totale = 0;
+        for (Quotazione q : quotazioni) totale += q.quantita - q.inCircolazione;
+        return totale;
+    }
+}
@@ -0,0 +1,82 @@
+package borsanova;
+
+/**
+ * L'archivio delle quotazioni conserva lo stato variabile delle azioni quotate in una borsa.
+ *
+ * Ogni azione quotata occupa una posizione dell'archivio, assegnata in ordine di quotazione a partire da 0.
+ * Per ogni posizione l'archivio conserva:
+ *  - il valore della singola azione.
+ *  - la quantità di azioni esistenti.
+ *  - la quantità di azioni possedute dagli operatori.
+ *
+ * Le scansioni sull'intero mercato sono metodi dell'archivio, così ogni implementazione le esegue sulla propria disposizione in memoria.
+ */
+interface ArchivioQuotazioni {
+    /**
+     * Aggiunge una nuova quotazione in fondo all'archivio, senza azioni in circolazione.
+     * @param valore il valore della singola azione.
+     * @param quantita la quantità di azioni esistenti.
+     * @return la posizione della nuova quotazione.
+     */
+    int aggiungi(int valore, int quantita);
+
+    /**
+     * Restituisce il numero di quotazioni presenti.
+     * @return il numero di quotazioni.
+     */
+    int dimensione();
+
+    /**
+     * Restituisce il valore della singola azione in una posizione.
+     * @param indice la posizione della quotazione.
+     * @return il valore della singola azione.
+     */
+    int valore(int indice);
+
+    /**
+     * Modifica il valore della singola azione in una posizione.
+     * @param indice la posizione della quotazione.
+     * @param valore il nuovo valore.
+     */
+    void valore(int indice, int valore);
+
+    /**
+     * Restituisce la quantità di azioni esistenti in una posizione.
+     * @param indice la posizione della quotazione.
+     * @return la quantità di azioni esistenti.
+     */
+    int quantita(int indice);
+
+    /**
+     * Modifica la quantità di azioni esistenti in una posizione, ad esempio dopo un frazionamento.
+     * @param indice la posizione della quotazione.
+     * @param quantita la nuova quantità, non minore di quella in circolazione.
+     */
+    void quantita(int indice, int quantita);
+
+    /**
+     * Restituisce la quantità di azioni possedute dagli operatori in una posizione.
+     * @param indice la posizione della quotazione.
+     * @return la quantità di azioni in circolazione.
+     */
+    int inCircolazione(int indice);
+
+    /**
+     * Somma una variazione alla quantità di azioni in circolazione in una posizione.
+     * @param indice la posizione della quotazione.
+     * @param delta la variazione.
+     */
+    void aggiungiInCircolazione(int indice, int delta);
+
+    /**
+     * Restituisce il valore complessivo di tutte le azioni esistenti nell'archivio.
+     * @return la somma, su tutte le quotazioni, del valore per la quantità.
+     */
+    long capitalizzazione();
+
+    /**
+     * Restituisce il numero complessivo di azioni disponibili per l'acquisto.
+     * @return la somma, su tutte le quotazioni, della quantità non in circolazione.
+     */
+    long azioniDisponibili();
+}
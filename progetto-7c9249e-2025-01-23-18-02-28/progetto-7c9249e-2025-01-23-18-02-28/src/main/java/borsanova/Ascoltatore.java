@@ -0,0 +1,16 @@
+package borsanova;
+
+/**
+ * L'ascoltatore riceve gli aggiornamenti delle azioni di una borsa a cui è iscritto.
+ *
+ * Gli aggiornamenti vengono consegnati da un thread diverso da quello che esegue gli scambi,
+ * uno alla volta e, per ogni azione, in ordine di versione.
+ */
+@FunctionalInterface
+public interface Ascoltatore {
+    /**
+     * Riceve un aggiornamento.
+     * @param aggiornamento l'aggiornamento di un'azione.
+     */
+    void aggiornamento(Aggiornamento aggiornamento);
+}
@@ -2,6 +2,8 @@ package borsanova;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -16,24 +18,38 @@ import java.util.TreeSet;
  * L'azienda può:
  *  - quotarsi in una borsa. 
  *  - restituire il suo nome e le borse nel quale è quotata.   
+ *  - restituire, sommando tutte le borse, quante azioni possiede ogni operatore e chi ne possiede di più.
  * 
  * Il criterio di confronto e ordinamento delle aziende è il nome.
  */
 public class Azienda implements Comparable<Azienda> {
-    /**{@code ISTANZE} tiene traccia dei nomi usati per definire le aziende. */
-    private static final SortedSet<String> ISTANZE = new TreeSet<>();
+    /**{@code ISTANZE} tiene traccia delle aziende create, dei loro nomi e dei loro identificatori. */
+    private static final Registro<Azienda> ISTANZE = new Registro<>();
     /**{@code nome} è il nome dell'azienda. */
     private final String nome;
+    /**{@code id} l'identificatore denso assegnato all'azienda alla creazione. */
+    private final int id;
     /**{@code borseQuotate} contiene tutte le borse nel quale l'azienda si è quotata. */
     private final SortedSet<Borsa> borseQuotate;
+    /**{@code detentori} associa l'identificatore di ogni operatore che possiede azioni dell'azienda al totale posseduto in tutte le borse,
+     * creata al primo scambio. */
+    private MappaIntera detentori;
 
     /*-
      * AF:
      *      - nome: è il nome che identifica l'azienda.
+     *      - id: è l'identificatore denso dell'azienda, assegnato da ISTANZE.
      *      - borseQuotate: è l'insieme contenente tutte le borse nel quale l'azienda è quotata. 
+     *      - detentori: associa ogni operatore al numero di azioni dell'azienda che possiede, sommato su tutte le borse;
+     *        se è null nessun operatore possiede azioni dell'azienda.
      * RI:
      *      - nome != null && !nome.isBlank().
+     *      - ISTANZE.perId(id) == this.
      *      - borseQuotate != null && b != null per ogni b in borseQuotate. 
+     *      - detentori.valore(o) è la somma, sulle azioni dell'azienda, delle quantità possedute dall'operatore o, e ogni valore presente è > 0.
+     *      - detentori è letta, creata e modificata solo tenendo il monitor dell'azienda, e se non è null contiene almeno un operatore.
+     *        Il monitor viene tenuto anche mentre si aggiorna la vista consolidata
+     *        di ogni operatore: così i due totali cambiano insieme.
      */
 
     /**
@@ -43,20 +59,49 @@ public class Azienda implements Comparable<Azienda> {
      * @throws IllegalArgumentException se {@code nome} è null o se il nome è già stato usato.
      */
     public static Azienda of(final String nome) {
-        if (Objects.requireNonNull(nome, "Il nome non può essere null.").isBlank())
-            throw new IllegalArgumentException("Il nome non può essere vuoto.");
-        if (ISTANZE.contains(nome))
-            throw new IllegalArgumentException("Nome già usato.");
-        ISTANZE.add(nome);
-        return new Azienda(nome);
+        return ISTANZE.registra(nome, id -> new Azienda(nome, id));
+    }
+
+    /**
+     * Cerca l'azienda con un determinato nome.
+     * @param nome il nome cercato.
+     * @return l'azienda con nome {@code nome}.
+     * @throws NoSuchElementException se nessuna azienda porta questo nome.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     */
+    public static Azienda cerca(String nome) throws NoSuchElementException, NullPointerException {
+        Azienda trovata = ISTANZE.perNome(Objects.requireNonNull(nome, "Il nome non può essere null."));
+        if (trovata == null) throw new NoSuchElementException("Nessuna azienda ha questo nome.");
+        return trovata;
+    }
+
+    /**
+     * Restituisce l'azienda con un determinato identificatore.
+     * @param id l'identificatore dell'azienda.
+     * @return l'azienda con identificatore {@code id}.
+     */
+    static Azienda perId(int id) {
+        return ISTANZE.perId(id);
+    }
+
+    /**
+     * Ordina un insieme di aziende per nome, portando con sé un valore per ciascuna.
+     * A parità di azienda l'ordine dei valori resta quello di partenza.
+     * @param ids gli identificatori delle aziende, riordinati sul posto.
+     * @param valori i valori associati alle aziende, riordinati allo stesso modo.
+     */
+    static void ordinaPerNome(int[] ids, int[] valori) {
+        ISTANZE.ordina(ids, valori);
     }
 
     /**
      * Costruisce una nuova istanza di azienda. 
      * @param nome è il nome che identificherà l'azienda.
+     * @param id è l'identificatore della nuova azienda.
      */
-    private Azienda(String nome) {
+    private Azienda(String nome, int id) {
         this.nome = nome;
+        this.id = id;
         borseQuotate = new TreeSet<>();
     }
 
@@ -89,6 +134,121 @@ public class Azienda implements Comparable<Azienda> {
         return Collections.unmodifiableCollection(borseQuotate).iterator();
     }
 
+    /**
+     * Registra una borsa in cui questa azienda è stata quotata in blocco.
+     * @param borsa la borsa.
+     */
+    void aggiungiBorsa(Borsa borsa) {
+        borseQuotate.add(borsa);
+    }
+
+    /**
+     * Dimentica una borsa cancellata in cui questa azienda era quotata.
+     * @param borsa la borsa.
+     */
+    void rimuoviBorsa(Borsa borsa) {
+        borseQuotate.remove(borsa);
+    }
+
+    /**
+     * Cancella questa azienda, ad esempio al termine di una simulazione: il suo nome non è più registrato e può essere riusato.
+     * @throws IllegalStateException se l'azienda è ancora quotata in qualche borsa.
+     */
+    public void cancella() throws IllegalStateException {
+        if (!borseQuotate.isEmpty()) throw new IllegalStateException("L'azienda è ancora quotata in qualche borsa.");
+        ISTANZE.rimuovi(id);
+    }
+
+    /**
+     * Indica se questa azienda è quotata in una determinata borsa.
+     * @param borsa la borsa da controllare.
+     * @return {@code true} se l'azienda è quotata in {@code borsa}, {@code false} altrimenti.
+     */
+    boolean quotataIn(Borsa borsa) {
+        return borseQuotate.contains(borsa);
+    }
+
+    /**
+     * Restituisce il numero di azioni di questa azienda possedute da un operatore, sommando tutte le borse, in tempo costante.
+     * @param operatore l'operatore.
+     * @return il numero di azioni possedute, 0 se l'operatore non ne possiede.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public int azioniDetenute(Operatore operatore) throws NullPointerException {
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        synchronized (this) {
+            return detentori == null ? 0 : detentori.valore(operatore.id());
+        }
+    }
+
+    /**
+     * Restituisce il numero di operatori che possiedono azioni di questa azienda in almeno una borsa.
+     * @return il numero di proprietari.
+     */
+    public int numeroDetentori() {
+        synchronized (this) {
+            return detentori == null ? 0 : detentori.dimensione();
+        }
+    }
+
+    /**
+     * Restituisce un cursore sui proprietari di azioni di questa azienda, ordinati per nome, con il totale posseduto in tutte le borse.
+     * @return il cursore sui proprietari.
+     */
+    public Detentori detentori() {
+        synchronized (this) {
+            return Detentori.diMappa(detentori == null ? new MappaIntera(0) : detentori);
+        }
+    }
+
+    /**
+     * Restituisce i proprietari che possiedono più azioni di questa azienda sommando tutte le borse, dal maggiore.
+     * A parità di quantità i proprietari sono ordinati per nome.
+     * @param n il numero massimo di proprietari da restituire.
+     * @return al più {@code n} proprietari, in ordine decrescente di quantità posseduta.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    public List<Detenzione> maggioriDetentori(int n) throws IllegalArgumentException {
+        MappaIntera copia;
+        synchronized (this) {
+            copia = new MappaIntera(detentori == null ? 0 : detentori.dimensione());
+            if (detentori != null) detentori.perOgni(copia::inserisci);
+        }
+        return Detentori.maggiori(copia::perOgni, n);
+    }
+
+    /**
+     * Aggiorna il totale posseduto da un operatore dopo un acquisto o una vendita in una qualunque borsa,
+     * insieme alla vista consolidata dell'operatore.
+     * @param operatore l'identificatore dell'operatore.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa).
+     */
+    void scambiata(int operatore, int scambiate) {
+        synchronized (this) {
+            if (detentori == null) detentori = new MappaIntera();
+            if (detentori.somma(operatore, scambiate) <= 0) detentori.rimuovi(operatore);
+            if (detentori.dimensione() == 0) detentori = null;
+            Operatore.perId(operatore).aziendaScambiata(id, scambiate);
+        }
+    }
+
+    /**
+     * Aggiorna in blocco i totali posseduti da più operatori, con un'unica acquisizione del monitor, ad esempio dopo un frazionamento.
+     * @param operatori gli identificatori degli operatori.
+     * @param variazioni la variazione del totale posseduto da ogni operatore, nella stessa posizione del suo identificatore.
+     */
+    void rettifica(int[] operatori, int[] variazioni) {
+        synchronized (this) {
+            for (int k = 0; k < operatori.length; k++) {
+                if (variazioni[k] == 0) continue;
+                if (detentori == null) detentori = new MappaIntera(operatori.length);
+                if (detentori.somma(operatori[k], variazioni[k]) <= 0) detentori.rimuovi(operatori[k]);
+                Operatore.perId(operatori[k]).aziendaScambiata(id, variazioni[k]);
+            }
+            if (detentori != null && detentori.dimensione() == 0) detentori = null;
+        }
+    }
+
     /**
      * Restituisce il nome di questa azienda.
      * @return il nome di questa azienda.
@@ -97,21 +257,29 @@ public class Azienda implements Comparable<Azienda> {
         return nome;
     }
 
+    /**
+     * Restituisce l'identificatore denso di questa azienda, assegnato alla creazione a partire da 0.
+     * @return l'identificatore di questa azienda.
+     */
+    public int id() {
+        return id;
+    }
+
     @Override
     public int hashCode() {
-        return nome.hashCode();
+        return id;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Azienda other)
-            return nome.equals(other.nome());
+            return id == other.id;
         else 
         return false;
     }
 
     @Override
     public int compareTo(Azienda altraAzienda) {
-        return nome.compareTo(altraAzienda.nome);
+        return ISTANZE.confronta(id, altraAzienda.id);
     }
 }
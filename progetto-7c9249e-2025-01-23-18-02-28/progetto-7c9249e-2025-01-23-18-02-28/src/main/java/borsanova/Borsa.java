@@ -1,12 +1,22 @@
 package borsanova;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
 
 import borsanova.politicaprezzo.*;;
 
@@ -32,57 +42,203 @@ import borsanova.politicaprezzo.*;;
  *  - cambiare la politica prezzo in ogni momento. 
  *  - permettere ad un'operatore di comprare, se possibile, una certa quantità di azioni.
  *  - permettere ad un'operatore di vendere, se possibile, una certa quantità di azioni.  
+ *  - pagare un dividendo ai proprietari di un'azione e frazionare o raggruppare un'azione.
  * 
  * Il criterio di confronto e ordinamento delle borse è il nome.
  */
 public class Borsa implements Comparable<Borsa> {
-    /**{@code ISTANZE} una collezione contenente tutti i nomi usati per nominare le borse. */
-    private static final SortedSet<String> ISTANZE = new TreeSet<>();
+    /**{@code ISTANZE} tiene traccia di tutte le borse create, dei loro nomi e dei loro identificatori. */
+    private static final Registro<Borsa> ISTANZE = new Registro<>();
+    /**{@code AZIONI} contiene tutte le azioni quotate in tutte le borse, in posizione pari al loro identificatore; quando è pieno
+     * viene sostituito da una copia più grande, così chi legge non ha bisogno di un monitor. */
+    private static volatile Azione[] AZIONI = new Azione[16];
+    /**{@code numeroAzioni} il numero di azioni create in tutte le borse, letto e modificato tenendo il monitor della classe. */
+    private static int numeroAzioni;
     /**{@code nome} il nome che identifica questa borsa. */
     private final String nome;
+    /**{@code id} l'identificatore denso assegnato a questa borsa alla creazione. */
+    private final int id;
     /**{@code azioniQuotate} contiene tutte le azioni quotate in questa borsa.*/
     private final SortedSet<Azione> azioniQuotate;
-    /**{@code operatoriBorsa} tiene traccia di tutti gli operatori che operano con questa borsa. */
-    private final SortedSet<Operatore> operatoriBorsa;
+    /**{@code azioniPerAzienda} associa l'identificatore di ogni azienda quotata in questa borsa alla posizione della sua azione nell'archivio. */
+    private final MappaIntera azioniPerAzienda;
+    /**{@code azioni} contiene le azioni quotate in questa borsa, in posizione pari alla loro posizione nell'archivio. */
+    private volatile Azione[] azioni = new Azione[8];
+    /**{@code operatoriBorsa} tiene traccia, per identificatore, di tutti gli operatori che operano con questa borsa. */
+    private final BitSet operatoriBorsa;
+    /**{@code archivio} conserva valore, quantità e azioni in circolazione di ogni azione quotata in questa borsa. */
+    private final ArchivioQuotazioni archivio;
+    /**{@code indicePrezzi} ordina le azioni quotate per valore e per variazione rispetto al prezzo di riferimento. */
+    private final IndicePrezzi indicePrezzi = new IndicePrezzi();
     /**{@code politicaPrezzo} sancisce la variazione del valore delle azioni in base a determinati criteri. */
     private PoliticaPrezzo politicaPrezzo;
+    /**{@code modifiche} il numero di quotazioni, acquisti e vendite eseguiti in questa borsa. */
+    private long modifiche;
+    /**{@code istantanea} l'ultima istantanea pubblicata, {@code null} se le istantanee non sono attive. */
+    private volatile Istantanea istantanea;
+    /**{@code diffusore} distribuisce gli aggiornamenti agli ascoltatori, {@code null} finché nessuno si è iscritto. */
+    private volatile Diffusore diffusore;
+    /**{@code orologio} fornisce l'istante, in millisecondi, in cui vengono registrati gli scambi. */
+    private volatile LongSupplier orologio = System::currentTimeMillis;
+    /**{@code finestra} le statistiche degli scambi di tutta la borsa, {@code null} se le statistiche non sono attive. */
+    private volatile FinestraScambi finestra;
+    /**{@code storico} lo storico in cui registrare gli scambi, {@code null} se la borsa non è collegata a uno storico. */
+    private volatile StoricoScambi storico;
+    /**{@code controlloRischio} il controllo eseguito su ogni ordine prima dell'esecuzione, {@code null} se non ci sono controlli di rischio. */
+    private volatile ControlloRischio controlloRischio;
+    /**{@code regolaSospensione} la regola che sospende le azioni di questa borsa senza una regola propria, {@code null} se non ci sono sospensioni. */
+    private volatile RegolaSospensione regolaSospensione;
+    /**{@code innescati} gli ordini condizionati innescati e non ancora eseguiti, nell'ordine in cui vanno eseguiti. */
+    private final ArrayDeque<OrdineCondizionato> innescati = new ArrayDeque<>();
+    /**{@code innescando} indica se la borsa sta eseguendo gli ordini condizionati innescati. */
+    private boolean innescando;
       
     /*-
      * AF:
      *    - nome: è il nome che identifica la borsa. 
+     *    - id: è l'identificatore denso della borsa, assegnato da ISTANZE.
      *    - azioniQuotate: l'insieme di tutte le azioni quotate in questa borsa.
-     *    - operatoriBorsa: tiene traccia di tutti gli operatori che operano con questa borsa.
+     *    - azioniPerAzienda: associa ogni azienda quotata, attraverso il suo identificatore, alla posizione della sua azione nell'archivio.
+     *    - azioni: le azioni quotate, ciascuna nella sua posizione nell'archivio.
+     *    - operatoriBorsa: tiene traccia di tutti gli operatori che operano con questa borsa, attraverso i loro identificatori.
+     *    - archivio: contiene lo stato variabile delle azioni quotate, nella posizione indicata da ciascuna azione.
+     *    - indicePrezzi: contiene le azioni quotate ordinate per valore e per variazione.
      *    - politicaPrezzo: è la politica che gestisce la variazione del valore delle azioni.
+     *    - modifiche: conta le quotazioni, gli acquisti e le vendite eseguiti.
+     *    - istantanea: è la vista immutabile dello stato dopo l'ultima modifica, se le istantanee sono attive.
+     *    - diffusore: consegna ad ogni ascoltatore iscritto l'ultimo aggiornamento di ogni azione modificata.
+     *    - orologio: indica l'istante di ogni scambio.
+     *    - finestra: contiene gli scambi recenti di tutte le azioni quotate, se le statistiche sono attive.
+     *    - storico: riceve ogni scambio eseguito da quando la borsa vi è collegata.
+     *    - controlloRischio: decide se ogni ordine ammesso dalla borsa può essere eseguito, se presente.
+     *    - regolaSospensione: sospende le azioni senza una regola propria quando il loro valore varia troppo, se presente.
+     *    - innescati: gli ordini condizionati innescati da un cambiamento di valore, in attesa di essere eseguiti.
      * RI:
      *    - nome != null && !nome.isBlank().
+     *    - ISTANZE.perId(id) == this.
      *    - azioniQuotate != null && a != null per ogni a in azioniQuotate.
-     *    - operatoriBorsa != null && o != null per ogni o in operatoriBorsa.   
+     *    - azioniPerAzienda != null && azioniPerAzienda.dimensione() == azioniQuotate.size().
+     *    - azioni[azioniPerAzienda.valore(a.azienda().id())] == a per ogni a in azioniQuotate.
+     *    - azioni[i] != null se e solo se 0 <= i < archivio.dimensione().
+     *    - operatoriBorsa != null.   
+     *    - archivio != null && archivio.dimensione() == azioniQuotate.size().
+     *    - indicePrezzi != null e contiene esattamente le azioni quotate, con il loro valore attuale.
+     *    - istantanea == null || istantanea.versione() == modifiche.
+     *    - orologio != null.
+     *    - se finestra == null, a.finestra == null per ogni a in azioniQuotate.
+     *    - innescati è vuota al termine di ogni acquisto e vendita, salvo durante l'esecuzione degli ordini innescati (innescando).
      */
 
+    /**
+     * Indica come una borsa dispone in memoria lo stato delle azioni quotate.
+     */
+    public enum Memorizzazione {
+        /** Ogni azione quotata ha un proprio oggetto con valore, quantità e azioni in circolazione. */
+        OGGETTI,
+        /** Valori, quantità e azioni in circolazione di tutte le azioni quotate stanno in array paralleli. */
+        COLONNE
+    }
+
     /**
      * Metodo di fabbricazione per creare un'istanza di Borsa.
+     * La disposizione in memoria delle azioni quotate è scelta attraverso la proprietà di sistema {@code borsanova.memorizzazione}:
+     * il valore {@code colonne} sceglie {@link Memorizzazione#COLONNE}, qualunque altro valore (o l'assenza della proprietà)
+     * {@link Memorizzazione#OGGETTI}.
      * 
      * @param nome il nome da dare alla nuova borsa.
      * @throws IllegalArgumentException se {@code nome} è {@code null} oppure se il nome è già stato usato.  
      * @return la nuova borsa creata. 
      */
     public static Borsa of(final String nome) throws IllegalArgumentException {
-        if (Objects.requireNonNull(nome, "Il nome non può essere null.").isBlank())
-            throw new IllegalArgumentException("Il nome non può essere vuoto.");
-        if (ISTANZE.contains(nome))
-            throw new IllegalArgumentException("Nome già usato.");
-        ISTANZE.add(nome);
-        return new Borsa(nome);
+        return of(nome, "colonne".equals(System.getProperty("borsanova.memorizzazione")) ? Memorizzazione.COLONNE : Memorizzazione.OGGETTI);
+    }
+
+    /**
+     * Metodo di fabbricazione per creare un'istanza di Borsa con una determinata disposizione in memoria delle azioni quotate.
+     * 
+     * @param nome il nome da dare alla nuova borsa.
+     * @param memorizzazione la disposizione in memoria dello stato delle azioni quotate.
+     * @throws IllegalArgumentException se {@code nome} è {@code null} oppure se il nome è già stato usato.  
+     * @throws NullPointerException se {@code memorizzazione} è {@code null}.
+     * @return la nuova borsa creata. 
+     */
+    public static Borsa of(final String nome, Memorizzazione memorizzazione) throws IllegalArgumentException, NullPointerException {
+        Objects.requireNonNull(memorizzazione, "La memorizzazione non può essere null.");
+        return ISTANZE.registra(nome, id -> new Borsa(nome, id, memorizzazione == Memorizzazione.COLONNE ? new ArchivioColonne() : new ArchivioOggetti()));
+    }
+
+    /**
+     * Cerca la borsa con un determinato nome.
+     * @param nome il nome cercato.
+     * @return la borsa con nome {@code nome}.
+     * @throws NoSuchElementException se nessuna borsa porta questo nome.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     */
+    public static Borsa cerca(String nome) throws NoSuchElementException, NullPointerException {
+        Borsa trovata = ISTANZE.perNome(Objects.requireNonNull(nome, "Il nome non può essere null."));
+        if (trovata == null) throw new NoSuchElementException("Nessuna borsa ha questo nome.");
+        return trovata;
     }
 
     /**
      * Costruisce una nuova istanza di Borsa. 
      * @param nome il nome della Borsa. 
+     * @param id l'identificatore della Borsa.
+     * @param archivio l'archivio in cui conservare lo stato delle azioni quotate.
      */
-    private Borsa(String nome) {
+    private Borsa(String nome, int id, ArchivioQuotazioni archivio) {
         this.nome = nome;
+        this.id = id;
+        this.archivio = archivio;
         azioniQuotate = new TreeSet<>();
-        operatoriBorsa = new TreeSet<>();
+        azioniPerAzienda = new MappaIntera();
+        operatoriBorsa = new BitSet();
+    }
+
+    /**
+     * Restituisce l'azione con un determinato identificatore.
+     * @param id l'identificatore dell'azione.
+     * @return l'azione con identificatore {@code id}.
+     */
+    static Azione azionePerId(int id) {
+        return AZIONI[id];
+    }
+
+    /**
+     * Assegna un identificatore a nuove azioni e le rende visibili a {@link #azionePerId(int)}.
+     * @param nuove le nuove azioni.
+     */
+    private static synchronized void registraAzioni(List<Azione> nuove) {
+        Azione[] tutte = AZIONI;
+        if (numeroAzioni + nuove.size() > tutte.length) tutte = Arrays.copyOf(tutte, Math.max(tutte.length * 2, numeroAzioni + nuove.size()));
+        for (Azione nuova : nuove) {
+            nuova.id = numeroAzioni++;
+            tutte[nuova.id] = nuova;
+        }
+        // la scrittura del riferimento pubblica anche le nuove posizioni, quando l'array non è stato sostituito
+        AZIONI = tutte;
+    }
+
+    /**
+     * Rende irraggiungibili da {@link #azionePerId(int)} le azioni di una borsa cancellata; i loro identificatori non vengono riassegnati.
+     * @param ids gli identificatori delle azioni.
+     */
+    private static synchronized void rimuoviAzioni(int[] ids) {
+        Azione[] tutte = AZIONI;
+        for (int id : ids) tutte[id] = null;
+        AZIONI = tutte;
+    }
+
+    /**
+     * Inserisce una nuova azione tra quelle quotate in questa borsa, nella sua posizione nell'archivio.
+     * @param nuova la nuova azione, già registrata.
+     */
+    private void inserisciAzione(Azione nuova) {
+        Azione[] quotate = azioni;
+        if (nuova.indice >= quotate.length) quotate = Arrays.copyOf(quotate, Math.max(quotate.length * 2, nuova.indice + 1));
+        quotate[nuova.indice] = nuova;
+        azioni = quotate;
+        azioniPerAzienda.inserisci(nuova.azienda.id(), nuova.indice);
     }
 
     /**
@@ -93,6 +249,14 @@ public class Borsa implements Comparable<Borsa> {
         return nome;
     }
 
+    /**
+     * Restituisce l'identificatore denso di questa borsa, assegnato alla creazione a partire da 0.
+     * @return l'identificatore di questa borsa.
+     */
+    public int id() {
+        return id;
+    }
+
     /**
      * Cerca l'azione relativa ad un'azienda quotata in questa borsa.
      * @param azienda l'azienda di cui si vuole prendere l'azione. 
@@ -102,12 +266,39 @@ public class Borsa implements Comparable<Borsa> {
      */
     public Azione cercaAzioneBorsa(Azienda azienda) throws NoSuchElementException {
         Objects.requireNonNull(azienda);
-        for (Azione a: azioniQuotate) {
-            if (azienda.nome().equals(a.azienda().nome())) return a;  
-        }
+        if (azioniPerAzienda.contiene(azienda.id())) return azioni[azioniPerAzienda.valore(azienda.id())];
         throw new NoSuchElementException("Bisogna prendere le azione di un'azienda quotata in questa borsa.");
     }
 
+    /**
+     * Cancella questa borsa, ad esempio al termine di una simulazione. Le posizioni aperte nelle sue azioni vengono chiuse
+     * senza pagare gli operatori, le aziende non vi risultano più quotate e né la borsa né le sue azioni restano registrate:
+     * il nome della borsa può essere riusato. Le iscrizioni agli aggiornamenti vengono annullate e il thread che li distribuisce termina.
+     * La borsa non deve eseguire ordini durante e dopo la cancellazione.
+     * @throws IllegalStateException se la borsa è collegata a uno storico, che fa ancora riferimento alle sue azioni.
+     */
+    public void cancella() throws IllegalStateException {
+        if (storico != null) throw new IllegalStateException("La borsa è collegata a uno storico.");
+        int[] ids = new int[azioniQuotate.size()];
+        int k = 0;
+        for (Azione azione : azioniQuotate) {
+            Proprietari proprietari = proprietari(azione);
+            int[] variazioni = proprietari.quantita().clone();
+            for (int i = 0; i < variazioni.length; i++) variazioni[i] = -variazioni[i];
+            azione.azienda.rettifica(proprietari.operatori(), variazioni);
+            azione.azienda.rimuoviBorsa(this);
+            ids[k++] = azione.id;
+        }
+        Posizioni.ATTIVE.rilascia(new int[0], ids);
+        rimuoviAzioni(ids);
+        synchronized (this) {
+            if (diffusore != null) diffusore.chiudi();
+            diffusore = null;
+        }
+        // per ultima, perché le aziende confrontano le borse per nome
+        ISTANZE.rimuovi(id);
+    }
+
     /**
      * Restituisce un'iteratore per le azioni quotate in questa borsa. 
      * @return un'iteratore per le azioni quotate in questa borsa. 
@@ -116,6 +307,22 @@ public class Borsa implements Comparable<Borsa> {
         return Collections.unmodifiableCollection(azioniQuotate).iterator();
     }
 
+    /**
+     * Restituisce il valore complessivo di tutte le azioni esistenti in questa borsa.
+     * @return la somma, su tutte le azioni quotate, del valore per singola azione moltiplicato per la quantità.
+     */
+    public long capitalizzazione() {
+        return archivio.capitalizzazione();
+    }
+
+    /**
+     * Restituisce il numero complessivo di azioni disponibili per l'acquisto in questa borsa.
+     * @return la somma, su tutte le azioni quotate, della quantità disponibile.
+     */
+    public long azioniDisponibili() {
+        return archivio.azioniDisponibili();
+    }
+
     /**
      * Cambia la politica prezzo di questa borsa.
      * @param politicaPrezzo la nuova politica prezzo di questa borsa.
@@ -132,6 +339,214 @@ public class Borsa implements Comparable<Borsa> {
         return politicaPrezzo;
     }
 
+    /**
+     * Restituisce le azioni quotate con il valore più alto, dalla più cara.
+     * @param n il numero massimo di azioni da restituire.
+     * @return al più {@code n} azioni, in ordine decrescente di valore.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    public List<Azione> piuCare(int n) throws IllegalArgumentException {
+        return prime(indicePrezzi.perValore(false), n);
+    }
+
+    /**
+     * Restituisce le azioni quotate con valore compreso tra due estremi.
+     * @param minimo il valore minimo, incluso.
+     * @param massimo il valore massimo, incluso.
+     * @return le azioni con valore compreso tra {@code minimo} e {@code massimo}, in ordine crescente di valore.
+     */
+    public List<Azione> conValoreTra(int minimo, int massimo) {
+        if (minimo > massimo) return List.of();
+        return prime(indicePrezzi.perValoreTra(minimo, massimo), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce le azioni quotate con la maggiore variazione di valore rispetto al prezzo di riferimento.
+     * @param n il numero massimo di azioni da restituire.
+     * @return al più {@code n} azioni, in ordine decrescente di variazione.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    public List<Azione> migliori(int n) throws IllegalArgumentException {
+        return prime(indicePrezzi.perVariazione(false), n);
+    }
+
+    /**
+     * Restituisce le azioni quotate con la minore variazione di valore rispetto al prezzo di riferimento.
+     * @param n il numero massimo di azioni da restituire.
+     * @return al più {@code n} azioni, in ordine crescente di variazione.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    public List<Azione> peggiori(int n) throws IllegalArgumentException {
+        return prime(indicePrezzi.perVariazione(true), n);
+    }
+
+    /**
+     * Fissa come prezzo di riferimento di ogni azione quotata il suo valore attuale, ad esempio all'apertura della giornata.
+     * Il prezzo di riferimento di un'azione appena quotata è il suo valore di quotazione.
+     * Va eseguito dal thread che modifica la borsa, come un acquisto o una vendita.
+     */
+    public void fissaRiferimento() {
+        for (Azione azione : azioniQuotate) indicePrezzi.fissaRiferimento(azione.indice, azione.id, azione.valore());
+    }
+
+    /**
+     * Restituisce le azioni corrispondenti alle prime chiavi di un indice.
+     * @param chiavi le chiavi, nell'ordine desiderato.
+     * @param n il numero massimo di azioni da restituire.
+     * @return al più {@code n} azioni, nell'ordine delle chiavi.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    private static List<Azione> prime(Iterator<Long> chiavi, int n) throws IllegalArgumentException {
+        if (n < 0) throw new IllegalArgumentException("Il numero di azioni non può essere negativo.");
+        List<Azione> risultato = new ArrayList<>();
+        while (risultato.size() < n && chiavi.hasNext()) risultato.add(azionePerId(IndicePrezzi.id(chiavi.next())));
+        return risultato;
+    }
+
+    /**
+     * Attiva le istantanee di questa borsa: da questo momento ogni modifica pubblica una nuova {@link Istantanea}.
+     * Le modifiche della borsa devono essere eseguite da un thread alla volta; l'attivazione va eseguita prima di
+     * inviare ordini alla borsa da altri thread, oppure tenendo il lock della borsa se gli ordini vengono eseguiti con quel lock.
+     * Attivare le istantanee quando sono già attive non ha effetto.
+     * @return l'istantanea dello stato attuale.
+     */
+    public synchronized Istantanea attivaIstantanee() {
+        if (istantanea != null) return istantanea;
+        Istantanea[] nuova = {Istantanea.vuota(this)};
+        for (Azione azione : azioniQuotate) {
+            nuova[0] = nuova[0].aggiorna(modifiche, azione.azienda, azione.valore(), azione.quantita(), azione.quantitaDisponibile(), null, 0);
+            Posizioni.ATTIVE.perOgniDetentore(azione.id, (operatore, quantita) ->
+                nuova[0] = nuova[0].aggiorna(modifiche, azione.azienda, azione.valore(), azione.quantita(), azione.quantitaDisponibile(), Operatore.perId(operatore), quantita));
+        }
+        istantanea = nuova[0];
+        return nuova[0];
+    }
+
+    /**
+     * Restituisce l'ultima istantanea di questa borsa, in tempo costante e senza attendere gli scambi in corso.
+     * @return l'istantanea che include tutte le modifiche completate finora.
+     * @throws IllegalStateException se le istantanee non sono state attivate.
+     */
+    public Istantanea istantanea() throws IllegalStateException {
+        Istantanea attuale = istantanea;
+        if (attuale == null) throw new IllegalStateException("Le istantanee non sono attive per questa borsa.");
+        return attuale;
+    }
+
+
+    /**
+     * Iscrive un ascoltatore agli aggiornamenti delle azioni di questa borsa.
+     * Gli aggiornamenti vengono consegnati da altri thread, senza rallentare gli scambi; se l'ascoltatore è lento
+     * riceve solo l'ultimo aggiornamento di ogni azione.
+     * @param ascoltatore l'ascoltatore da iscrivere.
+     * @return l'iscrizione, da chiudere per smettere di ricevere aggiornamenti.
+     * @throws NullPointerException se {@code ascoltatore} è {@code null}.
+     */
+    public synchronized Iscrizione iscrivi(Ascoltatore ascoltatore) throws NullPointerException {
+        Objects.requireNonNull(ascoltatore, "L'ascoltatore non può essere null.");
+        if (diffusore == null) diffusore = new Diffusore(this);
+        return diffusore.iscrivi(ascoltatore);
+    }
+
+    /**
+     * Chiude il diffusore di questa borsa dopo che la sua ultima iscrizione è stata annullata,
+     * a meno che nel frattempo non sia arrivata una nuova iscrizione.
+     * @param inutilizzato il diffusore rimasto senza iscrizioni.
+     */
+    synchronized void diffusoreInutilizzato(Diffusore inutilizzato) {
+        if (diffusore != inutilizzato || !inutilizzato.vuoto()) return;
+        diffusore = null;
+        inutilizzato.chiudi();
+    }
+
+    /**
+     * Attiva le statistiche degli scambi di questa borsa e di ogni sua azione: da questo momento ogni acquisto e ogni vendita
+     * vengono registrati, in tempo costante, nella finestra della borsa e in quella dell'azione.
+     * Attivare le statistiche quando sono già attive non ha effetto.
+     * @param larghezza la durata, in millisecondi, degli intervalli in cui è diviso il tempo.
+     * @param intervalli il numero di intervalli conservati: la finestra più lunga dura {@code larghezza * intervalli} millisecondi.
+     * @throws IllegalArgumentException se {@code larghezza} o {@code intervalli} è minore o uguale a 0.
+     */
+    public synchronized void attivaStatistiche(long larghezza, int intervalli) throws IllegalArgumentException {
+        FinestraScambi nuova = new FinestraScambi(larghezza, intervalli);
+        if (finestra == null) finestra = nuova;
+    }
+
+    /**
+     * Cambia l'orologio con cui vengono datati gli scambi e misurate le finestre delle statistiche,
+     * ad esempio per riprodurre una giornata già registrata.
+     * @param orologio l'orologio, che restituisce l'istante attuale in millisecondi.
+     * @throws NullPointerException se {@code orologio} è {@code null}.
+     */
+    public void orologio(LongSupplier orologio) throws NullPointerException {
+        this.orologio = Objects.requireNonNull(orologio, "L'orologio non può essere null.");
+    }
+
+    /**
+     * Restituisce le statistiche degli scambi di tutte le azioni di questa borsa nella finestra che termina ora.
+     * @param durata la durata della finestra, in millisecondi, arrotondata per eccesso alla larghezza degli intervalli.
+     * @return il numero di scambi, il volume e il controvalore della finestra.
+     * @throws IllegalStateException se le statistiche non sono state attivate.
+     * @throws IllegalArgumentException se {@code durata} è minore o uguale a 0 o maggiore della finestra più lunga.
+     */
+    public Statistiche statistiche(long durata) throws IllegalStateException, IllegalArgumentException {
+        FinestraScambi attuale = finestra;
+        if (attuale == null) throw new IllegalStateException("Le statistiche non sono attive per questa borsa.");
+        return attuale.statistiche(orologio.getAsLong(), durata);
+    }
+
+    /**
+     * Collega questa borsa a uno storico: da questo momento ogni acquisto e ogni vendita vengono accodati nello storico.
+     * Più borse possono essere collegate allo stesso storico.
+     * @param storico lo storico, {@code null} per scollegare la borsa.
+     */
+    public void storico(StoricoScambi storico) {
+        this.storico = storico;
+    }
+
+    /**
+     * Collega a questa borsa un controllo di rischio, che viene consultato prima di eseguire ogni acquisto e ogni vendita
+     * e informato di ogni scambio eseguito. Va collegato prima di inviare ordini alla borsa.
+     * @param controllo il controllo di rischio, {@code null} per rimuovere il controllo.
+     */
+    public void controlloRischio(ControlloRischio controllo) {
+        this.controlloRischio = controllo;
+    }
+
+    /**
+     * Imposta la regola che sospende le negoziazioni di un'azione di questa borsa quando il suo valore varia troppo in poco tempo.
+     * La regola vale per tutte le azioni che non hanno una regola propria, e le variazioni vengono misurate con l'orologio della borsa.
+     * @param regola la regola di sospensione, {@code null} per non sospendere le azioni.
+     */
+    public void sospensioni(RegolaSospensione regola) {
+        this.regolaSospensione = regola;
+    }
+
+    /**
+     * Registra uno scambio nel controllo di rischio e nello storico, se la borsa vi è collegata, e nelle statistiche della borsa e dell'azione, se sono attive.
+     * @param operatore l'operatore che ha acquistato o venduto.
+     * @param azione l'azione scambiata.
+     * @param prezzo il prezzo per singola azione a cui è avvenuto lo scambio.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa).
+     */
+    private void registraScambio(Operatore operatore, Azione azione, int prezzo, int scambiate) {
+        ControlloRischio controllo = controlloRischio;
+        if (controllo != null && scambiate != 0) controllo.eseguito(operatore, azione, prezzo, scambiate);
+        FinestraScambi attuale = finestra;
+        StoricoScambi ricevente = storico;
+        if (scambiate == 0 || attuale == null && ricevente == null) return;
+        long istante = orologio.getAsLong();
+        if (ricevente != null) ricevente.registra(istante, operatore.id(), azione.id, prezzo, scambiate);
+        if (attuale == null) return;
+        int quantita = Math.abs(scambiate);
+        attuale.registra(istante, prezzo, quantita);
+        FinestraScambi dellAzione = azione.finestra;
+        if (dellAzione == null) {
+            dellAzione = new FinestraScambi(attuale.larghezza(), attuale.intervalli());
+            azione.finestra = dellAzione;
+        }
+        dellAzione.registra(istante, prezzo, quantita);
+    }
 
     /**
      * Quota un'azione in questa borsa. 
@@ -144,16 +559,73 @@ public class Borsa implements Comparable<Borsa> {
     void quotaAzienda(Azienda azienda, int valoreAzione, int quantitaAzione) throws NullPointerException {
         Objects.requireNonNull(azienda);
         if (quantitaAzione <= 0 || valoreAzione <= 0) throw new IllegalArgumentException("Il numero delle azioni e il loro valore deve essere maggiore di zero.");
+        if (azioniPerAzienda.contiene(azienda.id())) throw new IllegalArgumentException("Questa azienda è già quotata in questa borsa!");
+        if (!azienda.quotataIn(this)) throw new IllegalArgumentException("Non puoi quotare l'azienda in questa borsa.");
         Azione nuovaAzione = new Azione(azienda, valoreAzione, quantitaAzione);
-        if (azioniQuotate.contains(nuovaAzione)) throw new IllegalArgumentException("Questa azienda è già quotata in questa borsa!");
-        Iterator<Borsa> borseAzienda = azienda.borseQuotate();
-        while (borseAzienda.hasNext()) {
-            if (borseAzienda.next().equals(this)) {
-                azioniQuotate.add(nuovaAzione);
-                return;
+        registraAzioni(List.of(nuovaAzione));
+        inserisciAzione(nuovaAzione);
+        indicePrezzi.aggiungi(nuovaAzione.indice, nuovaAzione.id, valoreAzione);
+        azioniQuotate.add(nuovaAzione);
+        modificata(nuovaAzione, null, 0);
+    }
+
+    /**
+     * Quota molte aziende in molte borse in un'unica operazione.
+     * Le richieste vengono raggruppate per borsa e, in ogni borsa, ordinate per azienda: le azioni di ogni borsa
+     * vengono create e inserite in ordine, con un'unica assegnazione di identificatori.
+     * Le richieste non valide vengono scartate senza interrompere le altre; fra due richieste per la stessa azienda
+     * e la stessa borsa vale la prima.
+     * Le borse coinvolte non devono eseguire scambi durante la quotazione.
+     * @param richieste le richieste di quotazione.
+     * @return per ogni richiesta scartata, la sua posizione in {@code richieste} associata al motivo; la mappa è vuota se tutte sono state eseguite.
+     * @throws NullPointerException se {@code richieste} è {@code null}.
+     */
+    public static SortedMap<Integer, String> quotaInBlocco(List<RichiestaQuotazione> richieste) throws NullPointerException {
+        Objects.requireNonNull(richieste, "Le richieste non possono essere null.");
+        SortedMap<Integer, String> scartate = new TreeMap<>();
+        Map<Borsa, List<Integer>> perBorsa = new HashMap<>();
+        for (int i = 0; i < richieste.size(); i++) {
+            RichiestaQuotazione richiesta = richieste.get(i);
+            if (richiesta == null || richiesta.azienda() == null || richiesta.borsa() == null) scartate.put(i, "La richiesta deve indicare l'azienda e la borsa.");
+            else if (richiesta.quantita() <= 0 || richiesta.valore() <= 0) scartate.put(i, "Il numero delle azioni e il loro valore deve essere maggiore di zero.");
+            else perBorsa.computeIfAbsent(richiesta.borsa(), b -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<Borsa, List<Integer>> gruppo : perBorsa.entrySet()) gruppo.getKey().quotaOrdinate(richieste, gruppo.getValue(), scartate);
+        return scartate;
+    }
+
+    /**
+     * Quota in questa borsa le aziende di un gruppo di richieste, in ordine di azienda.
+     * @param richieste tutte le richieste.
+     * @param indici le posizioni delle richieste valide per questa borsa.
+     * @param scartate riceve le posizioni delle richieste scartate, con il motivo.
+     */
+    private void quotaOrdinate(List<RichiestaQuotazione> richieste, List<Integer> indici, SortedMap<Integer, String> scartate) {
+        int[] aziende = new int[indici.size()];
+        int[] posizioni = new int[indici.size()];
+        for (int k = 0; k < aziende.length; k++) {
+            posizioni[k] = indici.get(k);
+            aziende[k] = richieste.get(posizioni[k]).azienda().id();
+        }
+        // l'ordinamento è stabile, quindi fra due richieste per la stessa azienda resta prima quella arrivata prima
+        Azienda.ordinaPerNome(aziende, posizioni);
+        List<Azione> nuove = new ArrayList<>(aziende.length);
+        for (int k = 0; k < aziende.length; k++) {
+            RichiestaQuotazione richiesta = richieste.get(posizioni[k]);
+            if ((k > 0 && aziende[k] == aziende[k - 1]) || azioniPerAzienda.contiene(aziende[k])) {
+                scartate.put(posizioni[k], "Questa azienda è già quotata in questa borsa!");
+                continue;
             }
+            nuove.add(new Azione(richiesta.azienda(), richiesta.valore(), richiesta.quantita()));
+        }
+        registraAzioni(nuove);
+        for (Azione nuova : nuove) {
+            nuova.azienda.aggiungiBorsa(this);
+            inserisciAzione(nuova);
+            indicePrezzi.aggiungi(nuova.indice, nuova.id, nuova.valore());
+            azioniQuotate.add(nuova);
+            modificata(nuova, null, 0);
         }
-        throw new IllegalArgumentException("Non puoi quotare l'azienda in questa borsa.");
     }
 
     /**
@@ -162,27 +634,151 @@ public class Borsa implements Comparable<Borsa> {
      * @param operatore è l'operatore che vuole comprare un certo numero di azioni in questa borsa.
      * @param azienda è l'azienda del quale l'operatore vuole comprare le azioni.
      * @param investimento è il capitale che l'operatore vuole investire. 
-     * @throws IllegalArgumentException se l'investimento dell'operatore è: maggiore del suo budget, minore del valore di una singola azione oppure se non ci sono abbastanza azioni da comprare nella borsa. 
+     * @throws IllegalArgumentException se l'investimento dell'operatore è: maggiore del suo budget, minore del valore di una singola azione oppure se non ci sono abbastanza azioni da comprare nella borsa,
+     *         oppure se le negoziazioni dell'azione sono sospese o l'acquisto è rifiutato dal controllo di rischio.
+     * @throws NoSuchElementException se l'azienda non è quotata in questa borsa.
      * @throws NullPointerException se l'operatore o la borsa sono {@code null}.
      */
-    public void acquisto(Operatore operatore, Azienda azienda, int investimento) throws NullPointerException, IllegalArgumentException {
+    public void acquisto(Operatore operatore, Azienda azienda, int investimento) throws NullPointerException, NoSuchElementException, IllegalArgumentException {
+        rifiuta(tentaAcquisto(operatore, azienda, investimento));
+    }
+
+    /**
+     * Tenta l'acquisto di un determinato numero di azioni, come {@link #acquisto(Operatore, Azienda, int)},
+     * ma senza sollevare eccezioni quando l'acquisto viene rifiutato: un acquisto rifiutato non modifica né la borsa né l'operatore.
+     * @param operatore è l'operatore che vuole comprare un certo numero di azioni in questa borsa.
+     * @param azienda è l'azienda del quale l'operatore vuole comprare le azioni.
+     * @param investimento è il capitale che l'operatore vuole investire.
+     * @return {@link Esito#ESEGUITO} se l'acquisto è stato eseguito, altrimenti il motivo del rifiuto.
+     * @throws NullPointerException se l'operatore o l'azienda sono {@code null}.
+     */
+    public Esito tentaAcquisto(Operatore operatore, Azienda azienda, int investimento) throws NullPointerException {
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        Objects.requireNonNull(azienda, "L'azione non può essere null.");
+        if (!azioniPerAzienda.contiene(azienda.id())) return Esito.NON_QUOTATA;
+        Azione azione = azioni[azioniPerAzienda.valore(azienda.id())];
+        Esito esito = verificaAcquisto(operatore, azione, investimento, true);
+        if (esito != Esito.ESEGUITO) return esito;
+        // il budget controllato sopra può essere stato speso nel frattempo da un'altra borsa
+        if (!operatore.tentaPrelievo((investimento/azione.valore())*azione.valore())) return Esito.FONDI_INSUFFICIENTI;
+        eseguiAcquisto(operatore, azione, investimento/azione.valore());
+        if (!innescati.isEmpty()) eseguiInnescati();
+        return esito;
+    }
+
+    /**
+     * Permette l'acquisto di un determinato numero di azioni pagato con una somma che l'operatore ha già riservato.
+     * La somma riservata viene sempre rilasciata: la parte non spesa torna nel budget dell'operatore, anche se l'acquisto viene rifiutato.
+     * @param operatore è l'operatore che vuole comprare un certo numero di azioni in questa borsa.
+     * @param azienda è l'azienda del quale l'operatore vuole comprare le azioni.
+     * @param investimento è il capitale che l'operatore vuole investire, già riservato con {@link Operatore#riserva(int)}.
+     * @throws IllegalArgumentException se l'investimento dell'operatore è minore del valore di una singola azione, se non ci sono abbastanza azioni da comprare nella borsa,
+     *         se l'operatore non ha riservato l'investimento, se le negoziazioni dell'azione sono sospese oppure se l'acquisto è rifiutato dal controllo di rischio.
+     * @throws NoSuchElementException se l'azienda non è quotata in questa borsa.
+     * @throws NullPointerException se l'operatore o la borsa sono {@code null}.
+     */
+    public void acquistoRiservato(Operatore operatore, Azienda azienda, int investimento) throws NullPointerException, NoSuchElementException, IllegalArgumentException {
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        if (azienda == null) {
+            operatore.rilascia(investimento);
+            throw new NullPointerException("L'azione non può essere null.");
+        }
+        rifiuta(tentaAcquistoRiservato(operatore, azienda, investimento));
+    }
+
+    /**
+     * Tenta l'acquisto di un determinato numero di azioni pagato con una somma già riservata, come {@link #acquistoRiservato(Operatore, Azienda, int)},
+     * ma senza sollevare eccezioni quando l'acquisto viene rifiutato: la borsa non viene modificata e la somma riservata torna nel budget dell'operatore.
+     * @param operatore è l'operatore che vuole comprare un certo numero di azioni in questa borsa.
+     * @param azienda è l'azienda del quale l'operatore vuole comprare le azioni.
+     * @param investimento è il capitale che l'operatore vuole investire, già riservato con {@link Operatore#riserva(int)}.
+     * @return {@link Esito#ESEGUITO} se l'acquisto è stato eseguito, altrimenti il motivo del rifiuto.
+     * @throws NullPointerException se l'operatore o l'azienda sono {@code null}.
+     * @throws IllegalArgumentException se l'operatore non ha riservato l'investimento.
+     */
+    public Esito tentaAcquistoRiservato(Operatore operatore, Azienda azienda, int investimento) throws NullPointerException, IllegalArgumentException {
         Objects.requireNonNull(operatore, "L'operatore non può essere null.");
         Objects.requireNonNull(azienda, "L'azione non può essere null.");
-        Azione azione = cercaAzioneBorsa(azienda); 
-        if (investimento > operatore.budget()) throw new IllegalArgumentException("L'operatore non ha i soldi per effettuare l'investimento.");
-        if (investimento < azione.valore()) throw new IllegalArgumentException("L'operatore non ha abbastanza soldi per comprare queste azioni.");
-        if (investimento/azione.valore() > azione.quantitaDisponibile()) throw new IllegalArgumentException("Non ci sono abbastanza azioni disponibili.");
-        operatore.preleva((investimento/azione.valore())*azione.valore());
-        if (azione.proprietari.containsKey(operatore)) {
-            int azioniInPossesso = azione.proprietari.get(operatore); 
-            azione.proprietari.put(operatore, (investimento/azione.valore())+azioniInPossesso);
-        } else azione.proprietari.put(operatore, investimento/azione.valore());
+        Azione azione = azioniPerAzienda.contiene(azienda.id()) ? azioni[azioniPerAzienda.valore(azienda.id())] : null;
+        Esito esito = azione == null ? Esito.NON_QUOTATA : verificaAcquisto(operatore, azione, investimento, false);
+        if (esito != Esito.ESEGUITO) {
+            operatore.rilascia(investimento);
+            return esito;
+        }
+        operatore.saldaRiserva(investimento, (investimento/azione.valore())*azione.valore());
+        eseguiAcquisto(operatore, azione, investimento/azione.valore());
+        if (!innescati.isEmpty()) eseguiInnescati();
+        return esito;
+    }
+
+    /**
+     * Controlla che un acquisto possa essere eseguito, consultando per ultimo il controllo di rischio.
+     * @param operatore è l'operatore che vuole comprare.
+     * @param azione è l'azione che l'operatore vuole comprare.
+     * @param investimento è il capitale che l'operatore vuole investire.
+     * @param controllaBudget indica se controllare che l'investimento non superi il budget dell'operatore.
+     * @return {@link Esito#ESEGUITO} se l'acquisto può essere eseguito, altrimenti il motivo del rifiuto.
+     */
+    private Esito verificaAcquisto(Operatore operatore, Azione azione, int investimento, boolean controllaBudget) {
+        if (azione.sospesa()) return Esito.SOSPESA;
+        if (controllaBudget && investimento > operatore.budget()) return Esito.FONDI_INSUFFICIENTI;
+        if (investimento < azione.valore()) return Esito.INVESTIMENTO_INSUFFICIENTE;
+        int quantita = investimento/azione.valore();
+        if (quantita > azione.quantitaDisponibile()) return Esito.AZIONI_INSUFFICIENTI;
+        ControlloRischio controllo = controlloRischio;
+        return controllo == null ? Esito.ESEGUITO : controllo.verifica(operatore, azione, azione.valore(), quantita);
+    }
+
+    /**
+     * Solleva l'eccezione corrispondente a un ordine rifiutato, con la descrizione dell'esito come messaggio.
+     * @param esito l'esito dell'ordine.
+     * @throws NoSuchElementException se l'azienda non è quotata o l'operatore non possiede l'azione.
+     * @throws IllegalArgumentException se l'ordine è stato rifiutato per un altro motivo.
+     */
+    private static void rifiuta(Esito esito) throws NoSuchElementException, IllegalArgumentException {
+        switch (esito) {
+            case ESEGUITO -> { }
+            case NON_QUOTATA, NON_POSSEDUTA -> throw new NoSuchElementException(esito.messaggio());
+            default -> throw new IllegalArgumentException(esito.messaggio());
+        }
+    }
+
+    /**
+     * Assegna all'operatore le azioni già pagate e, se presente, applica la politica prezzo.
+     * @param operatore è l'operatore che ha comprato.
+     * @param azione è l'azione comprata.
+     * @param quantita è il numero di azioni comprate.
+     */
+    private void eseguiAcquisto(Operatore operatore, Azione azione, int quantita) {
+        registraScambio(operatore, azione, azione.valore(), quantita);
+        int azioniInPossesso = Posizioni.ATTIVE.quantita(operatore.id(), azione.id) + quantita;
+        Posizioni.ATTIVE.imposta(operatore.id(), azione.id, azioniInPossesso);
+        archivio.aggiungiInCircolazione(azione.indice, quantita);
         if (politicaPrezzo != null) {
-            int nuovoValore = politicaPrezzo.acquisto(azione, investimento/azione.valore());
+            int nuovoValore = politicaPrezzo.acquisto(azione, quantita);
             azione.valore(nuovoValore);
         }
-        operatoriBorsa.add(operatore);
-        operatore.aggiornaAzioni(this);
+        operatoriBorsa.set(operatore.id());
+        modificata(azione, operatore, quantita);
+    }
+
+    /**
+     * Registra una modifica di un'azione, pubblica l'istantanea successiva se le istantanee sono attive
+     * e l'aggiornamento dell'azione se ci sono ascoltatori.
+     * @param azione l'azione modificata.
+     * @param operatore l'operatore la cui posizione nell'azione è cambiata, {@code null} se nessuna posizione è cambiata.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa), 0 per una quotazione.
+     */
+    private void modificata(Azione azione, Operatore operatore, int scambiate) {
+        modifiche++;
+        if (operatore != null && scambiate != 0) azione.azienda.scambiata(operatore.id(), scambiate);
+        Diffusore attuale = diffusore;
+        if (attuale != null && azione.borsa() == this) attuale.pubblica(new Aggiornamento(azione, azione.valore(), azione.quantitaDisponibile(), scambiate, modifiche));
+        Istantanea ultima = istantanea;
+        if (ultima != null && azione.borsa() == this) {
+            int posseduta = operatore == null ? 0 : Posizioni.ATTIVE.quantita(operatore.id(), azione.id);
+            istantanea = ultima.aggiorna(modifiche, azione.azienda, azione.valore(), azione.quantita(), azione.quantitaDisponibile(), operatore, posseduta);
+        }
     }
 
     /**
@@ -192,44 +788,257 @@ public class Borsa implements Comparable<Borsa> {
      * @param azione è l'azione che l'operatore vuole vendere.
      * @param quantita è la quantità di azioni che l'operatore vuole vendere. 
      * @throws NullPointerException se l'azione o l'operatore è {@code null}.
-     * @throws IllegalArgumentException se l'operatore non possiede le azioni che vuole vendere o non ne possiede in sufficiente quantità.
+     * @throws IllegalArgumentException se {@code quantita} è minore o uguale a 0, se l'operatore non possiede le azioni che vuole vendere in sufficiente quantità, se le negoziazioni dell'azione sono sospese
+     *         oppure se la vendita è rifiutata dal controllo di rischio.
+     * @throws NoSuchElementException se l'operatore non possiede l'azione o se l'azione non è quotata in questa borsa.
      */
-    public void vendita(Operatore operatore, Azione azione, int quantita) throws NullPointerException, IllegalArgumentException {
+    public void vendita(Operatore operatore, Azione azione, int quantita) throws NullPointerException, NoSuchElementException, IllegalArgumentException {
+      rifiuta(tentaVendita(operatore, azione, quantita));
+    }
+
+    /**
+     * Tenta la vendita di un certo numero di azioni, come {@link #vendita(Operatore, Azione, int)},
+     * ma senza sollevare eccezioni quando la vendita viene rifiutata: una vendita rifiutata non modifica né la borsa né l'operatore.
+     * @param operatore è l'operatore che vuole vendere un certo numero di azioni in suo possesso.
+     * @param azione è l'azione che l'operatore vuole vendere.
+     * @param quantita è la quantità di azioni che l'operatore vuole vendere.
+     * @return {@link Esito#ESEGUITO} se la vendita è stata eseguita, altrimenti il motivo del rifiuto.
+     * @throws NullPointerException se l'azione o l'operatore è {@code null}.
+     */
+    public Esito tentaVendita(Operatore operatore, Azione azione, int quantita) throws NullPointerException {
       Objects.requireNonNull(azione, "L'azione non può essere null.");
       Objects.requireNonNull(operatore, "L'operatore non può essere null");
-      int azioniAttualmentePossedute = operatore.numeroAzioni(azione);
-      if (operatore.possiedeAzione(azione) && azioniAttualmentePossedute < quantita) throw new IllegalArgumentException("L'operatore non ha abbastanza azioni da vendere.");
+      if (azione.borsa() != this) return Esito.NON_QUOTATA;
+      if (quantita <= 0) return Esito.QUANTITA_NON_VALIDA;
+      if (azione.sospesa()) return Esito.SOSPESA;
+      int azioniAttualmentePossedute = Posizioni.ATTIVE.quantita(operatore.id(), azione.id);
+      if (azioniAttualmentePossedute <= 0) return Esito.NON_POSSEDUTA;
+      if (azioniAttualmentePossedute < quantita) return Esito.POSSESSO_INSUFFICIENTE;
+      ControlloRischio controllo = controlloRischio;
+      if (controllo != null) {
+        Esito esito = controllo.verifica(operatore, azione, azione.valore(), -quantita);
+        if (esito != Esito.ESEGUITO) return esito;
+      }
       int azioniRimanenti = azioniAttualmentePossedute - quantita;
-      if (azioniRimanenti <= 0) azione.proprietari.remove(operatore);
-      else azione.proprietari.put(operatore, azioniRimanenti);
+      archivio.aggiungiInCircolazione(azione.indice, -(azioniAttualmentePossedute - Math.max(azioniRimanenti, 0)));
+      Posizioni.ATTIVE.imposta(operatore.id(), azione.id, azioniRimanenti);
       operatore.deposita(quantita*azione.valore());
+      registraScambio(operatore, azione, azione.valore(), -quantita);
       if (politicaPrezzo != null) {
         var nuovoValore = politicaPrezzo.vendita(azione, quantita);
         azione.valore(nuovoValore);     
       }
-      operatore.aggiornaAzioni(this);
+      modificata(azione, operatore, -quantita);
+      if (!innescati.isEmpty()) eseguiInnescati();
+      return Esito.ESEGUITO;
+    }
+
+    /**
+     * Inserisce un ordine condizionato, che la borsa eseguirà quando il valore dell'azione raggiungerà la soglia.
+     * Se il valore attuale raggiunge già la soglia l'ordine viene eseguito subito, prima di restituirlo.
+     * Come gli acquisti e le vendite, va invocato dal thread che esegue gli ordini della borsa.
+     * @param operatore l'operatore per cui inviare l'ordine.
+     * @param azione l'azione da sorvegliare e scambiare.
+     * @param tipo il tipo dell'ordine.
+     * @param soglia il valore dell'azione che innesca l'ordine.
+     * @param valore l'investimento di un acquisto o la quantità di una vendita.
+     * @return l'ordine condizionato.
+     * @throws NullPointerException se l'operatore, l'azione o il tipo sono {@code null}.
+     * @throws IllegalArgumentException se l'azione non è quotata in questa borsa oppure se la soglia o il valore non sono positivi.
+     */
+    public OrdineCondizionato ordineCondizionato(Operatore operatore, Azione azione, OrdineCondizionato.Tipo tipo, int soglia, int valore) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        Objects.requireNonNull(azione, "L'azione non può essere null.");
+        Objects.requireNonNull(tipo, "Il tipo non può essere null.");
+        if (azione.borsa() != this) throw new IllegalArgumentException("L'azione deve essere quotata in questa borsa.");
+        if (soglia <= 0 || valore <= 0) throw new IllegalArgumentException("La soglia e il valore dell'ordine devono essere maggiori di zero.");
+        OrdineCondizionato ordine = new OrdineCondizionato(operatore, azione, tipo, soglia, valore);
+        if (ordine.innescatoDa(azione.valore())) {
+            innescati.add(ordine);
+            eseguiInnescati();
+        } else {
+            if (azione.inneschi == null) azione.inneschi = new IndiceInneschi();
+            azione.inneschi.aggiungi(ordine);
+        }
+        return ordine;
+    }
+
+    /**
+     * Annulla un ordine condizionato in attesa.
+     * @param ordine l'ordine da annullare.
+     * @return {@code true} se l'ordine è stato annullato, {@code false} se non era in attesa in questa borsa.
+     * @throws NullPointerException se {@code ordine} è {@code null}.
+     */
+    public boolean annulla(OrdineCondizionato ordine) throws NullPointerException {
+        Objects.requireNonNull(ordine, "L'ordine non può essere null.");
+        IndiceInneschi indice = ordine.azione().inneschi;
+        if (ordine.azione().borsa() != this || indice == null || !indice.rimuovi(ordine)) return false;
+        ordine.annulla();
+        return true;
+    }
+
+    /**
+     * Paga un dividendo in contanti a tutti i proprietari di un'azione quotata in questa borsa, in proporzione alle azioni possedute.
+     * Le somme dovute vengono calcolate in parallelo, poi accreditate in parallelo, ciascuna controllando il budget sotto il monitor
+     * del proprio operatore; se un accredito è rifiutato, quelli già eseguiti vengono stornati, così un dividendo rifiutato non paga nessuno.
+     * Come gli acquisti e le vendite, va invocato dal thread che esegue gli ordini della borsa.
+     * @param azione l'azione che paga il dividendo.
+     * @param perAzione la somma pagata per ogni azione posseduta.
+     * @return la somma pagata a tutti i proprietari.
+     * @throws NullPointerException se {@code azione} è {@code null}.
+     * @throws IllegalArgumentException se l'azione non è quotata in questa borsa, se {@code perAzione} non è positivo
+     *         oppure se la somma dovuta a un proprietario, o il suo budget dopo l'accredito, supera il massimo di un {@code int}.
+     */
+    public long dividendo(Azione azione, int perAzione) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(azione, "L'azione non può essere null.");
+        if (azione.borsa() != this) throw new IllegalArgumentException("L'azione deve essere quotata in questa borsa.");
+        if (perAzione <= 0) throw new IllegalArgumentException("Il dividendo per azione deve essere maggiore di zero.");
+        Proprietari proprietari = proprietari(azione);
+        int[] operatori = proprietari.operatori();
+        int[] quantita = proprietari.quantita();
+        int[] somme = new int[quantita.length];
+        boolean validi = IntStream.range(0, quantita.length).parallel().allMatch(k -> {
+            long somma = (long) quantita[k] * perAzione;
+            somme[k] = (int) somma;
+            return somma <= Integer.MAX_VALUE;
+        });
+        if (!validi || !Operatore.accreditaInBlocco(operatori, somme)) throw new IllegalArgumentException("Il dividendo di un proprietario supera il budget massimo.");
+        return Arrays.stream(somme).asLongStream().sum();
+    }
+
+    /**
+     * Fraziona un'azione quotata in questa borsa: ogni gruppo di {@code vecchie} azioni diventa {@code nuove} azioni,
+     * e il valore della singola azione diventa {@code vecchie / nuove} del precedente, arrotondato per difetto.
+     * Con {@code nuove < vecchie} il frazionamento è un raggruppamento.
+     *
+     * Ogni proprietario riceve le nuove azioni arrotondate per difetto e la frazione di azione restante in contanti, al nuovo valore.
+     * Il prezzo di riferimento, la quantità esistente e gli ordini condizionati in attesa vengono adeguati allo stesso rapporto,
+     * e la finestra delle sospensioni riparte dal nuovo valore, così il frazionamento non è scambiato per un movimento di prezzo;
+     * gli ordini condizionati che per l'arrotondamento raggiungono la soglia vengono eseguiti subito.
+     *
+     * Le nuove posizioni vengono calcolate in parallelo e le frazioni restanti accreditate prima di modificare qualcuna delle posizioni,
+     * stornando gli accrediti già eseguiti se uno è rifiutato, così un frazionamento rifiutato non cambia nulla; poi le posizioni vengono aggiornate in blocco;
+     * il frazionamento è un'unica modifica della borsa, quindi chi legge le istantanee vede tutte le posizioni prima o tutte dopo.
+     * Come gli acquisti e le vendite, va invocato dal thread che esegue gli ordini della borsa.
+     * @param azione l'azione da frazionare.
+     * @param nuove il numero di azioni dopo il frazionamento per ogni gruppo di {@code vecchie} azioni.
+     * @param vecchie il numero di azioni prima del frazionamento.
+     * @throws NullPointerException se {@code azione} è {@code null}.
+     * @throws IllegalArgumentException se l'azione non è quotata in questa borsa, se {@code nuove} o {@code vecchie} non è positivo,
+     *         se il nuovo valore o la nuova quantità dell'azione sarebbero minori di 1 o maggiori del massimo di un {@code int}
+     *         oppure se il budget di un proprietario, dopo l'accredito della frazione restante, supererebbe il massimo di un {@code int}.
+     */
+    public void frazionamento(Azione azione, int nuove, int vecchie) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(azione, "L'azione non può essere null.");
+        if (azione.borsa() != this) throw new IllegalArgumentException("L'azione deve essere quotata in questa borsa.");
+        if (nuove <= 0 || vecchie <= 0) throw new IllegalArgumentException("I termini del frazionamento devono essere maggiori di zero.");
+        if (nuove == vecchie) return;
+        int valore = azione.valore();
+        long nuovoValore = (long) valore * vecchie / nuove;
+        long nuovaQuantita = (long) azione.quantita() * nuove / vecchie;
+        if (nuovoValore < 1 || nuovoValore > Integer.MAX_VALUE) throw new IllegalArgumentException("Il frazionamento porterebbe il valore dell'azione fuori dai limiti.");
+        if (nuovaQuantita < 1 || nuovaQuantita > Integer.MAX_VALUE) throw new IllegalArgumentException("Il frazionamento porterebbe la quantità dell'azione fuori dai limiti.");
+        Proprietari proprietari = proprietari(azione);
+        int[] operatori = proprietari.operatori();
+        int[] quantita = proprietari.quantita();
+        int[] nuoveQuantita = new int[quantita.length];
+        int[] variazioni = new int[quantita.length];
+        int[] resti = new int[quantita.length];
+        // ogni nuova quantità è al più la nuova quantità esistente e ogni resto è minore del nuovo valore: solo il budget va controllato
+        IntStream.range(0, quantita.length).parallel().forEach(k -> {
+            long frazionate = (long) quantita[k] * nuove;
+            nuoveQuantita[k] = (int) (frazionate / vecchie);
+            variazioni[k] = nuoveQuantita[k] - quantita[k];
+            resti[k] = (int) (frazionate % vecchie * nuovoValore / vecchie);
+        });
+        if (!Operatore.accreditaInBlocco(operatori, resti)) throw new IllegalArgumentException("La frazione restante di un proprietario supera il budget massimo.");
+        Posizioni.ATTIVE.impostaDetentori(azione.id, operatori, nuoveQuantita);
+        azione.azienda.rettifica(operatori, variazioni);
+        archivio.quantita(azione.indice, (int) nuovaQuantita);
+        archivio.aggiungiInCircolazione(azione.indice, (int) (Arrays.stream(nuoveQuantita).asLongStream().sum() - archivio.inCircolazione(azione.indice)));
+        indicePrezzi.fissaRiferimento(azione.indice, azione.id, (int) Math.max(1, (long) azione.riferimento() * vecchie / nuove));
+        indicePrezzi.cambia(azione.indice, azione.id, valore, (int) nuovoValore);
+        archivio.valore(azione.indice, (int) nuovoValore);
+        if (azione.estremi != null) azione.estremi.svuota();
+        if (azione.inneschi != null && azione.inneschi.dimensione() > 0) {
+            azione.inneschi.frazionato(nuove, vecchie);
+            azione.inneschi.innescati((int) nuovoValore, innescati);
+        }
+        modifiche++;
+        Diffusore attuale = diffusore;
+        if (attuale != null) attuale.pubblica(new Aggiornamento(azione, azione.valore(), azione.quantitaDisponibile(), 0, modifiche));
+        Istantanea ultima = istantanea;
+        if (ultima != null) {
+            Operatore[] cambiati = new Operatore[operatori.length];
+            for (int k = 0; k < operatori.length; k++) cambiati[k] = Operatore.perId(operatori[k]);
+            istantanea = ultima.aggiorna(modifiche, azione.azienda, azione.valore(), azione.quantita(), azione.quantitaDisponibile(), cambiati, nuoveQuantita);
+        }
+        if (!innescati.isEmpty()) eseguiInnescati();
+    }
+
+    /**
+     * I proprietari di un'azione in un determinato momento.
+     * @param operatori gli identificatori dei proprietari.
+     * @param quantita la quantità posseduta da ogni proprietario, nella stessa posizione del suo identificatore.
+     */
+    private record Proprietari(int[] operatori, int[] quantita) {
+    }
+
+    /**
+     * Copia i proprietari di un'azione.
+     * @param azione l'azione.
+     * @return i proprietari dell'azione, in un ordine non definito.
+     */
+    private static Proprietari proprietari(Azione azione) {
+        MappaIntera copia = new MappaIntera(Math.max(1, azione.numeroDetentori()));
+        Posizioni.ATTIVE.perOgniDetentore(azione.id, copia::inserisci);
+        int[] operatori = copia.chiavi();
+        int[] quantita = new int[operatori.length];
+        for (int k = 0; k < operatori.length; k++) quantita[k] = copia.valore(operatori[k]);
+        return new Proprietari(operatori, quantita);
+    }
+
+    /**
+     * Esegue gli ordini condizionati innescati, compresi quelli innescati a loro volta dalle loro esecuzioni, e ne registra l'esito.
+     * Gli ordini innescati durante l'esecuzione vengono accodati ed eseguiti dallo stesso ciclo, senza ricorsione.
+     */
+    private void eseguiInnescati() {
+        if (innescando) return;
+        innescando = true;
+        try {
+            OrdineCondizionato ordine;
+            while ((ordine = innescati.poll()) != null) {
+                Azione azione = ordine.azione();
+                ordine.concludi(ordine.tipo().acquisto()
+                        ? tentaAcquisto(ordine.operatore(), azione.azienda(), ordine.valore())
+                        : tentaVendita(ordine.operatore(), azione, ordine.valore()));
+            }
+        } finally {
+            innescando = false;
+        }
     }
 
 
     @Override 
     public boolean equals(Object obj) {
         if (obj instanceof Borsa other) {
-            return nome.equals(other.nome());
+            return id == other.id;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return nome.hashCode();
+        return id;
     }
     @Override
     public int compareTo(Borsa altraBorsa) {
-        return nome.compareTo(altraBorsa.nome);
+        return ISTANZE.confronta(id, altraBorsa.id);
     }
 
     /**
      * L'azione viene creata nel momento in cui un'azienda si quota in borsa. 
+     * Valore, quantità e azioni in circolazione sono conservati nell'archivio della borsa, l'azione ne è una vista.
      * 
      * Ogni azione:
      *  - è identificata dall'azienda che l'ha emessa.
@@ -250,28 +1059,42 @@ public class Borsa implements Comparable<Borsa> {
     public class Azione implements Comparable<Azione> {
         /**{@code azienda} l'azienda a cui è associata questa azione. */
         private final Azienda azienda;
-        /**{@code valore} il valore per ogni singola azione. */
-        private int valore;
-        /**{@code quantita} la quantità di azioni esistenti. */
-        private final int quantita;
-        /**{@code proprietari} contiene i proprietari di questa azione associati al numero di azioni possedute da ogni proprietario. */
-        private TreeMap<Operatore, Integer> proprietari;
+        /**{@code id} l'identificatore denso dell'azione, unico tra tutte le borse. */
+        private int id;
+        /**{@code indice} la posizione di questa azione nell'archivio della borsa. */
+        private final int indice;
+        /**{@code finestra} le statistiche degli scambi di questa azione, {@code null} finché non viene scambiata con le statistiche attive. */
+        private volatile FinestraScambi finestra;
+        /**{@code regolaSospensione} la regola di sospensione propria di questa azione, {@code null} per seguire quella della borsa. */
+        private volatile RegolaSospensione regolaSospensione;
+        /**{@code estremi} il minimo e il massimo dei valori recenti, {@code null} finché il valore non cambia con una regola di sospensione. */
+        private FinestraEstremi estremi;
+        /**{@code sospesaFino} l'istante in cui termina l'ultima sospensione, {@link Long#MIN_VALUE} se l'azione non è mai stata sospesa. */
+        private volatile long sospesaFino = Long.MIN_VALUE;
+        /**{@code inneschi} gli ordini condizionati in attesa su questa azione, {@code null} finché non ne viene inserito uno. */
+        private IndiceInneschi inneschi;
 
         /*-
          * AF:
          *    - azienda: è l'azienda al quale è associata l'azione.
-         *    - quantita: rappresenta il numero di azioni presenti in questa borsa.  
-         *    - valore: rappresenta il valore della singola Azione. 
-         *    - proprietari: è l'insieme degli operatori che possiedono questa azione e ogni proprietario è associato al numero di azioni che possiede.
+         *    - id: è l'identificatore dell'azione, pari alla sua posizione in AZIONI.
+         *    - archivio.quantita(indice): rappresenta il numero di azioni presenti in questa borsa.  
+         *    - archivio.valore(indice): rappresenta il valore della singola Azione. 
+         *    - archivio.inCircolazione(indice): rappresenta il numero di azioni acquistate dagli operatori e non ancora vendute.
+         *    - Posizioni.ATTIVE: associa ogni operatore che possiede questa azione, attraverso il suo identificatore, al numero di azioni che possiede.
+         *    - finestra: contiene gli scambi recenti di questa azione; se è null e le statistiche della borsa sono attive, l'azione non è stata scambiata da quando sono attive.
+         *    - estremi: contiene i valori assunti dall'azione dall'ultima sospensione, scartati quelli usciti dalla finestra della regola.
+         *    - sospesaFino: le negoziazioni sono sospese negli istanti che lo precedono.
+         *    - inneschi: gli ordini condizionati in attesa su questa azione, se non è null.
          *    
          * RI:  
          *    - azienda != null.
-         *    - valore > 0.
-         *    - quantità > 0.
+         *    - 0 <= indice < archivio.dimensione().
+         *    - archivio.valore(indice) > 0.
+         *    - archivio.quantita(indice) > 0.
+         *    - archivio.inCircolazione(indice) è la somma delle quantità registrate in Posizioni.ATTIVE per questa azione && archivio.inCircolazione(indice) <= archivio.quantita(indice).
          *    - nomeBorsa != null && !nomeBorsa.isBlank().
-         *    - proprietari != null.
-         *    - proprietari.keySet() != null && k != null per ogni k in proprietari.keySet().
-         *    - proprietari.values() != null && v != null per ogni v in proprietari.values().   
+         *    - AZIONI[id] == this && azioni[indice] == this.
          */
 
         /**
@@ -286,9 +1109,7 @@ public class Borsa implements Comparable<Borsa> {
             Objects.nonNull(nome);
             if (value <= 0 || numeroAzioni <= 0) throw new IllegalArgumentException("Il valore dell'azione e la quantità di azioni deve essere > 0.");
             azienda = nome;
-            valore = value;
-            quantita = numeroAzioni;
-            proprietari = new TreeMap<>();
+            indice = archivio.aggiungi(value, numeroAzioni);
         }
 
         /**
@@ -299,6 +1120,22 @@ public class Borsa implements Comparable<Borsa> {
             return azienda;
         }
 
+        /**
+         * Restituisce l'identificatore denso di questa azione, unico tra tutte le borse.
+         * @return l'identificatore dell'azione.
+         */
+        public int id() {
+            return id;
+        }
+
+        /**
+         * Restituisce la borsa nel quale si trova questa azione.
+         * @return la borsa di questa azione.
+         */
+        Borsa borsa() {
+            return Borsa.this;
+        }
+
         /**
          * Restituisce il nome della borsa nel quale si trova questa azione.
          * @return il nome della borsa.
@@ -312,7 +1149,7 @@ public class Borsa implements Comparable<Borsa> {
          * @return il valore dell'azione. 
          */
         public int valore() {
-            return valore;
+            return archivio.valore(indice);
         }
 
         /**
@@ -320,7 +1157,7 @@ public class Borsa implements Comparable<Borsa> {
          * @return la quantità di azioni nella borsa. 
          */
         public int quantita() {
-            return quantita;
+            return archivio.quantita(indice);
         }
         
         /**
@@ -328,11 +1165,91 @@ public class Borsa implements Comparable<Borsa> {
          * @return la quantità delle aziende disponibili per l'acquisto. 
          */
         public int quantitaDisponibile() {
-            int azioniVendute = 0;
-            for (Operatore o: operatoriBorsa) {
-                if (o.possiedeAzione(this)) azioniVendute += o.numeroAzioni(this);
-            } 
-            return quantita-azioniVendute;
+            return archivio.quantita(indice)-archivio.inCircolazione(indice);
+        }
+
+        /**
+         * Restituisce il numero di operatori che possiedono questa azione, in tempo costante.
+         * @return il numero di proprietari.
+         */
+        public int numeroDetentori() {
+            return Posizioni.ATTIVE.numeroDetentori(id);
+        }
+
+        /**
+         * Restituisce un cursore sui proprietari di questa azione, ordinati per nome, con la quantità posseduta da ciascuno.
+         * Il costo dipende solo dal numero di proprietari e non dal numero di operatori esistenti.
+         * @return il cursore sui proprietari.
+         */
+        public Detentori detentori() {
+            return Detentori.diAzione(id);
+        }
+
+        /**
+         * Restituisce i proprietari che possiedono più azioni, dal maggiore.
+         * A parità di quantità i proprietari sono ordinati per nome.
+         * @param n il numero massimo di proprietari da restituire.
+         * @return al più {@code n} proprietari, in ordine decrescente di quantità posseduta.
+         * @throws IllegalArgumentException se {@code n} è negativo.
+         */
+        public List<Detenzione> maggioriDetentori(int n) throws IllegalArgumentException {
+            return Detentori.maggiori(visitatore -> Posizioni.ATTIVE.perOgniDetentore(id, visitatore), n);
+        }
+
+        /**
+         * Restituisce il prezzo di riferimento dell'azione, rispetto a cui si misura la sua variazione.
+         * @return il prezzo di riferimento.
+         */
+        public int riferimento() {
+            return indicePrezzi.riferimento(indice);
+        }
+
+        /**
+         * Restituisce la variazione del valore dell'azione rispetto al prezzo di riferimento.
+         * @return la variazione in punti base (centesimi di punto percentuale).
+         */
+        public int variazione() {
+            return indicePrezzi.variazione(indice);
+        }
+
+        /**
+         * Restituisce le statistiche degli scambi di questa azione nella finestra che termina ora.
+         * @param durata la durata della finestra, in millisecondi, arrotondata per eccesso alla larghezza degli intervalli.
+         * @return il numero di scambi, il volume e il controvalore della finestra.
+         * @throws IllegalStateException se le statistiche della borsa non sono state attivate.
+         * @throws IllegalArgumentException se {@code durata} è minore o uguale a 0 o maggiore della finestra più lunga.
+         */
+        public Statistiche statistiche(long durata) throws IllegalStateException, IllegalArgumentException {
+            FinestraScambi dellaBorsa = Borsa.this.finestra;
+            if (dellaBorsa == null) throw new IllegalStateException("Le statistiche non sono attive per questa borsa.");
+            FinestraScambi attuale = finestra;
+            return (attuale == null ? dellaBorsa.vuota() : attuale).statistiche(orologio.getAsLong(), durata);
+        }
+
+        /**
+         * Imposta una regola di sospensione propria di questa azione, che prevale su quella della borsa.
+         * @param regola la regola di sospensione, {@code null} per seguire quella della borsa.
+         */
+        public void sospensioni(RegolaSospensione regola) {
+            this.regolaSospensione = regola;
+        }
+
+        /**
+         * Indica se le negoziazioni di questa azione sono sospese in questo momento, secondo l'orologio della borsa.
+         * Finché l'azione non è mai stata sospesa il controllo non legge l'orologio.
+         * @return {@code true} se l'azione è sospesa.
+         */
+        public boolean sospesa() {
+            long fino = sospesaFino;
+            return fino != Long.MIN_VALUE && fino > orologio.getAsLong();
+        }
+
+        /**
+         * Restituisce l'istante in cui termina l'ultima sospensione di questa azione.
+         * @return l'istante, in millisecondi, {@link Long#MIN_VALUE} se l'azione non è mai stata sospesa.
+         */
+        public long sospesaFinoA() {
+            return sospesaFino;
         }
 
         /**
@@ -342,7 +1259,7 @@ public class Borsa implements Comparable<Borsa> {
          * @throws NoSuchElementException se l'operatore non possiede questa azionione. 
          */
         public int azioniDetenute(Operatore operatore) {
-            int nAzioni = proprietari.getOrDefault(operatore, 0);
+            int nAzioni = Posizioni.ATTIVE.quantita(operatore.id(), id);
             if (nAzioni > 0) return nAzioni;
             throw new NoSuchElementException("L'operatore non possiede questa azione.");
         }
@@ -354,14 +1271,43 @@ public class Borsa implements Comparable<Borsa> {
          */
         private void valore(int nuovoValore) {
             if (nuovoValore <= 0) throw new IllegalArgumentException("Il nuovo valore non può essere minore o uguale a 0");
-            valore = nuovoValore;
+            int precedente = archivio.valore(indice);
+            indicePrezzi.cambia(indice, id, precedente, nuovoValore);
+            archivio.valore(indice, nuovoValore);
+            if (precedente != nuovoValore) sorveglia(precedente, nuovoValore);
+            if (inneschi != null && inneschi.dimensione() > 0) inneschi.innescati(nuovoValore, innescati);
+        }
+
+        /**
+         * Aggiunge un nuovo valore alla finestra degli estremi e sospende l'azione se la variazione nella finestra supera la regola.
+         * La finestra riceve anche il valore precedente, che era in vigore fino all'istante del cambiamento: così una variazione
+         * dopo un lungo periodo senza scambi si misura da quel valore.
+         * Quando l'azione viene sospesa la finestra si svuota, così dopo la pausa la variazione si misura dal valore in vigore.
+         * @param precedente il valore dell'azione prima del cambiamento.
+         * @param nuovoValore il nuovo valore dell'azione.
+         */
+        private void sorveglia(int precedente, int nuovoValore) {
+            RegolaSospensione regola = regolaSospensione;
+            if (regola == null) regola = Borsa.this.regolaSospensione;
+            if (regola == null) return;
+            long istante = orologio.getAsLong();
+            if (estremi == null) estremi = new FinestraEstremi();
+            // il valore precedente era in vigore fino ad ora, anche se lo ha assunto prima dell'inizio della finestra
+            estremi.aggiungi(istante, precedente);
+            estremi.aggiungi(istante, nuovoValore);
+            estremi.scarta(istante - regola.finestra());
+            int minimo = estremi.minimo();
+            if ((long) (estremi.massimo() - minimo) * 10000 > (long) regola.variazione() * minimo) {
+                sospesaFino = istante + regola.pausa();
+                estremi.svuota();
+            }
         }
 
 
         @Override
         public int compareTo(Azione o) {
-            if(this.nomeBorsa().equals(o.nomeBorsa())) return this.azienda().compareTo(o.azienda());
-            return this.nomeBorsa().compareTo(o.nomeBorsa());
+            if(Borsa.this == o.borsa()) return this.azienda().compareTo(o.azienda());
+            return Borsa.this.compareTo(o.borsa());
         }
         }
 
@@ -0,0 +1,32 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * Il controllo di rischio decide, prima dell'esecuzione, se un ordine ammesso dalla borsa può essere eseguito.
+ *
+ * La borsa invoca il controllo dal thread che esegue gli ordini, dopo le proprie verifiche e prima di modificare
+ * la borsa o l'operatore, e lo informa di ogni scambio eseguito, così il controllo può aggiornare i propri aggregati
+ * invece di ricalcolarli ad ogni ordine. Un controllo è collegato ad una sola borsa.
+ */
+public interface ControlloRischio {
+    /**
+     * Verifica un ordine.
+     * @param operatore l'operatore che invia l'ordine.
+     * @param azione l'azione da scambiare.
+     * @param prezzo il prezzo per singola azione a cui avverrebbe lo scambio.
+     * @param scambiate la quantità da acquistare (positiva) o da vendere (negativa).
+     * @return {@link Esito#ESEGUITO} se l'ordine può essere eseguito, altrimenti il motivo del rifiuto.
+     */
+    Esito verifica(Operatore operatore, Azione azione, int prezzo, int scambiate);
+
+    /**
+     * Riceve uno scambio eseguito. Non fa nulla, a meno che il controllo non tenga aggregati.
+     * @param operatore l'operatore che ha acquistato o venduto.
+     * @param azione l'azione scambiata.
+     * @param prezzo il prezzo per singola azione a cui è avvenuto lo scambio.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa).
+     */
+    default void eseguito(Operatore operatore, Azione azione, int prezzo, int scambiate) {
+    }
+}
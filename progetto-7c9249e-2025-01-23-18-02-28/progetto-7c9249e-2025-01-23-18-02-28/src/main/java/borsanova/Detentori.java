@@ -0,0 +1,153 @@
+package borsanova;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Il cursore sui proprietari di un'azione o di un'azienda, ordinati per nome dell'operatore.
+ *
+ * Il cursore viene costruito copiando una sola volta, in array di interi, i proprietari nel momento della richiesta:
+ * le modifiche successive non lo influenzano. Può essere percorso un proprietario alla volta o una pagina alla volta.
+ */
+public final class Detentori implements Iterator<Detenzione> {
+    /**{@code operatori} gli identificatori dei proprietari, ordinati per nome. */
+    private final int[] operatori;
+    /**{@code quantita} le quantità possedute, nella stessa posizione del proprietario. */
+    private final int[] quantita;
+    /**{@code prossimo} la posizione del prossimo proprietario da restituire. */
+    private int prossimo;
+
+    /*-
+     * AF:
+     *    - i proprietari ancora da restituire sono operatori[prossimo..], con le quantità quantita[prossimo..].
+     * RI:
+     *    - operatori.length == quantita.length && 0 <= prossimo <= operatori.length.
+     *    - operatori è ordinato per nome dell'operatore e quantita[i] > 0 per ogni i.
+     */
+
+    /**
+     * Costruisce il cursore sui proprietari raccolti da una sorgente.
+     * @param sorgente visita ogni proprietario con la quantità posseduta.
+     * @param stima il numero previsto di proprietari.
+     */
+    private Detentori(Consumer<MappaIntera.Visitatore> sorgente, int stima) {
+        int[] dimensione = {0};
+        int[][] copia = {new int[Math.max(1, stima)], new int[Math.max(1, stima)]};
+        sorgente.accept((operatore, posseduta) -> {
+            // i proprietari possono essere aumentati dopo la stima
+            if (dimensione[0] == copia[0].length) {
+                copia[0] = Arrays.copyOf(copia[0], dimensione[0] * 2);
+                copia[1] = Arrays.copyOf(copia[1], dimensione[0] * 2);
+            }
+            copia[0][dimensione[0]] = operatore;
+            copia[1][dimensione[0]++] = posseduta;
+        });
+        operatori = Arrays.copyOf(copia[0], dimensione[0]);
+        quantita = Arrays.copyOf(copia[1], dimensione[0]);
+        Operatore.ordinaPerNome(operatori, quantita);
+    }
+
+    /**
+     * Costruisce il cursore sui proprietari di un'azione.
+     * @param azione l'identificatore dell'azione.
+     * @return il cursore.
+     */
+    static Detentori diAzione(int azione) {
+        return new Detentori(visitatore -> Posizioni.ATTIVE.perOgniDetentore(azione, visitatore), Posizioni.ATTIVE.numeroDetentori(azione));
+    }
+
+    /**
+     * Costruisce il cursore sui proprietari contenuti in una mappa da identificatore di operatore a quantità.
+     * Il chiamante deve impedire che la mappa venga modificata durante la costruzione.
+     * @param mappa la mappa dei proprietari.
+     * @return il cursore.
+     */
+    static Detentori diMappa(MappaIntera mappa) {
+        return new Detentori(mappa::perOgni, mappa.dimensione());
+    }
+
+    /**
+     * Restituisce i proprietari che possiedono più azioni, dal maggiore; a parità di quantità sono ordinati per nome.
+     * @param sorgente visita ogni proprietario con la quantità posseduta.
+     * @param n il numero massimo di proprietari da restituire.
+     * @return al più {@code n} proprietari, in ordine decrescente di quantità posseduta.
+     * @throws IllegalArgumentException se {@code n} è negativo.
+     */
+    static List<Detenzione> maggiori(Consumer<MappaIntera.Visitatore> sorgente, int n) throws IllegalArgumentException {
+        if (n < 0) throw new IllegalArgumentException("Il numero di proprietari non può essere negativo.");
+        Comparator<Detenzione> ordine = Comparator.comparingInt(Detenzione::quantita).reversed().thenComparing(Detenzione::operatore);
+        // tiene in testa il peggiore tra i migliori trovati finora
+        PriorityQueue<Detenzione> migliori = new PriorityQueue<>(ordine.reversed());
+        if (n > 0) sorgente.accept((operatore, quantita) -> {
+            if (migliori.size() < n) migliori.add(new Detenzione(Operatore.perId(operatore), quantita));
+            else if (quantita >= migliori.peek().quantita()) {
+                Detenzione candidato = new Detenzione(Operatore.perId(operatore), quantita);
+                if (ordine.compare(candidato, migliori.peek()) < 0) {
+                    migliori.poll();
+                    migliori.add(candidato);
+                }
+            }
+        });
+        List<Detenzione> risultato = new ArrayList<>(migliori);
+        risultato.sort(ordine);
+        return risultato;
+    }
+
+    /**
+     * Restituisce il numero totale di proprietari del cursore, compresi quelli già restituiti.
+     * @return il numero di proprietari.
+     */
+    public int dimensione() {
+        return operatori.length;
+    }
+
+    /**
+     * Restituisce il numero di proprietari non ancora restituiti.
+     * @return il numero di proprietari rimanenti.
+     */
+    public int rimanenti() {
+        return operatori.length - prossimo;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return prossimo < operatori.length;
+    }
+
+    @Override
+    public Detenzione next() {
+        if (!hasNext()) throw new NoSuchElementException("Non ci sono altri proprietari.");
+        Detenzione detenzione = new Detenzione(Operatore.perId(operatori[prossimo]), quantita[prossimo]);
+        prossimo++;
+        return detenzione;
+    }
+
+    /**
+     * Restituisce i prossimi proprietari, fino ad un numero massimo.
+     * @param quanti il numero massimo di proprietari da restituire.
+     * @return al più {@code quanti} proprietari, ordinati per nome; la lista è vuota se il cursore è esaurito.
+     * @throws IllegalArgumentException se {@code quanti} è negativo.
+     */
+    public List<Detenzione> pagina(int quanti) throws IllegalArgumentException {
+        if (quanti < 0) throw new IllegalArgumentException("La dimensione della pagina non può essere negativa.");
+        List<Detenzione> pagina = new ArrayList<>(Math.min(quanti, rimanenti()));
+        while (pagina.size() < quanti && hasNext()) pagina.add(next());
+        return pagina;
+    }
+
+    /**
+     * Salta un certo numero di proprietari senza costruirli.
+     * @param quanti il numero di proprietari da saltare.
+     * @throws IllegalArgumentException se {@code quanti} è negativo.
+     */
+    public void salta(int quanti) throws IllegalArgumentException {
+        if (quanti < 0) throw new IllegalArgumentException("Il numero di proprietari da saltare non può essere negativo.");
+        prossimo = (int) Math.min(operatori.length, (long) prossimo + quanti);
+    }
+}
@@ -0,0 +1,10 @@
+package borsanova;
+
+/**
+ * La detenzione indica quante azioni di un'azione possiede un operatore.
+ *
+ * @param operatore l'operatore che possiede le azioni.
+ * @param quantita il numero di azioni possedute, maggiore di 0.
+ */
+public record Detenzione(Operatore operatore, int quantita) {
+}
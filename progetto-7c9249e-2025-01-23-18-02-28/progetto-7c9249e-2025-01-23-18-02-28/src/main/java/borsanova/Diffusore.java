@@ -0,0 +1,135 @@
+package borsanova;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * Il diffusore distribuisce gli aggiornamenti delle azioni di una borsa ai suoi ascoltatori.
+ *
+ * Il thread che esegue gli scambi si limita a sostituire l'ultimo aggiornamento dell'azione modificata
+ * e, se serve, a risvegliare il thread del diffusore: non attende mai gli ascoltatori.
+ * Il thread del diffusore raccoglie gli ultimi aggiornamenti e li mette nelle caselle delle iscrizioni,
+ * che vengono svuotate in parallelo da thread virtuali.
+ *
+ * Quando l'ultima iscrizione viene annullata la borsa chiude il diffusore e il suo thread termina;
+ * un'iscrizione successiva crea un nuovo diffusore.
+ */
+final class Diffusore {
+    /**{@code ultimi} l'ultimo aggiornamento non ancora distribuito di ogni azione modificata. */
+    private final Map<Azione, Aggiornamento> ultimi = new ConcurrentHashMap<>();
+    /**{@code iscrizioni} le iscrizioni attive. */
+    private final CopyOnWriteArrayList<Iscrizione> iscrizioni = new CopyOnWriteArrayList<>();
+    /**{@code consegne} esegue lo svuotamento delle caselle, un thread virtuale per casella. */
+    private final ExecutorService consegne = Executors.newVirtualThreadPerTaskExecutor();
+    /**{@code borsa} la borsa di cui vengono distribuiti gli aggiornamenti. */
+    private final Borsa borsa;
+    /**{@code sospeso} indica se il thread del diffusore è sospeso in attesa di aggiornamenti. */
+    private volatile boolean sospeso;
+    /**{@code chiuso} indica se il diffusore è stato chiuso e il suo thread deve terminare. */
+    private volatile boolean chiuso;
+    /**{@code distributore} il thread che distribuisce gli aggiornamenti alle iscrizioni. */
+    private final Thread distributore;
+
+    /*-
+     * AF:
+     *    - ultimi: sono gli aggiornamenti prodotti dalla borsa e non ancora messi nelle caselle, uno per azione.
+     *    - iscrizioni: sono gli ascoltatori che ricevono gli aggiornamenti.
+     * RI:
+     *    - ultimi.get(a).azione() == a per ogni azione a in ultimi.
+     *    - borsa != null && distributore != null.
+     *    - se chiuso, iscrizioni è vuota.
+     */
+
+    /**
+     * Crea il diffusore di una borsa e avvia il suo thread.
+     * @param borsa la borsa di cui distribuire gli aggiornamenti.
+     */
+    Diffusore(Borsa borsa) {
+        this.borsa = borsa;
+        distributore = Thread.ofPlatform().name("diffusore-" + borsa.nome()).daemon().start(this::distribuisci);
+    }
+
+    /**
+     * Iscrive un ascoltatore.
+     * @param ascoltatore l'ascoltatore.
+     * @return la nuova iscrizione.
+     */
+    Iscrizione iscrivi(Ascoltatore ascoltatore) {
+        Iscrizione iscrizione = new Iscrizione(this, ascoltatore);
+        iscrizioni.add(iscrizione);
+        return iscrizione;
+    }
+
+    /**
+     * Rimuove un'iscrizione; se era l'ultima, chiede alla borsa di chiudere il diffusore.
+     * @param iscrizione l'iscrizione da rimuovere.
+     */
+    void rimuovi(Iscrizione iscrizione) {
+        if (iscrizioni.remove(iscrizione) && iscrizioni.isEmpty()) borsa.diffusoreInutilizzato(this);
+    }
+
+    /**
+     * Indica se il diffusore non ha iscrizioni.
+     * @return {@code true} se non ci sono iscrizioni.
+     */
+    boolean vuoto() {
+        return iscrizioni.isEmpty();
+    }
+
+    /**
+     * Chiude il diffusore: annulla le iscrizioni rimaste, senza consegnare gli aggiornamenti in attesa, e termina il thread.
+     * Le consegne già avviate vengono completate.
+     */
+    void chiudi() {
+        chiuso = true;
+        for (Iscrizione iscrizione : iscrizioni) iscrizione.termina(null);
+        iscrizioni.clear();
+        ultimi.clear();
+        LockSupport.unpark(distributore);
+        consegne.shutdown();
+    }
+
+    /**
+     * Pubblica l'aggiornamento di un'azione, sostituendo quello non ancora distribuito.
+     * Viene invocato dal thread che esegue gli scambi e non attende gli ascoltatori.
+     * @param aggiornamento l'aggiornamento.
+     */
+    void pubblica(Aggiornamento aggiornamento) {
+        if (iscrizioni.isEmpty()) return;
+        ultimi.put(aggiornamento.azione(), aggiornamento);
+        if (sospeso) LockSupport.unpark(distributore);
+    }
+
+    /**
+     * Il ciclo del thread del diffusore: mette gli ultimi aggiornamenti nelle caselle e si sospende quando non ce ne sono.
+     */
+    private void distribuisci() {
+        while (!chiuso) {
+            sospeso = true;
+            // un aggiornamento pubblicato prima di sospeso = true non risveglierebbe il thread
+            if (ultimi.isEmpty() && !chiuso) LockSupport.park(this);
+            sospeso = false;
+            for (Iterator<Aggiornamento> it = ultimi.values().iterator(); it.hasNext(); ) {
+                Aggiornamento aggiornamento = it.next();
+                // rimuove solo se nel frattempo non è arrivato un aggiornamento più recente, che verrà distribuito al prossimo giro
+                ultimi.remove(aggiornamento.azione(), aggiornamento);
+                for (Iscrizione iscrizione : iscrizioni) {
+                    if (!iscrizione.deposita(aggiornamento)) continue;
+                    try {
+                        consegne.execute(iscrizione::consegna);
+                    } catch (RejectedExecutionException e) {
+                        // il diffusore è stato chiuso durante la distribuzione e l'iscrizione è già annullata
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package borsanova;
+
+/**
+ * L'esito di un tentativo di acquisto o di vendita.
+ *
+ * Un tentativo rifiutato non modifica né la borsa né l'operatore, e il suo esito indica il motivo del rifiuto:
+ * così i rifiuti attesi, come quelli dei controlli di rischio, non richiedono di sollevare e catturare eccezioni.
+ */
+public enum Esito {
+    /** L'ordine è stato eseguito. */
+    ESEGUITO("L'ordine è stato eseguito."),
+    /** L'azienda non è quotata nella borsa. */
+    NON_QUOTATA("Bisogna prendere le azione di un'azienda quotata in questa borsa."),
+    /** L'investimento supera il budget dell'operatore. */
+    FONDI_INSUFFICIENTI("L'operatore non ha i soldi per effettuare l'investimento."),
+    /** L'investimento non basta per comprare una singola azione. */
+    INVESTIMENTO_INSUFFICIENTE("L'operatore non ha abbastanza soldi per comprare queste azioni."),
+    /** Non ci sono abbastanza azioni disponibili per l'acquisto. */
+    AZIONI_INSUFFICIENTI("Non ci sono abbastanza azioni disponibili."),
+    /** L'operatore non possiede l'azione che vuole vendere. */
+    NON_POSSEDUTA("Questo operatore non possiede l'azione."),
+    /** L'operatore non possiede abbastanza azioni da vendere. */
+    POSSESSO_INSUFFICIENTE("L'operatore non ha abbastanza azioni da vendere."),
+    /** L'acquisto porterebbe le azioni dell'azienda possedute dall'operatore, in tutte le borse, oltre il limite. */
+    LIMITE_AZIENDA("L'acquisto supera il limite di azioni dell'azienda per l'operatore."),
+    /** L'acquisto porterebbe la quota delle azioni in borsa posseduta dall'operatore oltre il limite. */
+    LIMITE_FLOTTANTE("L'acquisto supera la quota massima delle azioni in borsa per l'operatore."),
+    /** L'acquisto porterebbe il controvalore investito dall'operatore nella borsa oltre il limite. */
+    LIMITE_BORSA("L'acquisto supera il controvalore massimo dell'operatore in questa borsa."),
+    /** L'operatore ha inviato troppi ordini in poco tempo. */
+    LIMITE_ORDINI("L'operatore ha superato il numero di ordini consentito."),
+    /** Le negoziazioni dell'azione sono sospese perché il suo valore è variato troppo in poco tempo. */
+    SOSPESA("Le negoziazioni dell'azione sono sospese."),
+    /** La quantità da vendere non è positiva. */
+    QUANTITA_NON_VALIDA("La quantità da vendere deve essere maggiore di zero.");
+
+    /**{@code messaggio} la descrizione dell'esito. */
+    private final String messaggio;
+
+    /**
+     * Costruisce un esito.
+     * @param messaggio la descrizione dell'esito.
+     */
+    Esito(String messaggio) {
+        this.messaggio = messaggio;
+    }
+
+    /**
+     * Restituisce la descrizione dell'esito, usata anche come messaggio dell'eccezione quando l'ordine è inviato con un metodo che solleva eccezioni.
+     * @return la descrizione dell'esito.
+     */
+    public String messaggio() {
+        return messaggio;
+    }
+}
@@ -0,0 +1,181 @@
+package borsanova;
+
+/**
+ * La finestra scorrevole che conosce, in ogni momento, il minimo e il massimo dei valori di un'azione negli ultimi istanti.
+ *
+ * La finestra non conserva tutti i valori, ma due code monotone:
+ *  - la coda dei minimi contiene i valori che possono ancora diventare il minimo della finestra, in ordine crescente.
+ *  - la coda dei massimi contiene i valori che possono ancora diventare il massimo, in ordine decrescente.
+ * Un nuovo valore scarta dal fondo di ogni coda i valori che non potranno più essere estremi, e i valori usciti
+ * dalla finestra vengono scartati dalla testa; ogni valore entra ed esce da ogni coda una sola volta, quindi ogni
+ * operazione costa tempo costante ammortizzato. Il minimo e il massimo sono le teste delle code.
+ */
+final class FinestraEstremi {
+    /**{@code minimi} la coda dei candidati al minimo. */
+    private final Coda minimi = new Coda();
+    /**{@code massimi} la coda dei candidati al massimo. */
+    private final Coda massimi = new Coda();
+
+    /*-
+     * AF:
+     *    - il minimo (massimo) dei valori nella finestra è il prezzo in testa a minimi (massimi); la finestra è vuota se minimi è vuota.
+     * RI:
+     *    - minimi e massimi sono entrambe vuote o entrambe non vuote.
+     *    - in entrambe le code gli istanti sono non decrescenti dalla testa al fondo.
+     *    - i prezzi di minimi sono strettamente crescenti e quelli di massimi strettamente decrescenti dalla testa al fondo.
+     */
+
+    /**
+     * Costruisce una finestra vuota.
+     */
+    FinestraEstremi() {
+    }
+
+    /**
+     * Aggiunge un valore alla finestra.
+     * @param istante l'istante in cui l'azione ha assunto il valore, non precedente a quello dei valori già aggiunti.
+     * @param prezzo il valore dell'azione.
+     */
+    void aggiungi(long istante, int prezzo) {
+        while (minimi.dimensione > 0 && minimi.prezzoInFondo() >= prezzo) minimi.rimuoviInFondo();
+        minimi.aggiungiInFondo(istante, prezzo);
+        while (massimi.dimensione > 0 && massimi.prezzoInFondo() <= prezzo) massimi.rimuoviInFondo();
+        massimi.aggiungiInFondo(istante, prezzo);
+    }
+
+    /**
+     * Scarta i valori assunti prima di un istante; il valore più recente non viene mai scartato.
+     * @param inizio il primo istante che resta nella finestra.
+     */
+    void scarta(long inizio) {
+        while (minimi.dimensione > 1 && minimi.istanteInTesta() < inizio) minimi.rimuoviInTesta();
+        while (massimi.dimensione > 1 && massimi.istanteInTesta() < inizio) massimi.rimuoviInTesta();
+    }
+
+    /**
+     * Indica se la finestra è vuota.
+     * @return {@code true} se la finestra non contiene valori.
+     */
+    boolean vuota() {
+        return minimi.dimensione == 0;
+    }
+
+    /**
+     * Restituisce il minimo dei valori nella finestra.
+     * @return il valore minimo; la finestra non deve essere vuota.
+     */
+    int minimo() {
+        return minimi.prezzoInTesta();
+    }
+
+    /**
+     * Restituisce il massimo dei valori nella finestra.
+     * @return il valore massimo; la finestra non deve essere vuota.
+     */
+    int massimo() {
+        return massimi.prezzoInTesta();
+    }
+
+    /**
+     * Rimuove tutti i valori dalla finestra.
+     */
+    void svuota() {
+        minimi.svuota();
+        massimi.svuota();
+    }
+
+    /**
+     * Una coda circolare di coppie (istante, prezzo), che si ingrandisce quando è piena.
+     */
+    private static final class Coda {
+        /**{@code istanti} gli istanti delle coppie, in posizione circolare a partire da {@code testa}. */
+        private long[] istanti = new long[8];
+        /**{@code prezzi} i prezzi delle coppie, nella stessa posizione dei loro istanti. */
+        private int[] prezzi = new int[8];
+        /**{@code testa} la posizione della prima coppia. */
+        private int testa;
+        /**{@code dimensione} il numero di coppie nella coda. */
+        private int dimensione;
+
+        /**
+         * Costruisce una coda vuota.
+         */
+        private Coda() {
+        }
+
+        /**
+         * Restituisce l'istante della prima coppia.
+         * @return l'istante in testa.
+         */
+        private long istanteInTesta() {
+            return istanti[testa];
+        }
+
+        /**
+         * Restituisce il prezzo della prima coppia.
+         * @return il prezzo in testa.
+         */
+        private int prezzoInTesta() {
+            return prezzi[testa];
+        }
+
+        /**
+         * Restituisce il prezzo dell'ultima coppia.
+         * @return il prezzo in fondo.
+         */
+        private int prezzoInFondo() {
+            return prezzi[(testa + dimensione - 1) & (prezzi.length - 1)];
+        }
+
+        /**
+         * Aggiunge una coppia in fondo alla coda.
+         * @param istante l'istante della coppia.
+         * @param prezzo il prezzo della coppia.
+         */
+        private void aggiungiInFondo(long istante, int prezzo) {
+            if (dimensione == prezzi.length) ingrandisci();
+            int posizione = (testa + dimensione) & (prezzi.length - 1);
+            istanti[posizione] = istante;
+            prezzi[posizione] = prezzo;
+            dimensione++;
+        }
+
+        /**
+         * Rimuove la prima coppia.
+         */
+        private void rimuoviInTesta() {
+            testa = (testa + 1) & (prezzi.length - 1);
+            dimensione--;
+        }
+
+        /**
+         * Rimuove l'ultima coppia.
+         */
+        private void rimuoviInFondo() {
+            dimensione--;
+        }
+
+        /**
+         * Rimuove tutte le coppie.
+         */
+        private void svuota() {
+            testa = 0;
+            dimensione = 0;
+        }
+
+        /**
+         * Raddoppia la capacità della coda, riportando la prima coppia in posizione 0.
+         */
+        private void ingrandisci() {
+            long[] nuoviIstanti = new long[istanti.length * 2];
+            int[] nuoviPrezzi = new int[prezzi.length * 2];
+            for (int i = 0; i < dimensione; i++) {
+                nuoviIstanti[i] = istanti[(testa + i) & (istanti.length - 1)];
+                nuoviPrezzi[i] = prezzi[(testa + i) & (prezzi.length - 1)];
+            }
+            istanti = nuoviIstanti;
+            prezzi = nuoviPrezzi;
+            testa = 0;
+        }
+    }
+}
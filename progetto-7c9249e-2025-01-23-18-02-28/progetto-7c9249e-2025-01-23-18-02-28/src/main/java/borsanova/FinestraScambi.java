@@ -0,0 +1,129 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * La finestra scorrevole degli scambi eseguiti negli ultimi intervalli di tempo.
+ *
+ * Il tempo è diviso in intervalli di uguale larghezza e la finestra conserva, per ciascuno degli ultimi intervalli,
+ * il numero di scambi, il volume e il controvalore. Registrare uno scambio costa tempo costante; leggere le statistiche
+ * costa tempo proporzionale al numero di intervalli, indipendentemente dal numero di scambi.
+ *
+ * Le statistiche di una finestra comprendono l'intervallo in corso e quelli immediatamente precedenti,
+ * quindi la durata della finestra è arrotondata per eccesso a un multiplo della larghezza degli intervalli.
+ */
+final class FinestraScambi {
+    /**{@code larghezza} la durata di ogni intervallo, in millisecondi. */
+    private final long larghezza;
+    /**{@code periodi} il numero dell'intervallo a cui si riferisce ogni cella, -1 per una cella mai usata. */
+    private final long[] periodi;
+    /**{@code scambi} il numero di scambi di ogni cella. */
+    private final long[] scambi;
+    /**{@code volumi} il numero di azioni scambiate in ogni cella. */
+    private final long[] volumi;
+    /**{@code controvalori} il controvalore degli scambi di ogni cella. */
+    private final long[] controvalori;
+
+    /*-
+     * AF:
+     *    - l'intervallo p (cioè gli istanti t con t / larghezza == p) ha scambi[c], volumi[c] e controvalori[c]
+     *      se periodi[c] == p, dove c == p % periodi.length; altrimenti non ha scambi registrati.
+     * RI:
+     *    - larghezza > 0 && periodi.length > 0.
+     *    - periodi, scambi, volumi e controvalori hanno la stessa lunghezza.
+     *    - periodi[c] == -1 oppure periodi[c] % periodi.length == c.
+     *    - tutti i campi sono letti e modificati tenendo il monitor della finestra.
+     */
+
+    /**
+     * Costruisce una finestra vuota.
+     * @param larghezza la durata di ogni intervallo, in millisecondi.
+     * @param intervalli il numero di intervalli conservati.
+     * @throws IllegalArgumentException se {@code larghezza} o {@code intervalli} è minore o uguale a 0.
+     */
+    FinestraScambi(long larghezza, int intervalli) throws IllegalArgumentException {
+        if (larghezza <= 0 || intervalli <= 0) throw new IllegalArgumentException("La larghezza e il numero degli intervalli devono essere maggiori di zero.");
+        this.larghezza = larghezza;
+        periodi = new long[intervalli];
+        scambi = new long[intervalli];
+        volumi = new long[intervalli];
+        controvalori = new long[intervalli];
+        Arrays.fill(periodi, -1);
+    }
+
+    /**
+     * Restituisce la durata di ogni intervallo.
+     * @return la larghezza degli intervalli, in millisecondi.
+     */
+    long larghezza() {
+        return larghezza;
+    }
+
+    /**
+     * Restituisce il numero di intervalli conservati.
+     * @return il numero di intervalli.
+     */
+    int intervalli() {
+        return periodi.length;
+    }
+
+    /**
+     * Crea una finestra vuota con gli stessi intervalli di questa.
+     * @return la nuova finestra.
+     */
+    FinestraScambi vuota() {
+        return new FinestraScambi(larghezza, periodi.length);
+    }
+
+    /**
+     * Restituisce la durata massima di una finestra, pari agli intervalli conservati.
+     * @return la durata massima, in millisecondi.
+     */
+    long copertura() {
+        return larghezza * periodi.length;
+    }
+
+    /**
+     * Registra uno scambio.
+     * Uno scambio più vecchio degli intervalli conservati viene ignorato.
+     * @param istante l'istante dello scambio, in millisecondi.
+     * @param prezzo il prezzo per singola azione.
+     * @param quantita il numero di azioni scambiate.
+     */
+    synchronized void registra(long istante, int prezzo, int quantita) {
+        long periodo = Math.floorDiv(istante, larghezza);
+        int cella = (int) Math.floorMod(periodo, (long) periodi.length);
+        if (periodi[cella] != periodo) {
+            if (periodi[cella] > periodo) return;
+            periodi[cella] = periodo;
+            scambi[cella] = 0;
+            volumi[cella] = 0;
+            controvalori[cella] = 0;
+        }
+        scambi[cella]++;
+        volumi[cella] += quantita;
+        controvalori[cella] += (long) prezzo * quantita;
+    }
+
+    /**
+     * Restituisce le statistiche degli scambi di una finestra che termina in un determinato istante.
+     * @param istante l'istante in cui termina la finestra, in millisecondi.
+     * @param durata la durata della finestra, in millisecondi.
+     * @return le statistiche della finestra.
+     * @throws IllegalArgumentException se {@code durata} è minore o uguale a 0 o maggiore della copertura della finestra.
+     */
+    synchronized Statistiche statistiche(long istante, long durata) throws IllegalArgumentException {
+        if (durata <= 0 || durata > copertura()) throw new IllegalArgumentException("La durata deve essere maggiore di zero e non superiore a " + copertura() + " ms.");
+        long ultimo = Math.floorDiv(istante, larghezza);
+        long primo = ultimo - (durata + larghezza - 1) / larghezza + 1;
+        long numero = 0, volume = 0, controvalore = 0;
+        for (int c = 0; c < periodi.length; c++) {
+            if (periodi[c] >= primo && periodi[c] <= ultimo) {
+                numero += scambi[c];
+                volume += volumi[c];
+                controvalore += controvalori[c];
+            }
+        }
+        return new Statistiche(numero, volume, controvalore);
+    }
+}
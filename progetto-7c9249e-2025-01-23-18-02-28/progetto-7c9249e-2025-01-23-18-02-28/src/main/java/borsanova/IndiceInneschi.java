@@ -0,0 +1,119 @@
+package borsanova;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * L'indice degli ordini condizionati in attesa su un'azione, ordinati per soglia.
+ *
+ * Gli ordini innescati al rialzo e quelli innescati al ribasso stanno in due mappe ordinate per soglia,
+ * che associano ogni soglia agli ordini in attesa su di essa nell'ordine di inserimento. Finché il valore dell'azione
+ * non cambia, tutte le soglie al rialzo sono sopra il valore e tutte quelle al ribasso sono sotto: quando il valore cambia,
+ * gli ordini innescati sono esattamente una testa o una coda di una delle due mappe, e vengono estratti in tempo
+ * O(log n + k), dove n è il numero di soglie e k il numero di ordini innescati.
+ */
+final class IndiceInneschi {
+    /**{@code alRialzo} gli ordini in attesa innescati da un valore maggiore o uguale alla soglia. */
+    private final NavigableMap<Integer, ArrayDeque<OrdineCondizionato>> alRialzo = new TreeMap<>();
+    /**{@code alRibasso} gli ordini in attesa innescati da un valore minore o uguale alla soglia. */
+    private final NavigableMap<Integer, ArrayDeque<OrdineCondizionato>> alRibasso = new TreeMap<>();
+    /**{@code dimensione} il numero di ordini in attesa. */
+    private int dimensione;
+
+    /*-
+     * AF:
+     *    - gli ordini in attesa sono quelli contenuti nelle code di alRialzo e alRibasso, innescati secondo la mappa che li contiene.
+     * RI:
+     *    - ogni coda è non vuota e contiene solo ordini con soglia pari alla sua chiave e direzione pari alla sua mappa.
+     *    - dimensione è la somma delle lunghezze delle code.
+     *    - dopo ogni chiamata di innescati(v), ogni soglia di alRialzo è maggiore di v e ogni soglia di alRibasso è minore di v.
+     */
+
+    /**
+     * Costruisce un indice vuoto.
+     */
+    IndiceInneschi() {
+    }
+
+    /**
+     * Aggiunge un ordine in attesa.
+     * @param ordine l'ordine, che non deve essere innescato dal valore attuale dell'azione.
+     */
+    void aggiungi(OrdineCondizionato ordine) {
+        (ordine.tipo().alRialzo() ? alRialzo : alRibasso).computeIfAbsent(ordine.soglia(), s -> new ArrayDeque<>()).add(ordine);
+        dimensione++;
+    }
+
+    /**
+     * Rimuove un ordine in attesa; costa quanto il numero di ordini in attesa sulla stessa soglia.
+     * @param ordine l'ordine da rimuovere.
+     * @return {@code true} se l'ordine era in attesa.
+     */
+    boolean rimuovi(OrdineCondizionato ordine) {
+        NavigableMap<Integer, ArrayDeque<OrdineCondizionato>> mappa = ordine.tipo().alRialzo() ? alRialzo : alRibasso;
+        ArrayDeque<OrdineCondizionato> coda = mappa.get(ordine.soglia());
+        if (coda == null || !coda.remove(ordine)) return false;
+        if (coda.isEmpty()) mappa.remove(ordine.soglia());
+        dimensione--;
+        return true;
+    }
+
+    /**
+     * Adegua tutti gli ordini in attesa a un frazionamento dell'azione e li ricolloca secondo la nuova soglia.
+     * La conversione delle soglie è monotona, quindi gli ordini restano nell'ordine relativo in cui erano.
+     * Dopo il frazionamento va chiamato {@link #innescati(int, Queue)} con il nuovo valore, perché l'arrotondamento
+     * può portare una soglia a coincidere con il valore.
+     * @param nuove il numero di azioni dopo il frazionamento per ogni gruppo di {@code vecchie} azioni.
+     * @param vecchie il numero di azioni prima del frazionamento.
+     */
+    void frazionato(int nuove, int vecchie) {
+        for (NavigableMap<Integer, ArrayDeque<OrdineCondizionato>> mappa : List.of(alRialzo, alRibasso)) {
+            List<ArrayDeque<OrdineCondizionato>> code = new ArrayList<>(mappa.values());
+            mappa.clear();
+            for (ArrayDeque<OrdineCondizionato> coda : code) {
+                for (OrdineCondizionato ordine : coda) {
+                    ordine.frazionato(nuove, vecchie);
+                    mappa.computeIfAbsent(ordine.soglia(), s -> new ArrayDeque<>()).add(ordine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di ordini in attesa.
+     * @return il numero di ordini in attesa.
+     */
+    int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Estrae gli ordini innescati da un nuovo valore dell'azione, dalla soglia più vicina al valore precedente.
+     * @param valore il nuovo valore dell'azione.
+     * @param innescati la coda in cui aggiungere gli ordini innescati, nell'ordine in cui vanno eseguiti.
+     */
+    void innescati(int valore, Queue<OrdineCondizionato> innescati) {
+        estrai(alRialzo.headMap(valore, true), innescati);
+        estrai(alRibasso.tailMap(valore, true).descendingMap(), innescati);
+    }
+
+    /**
+     * Sposta nella coda degli innescati tutti gli ordini di una vista, che viene svuotata.
+     * @param vista la porzione di una mappa da svuotare.
+     * @param innescati la coda degli ordini innescati.
+     */
+    private void estrai(NavigableMap<Integer, ArrayDeque<OrdineCondizionato>> vista, Queue<OrdineCondizionato> innescati) {
+        for (Iterator<Map.Entry<Integer, ArrayDeque<OrdineCondizionato>>> voci = vista.entrySet().iterator(); voci.hasNext(); ) {
+            ArrayDeque<OrdineCondizionato> coda = voci.next().getValue();
+            dimensione -= coda.size();
+            innescati.addAll(coda);
+            voci.remove();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package borsanova;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * L'indice dei prezzi ordina le azioni quotate in una borsa per valore e per variazione rispetto ad un prezzo di riferimento.
+ *
+ * Ogni azione compare in entrambi gli ordinamenti con una chiave a 64 bit: nei 32 bit alti il valore (o la variazione),
+ * nei 32 bit bassi l'identificatore dell'azione, così le chiavi sono distinte e ordinate senza oggetti di confronto.
+ * La variazione è espressa in punti base (centesimi di punto percentuale) rispetto al riferimento, limitata all'intervallo degli {@code int}.
+ *
+ * Ogni cambio di valore aggiorna le chiavi dell'azione in O(log n).
+ * Gli aggiornamenti sono eseguiti dal thread che modifica la borsa, le interrogazioni possono arrivare da qualunque thread
+ * e vedono ogni azione o prima o dopo l'ultimo cambio di valore.
+ */
+final class IndicePrezzi {
+    /**{@code perValore} le chiavi delle azioni ordinate per valore. */
+    private final NavigableSet<Long> perValore = new ConcurrentSkipListSet<>();
+    /**{@code perVariazione} le chiavi delle azioni ordinate per variazione rispetto al riferimento. */
+    private final NavigableSet<Long> perVariazione = new ConcurrentSkipListSet<>();
+    /**{@code riferimenti} il prezzo di riferimento di ogni azione, in posizione pari alla sua posizione nell'archivio. */
+    private int[] riferimenti = new int[8];
+    /**{@code variazioni} l'ultima variazione calcolata di ogni azione, in posizione pari alla sua posizione nell'archivio. */
+    private int[] variazioni = new int[8];
+
+    /*-
+     * AF:
+     *    - perValore contiene chiave(v, id) per ogni azione quotata con identificatore id e valore v.
+     *    - perVariazione contiene chiave(variazioni[i], id) per ogni azione quotata in posizione i con identificatore id.
+     *    - riferimenti[i]: è il prezzo rispetto a cui si misura la variazione dell'azione in posizione i.
+     * RI:
+     *    - riferimenti.length == variazioni.length.
+     *    - riferimenti[i] > 0 per ogni azione quotata in posizione i.
+     *    - variazioni[i] == variazione(valore attuale, riferimenti[i]).
+     */
+
+    /**
+     * Costruisce un indice vuoto.
+     */
+    IndicePrezzi() {
+    }
+
+    /**
+     * Aggiunge un'azione appena quotata, prendendo il suo valore come riferimento.
+     * @param indice la posizione dell'azione nell'archivio.
+     * @param id l'identificatore dell'azione.
+     * @param valore il valore dell'azione.
+     */
+    void aggiungi(int indice, int id, int valore) {
+        if (indice >= riferimenti.length) {
+            riferimenti = Arrays.copyOf(riferimenti, Math.max(indice + 1, riferimenti.length * 2));
+            variazioni = Arrays.copyOf(variazioni, riferimenti.length);
+        }
+        riferimenti[indice] = valore;
+        variazioni[indice] = 0;
+        perValore.add(chiave(valore, id));
+        perVariazione.add(chiave(0, id));
+    }
+
+    /**
+     * Aggiorna le chiavi di un'azione dopo un cambio di valore.
+     * @param indice la posizione dell'azione nell'archivio.
+     * @param id l'identificatore dell'azione.
+     * @param vecchio il valore precedente.
+     * @param nuovo il nuovo valore.
+     */
+    void cambia(int indice, int id, int vecchio, int nuovo) {
+        if (vecchio == nuovo) return;
+        // prima si aggiunge la nuova chiave, così un lettore concorrente non vede mai l'azione sparire
+        perValore.add(chiave(nuovo, id));
+        perValore.remove(chiave(vecchio, id));
+        int variazione = variazione(nuovo, riferimenti[indice]);
+        if (variazione != variazioni[indice]) {
+            perVariazione.add(chiave(variazione, id));
+            perVariazione.remove(chiave(variazioni[indice], id));
+            variazioni[indice] = variazione;
+        }
+    }
+
+    /**
+     * Fissa come nuovo riferimento di un'azione il suo valore attuale.
+     * @param indice la posizione dell'azione nell'archivio.
+     * @param id l'identificatore dell'azione.
+     * @param valore il valore attuale dell'azione.
+     */
+    void fissaRiferimento(int indice, int id, int valore) {
+        riferimenti[indice] = valore;
+        if (variazioni[indice] != 0) {
+            perVariazione.add(chiave(0, id));
+            perVariazione.remove(chiave(variazioni[indice], id));
+            variazioni[indice] = 0;
+        }
+    }
+
+    /**
+     * Restituisce il prezzo di riferimento di un'azione.
+     * @param indice la posizione dell'azione nell'archivio.
+     * @return il prezzo di riferimento.
+     */
+    int riferimento(int indice) {
+        return riferimenti[indice];
+    }
+
+    /**
+     * Restituisce la variazione di un'azione rispetto al suo riferimento.
+     * @param indice la posizione dell'azione nell'archivio.
+     * @return la variazione in punti base.
+     */
+    int variazione(int indice) {
+        return variazioni[indice];
+    }
+
+    /**
+     * Restituisce le chiavi delle azioni con valore compreso tra due estremi, in ordine crescente di valore.
+     * @param minimo il valore minimo, incluso.
+     * @param massimo il valore massimo, incluso.
+     * @return un iteratore sulle chiavi.
+     */
+    Iterator<Long> perValoreTra(int minimo, int massimo) {
+        return perValore.subSet(chiave(minimo, 0), true, chiave(massimo, -1), true).iterator();
+    }
+
+    /**
+     * Restituisce le chiavi delle azioni in ordine di valore.
+     * @param crescente {@code true} per l'ordine crescente, {@code false} per quello decrescente.
+     * @return un iteratore sulle chiavi.
+     */
+    Iterator<Long> perValore(boolean crescente) {
+        return crescente ? perValore.iterator() : perValore.descendingIterator();
+    }
+
+    /**
+     * Restituisce le chiavi delle azioni in ordine di variazione.
+     * @param crescente {@code true} per l'ordine crescente, {@code false} per quello decrescente.
+     * @return un iteratore sulle chiavi.
+     */
+    Iterator<Long> perVariazione(boolean crescente) {
+        return crescente ? perVariazione.iterator() : perVariazione.descendingIterator();
+    }
+
+    /**
+     * Estrae l'identificatore dell'azione da una chiave.
+     * @param chiave la chiave.
+     * @return l'identificatore dell'azione.
+     */
+    static int id(long chiave) {
+        return (int) chiave;
+    }
+
+    /**
+     * Costruisce la chiave di un'azione.
+     * @param ordine il valore o la variazione secondo cui ordinare.
+     * @param id l'identificatore dell'azione, -1 per la chiave più grande con quell'ordine.
+     * @return la chiave.
+     */
+    private static long chiave(int ordine, int id) {
+        return ((long) ordine << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Calcola la variazione di un valore rispetto ad un riferimento.
+     * @param valore il valore.
+     * @param riferimento il riferimento.
+     * @return la variazione in punti base, limitata all'intervallo degli {@code int}.
+     */
+    private static int variazione(int valore, int riferimento) {
+        long punti = ((long) valore - riferimento) * 10000 / riferimento;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, punti));
+    }
+}
@@ -0,0 +1,164 @@
+package borsanova;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * L'iscrizione collega un ascoltatore alla borsa di cui riceve gli aggiornamenti.
+ *
+ * Ogni iscrizione ha una casella con al più un aggiornamento in attesa per ogni azione:
+ * un nuovo aggiornamento di un'azione sostituisce quello in attesa, così un ascoltatore lento
+ * non accumula arretrati e riceve sempre lo stato più recente.
+ * La casella viene svuotata da un thread virtuale avviato solo quando contiene qualcosa.
+ *
+ * Se l'ascoltatore solleva un'eccezione l'iscrizione viene annullata, e l'eccezione resta disponibile con {@link #errore()};
+ * un {@link Error} viene anche rilanciato nel thread che consegna, dopo aver annullato l'iscrizione.
+ */
+public final class Iscrizione implements AutoCloseable {
+    /**{@code diffusore} il diffusore della borsa a cui l'ascoltatore è iscritto. */
+    private final Diffusore diffusore;
+    /**{@code ascoltatore} l'ascoltatore che riceve gli aggiornamenti. */
+    private final Ascoltatore ascoltatore;
+    /**{@code inAttesa} gli aggiornamenti non ancora consegnati, al più uno per azione, in ordine di arrivo. */
+    private final Map<Azione, Aggiornamento> inAttesa = new LinkedHashMap<>();
+    /**{@code inConsegna} indica se un thread sta svuotando la casella. */
+    private boolean inConsegna;
+    /**{@code chiusa} indica se l'iscrizione è stata annullata. */
+    private volatile boolean chiusa;
+    /**{@code errore} l'eccezione sollevata dall'ascoltatore, che ha annullato l'iscrizione, {@code null} se non ce ne sono state. */
+    private volatile Throwable errore;
+    /**{@code consegnati} il numero di aggiornamenti consegnati all'ascoltatore. */
+    private long consegnati;
+    /**{@code scartati} il numero di aggiornamenti sostituiti da uno più recente prima della consegna. */
+    private long scartati;
+
+    /*-
+     * AF:
+     *    - inAttesa: sono gli aggiornamenti ancora da consegnare ad ascoltatore, uno per azione.
+     *    - consegnati, scartati: contano gli aggiornamenti consegnati e quelli saltati.
+     *    - errore: è la causa dell'annullamento, se l'ha provocato l'ascoltatore.
+     * RI:
+     *    - diffusore != null && ascoltatore != null && inAttesa != null.
+     *    - inAttesa.get(a).azione() == a per ogni azione a in inAttesa.
+     *    - se inAttesa non è vuota e l'iscrizione non è chiusa, allora inConsegna.
+     *    - se errore != null, allora chiusa.
+     */
+
+    /**
+     * Crea un'iscrizione.
+     * @param diffusore il diffusore della borsa.
+     * @param ascoltatore l'ascoltatore da iscrivere.
+     */
+    Iscrizione(Diffusore diffusore, Ascoltatore ascoltatore) {
+        this.diffusore = diffusore;
+        this.ascoltatore = ascoltatore;
+    }
+
+    /**
+     * Restituisce il numero di aggiornamenti consegnati finora all'ascoltatore.
+     * @return il numero di aggiornamenti consegnati.
+     */
+    public synchronized long consegnati() {
+        return consegnati;
+    }
+
+    /**
+     * Restituisce il numero di aggiornamenti scartati perché sostituiti da uno più recente della stessa azione.
+     * @return il numero di aggiornamenti scartati.
+     */
+    public synchronized long scartati() {
+        return scartati;
+    }
+
+    /**
+     * Indica se l'iscrizione è stata annullata, con {@link #close()}, per un errore dell'ascoltatore o perché la borsa è stata cancellata.
+     * @return {@code true} se l'ascoltatore non riceve più aggiornamenti.
+     */
+    public boolean chiusa() {
+        return chiusa;
+    }
+
+    /**
+     * Restituisce l'eccezione sollevata dall'ascoltatore, che ha annullato l'iscrizione.
+     * @return l'eccezione, {@code null} se l'ascoltatore non ne ha sollevate.
+     */
+    public Throwable errore() {
+        return errore;
+    }
+
+    /**
+     * Annulla l'iscrizione: gli aggiornamenti in attesa non vengono consegnati.
+     */
+    @Override
+    public void close() {
+        termina(null);
+        diffusore.rimuovi(this);
+    }
+
+    /**
+     * Smette di consegnare aggiornamenti, senza rimuovere l'iscrizione dal diffusore.
+     * @param causa l'eccezione dell'ascoltatore che ha provocato l'annullamento, {@code null} se non c'è.
+     */
+    void termina(Throwable causa) {
+        synchronized (this) {
+            if (causa != null && !chiusa) errore = causa;
+            chiusa = true;
+            inAttesa.clear();
+        }
+    }
+
+    /**
+     * Mette un aggiornamento nella casella, sostituendo quello in attesa per la stessa azione.
+     * @param aggiornamento l'aggiornamento.
+     * @return {@code true} se bisogna avviare un thread per svuotare la casella.
+     */
+    synchronized boolean deposita(Aggiornamento aggiornamento) {
+        if (chiusa) return false;
+        if (inAttesa.put(aggiornamento.azione(), aggiornamento) != null) scartati++;
+        if (inConsegna) return false;
+        inConsegna = true;
+        return true;
+    }
+
+    /**
+     * Consegna all'ascoltatore gli aggiornamenti in attesa, finché la casella non resta vuota.
+     * Un aggiornamento viene contato tra i consegnati solo quando l'ascoltatore lo ha ricevuto senza sollevare eccezioni.
+     * Un'eccezione dell'ascoltatore annulla l'iscrizione.
+     * @throws Error se l'ascoltatore lo solleva, dopo aver annullato l'iscrizione.
+     */
+    void consegna() {
+        while (true) {
+            List<Aggiornamento> daConsegnare;
+            synchronized (this) {
+                if (inAttesa.isEmpty() || chiusa) {
+                    inConsegna = false;
+                    return;
+                }
+                daConsegnare = new ArrayList<>(inAttesa.values());
+                inAttesa.clear();
+            }
+            for (Aggiornamento aggiornamento : daConsegnare) {
+                if (chiusa) break;
+                try {
+                    ascoltatore.aggiornamento(aggiornamento);
+                } catch (RuntimeException e) {
+                    // l'ascoltatore potrebbe essere in uno stato incoerente: non riceve altri aggiornamenti
+                    termina(e);
+                    diffusore.rimuovi(this);
+                    break;
+                } catch (Error e) {
+                    termina(e);
+                    diffusore.rimuovi(this);
+                    throw e;
+                }
+                synchronized (this) {
+                    consegnati++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package borsanova;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * L'istantanea è una vista immutabile di una borsa in un determinato momento.
+ *
+ * Ogni istantanea:
+ *  - ha un numero di versione, pari al numero di quotazioni, acquisti e vendite avvenuti nella borsa fino a quel momento.
+ *  - contiene, per ogni azienda quotata, valore, quantità, azioni disponibili e proprietari della sua azione.
+ *  - contiene, per ogni operatore, le azioni che possiede in questa borsa.
+ *
+ * Le istantanee vengono prodotte dalla borsa dopo ogni modifica copiando solo la quotazione modificata,
+ * e possono essere lette da qualunque thread, per tutto il tempo necessario, senza bloccare gli scambi.
+ */
+public final class Istantanea {
+    /**{@code borsa} la borsa ritratta dall'istantanea. */
+    private final Borsa borsa;
+    /**{@code versione} il numero di modifiche della borsa incluse nell'istantanea. */
+    private final long versione;
+    /**{@code quotazioni} associa ogni azienda quotata alla sua quotazione. */
+    private final MappaPersistente<Azienda, Quotazione> quotazioni;
+    /**{@code posizioni} associa ogni operatore che possiede azioni alle aziende di cui le possiede e alla quantità posseduta. */
+    private final MappaPersistente<Operatore, MappaPersistente<Azienda, Integer>> posizioni;
+
+    /*-
+     * AF:
+     *    - borsa: è la borsa di cui l'istantanea è una vista.
+     *    - versione: è il numero di modifiche della borsa avvenute prima dell'istantanea.
+     *    - quotazioni: è lo stato delle azioni quotate, per azienda.
+     *    - posizioni: sono le azioni possedute da ogni operatore, per azienda.
+     * RI:
+     *    - borsa != null && quotazioni != null && posizioni != null && versione >= 0.
+     *    - quotazioni.valore(a).detentori().valore(o) == posizioni.valore(o).valore(a) per ogni azienda a e operatore o.
+     *    - nessuna mappa contenuta in posizioni è vuota e nessuna quantità è minore o uguale a 0.
+     */
+
+    /**
+     * Lo stato dell'azione di un'azienda nel momento dell'istantanea.
+     * @param azienda l'azienda che ha emesso l'azione.
+     * @param valore il valore della singola azione.
+     * @param quantita la quantità di azioni esistenti nella borsa.
+     * @param disponibili la quantità di azioni disponibili per l'acquisto.
+     * @param detentori i proprietari dell'azione, associati alla quantità posseduta.
+     */
+    public record Quotazione(Azienda azienda, int valore, int quantita, int disponibili, MappaPersistente<Operatore, Integer> detentori) {
+    }
+
+    /**
+     * Costruisce un'istantanea.
+     * @param borsa la borsa ritratta.
+     * @param versione il numero di modifiche incluse.
+     * @param quotazioni le quotazioni per azienda.
+     * @param posizioni le posizioni per operatore.
+     */
+    private Istantanea(Borsa borsa, long versione, MappaPersistente<Azienda, Quotazione> quotazioni, MappaPersistente<Operatore, MappaPersistente<Azienda, Integer>> posizioni) {
+        this.borsa = borsa;
+        this.versione = versione;
+        this.quotazioni = quotazioni;
+        this.posizioni = posizioni;
+    }
+
+    /**
+     * Restituisce l'istantanea di una borsa senza azioni quotate.
+     * @param borsa la borsa.
+     * @return l'istantanea vuota con versione 0.
+     */
+    static Istantanea vuota(Borsa borsa) {
+        return new Istantanea(borsa, 0, MappaPersistente.vuota(), MappaPersistente.vuota());
+    }
+
+    /**
+     * Restituisce la borsa ritratta da questa istantanea.
+     * @return la borsa.
+     */
+    public Borsa borsa() {
+        return borsa;
+    }
+
+    /**
+     * Restituisce il numero di modifiche della borsa incluse in questa istantanea.
+     * @return la versione dell'istantanea.
+     */
+    public long versione() {
+        return versione;
+    }
+
+    /**
+     * Restituisce il numero di aziende quotate.
+     * @return il numero di quotazioni.
+     */
+    public int numeroQuotazioni() {
+        return quotazioni.dimensione();
+    }
+
+    /**
+     * Restituisce la quotazione di un'azienda.
+     * @param azienda l'azienda cercata.
+     * @return la quotazione di {@code azienda}.
+     * @throws NoSuchElementException se l'azienda non era quotata al momento dell'istantanea.
+     * @throws NullPointerException se {@code azienda} è {@code null}.
+     */
+    public Quotazione quotazione(Azienda azienda) throws NoSuchElementException, NullPointerException {
+        Quotazione quotazione = quotazioni.valore(Objects.requireNonNull(azienda, "L'azienda non può essere null."));
+        if (quotazione == null) throw new NoSuchElementException("L'azienda non è quotata in questa borsa.");
+        return quotazione;
+    }
+
+    /**
+     * Restituisce un iteratore sulle quotazioni, ordinate per azienda.
+     * @return un iteratore sulle quotazioni.
+     */
+    public Iterator<Quotazione> quotazioni() {
+        Iterator<Map.Entry<Azienda, Quotazione>> voci = quotazioni.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return voci.hasNext();
+            }
+
+            @Override
+            public Quotazione next() {
+                return voci.next().getValue();
+            }
+        };
+    }
+
+    /**
+     * Restituisce le azioni possedute da un operatore in questa borsa, per azienda.
+     * @param operatore l'operatore.
+     * @return le aziende di cui l'operatore possiede azioni, associate alla quantità posseduta; la mappa è vuota se non ne possiede.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public MappaPersistente<Azienda, Integer> azioniDetenute(Operatore operatore) throws NullPointerException {
+        MappaPersistente<Azienda, Integer> azioni = posizioni.valore(Objects.requireNonNull(operatore, "L'operatore non può essere null."));
+        return azioni == null ? MappaPersistente.vuota() : azioni;
+    }
+
+    /**
+     * Restituisce le azioni possedute da tutti gli operatori in questa borsa.
+     * @return gli operatori che possiedono azioni, ordinati per nome, associati alle azioni possedute per azienda.
+     */
+    public MappaPersistente<Operatore, MappaPersistente<Azienda, Integer>> posizioni() {
+        return posizioni;
+    }
+
+    /**
+     * Restituisce l'istantanea successiva ad una modifica della quotazione di un'azienda.
+     * @param versione il numero di modifiche della borsa incluse nella nuova istantanea.
+     * @param azienda l'azienda la cui azione è stata modificata.
+     * @param valore il nuovo valore della singola azione.
+     * @param quantita la nuova quantità di azioni esistenti.
+     * @param disponibili la nuova quantità di azioni disponibili.
+     * @param operatore l'operatore la cui posizione è cambiata, {@code null} se nessuna posizione è cambiata.
+     * @param posseduta la nuova quantità posseduta da {@code operatore}, 0 se non possiede più l'azione.
+     * @return la nuova istantanea.
+     */
+    Istantanea aggiorna(long versione, Azienda azienda, int valore, int quantita, int disponibili, Operatore operatore, int posseduta) {
+        Quotazione precedente = quotazioni.valore(azienda);
+        MappaPersistente<Operatore, Integer> detentori = precedente == null ? MappaPersistente.vuota() : precedente.detentori();
+        MappaPersistente<Operatore, MappaPersistente<Azienda, Integer>> nuovePosizioni = posizioni;
+        if (operatore != null) {
+            MappaPersistente<Azienda, Integer> azioni = azioniDetenute(operatore);
+            if (posseduta > 0) {
+                detentori = detentori.con(operatore, posseduta);
+                nuovePosizioni = posizioni.con(operatore, azioni.con(azienda, posseduta));
+            } else {
+                detentori = detentori.senza(operatore);
+                azioni = azioni.senza(azienda);
+                nuovePosizioni = azioni.dimensione() == 0 ? posizioni.senza(operatore) : posizioni.con(operatore, azioni);
+            }
+        }
+        Quotazione nuova = new Quotazione(azienda, valore, quantita, disponibili, detentori);
+        return new Istantanea(borsa, versione, quotazioni.con(azienda, nuova), nuovePosizioni);
+    }
+
+    /**
+     * Restituisce l'istantanea successiva ad una modifica della quotazione di un'azienda che cambia la posizione
+     * di molti operatori insieme, come un frazionamento: tutte le posizioni cambiano nella stessa versione.
+     * @param versione il numero di modifiche della borsa incluse nella nuova istantanea.
+     * @param azienda l'azienda la cui azione è stata modificata.
+     * @param valore il nuovo valore della singola azione.
+     * @param quantita la nuova quantità di azioni esistenti.
+     * @param disponibili la nuova quantità di azioni disponibili.
+     * @param operatori gli operatori la cui posizione è cambiata.
+     * @param possedute la nuova quantità posseduta da ogni operatore, nella stessa posizione, 0 se non possiede più l'azione.
+     * @return la nuova istantanea.
+     */
+    Istantanea aggiorna(long versione, Azienda azienda, int valore, int quantita, int disponibili, Operatore[] operatori, int[] possedute) {
+        Quotazione precedente = quotazioni.valore(azienda);
+        MappaPersistente<Operatore, Integer> detentori = precedente == null ? MappaPersistente.vuota() : precedente.detentori();
+        MappaPersistente<Operatore, MappaPersistente<Azienda, Integer>> nuovePosizioni = posizioni;
+        for (int k = 0; k < operatori.length; k++) {
+            MappaPersistente<Azienda, Integer> azioni = nuovePosizioni.valore(operatori[k]);
+            if (azioni == null) azioni = MappaPersistente.vuota();
+            if (possedute[k] > 0) {
+                detentori = detentori.con(operatori[k], possedute[k]);
+                nuovePosizioni = nuovePosizioni.con(operatori[k], azioni.con(azienda, possedute[k]));
+            } else {
+                detentori = detentori.senza(operatori[k]);
+                azioni = azioni.senza(azienda);
+                nuovePosizioni = azioni.dimensione() == 0 ? nuovePosizioni.senza(operatori[k]) : nuovePosizioni.con(operatori[k], azioni);
+            }
+        }
+        Quotazione nuova = new Quotazione(azienda, valore, quantita, disponibili, detentori);
+        return new Istantanea(borsa, versione, quotazioni.con(azienda, nuova), nuovePosizioni);
+    }
+}
@@ -0,0 +1,112 @@
+package borsanova;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * I limiti di rischio controllano gli acquisti di ogni operatore in una borsa, in tempo costante.
+ *
+ * Per ogni operatore valgono tre limiti, quelli predefiniti oppure quelli impostati per lui:
+ *  - il numero massimo di azioni di un'azienda possedute sommando tutte le borse.
+ *  - la quota massima, in punti base, delle azioni di un'azione della borsa posseduta dall'operatore.
+ *  - il controvalore massimo investito dall'operatore nella borsa.
+ *
+ * L'esposizione massima verso un'azienda è misurata in numero di azioni e non in controvalore: il controvalore
+ * delle azioni di un'azienda cambia con i prezzi di tutte le borse in cui è quotata, mentre il numero di azioni
+ * possedute è già tenuto dall'azienda e si controlla in tempo costante. Il limite in controvalore vale solo per la borsa.
+ *
+ * Le azioni possedute di un'azienda e di un'azione sono già tenute aggiornate dall'azienda e dalla borsa;
+ * il controvalore investito nella borsa è tenuto dai limiti, che lo aggiornano ad ogni scambio:
+ * cresce del prezzo pagato ad ogni acquisto e cala del ricavo di ogni vendita, senza scendere sotto zero.
+ * Le vendite non vengono mai rifiutate.
+ */
+public final class LimitiRischio implements ControlloRischio {
+    /**{@code predefiniti} i limiti degli operatori per cui non sono stati impostati limiti propri. */
+    private final Limiti predefiniti;
+    /**{@code perOperatore} i limiti propri di ogni operatore, in posizione pari al suo identificatore, {@code null} se non impostati. */
+    private Limiti[] perOperatore = new Limiti[16];
+    /**{@code investito} associa l'identificatore di ogni operatore al controvalore che ha investito nella borsa. */
+    private final MappaIntera investito = new MappaIntera();
+
+    /*-
+     * AF:
+     *    - i limiti dell'operatore con identificatore o sono perOperatore[o], se presente, altrimenti predefiniti.
+     *    - investito.valore(o) è il controvalore investito nella borsa dall'operatore o.
+     * RI:
+     *    - predefiniti != null && perOperatore != null.
+     *    - investito.valore(o) >= 0 per ogni o.
+     */
+
+    /**
+     * I limiti di un operatore.
+     * @param azioniPerAzienda il numero massimo di azioni di un'azienda possedute sommando tutte le borse.
+     * @param quotaFlottante la quota massima delle azioni di un'azione posseduta, in punti base (10000 è il 100%).
+     * @param controvaloreBorsa il controvalore massimo investito nella borsa.
+     */
+    public record Limiti(int azioniPerAzienda, int quotaFlottante, int controvaloreBorsa) {
+        /**
+         * Costruisce i limiti di un operatore.
+         * @param azioniPerAzienda il numero massimo di azioni di un'azienda possedute sommando tutte le borse.
+         * @param quotaFlottante la quota massima delle azioni di un'azione posseduta, in punti base.
+         * @param controvaloreBorsa il controvalore massimo investito nella borsa.
+         * @throws IllegalArgumentException se un limite è negativo.
+         */
+        public Limiti {
+            if (azioniPerAzienda < 0 || quotaFlottante < 0 || controvaloreBorsa < 0) throw new IllegalArgumentException("I limiti non possono essere negativi.");
+        }
+    }
+
+    /**
+     * Costruisce i limiti di rischio di una borsa.
+     * @param predefiniti i limiti degli operatori per cui non vengono impostati limiti propri.
+     * @throws NullPointerException se {@code predefiniti} è {@code null}.
+     */
+    public LimitiRischio(Limiti predefiniti) throws NullPointerException {
+        this.predefiniti = Objects.requireNonNull(predefiniti, "I limiti predefiniti non possono essere null.");
+    }
+
+    /**
+     * Imposta i limiti propri di un operatore.
+     * Va eseguito dal thread che esegue gli ordini della borsa, oppure prima di inviarli.
+     * @param operatore l'operatore.
+     * @param limiti i suoi limiti, {@code null} per tornare a quelli predefiniti.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public void limiti(Operatore operatore, Limiti limiti) throws NullPointerException {
+        int id = Objects.requireNonNull(operatore, "L'operatore non può essere null.").id();
+        if (id >= perOperatore.length) perOperatore = Arrays.copyOf(perOperatore, Math.max(id + 1, perOperatore.length * 2));
+        perOperatore[id] = limiti;
+    }
+
+    /**
+     * Restituisce il controvalore investito da un operatore nella borsa.
+     * @param operatore l'operatore.
+     * @return il controvalore investito.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public int investito(Operatore operatore) throws NullPointerException {
+        return investito.valore(Objects.requireNonNull(operatore, "L'operatore non può essere null.").id());
+    }
+
+    @Override
+    public Esito verifica(Operatore operatore, Azione azione, int prezzo, int scambiate) {
+        if (scambiate <= 0) return Esito.ESEGUITO;
+        int id = operatore.id();
+        Limiti limiti = id < perOperatore.length && perOperatore[id] != null ? perOperatore[id] : predefiniti;
+        if ((long) azione.azienda().azioniDetenute(operatore) + scambiate > limiti.azioniPerAzienda()) return Esito.LIMITE_AZIENDA;
+        long posseduta = (long) Posizioni.ATTIVE.quantita(id, azione.id()) + scambiate;
+        if (posseduta * 10000 > (long) limiti.quotaFlottante() * azione.quantita()) return Esito.LIMITE_FLOTTANTE;
+        if ((long) investito.valore(id) + (long) prezzo * scambiate > limiti.controvaloreBorsa()) return Esito.LIMITE_BORSA;
+        return Esito.ESEGUITO;
+    }
+
+    @Override
+    public void eseguito(Operatore operatore, Azione azione, int prezzo, int scambiate) {
+        int id = operatore.id();
+        long nuovo = Math.max(0, (long) investito.valore(id) + (long) prezzo * scambiate);
+        if (nuovo == 0) investito.rimuovi(id);
+        else investito.inserisci(id, (int) Math.min(Integer.MAX_VALUE, nuovo));
+    }
+}
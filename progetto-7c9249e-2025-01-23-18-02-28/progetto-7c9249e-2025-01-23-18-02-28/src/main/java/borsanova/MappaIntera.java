@@ -0,0 +1,220 @@
+package borsanova;
+
+import java.util.Arrays;
+
+/**
+ * Mappa da chiavi intere non negative a valori interi, con indirizzamento aperto e scansione lineare.
+ *
+ * Le chiavi sono gli identificatori densi delle entità (operatori, azioni, ...), quindi
+ * non serve né un nodo per ogni elemento né il boxing di chiavi e valori.
+ *
+ * Ogni mappa:
+ *  - associa ad ogni chiave presente un valore intero.
+ *  - restituisce 0 come valore di una chiave assente.
+ *
+ * L'ordine di iterazione delle chiavi non è definito: chi ha bisogno di un ordine deve costruirlo a parte.
+ */
+public final class MappaIntera {
+    /**{@code LIBERA} la chiave che indica una cella vuota. */
+    private static final int LIBERA = -1;
+    /**{@code chiavi} le chiavi contenute nelle celle della tabella. */
+    private int[] chiavi;
+    /**{@code valori} i valori associati alle chiavi, cella per cella. */
+    private int[] valori;
+    /**{@code dimensione} il numero di chiavi presenti. */
+    private int dimensione;
+
+    /*-
+     * AF:
+     *    - per ogni i tale che chiavi[i] != LIBERA, la mappa associa chiavi[i] a valori[i].
+     *    - dimensione: è il numero di associazioni presenti.
+     * RI:
+     *    - chiavi != null && valori != null && chiavi.length == valori.length.
+     *    - chiavi.length è una potenza di 2 e dimensione < chiavi.length.
+     *    - ogni chiave compare al più una volta ed è raggiungibile, con scansione lineare senza celle libere, dalla propria posizione di hash.
+     */
+
+    /**
+     * Costruisce una mappa vuota.
+     */
+    public MappaIntera() {
+        this(4);
+    }
+
+    /**
+     * Costruisce una mappa vuota in grado di contenere {@code capacita} chiavi senza ridimensionarsi.
+     * @param capacita il numero di chiavi previsto.
+     * @throws IllegalArgumentException se {@code capacita} è negativa.
+     */
+    public MappaIntera(int capacita) throws IllegalArgumentException {
+        if (capacita < 0) throw new IllegalArgumentException("La capacità non può essere negativa.");
+        int celle = Integer.highestOneBit(Math.max(4, capacita * 2 - 1)) << 1;
+        chiavi = new int[celle];
+        valori = new int[celle];
+        Arrays.fill(chiavi, LIBERA);
+    }
+
+    /**
+     * Restituisce il valore associato a una chiave.
+     * @param chiave la chiave cercata.
+     * @return il valore associato a {@code chiave}, 0 se la chiave non è presente.
+     */
+    public int valore(int chiave) {
+        int i = cella(chiave);
+        return chiavi[i] == LIBERA ? 0 : valori[i];
+    }
+
+    /**
+     * Indica se una chiave è presente nella mappa.
+     * @param chiave la chiave cercata.
+     * @return {@code true} se la chiave è presente, {@code false} altrimenti.
+     */
+    public boolean contiene(int chiave) {
+        return chiavi[cella(chiave)] != LIBERA;
+    }
+
+    /**
+     * Associa un valore a una chiave, sostituendo l'eventuale valore precedente.
+     * @param chiave la chiave.
+     * @param valore il valore da associare.
+     * @return il valore precedente, 0 se la chiave non era presente.
+     * @throws IllegalArgumentException se {@code chiave} è negativa.
+     */
+    public int inserisci(int chiave, int valore) throws IllegalArgumentException {
+        if (chiave < 0) throw new IllegalArgumentException("La chiave non può essere negativa.");
+        int i = cella(chiave);
+        if (chiavi[i] != LIBERA) {
+            int precedente = valori[i];
+            valori[i] = valore;
+            return precedente;
+        }
+        chiavi[i] = chiave;
+        valori[i] = valore;
+        if (++dimensione * 4 > chiavi.length * 3) ridimensiona();
+        return 0;
+    }
+
+    /**
+     * Somma una quantità al valore associato a una chiave, inserendola se assente.
+     * @param chiave la chiave.
+     * @param delta la quantità da sommare.
+     * @return il nuovo valore associato a {@code chiave}.
+     * @throws IllegalArgumentException se {@code chiave} è negativa.
+     */
+    public int somma(int chiave, int delta) throws IllegalArgumentException {
+        int nuovo = valore(chiave) + delta;
+        inserisci(chiave, nuovo);
+        return nuovo;
+    }
+
+    /**
+     * Rimuove una chiave dalla mappa.
+     * Le celle successive vengono spostate all'indietro, così non servono marcatori di cancellazione.
+     * @param chiave la chiave da rimuovere.
+     * @return il valore che era associato a {@code chiave}, 0 se la chiave non era presente.
+     */
+    public int rimuovi(int chiave) {
+        int i = cella(chiave);
+        if (chiavi[i] == LIBERA) return 0;
+        int rimosso = valori[i];
+        int maschera = chiavi.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & maschera;
+            if (chiavi[j] == LIBERA) break;
+            int origine = hash(chiavi[j]) & maschera;
+            // la chiave in j può occupare la cella i solo se i sta tra la sua origine e j
+            if (((j - origine) & maschera) >= ((j - i) & maschera)) {
+                chiavi[i] = chiavi[j];
+                valori[i] = valori[j];
+                i = j;
+            }
+        }
+        chiavi[i] = LIBERA;
+        dimensione--;
+        return rimosso;
+    }
+
+    /**
+     * Restituisce il numero di chiavi presenti.
+     * @return il numero di chiavi presenti.
+     */
+    public int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Restituisce le chiavi presenti, in un ordine non definito.
+     * @return un nuovo array contenente le chiavi presenti.
+     */
+    public int[] chiavi() {
+        int[] risultato = new int[dimensione];
+        int k = 0;
+        for (int c : chiavi) if (c != LIBERA) risultato[k++] = c;
+        return risultato;
+    }
+
+    /**
+     * Visita tutte le associazioni presenti, in un ordine non definito.
+     * Il visitatore non deve modificare la mappa.
+     * @param visitatore il visitatore da invocare per ogni associazione.
+     */
+    public void perOgni(Visitatore visitatore) {
+        for (int i = 0; i < chiavi.length; i++) {
+            if (chiavi[i] != LIBERA) visitatore.visita(chiavi[i], valori[i]);
+        }
+    }
+
+    /**
+     * Visitatore delle associazioni di una {@code MappaIntera}.
+     */
+    @FunctionalInterface
+    public interface Visitatore {
+        /**
+         * Visita un'associazione.
+         * @param chiave la chiave.
+         * @param valore il valore associato alla chiave.
+         */
+        void visita(int chiave, int valore);
+    }
+
+    /**
+     * Cerca la cella che contiene una chiave o, se assente, la cella libera in cui andrebbe inserita.
+     * @param chiave la chiave cercata.
+     * @return l'indice della cella.
+     */
+    private int cella(int chiave) {
+        int maschera = chiavi.length - 1;
+        int i = hash(chiave) & maschera;
+        while (chiavi[i] != LIBERA && chiavi[i] != chiave) i = (i + 1) & maschera;
+        return i;
+    }
+
+    /**
+     * Raddoppia la tabella reinserendo tutte le associazioni.
+     */
+    private void ridimensiona() {
+        int[] vecchieChiavi = chiavi;
+        int[] vecchiValori = valori;
+        chiavi = new int[vecchieChiavi.length * 2];
+        valori = new int[vecchiValori.length * 2];
+        Arrays.fill(chiavi, LIBERA);
+        for (int i = 0; i < vecchieChiavi.length; i++) {
+            if (vecchieChiavi[i] != LIBERA) {
+                int j = cella(vecchieChiavi[i]);
+                chiavi[j] = vecchieChiavi[i];
+                valori[j] = vecchiValori[i];
+            }
+        }
+    }
+
+    /**
+     * Disperde i bit di una chiave, dato che gli identificatori densi sono consecutivi.
+     * @param chiave la chiave.
+     * @return il valore di hash della chiave.
+     */
+    private static int hash(int chiave) {
+        int h = chiave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
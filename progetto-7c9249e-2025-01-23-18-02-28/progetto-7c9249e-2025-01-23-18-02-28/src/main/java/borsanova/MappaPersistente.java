@@ -0,0 +1,313 @@
+package borsanova;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Mappa ordinata immutabile, realizzata con un albero AVL a copia di percorso.
+ *
+ * Ogni modifica restituisce una nuova mappa che condivide con la precedente tutti i nodi fuori dal percorso modificato,
+ * quindi costa O(log n) in tempo e memoria e lascia intatta la mappa di partenza.
+ * Le mappe possono essere lette da qualunque thread senza sincronizzazione.
+ *
+ * Le chiavi sono ordinate secondo il loro ordinamento naturale. Né le chiavi né i valori possono essere {@code null}.
+ *
+ * @param <K> il tipo delle chiavi.
+ * @param <V> il tipo dei valori.
+ */
+public final class MappaPersistente<K extends Comparable<? super K>, V> implements Iterable<Map.Entry<K, V>> {
+    /**{@code VUOTA} la mappa vuota, condivisa da tutti i tipi. */
+    private static final MappaPersistente<?, ?> VUOTA = new MappaPersistente<>(null);
+    /**{@code radice} la radice dell'albero, {@code null} se la mappa è vuota. */
+    private final Nodo<K, V> radice;
+
+    /*-
+     * AF:
+     *    - la mappa associa la chiave di ogni nodo dell'albero con radice radice al valore del nodo.
+     * RI:
+     *    - l'albero è un albero binario di ricerca secondo l'ordinamento naturale delle chiavi, senza chiavi ripetute.
+     *    - per ogni nodo, altezza e dimensione sono quelle del suo sottoalbero e le altezze dei figli differiscono al più di 1.
+     */
+
+    /**
+     * Costruisce una mappa a partire dalla radice del suo albero.
+     * @param radice la radice dell'albero.
+     */
+    private MappaPersistente(Nodo<K, V> radice) {
+        this.radice = radice;
+    }
+
+    /**
+     * Restituisce la mappa vuota.
+     * @param <K> il tipo delle chiavi.
+     * @param <V> il tipo dei valori.
+     * @return la mappa vuota.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> MappaPersistente<K, V> vuota() {
+        return (MappaPersistente<K, V>) VUOTA;
+    }
+
+    /**
+     * Restituisce il numero di associazioni presenti.
+     * @return il numero di associazioni.
+     */
+    public int dimensione() {
+        return dimensione(radice);
+    }
+
+    /**
+     * Restituisce il valore associato a una chiave.
+     * @param chiave la chiave cercata.
+     * @return il valore associato a {@code chiave}, {@code null} se la chiave non è presente.
+     * @throws NullPointerException se {@code chiave} è {@code null}.
+     */
+    public V valore(K chiave) throws NullPointerException {
+        Objects.requireNonNull(chiave, "La chiave non può essere null.");
+        Nodo<K, V> nodo = radice;
+        while (nodo != null) {
+            int c = chiave.compareTo(nodo.chiave);
+            if (c == 0) return nodo.valore;
+            nodo = c < 0 ? nodo.sinistro : nodo.destro;
+        }
+        return null;
+    }
+
+    /**
+     * Restituisce una mappa uguale a questa, ma con {@code chiave} associata a {@code valore}.
+     * @param chiave la chiave.
+     * @param valore il valore da associare.
+     * @return la nuova mappa.
+     * @throws NullPointerException se {@code chiave} o {@code valore} sono {@code null}.
+     */
+    public MappaPersistente<K, V> con(K chiave, V valore) throws NullPointerException {
+        Objects.requireNonNull(chiave, "La chiave non può essere null.");
+        Objects.requireNonNull(valore, "Il valore non può essere null.");
+        return new MappaPersistente<>(inserisci(radice, chiave, valore));
+    }
+
+    /**
+     * Restituisce una mappa uguale a questa, ma senza {@code chiave}.
+     * @param chiave la chiave da togliere.
+     * @return la nuova mappa, oppure questa mappa se la chiave non è presente.
+     * @throws NullPointerException se {@code chiave} è {@code null}.
+     */
+    public MappaPersistente<K, V> senza(K chiave) throws NullPointerException {
+        Objects.requireNonNull(chiave, "La chiave non può essere null.");
+        if (valore(chiave) == null) return this;
+        return new MappaPersistente<>(rimuovi(radice, chiave));
+    }
+
+    /**
+     * Restituisce l'associazione in una determinata posizione dell'ordine delle chiavi.
+     * @param posizione la posizione, a partire da 0.
+     * @return l'associazione in posizione {@code posizione}.
+     * @throws IndexOutOfBoundsException se {@code posizione} non è compresa tra 0 e {@code dimensione() - 1}.
+     */
+    public Map.Entry<K, V> inPosizione(int posizione) throws IndexOutOfBoundsException {
+        Objects.checkIndex(posizione, dimensione());
+        Nodo<K, V> nodo = radice;
+        while (true) {
+            int sinistra = dimensione(nodo.sinistro);
+            if (posizione == sinistra) return nodo;
+            if (posizione < sinistra) nodo = nodo.sinistro;
+            else {
+                posizione -= sinistra + 1;
+                nodo = nodo.destro;
+            }
+        }
+    }
+
+    /**
+     * Restituisce un iteratore sulle associazioni, in ordine crescente di chiave.
+     * Le associazioni restituite non possono essere modificate.
+     * @return l'iteratore sulle associazioni.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            /**{@code percorso} i nodi di cui resta da visitare il nodo stesso e il sottoalbero destro. */
+            private final Deque<Nodo<K, V>> percorso = new ArrayDeque<>();
+
+            {
+                scendi(radice);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !percorso.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (percorso.isEmpty()) throw new NoSuchElementException();
+                Nodo<K, V> nodo = percorso.pop();
+                scendi(nodo.destro);
+                return nodo;
+            }
+
+            /**
+             * Aggiunge al percorso un nodo e tutti i suoi discendenti più a sinistra.
+             * @param nodo il nodo da cui scendere.
+             */
+            private void scendi(Nodo<K, V> nodo) {
+                for (; nodo != null; nodo = nodo.sinistro) percorso.push(nodo);
+            }
+        };
+    }
+
+    /**
+     * Restituisce il numero di nodi di un sottoalbero.
+     * @param nodo la radice del sottoalbero.
+     * @return il numero di nodi, 0 se {@code nodo} è {@code null}.
+     */
+    private static int dimensione(Nodo<?, ?> nodo) {
+        return nodo == null ? 0 : nodo.dimensione;
+    }
+
+    /**
+     * Restituisce l'altezza di un sottoalbero.
+     * @param nodo la radice del sottoalbero.
+     * @return l'altezza, 0 se {@code nodo} è {@code null}.
+     */
+    private static int altezza(Nodo<?, ?> nodo) {
+        return nodo == null ? 0 : nodo.altezza;
+    }
+
+    /**
+     * Inserisce o sostituisce un'associazione in un sottoalbero, copiando il percorso.
+     * @param <K> il tipo delle chiavi.
+     * @param <V> il tipo dei valori.
+     * @param nodo la radice del sottoalbero.
+     * @param chiave la chiave.
+     * @param valore il valore.
+     * @return la radice del nuovo sottoalbero.
+     */
+    private static <K extends Comparable<? super K>, V> Nodo<K, V> inserisci(Nodo<K, V> nodo, K chiave, V valore) {
+        if (nodo == null) return new Nodo<>(chiave, valore, null, null);
+        int c = chiave.compareTo(nodo.chiave);
+        if (c == 0) return new Nodo<>(chiave, valore, nodo.sinistro, nodo.destro);
+        if (c < 0) return bilancia(nodo.chiave, nodo.valore, inserisci(nodo.sinistro, chiave, valore), nodo.destro);
+        return bilancia(nodo.chiave, nodo.valore, nodo.sinistro, inserisci(nodo.destro, chiave, valore));
+    }
+
+    /**
+     * Rimuove una chiave presente da un sottoalbero, copiando il percorso.
+     * @param <K> il tipo delle chiavi.
+     * @param <V> il tipo dei valori.
+     * @param nodo la radice del sottoalbero.
+     * @param chiave la chiave da rimuovere.
+     * @return la radice del nuovo sottoalbero.
+     */
+    private static <K extends Comparable<? super K>, V> Nodo<K, V> rimuovi(Nodo<K, V> nodo, K chiave) {
+        int c = chiave.compareTo(nodo.chiave);
+        if (c < 0) return bilancia(nodo.chiave, nodo.valore, rimuovi(nodo.sinistro, chiave), nodo.destro);
+        if (c > 0) return bilancia(nodo.chiave, nodo.valore, nodo.sinistro, rimuovi(nodo.destro, chiave));
+        if (nodo.sinistro == null) return nodo.destro;
+        if (nodo.destro == null) return nodo.sinistro;
+        Nodo<K, V> minimo = nodo.destro;
+        while (minimo.sinistro != null) minimo = minimo.sinistro;
+        return bilancia(minimo.chiave, minimo.valore, nodo.sinistro, rimuovi(nodo.destro, minimo.chiave));
+    }
+
+    /**
+     * Costruisce un nodo a partire da due sottoalberi le cui altezze differiscono al più di 2, ruotando se necessario.
+     * @param <K> il tipo delle chiavi.
+     * @param <V> il tipo dei valori.
+     * @param chiave la chiave del nodo.
+     * @param valore il valore del nodo.
+     * @param sinistro il sottoalbero sinistro.
+     * @param destro il sottoalbero destro.
+     * @return la radice del sottoalbero bilanciato.
+     */
+    private static <K extends Comparable<? super K>, V> Nodo<K, V> bilancia(K chiave, V valore, Nodo<K, V> sinistro, Nodo<K, V> destro) {
+        int differenza = altezza(sinistro) - altezza(destro);
+        if (differenza > 1) {
+            if (altezza(sinistro.sinistro) >= altezza(sinistro.destro))
+                return new Nodo<>(sinistro.chiave, sinistro.valore, sinistro.sinistro, new Nodo<>(chiave, valore, sinistro.destro, destro));
+            Nodo<K, V> centro = sinistro.destro;
+            return new Nodo<>(centro.chiave, centro.valore,
+                    new Nodo<>(sinistro.chiave, sinistro.valore, sinistro.sinistro, centro.sinistro),
+                    new Nodo<>(chiave, valore, centro.destro, destro));
+        }
+        if (differenza < -1) {
+            if (altezza(destro.destro) >= altezza(destro.sinistro))
+                return new Nodo<>(destro.chiave, destro.valore, new Nodo<>(chiave, valore, sinistro, destro.sinistro), destro.destro);
+            Nodo<K, V> centro = destro.sinistro;
+            return new Nodo<>(centro.chiave, centro.valore,
+                    new Nodo<>(chiave, valore, sinistro, centro.sinistro),
+                    new Nodo<>(destro.chiave, destro.valore, centro.destro, destro.destro));
+        }
+        return new Nodo<>(chiave, valore, sinistro, destro);
+    }
+
+    /**
+     * Un nodo immutabile dell'albero, che è anche l'associazione restituita agli utenti.
+     * @param <K> il tipo delle chiavi.
+     * @param <V> il tipo dei valori.
+     */
+    private static final class Nodo<K, V> implements Map.Entry<K, V> {
+        /**{@code chiave} la chiave del nodo. */
+        private final K chiave;
+        /**{@code valore} il valore associato alla chiave. */
+        private final V valore;
+        /**{@code sinistro} il sottoalbero con le chiavi minori. */
+        private final Nodo<K, V> sinistro;
+        /**{@code destro} il sottoalbero con le chiavi maggiori. */
+        private final Nodo<K, V> destro;
+        /**{@code altezza} l'altezza del sottoalbero con radice in questo nodo. */
+        private final int altezza;
+        /**{@code dimensione} il numero di nodi del sottoalbero con radice in questo nodo. */
+        private final int dimensione;
+
+        /**
+         * Costruisce un nodo.
+         * @param chiave la chiave.
+         * @param valore il valore.
+         * @param sinistro il sottoalbero sinistro.
+         * @param destro il sottoalbero destro.
+         */
+        private Nodo(K chiave, V valore, Nodo<K, V> sinistro, Nodo<K, V> destro) {
+            this.chiave = chiave;
+            this.valore = valore;
+            this.sinistro = sinistro;
+            this.destro = destro;
+            altezza = Math.max(altezza(sinistro), altezza(destro)) + 1;
+            dimensione = dimensione(sinistro) + dimensione(destro) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return chiave;
+        }
+
+        @Override
+        public V getValue() {
+            return valore;
+        }
+
+        @Override
+        public V setValue(V valore) {
+            throw new UnsupportedOperationException("Le associazioni di una mappa persistente non possono essere modificate.");
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Map.Entry<?, ?> altra && chiave.equals(altra.getKey()) && valore.equals(altra.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return chiave.hashCode() ^ valore.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return chiave + "=" + valore;
+        }
+    }
+}
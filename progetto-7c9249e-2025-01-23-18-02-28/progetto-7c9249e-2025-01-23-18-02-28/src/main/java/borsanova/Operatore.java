@@ -1,13 +1,14 @@
 package borsanova;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.SortedSet;
+import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.stream.IntStream;
 
 import borsanova.Borsa.Azione;
 
@@ -18,6 +19,7 @@ import borsanova.Borsa.Azione;
  *  - è identificato da un nome. 
  *  - dspone di un budget che gli permette di comprare azioni nelle varie borse.
  *  - sa quali azioni possiede e in quale quantità.
+ *  - sa quante azioni possiede di ogni azienda, sommando tutte le borse in cui è quotata.
  * 
  * L'operatore può restituire:
  *  - il nome che lo identifica.
@@ -25,34 +27,50 @@ import borsanova.Borsa.Azione;
  *  - se possiede o meno una determinata azione.
  *  - la quantità di una determinata azione, se ne è in possesso. 
  *  - l'elenco delle azioni detenute in un determinato momento. 
+ *  - le aziende di cui possiede azioni e, per ciascuna, la posizione consolidata su tutte le borse.
  * 
  * Inoltre può effettuare operazioni di deposito e prelievo sul proprio budget rispettivamente per aggiungere o sottrarre denaro.  
+ * Le operazioni sul budget sono sincronizzate sull'operatore, così più borse possono usarlo contemporaneamente.
+ * Una parte del budget può essere riservata prima di inviare un acquisto ad una borsa, così l'acquisto non dipende da quello che fanno le altre borse nel frattempo.
  * Il criterio di confronto e ordinamento degli operatori è il nome.
  */
 public class Operatore implements Comparable<Operatore> {
 
-    /**{@code ISTANZE} tiene traccia di tutti i nomi usati per definire gli operatori.*/ 
-     private static final SortedSet<String> ISTANZE = new TreeSet<>();
+    /**{@code ISTANZE} tiene traccia di tutti gli operatori creati, dei loro nomi e dei loro identificatori.*/ 
+     private static final Registro<Operatore> ISTANZE = new Registro<>();
     /**{@code nome} il nome che identifica l'operatore. */
      private final String nome; 
+    /**{@code id} l'identificatore denso assegnato all'operatore alla creazione. */
+    private final int id;
     /**{@code budget} il budget che l'operatore ha a disposizione per comprare le azioni.*/
     private int budget;
-    /**{@code azioniPossedute} una mappa che contiene tutte le azioni possedute da questo operatore, con associato per ogni azione la quantità posseduta.*/
-    private final Map<Azione, Integer> azioniPossedute;
+    /**{@code riservato} la parte del budget messa da parte per acquisti non ancora eseguiti.*/
+    private int riservato;
+    /**{@code AZIONI_POSSEDUTE} il registro che associa ad ogni operatore e ad ogni azione posseduta la quantità posseduta.*/
+    private static final Posizioni AZIONI_POSSEDUTE = Posizioni.ATTIVE;
+    /**{@code aziende} associa l'identificatore di ogni azienda di cui l'operatore possiede azioni al totale posseduto in tutte le borse,
+     * creata al primo scambio.*/
+    private MappaIntera aziende;
     
 
     /*-
      * AF: 
      *    - nome: è il nome che identifica l'operatore. 
+     *    - id: è l'identificatore denso dell'operatore, assegnato da ISTANZE.
      *    - budget: è il budget che ogni operatore può usare per fare acquisti.
-     *    - azioniPossedute: contiene tutte le azioni posseduta da questo operatore. 
-     *      Ogni azione è associata alla quantità posseduta dall'operatore in un determinato momento.
+     *    - riservato: è la somma tolta dal budget per acquisti inviati ad una borsa e non ancora eseguiti.
+     *    - AZIONI_POSSEDUTE: contiene tutte le azioni posseduta da questo operatore. 
+     *      Ogni azione, attraverso il suo identificatore, è associata alla quantità posseduta dall'operatore in un determinato momento.
+     *    - aziende: associa ogni azienda al numero di azioni dell'azienda possedute dall'operatore, sommato su tutte le borse;
+     *      se è null l'operatore non possiede azioni.
      * RI:
      *    - nome != null && !nome.isBlank().
-     *    - budget >= 0.
-     *    - azioniPossedute != null.
-     *    - k != null per ogni k all'interno di azioniPossedute.keySet().
-     *    - v > 0 && v != null per ogni v in azioniPossedute.values().
+     *    - ISTANZE.perId(id) == this.
+     *    - budget >= 0 && riservato >= 0.
+     *    - ogni azione registrata in AZIONI_POSSEDUTE per questo operatore esiste ed è posseduta in quantità > 0.
+     *    - aziende.valore(a) è uguale ad azioniDetenute(this) dell'azienda con identificatore a, e ogni valore presente è > 0: i due totali vengono
+     *      aggiornati insieme dall'azienda, tenendo il monitor dell'azienda.
+     *    - aziende è letta, creata e modificata solo tenendo il monitor dell'operatore, e se non è null contiene almeno un'azienda.
      */
 
 
@@ -63,21 +81,101 @@ public class Operatore implements Comparable<Operatore> {
      * @throws IllegalArgumentException se {@code nome} è vuoto o se il nome è già stato usato. 
      */
     public static Operatore of(final String nome) {
-      if (Objects.requireNonNull(nome, "Il nome non può essere null.").isBlank())
-        throw new IllegalArgumentException("Il nome non può essere vuoto.");
-      if (ISTANZE.contains(nome)) throw new IllegalArgumentException("Nome già usato.");
-      ISTANZE.add(nome);
-      return new Operatore(nome);
+      return ISTANZE.registra(nome, id -> new Operatore(nome, id));
+    }
+
+    /**
+     * Crea molti operatori in un'unica operazione, ciascuno con il proprio budget iniziale.
+     * Le righe non valide vengono scartate senza interrompere le altre; fra due righe con lo stesso nome vale la prima.
+     * @param nomi i nomi dei nuovi operatori.
+     * @param budget il budget iniziale di ogni operatore, nella stessa posizione del suo nome.
+     * @return per ogni operatore scartato, la sua posizione associata al motivo; la mappa è vuota se tutti sono stati creati.
+     * @throws NullPointerException se {@code nomi} o {@code budget} è {@code null}.
+     * @throws IllegalArgumentException se gli array hanno lunghezze diverse.
+     */
+    public static SortedMap<Integer, String> creaInBlocco(String[] nomi, int[] budget) throws NullPointerException, IllegalArgumentException {
+      Objects.requireNonNull(nomi, "I nomi non possono essere null.");
+      Objects.requireNonNull(budget, "I budget non possono essere null.");
+      if (nomi.length != budget.length) throw new IllegalArgumentException("Ogni operatore deve avere il suo budget.");
+      SortedMap<Integer, String> scartati = new TreeMap<>();
+      String[] validi = nomi.clone();
+      for (int k = 0; k < validi.length; k++) {
+        if (budget[k] < 0) {
+          scartati.put(k, "Il budget iniziale non può essere negativo.");
+          validi[k] = null;
+        }
+      }
+      int[] ids = ISTANZE.registraInBlocco(validi, (k, id) -> {
+        Operatore nuovo = new Operatore(validi[k], id);
+        nuovo.budget = budget[k];
+        return nuovo;
+      });
+      for (int k = 0; k < ids.length; k++) {
+        if (ids[k] >= 0 || validi[k] == null && nomi[k] != null) continue;
+        if (nomi[k] == null) scartati.put(k, "Il nome non può essere null.");
+        else if (nomi[k].isBlank()) scartati.put(k, "Il nome non può essere vuoto.");
+        else scartati.put(k, "Nome già usato.");
+      }
+      return scartati;
+    }
+
+    /**
+     * Cerca l'operatore con un determinato nome.
+     * @param nome il nome cercato.
+     * @return l'operatore con nome {@code nome}.
+     * @throws NoSuchElementException se nessun operatore porta questo nome.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     */
+    public static Operatore cerca(String nome) throws NoSuchElementException, NullPointerException {
+      Operatore trovato = ISTANZE.perNome(Objects.requireNonNull(nome, "Il nome non può essere null."));
+      if (trovato == null) throw new NoSuchElementException("Nessun operatore ha questo nome.");
+      return trovato;
     }
 
     /**
      * Costruisce una nuova istanza di operatore. 
      * @param nome nome del nuovo operatore.
+     * @param id identificatore del nuovo operatore.
      */
-    private Operatore(String nome) {
+    private Operatore(String nome, int id) {
         this.nome = nome;
+        this.id = id;
         budget = 0; 
-        azioniPossedute = new TreeMap<>();
+    }
+
+    /**
+     * Restituisce l'operatore con un determinato identificatore.
+     * @param id l'identificatore dell'operatore.
+     * @return l'operatore con identificatore {@code id}.
+     */
+    static Operatore perId(int id) {
+      return ISTANZE.perId(id);
+    }
+
+    /**
+     * Ordina un insieme di operatori per nome, portando con sé un valore per ciascuno.
+     * @param ids gli identificatori degli operatori, riordinati sul posto.
+     * @param valori i valori associati agli operatori, riordinati allo stesso modo.
+     */
+    static void ordinaPerNome(int[] ids, int[] valori) {
+      ISTANZE.ordina(ids, valori);
+    }
+
+    /**
+     * Accredita una somma sul budget di molti operatori, in parallelo, senza i controlli di {@link #deposita(int)}, solo se
+     * nessun budget supera il massimo di un {@code int}. Ogni accredito controlla e accredita con un'unica acquisizione del monitor
+     * del proprio operatore, come {@link #tentaAccredito(int)}; se un accredito è rifiutato, quelli già eseguiti vengono stornati,
+     * così nessun operatore resta accreditato. Finché non vengono stornati, gli accrediti sono visibili agli altri thread.
+     * @param ids gli identificatori degli operatori.
+     * @param somme la somma da accreditare ad ogni operatore, non negativa, nella stessa posizione del suo identificatore.
+     * @return {@code true} se tutte le somme sono state accreditate, {@code false} se nessuna lo è.
+     */
+    static boolean accreditaInBlocco(int[] ids, int[] somme) {
+      boolean[] accreditati = new boolean[ids.length];
+      IntStream.range(0, ids.length).parallel().filter(k -> somme[k] > 0).forEach(k -> accreditati[k] = perId(ids[k]).tentaAccredito(somme[k]));
+      boolean riuscito = IntStream.range(0, ids.length).allMatch(k -> somme[k] == 0 || accreditati[k]);
+      if (!riuscito) IntStream.range(0, ids.length).parallel().filter(k -> accreditati[k]).forEach(k -> perId(ids[k]).storna(somme[k]));
+      return riuscito;
     }
 
     /**
@@ -88,11 +186,19 @@ public class Operatore implements Comparable<Operatore> {
         return nome;
     }
 
+    /**
+     * Restituisce l'identificatore denso di questo operatore, assegnato alla creazione a partire da 0.
+     * @return l'identificatore dell'operatore.
+     */
+    public int id() {
+        return id;
+    }
+
     /**
      * Restituisce il budget attuale dell'operatore.
      * @return il budget di questo operatore.
      */
-    public int budget() {
+    public synchronized int budget() {
       return budget;
     }
 
@@ -105,7 +211,7 @@ public class Operatore implements Comparable<Operatore> {
      */
     public int numeroAzioni(Azione azione) throws NoSuchElementException, NullPointerException {
       Objects.requireNonNull(azione, "L'azione non può essere null.");
-      int nAzioni = azioniPossedute.get(azione);
+      int nAzioni = AZIONI_POSSEDUTE.quantita(id, azione.id());
       if (nAzioni > 0) return nAzioni;
       throw new NoSuchElementException("Questo operatore non possiede l'azione.");
     }
@@ -118,28 +224,7 @@ public class Operatore implements Comparable<Operatore> {
      */
     public boolean possiedeAzione(Azione azione) throws NullPointerException {
       Objects.requireNonNull(azione, "L'azione non può essere null.");
-      return azioniPossedute.containsKey(azione);
-    }
-
-    /**
-     * Aggiorna l'elenco delle azioni che questo operatore possiede confrontandole con le azioni presenti nella borsa.
-     * Per ogni azione presente nella borsa viene controllata la mappa dei proprietari, se nella mappa compare questo operatore allora viene aggiunta l'azione nella mappa delle azioni possedute con 
-     * il relativo quantitativo. 
-     * @param borsa la borsa con il quale confrontare le azioni possedute.
-     * @throws NullPointerException se la borsa è {@code null}.
-     */
-     void aggiornaAzioni(Borsa borsa) throws NullPointerException {
-      Objects.requireNonNull(borsa, "La borsa non può essere null.");
-      Iterator<Azione> azioniBorsa = borsa.azioniQuotate();
-      while (azioniBorsa.hasNext()) {
-        Azione a = azioniBorsa.next();
-       try  {
-        int numeroAzioni = a.azioniDetenute(this);
-        if (a.nomeBorsa().equals(borsa.nome())) azioniPossedute.put(a, numeroAzioni);
-        } catch (NoSuchElementException e) {
-          azioniPossedute.remove(a);
-        }
-      }
+      return AZIONI_POSSEDUTE.quantita(id, azione.id()) > 0;
     }
 
     /**
@@ -147,19 +232,103 @@ public class Operatore implements Comparable<Operatore> {
      * @return il valore di tutte le azioni possedute.
      */
     public int valoreAzioni() {
-      int valoreTotale = 0; 
-      for (Map.Entry<Azione, Integer> elemento: azioniPossedute.entrySet()) {
-        valoreTotale += elemento.getKey().valore() * elemento.getValue();
-       }
-       return valoreTotale;
+      int[] valoreTotale = {0};
+      AZIONI_POSSEDUTE.perOgniAzione(id, (azione, quantita) -> valoreTotale[0] += Borsa.azionePerId(azione).valore() * quantita);
+      return valoreTotale[0];
     }
 
     /**
-     * Restituisce un iteratore delle azioni possedute da questo operatore.
+     * Restituisce un iteratore delle azioni possedute da questo operatore, ordinate per borsa e per azienda.
+     * L'ordinamento viene costruito solo al momento della richiesta.
      * @return l'iteratore alle azioni possedute da questo operatore. 
      */
     public Iterator<Azione> elencoAzioni() {
-      return Collections.unmodifiableCollection(azioniPossedute.keySet()).iterator();
+      List<Azione> azioni = new ArrayList<>();
+      AZIONI_POSSEDUTE.perOgniAzione(id, (azione, quantita) -> azioni.add(Borsa.azionePerId(azione)));
+      Collections.sort(azioni);
+      return Collections.unmodifiableList(azioni).iterator();
+    }
+
+    /**
+     * Restituisce il numero di azioni di un'azienda possedute da questo operatore, sommando tutte le borse, in tempo costante.
+     * @param azienda l'azienda.
+     * @return il numero di azioni possedute, 0 se l'operatore non ne possiede.
+     * @throws NullPointerException se {@code azienda} è {@code null}.
+     */
+    public int azioniAzienda(Azienda azienda) throws NullPointerException {
+      Objects.requireNonNull(azienda, "L'azienda non può essere null.");
+      synchronized (this) {
+        return aziende == null ? 0 : aziende.valore(azienda.id());
+      }
+    }
+
+    /**
+     * Restituisce un iteratore delle aziende di cui questo operatore possiede azioni in almeno una borsa, ordinate per nome.
+     * Le aziende vengono lette dalla vista consolidata, senza scorrere le azioni possedute.
+     * @return l'iteratore alle aziende possedute da questo operatore.
+     */
+    public Iterator<Azienda> elencoAziende() {
+      int[] ids;
+      synchronized (this) {
+        ids = aziende == null ? new int[0] : aziende.chiavi();
+      }
+      List<Azienda> elenco = new ArrayList<>(ids.length);
+      for (int azienda : ids) elenco.add(Azienda.perId(azienda));
+      Collections.sort(elenco);
+      return Collections.unmodifiableList(elenco).iterator();
+    }
+
+    /**
+     * Restituisce la posizione consolidata di questo operatore in un'azienda, con il dettaglio per borsa e il valore attuale.
+     * Il dettaglio richiede una ricerca per ogni borsa in cui l'azienda è quotata, ed è saltato se l'operatore non ne possiede.
+     * Il totale è la somma del dettaglio, così i due sono coerenti anche se nel frattempo una borsa esegue un ordine.
+     * @param azienda l'azienda.
+     * @return la posizione nell'azienda, con totale 0 e nessuna borsa se l'operatore non ne possiede azioni.
+     * @throws NullPointerException se {@code azienda} è {@code null}.
+     */
+    public PosizioneAzienda posizione(Azienda azienda) throws NullPointerException {
+      SortedMap<Borsa, Integer> perBorsa = new TreeMap<>();
+      int totale = 0;
+      long valore = 0;
+      if (azioniAzienda(azienda) > 0) {
+        for (Iterator<Borsa> borse = azienda.borseQuotate(); borse.hasNext(); ) {
+          Azione azione = borse.next().cercaAzioneBorsa(azienda);
+          int quantita = AZIONI_POSSEDUTE.quantita(id, azione.id());
+          if (quantita == 0) continue;
+          perBorsa.put(azione.borsa(), quantita);
+          totale += quantita;
+          valore += (long) azione.valore() * quantita;
+        }
+      }
+      return new PosizioneAzienda(azienda, totale, valore, Collections.unmodifiableSortedMap(perBorsa));
+    }
+
+    /**
+     * Aggiorna il totale posseduto di un'azienda dopo uno scambio o una rettifica in una qualunque borsa.
+     * La vista consolidata viene creata al primo scambio e scartata quando l'operatore non possiede più azioni,
+     * così gli operatori che non ne hanno mai possedute non occupano memoria per essa.
+     * @param azienda l'identificatore dell'azienda.
+     * @param scambiate la variazione della quantità posseduta.
+     */
+    void aziendaScambiata(int azienda, int scambiate) {
+      synchronized (this) {
+        if (aziende == null) aziende = new MappaIntera();
+        if (aziende.somma(azienda, scambiate) <= 0) aziende.rimuovi(azienda);
+        if (aziende.dimensione() == 0) aziende = null;
+      }
+    }
+
+    /**
+     * Cancella questo operatore, ad esempio al termine di una simulazione: il suo nome non è più registrato e può essere riusato,
+     * e il suo budget va perso.
+     * @throws IllegalStateException se l'operatore possiede ancora azioni.
+     */
+    public void cancella() throws IllegalStateException {
+      synchronized (this) {
+        if (aziende != null) throw new IllegalStateException("L'operatore possiede ancora azioni.");
+      }
+      AZIONI_POSSEDUTE.rilascia(new int[] {id}, new int[0]);
+      ISTANZE.rimuovi(id);
     }
 
     /**
@@ -167,7 +336,7 @@ public class Operatore implements Comparable<Operatore> {
      * @param daDepositare la quantità da depositare.
      * @throws IllegalArgumentException se {@code daDepositare} è minore o uguale a 0.
      */
-    public void deposita(int daDepositare) throws IllegalArgumentException {
+    public synchronized void deposita(int daDepositare) throws IllegalArgumentException {
       if (daDepositare <= 0) throw new IllegalArgumentException("Il deposito non può avere valore nullo o negativo.");
       budget += daDepositare;
     }
@@ -177,24 +346,99 @@ public class Operatore implements Comparable<Operatore> {
      * @param daPrelevare quantità di denaro da prelevare.
      * @throws IllegalArgumentException se l'operatore non ha abbastanza denaro per prelevare la somma richiesta o se la somma da prelevare è negativa o ugauale a 0.
      */
-    public void preleva(int daPrelevare)throws IllegalArgumentException {
+    public synchronized void preleva(int daPrelevare)throws IllegalArgumentException {
       if (daPrelevare > budget || daPrelevare <= 0) throw new IllegalArgumentException("Non hai abbastanza soldi per prelevare questa somma.");
       budget -= daPrelevare;
     }
 
+    /**
+     * Preleva una somma dal budget solo se è disponibile, controllando e prelevando con un'unica acquisizione del monitor:
+     * così una borsa non può trovare disponibile una somma già prelevata nel frattempo da un'altra.
+     * @param daPrelevare la somma da prelevare, positiva.
+     * @return {@code true} se la somma è stata prelevata, {@code false} se il budget non bastava e non è stato modificato.
+     */
+    synchronized boolean tentaPrelievo(int daPrelevare) {
+      if (daPrelevare > budget) return false;
+      budget -= daPrelevare;
+      return true;
+    }
+
+    /**
+     * Accredita una somma sul budget solo se il budget non supera il massimo di un {@code int}, controllando e accreditando
+     * con un'unica acquisizione del monitor: così un accredito eseguito nel frattempo da un'altra borsa non può far superare il massimo.
+     * @param daAccreditare la somma da accreditare, positiva.
+     * @return {@code true} se la somma è stata accreditata, {@code false} se il budget avrebbe superato il massimo e non è stato modificato.
+     */
+    synchronized boolean tentaAccredito(int daAccreditare) {
+      if (budget > Integer.MAX_VALUE - daAccreditare) return false;
+      budget += daAccreditare;
+      return true;
+    }
+
+    /**
+     * Toglie dal budget una somma accreditata da {@link #tentaAccredito(int)}, annullando l'accredito.
+     * @param accreditata la somma accreditata.
+     */
+    private synchronized void storna(int accreditata) {
+      budget -= accreditata;
+    }
+
+    /**
+     * Restituisce la parte del budget riservata ad acquisti non ancora eseguiti.
+     * @return la somma riservata.
+     */
+    public synchronized int riservato() {
+      return riservato;
+    }
+
+    /**
+     * Toglie una somma dal budget e la riserva per un acquisto.
+     * @param somma la somma da riservare.
+     * @throws IllegalArgumentException se la somma è minore o uguale a 0 o maggiore del budget.
+     */
+    public synchronized void riserva(int somma) throws IllegalArgumentException {
+      if (somma <= 0) throw new IllegalArgumentException("La somma da riservare deve essere maggiore di zero.");
+      if (somma > budget) throw new IllegalArgumentException("L'operatore non ha i soldi per effettuare l'investimento.");
+      budget -= somma;
+      riservato += somma;
+    }
+
+    /**
+     * Rimette nel budget una somma riservata e non spesa.
+     * @param somma la somma da rilasciare.
+     * @throws IllegalArgumentException se la somma è negativa o maggiore della somma riservata.
+     */
+    public synchronized void rilascia(int somma) throws IllegalArgumentException {
+      if (somma < 0 || somma > riservato) throw new IllegalArgumentException("La somma da rilasciare non è stata riservata.");
+      riservato -= somma;
+      budget += somma;
+    }
+
+    /**
+     * Chiude una riserva dopo un acquisto: la spesa viene consumata e il resto torna nel budget.
+     * @param somma la somma che era stata riservata.
+     * @param spesa la parte della somma effettivamente spesa.
+     * @throws IllegalArgumentException se la somma non è stata riservata o la spesa non è compresa tra 0 e la somma.
+     */
+    synchronized void saldaRiserva(int somma, int spesa) throws IllegalArgumentException {
+      if (somma < 0 || somma > riservato || spesa < 0 || spesa > somma) throw new IllegalArgumentException("La somma da spendere non è stata riservata.");
+      riservato -= somma;
+      budget += somma - spesa;
+    }
+
     @Override
     public boolean equals(Object obj) {
       if (!(obj instanceof Operatore other)) return false;
-      return nome.equals(other.nome);
+      return id == other.id;
     }
   
     @Override
     public int hashCode() {
-      return nome.hashCode();
+      return id;
     }
   
     @Override
     public int compareTo(Operatore other) {
-      return nome.compareTo(other.nome);
+      return ISTANZE.confronta(id, other.id);
     }
 }
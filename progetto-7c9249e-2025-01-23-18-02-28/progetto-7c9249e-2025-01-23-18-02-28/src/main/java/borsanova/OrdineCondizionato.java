@@ -0,0 +1,193 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * L'ordine condizionato è un acquisto o una vendita che la borsa invia da sola quando il valore di un'azione raggiunge una soglia.
+ *
+ * Ogni ordine condizionato resta in attesa finché il valore dell'azione non raggiunge la soglia, al rialzo o al ribasso
+ * secondo il suo tipo; a quel punto viene innescato e la borsa lo esegue subito dopo l'ordine che ha spostato il valore,
+ * registrandone l'esito. Un ordine in attesa può essere annullato con {@link Borsa#annulla(OrdineCondizionato)}.
+ */
+public final class OrdineCondizionato {
+    /**{@code operatore} l'operatore per cui viene inviato l'ordine. */
+    private final Operatore operatore;
+    /**{@code azione} l'azione il cui valore innesca l'ordine e che viene scambiata. */
+    private final Azione azione;
+    /**{@code tipo} il tipo dell'ordine, che determina la direzione della soglia e l'operazione eseguita. */
+    private final Tipo tipo;
+    /**{@code soglia} il valore dell'azione che innesca l'ordine, adeguato ad ogni frazionamento dell'azione. */
+    private volatile int soglia;
+    /**{@code valore} l'investimento di un acquisto o la quantità di una vendita, adeguata ad ogni frazionamento dell'azione. */
+    private volatile int valore;
+    /**{@code annullato} indica se l'ordine è stato annullato prima di essere innescato. */
+    private volatile boolean annullato;
+    /**{@code esito} l'esito dell'ordine innescato, {@code null} finché l'ordine è in attesa o in coda per l'esecuzione. */
+    private volatile Esito esito;
+
+    /*-
+     * AF:
+     *    - l'ordine è in attesa se !annullato && esito == null, annullato se annullato, eseguito o rifiutato secondo esito altrimenti.
+     * RI:
+     *    - operatore != null && azione != null && tipo != null && soglia > 0 && valore > 0.
+     *    - !(annullato && esito != null).
+     */
+
+    /**
+     * Il tipo di un ordine condizionato.
+     */
+    public enum Tipo {
+        /** Vende quando il valore scende fino alla soglia. */
+        STOP_LOSS(false, false),
+        /** Vende quando il valore sale fino alla soglia. */
+        TAKE_PROFIT(false, true),
+        /** Acquista quando il valore scende fino alla soglia. */
+        ACQUISTO_AL_RIBASSO(true, false),
+        /** Acquista quando il valore sale fino alla soglia. */
+        ACQUISTO_AL_RIALZO(true, true);
+
+        /**{@code acquisto} indica se l'ordine è un acquisto anziché una vendita. */
+        private final boolean acquisto;
+        /**{@code alRialzo} indica se l'ordine viene innescato da un valore maggiore o uguale alla soglia anziché minore o uguale. */
+        private final boolean alRialzo;
+
+        /**
+         * Costruisce un tipo di ordine condizionato.
+         * @param acquisto se l'ordine è un acquisto.
+         * @param alRialzo se l'ordine viene innescato al rialzo.
+         */
+        Tipo(boolean acquisto, boolean alRialzo) {
+            this.acquisto = acquisto;
+            this.alRialzo = alRialzo;
+        }
+
+        /**
+         * Indica se gli ordini di questo tipo sono acquisti.
+         * @return {@code true} per un acquisto, {@code false} per una vendita.
+         */
+        public boolean acquisto() {
+            return acquisto;
+        }
+
+        /**
+         * Indica se gli ordini di questo tipo vengono innescati al rialzo.
+         * @return {@code true} se l'ordine viene innescato da un valore maggiore o uguale alla soglia, {@code false} se minore o uguale.
+         */
+        public boolean alRialzo() {
+            return alRialzo;
+        }
+    }
+
+    /**
+     * Costruisce un ordine condizionato in attesa.
+     * @param operatore l'operatore per cui inviare l'ordine.
+     * @param azione l'azione da sorvegliare e scambiare.
+     * @param tipo il tipo dell'ordine.
+     * @param soglia il valore dell'azione che innesca l'ordine.
+     * @param valore l'investimento di un acquisto o la quantità di una vendita.
+     */
+    OrdineCondizionato(Operatore operatore, Azione azione, Tipo tipo, int soglia, int valore) {
+        this.operatore = operatore;
+        this.azione = azione;
+        this.tipo = tipo;
+        this.soglia = soglia;
+        this.valore = valore;
+    }
+
+    /**
+     * Restituisce l'operatore per cui viene inviato l'ordine.
+     * @return l'operatore.
+     */
+    public Operatore operatore() {
+        return operatore;
+    }
+
+    /**
+     * Restituisce l'azione sorvegliata e scambiata dall'ordine.
+     * @return l'azione.
+     */
+    public Azione azione() {
+        return azione;
+    }
+
+    /**
+     * Restituisce il tipo dell'ordine.
+     * @return il tipo.
+     */
+    public Tipo tipo() {
+        return tipo;
+    }
+
+    /**
+     * Restituisce il valore dell'azione che innesca l'ordine.
+     * @return la soglia.
+     */
+    public int soglia() {
+        return soglia;
+    }
+
+    /**
+     * Restituisce l'investimento di un acquisto o la quantità di una vendita.
+     * @return il valore dell'ordine.
+     */
+    public int valore() {
+        return valore;
+    }
+
+    /**
+     * Indica se l'ordine è stato annullato.
+     * @return {@code true} se l'ordine è stato annullato prima di essere innescato.
+     */
+    public boolean annullato() {
+        return annullato;
+    }
+
+    /**
+     * Restituisce l'esito dell'ordine innescato.
+     * @return l'esito, {@code null} se l'ordine non è ancora stato eseguito.
+     */
+    public Esito esito() {
+        return esito;
+    }
+
+    /**
+     * Indica se un valore dell'azione innesca l'ordine.
+     * @param valoreAzione il valore dell'azione.
+     * @return {@code true} se il valore ha raggiunto la soglia nella direzione dell'ordine.
+     */
+    boolean innescatoDa(int valoreAzione) {
+        return tipo.alRialzo ? valoreAzione >= soglia : valoreAzione <= soglia;
+    }
+
+    /**
+     * Adegua l'ordine in attesa a un frazionamento dell'azione: la soglia segue il valore dell'azione
+     * e la quantità di una vendita segue le azioni possedute; l'investimento di un acquisto non cambia.
+     * Entrambe sono arrotondate per difetto e restano almeno pari a 1.
+     * @param nuove il numero di azioni dopo il frazionamento per ogni gruppo di {@code vecchie} azioni.
+     * @param vecchie il numero di azioni prima del frazionamento.
+     */
+    void frazionato(int nuove, int vecchie) {
+        soglia = (int) Math.max(1, (long) soglia * vecchie / nuove);
+        if (!tipo.acquisto) valore = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (long) valore * nuove / vecchie));
+    }
+
+    /**
+     * Segna l'ordine come annullato.
+     */
+    void annulla() {
+        annullato = true;
+    }
+
+    /**
+     * Registra l'esito dell'ordine innescato.
+     * @param esito l'esito dell'esecuzione.
+     */
+    void concludi(Esito esito) {
+        this.esito = esito;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + " " + operatore.nome() + " " + azione.azienda().nome() + " " + soglia + " " + valore;
+    }
+}
@@ -0,0 +1,14 @@
+package borsanova;
+
+import java.util.SortedMap;
+
+/**
+ * La posizione consolidata indica quante azioni di un'azienda possiede un operatore, sommando tutte le borse in cui è quotata.
+ *
+ * @param azienda l'azienda.
+ * @param totale il numero di azioni dell'azienda possedute in tutte le borse.
+ * @param valore il valore delle azioni possedute, ciascuna al valore attuale nella propria borsa.
+ * @param perBorsa il numero di azioni possedute in ogni borsa in cui l'operatore ne possiede, ordinate per borsa.
+ */
+public record PosizioneAzienda(Azienda azienda, int totale, long valore, SortedMap<Borsa, Integer> perBorsa) {
+}
@@ -0,0 +1,71 @@
+package borsanova;
+
+/**
+ * Il registro delle posizioni associa ad ogni coppia (operatore, azione) il numero di azioni possedute.
+ *
+ * Operatori e azioni sono indicati attraverso i loro identificatori densi.
+ * Una quantità pari a 0 indica che l'operatore non possiede l'azione.
+ *
+ * Il registro usato da tutte le borse è {@code ATTIVE}, scelto all'avvio attraverso la proprietà di sistema
+ * {@code borsanova.posizioni}: il valore {@code fuoriheap} sceglie il registro in memoria diretta,
+ * qualunque altro valore (o l'assenza della proprietà) il registro nello heap.
+ *
+ * Le implementazioni possono essere usate contemporaneamente da più thread.
+ */
+interface Posizioni {
+    /**{@code ATTIVE} il registro delle posizioni usato da operatori e azioni. */
+    Posizioni ATTIVE = "fuoriheap".equals(System.getProperty("borsanova.posizioni")) ? new PosizioniFuoriHeap() : new PosizioniInHeap();
+
+    /**
+     * Restituisce il numero di azioni possedute da un operatore.
+     * @param operatore l'identificatore dell'operatore.
+     * @param azione l'identificatore dell'azione.
+     * @return il numero di azioni possedute, 0 se l'operatore non possiede l'azione.
+     */
+    int quantita(int operatore, int azione);
+
+    /**
+     * Imposta il numero di azioni possedute da un operatore.
+     * @param operatore l'identificatore dell'operatore.
+     * @param azione l'identificatore dell'azione.
+     * @param quantita il nuovo numero di azioni possedute, se è minore o uguale a 0 l'operatore non possiede più l'azione.
+     */
+    void imposta(int operatore, int azione, int quantita);
+
+    /**
+     * Imposta in blocco il numero di azioni di un'azione possedute da più operatori, come una serie di {@link #imposta(int, int, int)}.
+     * @param azione l'identificatore dell'azione.
+     * @param operatori gli identificatori degli operatori, distinti.
+     * @param quantita il nuovo numero di azioni possedute da ogni operatore, nella stessa posizione del suo identificatore.
+     */
+    void impostaDetentori(int azione, int[] operatori, int[] quantita);
+
+    /**
+     * Visita le azioni possedute da un operatore, in un ordine non definito.
+     * @param operatore l'identificatore dell'operatore.
+     * @param visitatore riceve l'identificatore di ogni azione posseduta e la quantità posseduta.
+     */
+    void perOgniAzione(int operatore, MappaIntera.Visitatore visitatore);
+
+    /**
+     * Visita i proprietari di un'azione, in un ordine non definito.
+     * @param azione l'identificatore dell'azione.
+     * @param visitatore riceve l'identificatore di ogni proprietario e la quantità posseduta.
+     */
+    void perOgniDetentore(int azione, MappaIntera.Visitatore visitatore);
+
+    /**
+     * Restituisce il numero di proprietari di un'azione, in tempo costante.
+     * @param azione l'identificatore dell'azione.
+     * @return il numero di operatori che possiedono l'azione.
+     */
+    int numeroDetentori(int azione);
+
+    /**
+     * Chiude tutte le posizioni di un insieme di operatori e di azioni che non verranno più usati,
+     * e libera per quanto possibile la memoria a loro dedicata.
+     * @param operatori gli identificatori degli operatori.
+     * @param azioni gli identificatori delle azioni.
+     */
+    void rilascia(int[] operatori, int[] azioni);
+}
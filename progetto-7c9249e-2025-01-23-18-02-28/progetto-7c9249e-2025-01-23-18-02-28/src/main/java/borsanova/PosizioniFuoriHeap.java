@@ -0,0 +1,414 @@
+package borsanova;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Registro delle posizioni in memoria diretta, fuori dallo heap e quindi ignorato dal garbage collector.
+ *
+ * Ogni posizione è una voce di cinque interi: operatore, azione, quantità, voce successiva dello stesso operatore
+ * e voce successiva della stessa azione. Le voci non si spostano mai: una tabella hash ad indirizzamento aperto
+ * trova la voce di una coppia (operatore, azione), e due liste concatenate permettono di visitare le posizioni
+ * di un operatore o di un'azione. Una voce con quantità 0 resta nelle liste e viene riusata se la posizione si riapre;
+ * le voci degli operatori e delle azioni rilasciati escono dalle liste e vengono riusate per nuove posizioni.
+ *
+ * Il registro è diviso in segmenti secondo l'identificatore dell'azione, ciascuno con le proprie voci e il proprio monitor:
+ * gli scambi di azioni di segmenti diversi, e quindi di solito di borse diverse, non si contendono alcun monitor.
+ * Le posizioni di un operatore sono sparse tra i segmenti, che vengono visitati uno alla volta.
+ */
+final class PosizioniFuoriHeap implements Posizioni {
+    /**{@code BIT_SEGMENTO} il numero di bit meno significativi dell'identificatore di un'azione che ne scelgono il segmento. */
+    private static final int BIT_SEGMENTO = 4;
+    /**{@code INTERI_PER_VOCE} il numero di interi che compongono una voce. */
+    private static final int INTERI_PER_VOCE = 5;
+    /**{@code LIBERA} la quantità che segna una voce libera, fuori dalla tabella e dalle liste. */
+    private static final int LIBERA = -1;
+    /**{@code segmenti} i segmenti, in posizione pari ai bit meno significativi degli identificatori delle loro azioni. */
+    private final Segmento[] segmenti = new Segmento[1 << BIT_SEGMENTO];
+
+    /*-
+     * AF:
+     *    - l'operatore o possiede q > 0 azioni a se e solo se il segmento segmenti[a & (segmenti.length - 1)] ha una voce
+     *      con operatore o, azione a e quantità q.
+     * RI:
+     *    - ogni segmento contiene solo voci di azioni con i suoi bit meno significativi.
+     */
+
+    /**
+     * Costruisce un registro vuoto.
+     */
+    PosizioniFuoriHeap() {
+        for (int i = 0; i < segmenti.length; i++) segmenti[i] = new Segmento();
+    }
+
+    @Override
+    public int quantita(int operatore, int azione) {
+        return segmento(azione).quantita(operatore, azione);
+    }
+
+    @Override
+    public void imposta(int operatore, int azione, int quantita) {
+        segmento(azione).imposta(operatore, azione, quantita);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Le posizioni di un'azione stanno tutte nello stesso segmento, quindi vengono impostate in sequenza con una sola acquisizione del suo monitor.
+     */
+    @Override
+    public void impostaDetentori(int azione, int[] operatori, int[] quantita) {
+        segmento(azione).impostaDetentori(azione, operatori, quantita);
+    }
+
+    @Override
+    public int numeroDetentori(int azione) {
+        return segmento(azione).numeroDetentori(azione);
+    }
+
+    @Override
+    public void perOgniAzione(int operatore, MappaIntera.Visitatore visitatore) {
+        MappaIntera trovate = new MappaIntera();
+        for (Segmento segmento : segmenti) segmento.copia(operatore, true, trovate);
+        trovate.perOgni(visitatore);
+    }
+
+    @Override
+    public void perOgniDetentore(int azione, MappaIntera.Visitatore visitatore) {
+        MappaIntera trovate = new MappaIntera();
+        segmento(azione).copia(azione, false, trovate);
+        trovate.perOgni(visitatore);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Le voci degli operatori e delle azioni rilasciati escono dalla tabella e dalle liste e tornano libere; la memoria diretta
+     * già allocata non viene restituita, ma le nuove posizioni riusano le voci libere prima di allocarne altre.
+     */
+    @Override
+    public void rilascia(int[] operatori, int[] azioni) {
+        for (int i = 0; i < segmenti.length; i++) {
+            int indice = i;
+            segmenti[i].rilascia(operatori, Arrays.stream(azioni).filter(azione -> segmento(azione) == segmenti[indice]).toArray());
+        }
+    }
+
+    /**
+     * Restituisce il segmento che contiene le posizioni di un'azione.
+     * @param azione l'identificatore dell'azione.
+     * @return il segmento dell'azione.
+     */
+    private Segmento segmento(int azione) {
+        return segmenti[azione & (segmenti.length - 1)];
+    }
+
+    /**
+     * Un segmento del registro: le voci delle posizioni di un sottoinsieme delle azioni, con la loro tabella e le loro liste.
+     * Le azioni del segmento sono indicizzate dall'identificatore privato dei bit che scelgono il segmento.
+     * Tutti i metodi sono sincronizzati sul segmento.
+     */
+    private static final class Segmento {
+        /**{@code voci} le voci, una dopo l'altra. */
+        private IntBuffer voci = alloca(INTERI_PER_VOCE * 64);
+        /**{@code numeroVoci} il numero di voci allocate, libere comprese. */
+        private int numeroVoci;
+        /**{@code primaLibera} la prima voce libera più uno, 0 se non ce ne sono; ogni voce libera indica la successiva al posto della voce successiva dell'operatore. */
+        private int primaLibera;
+        /**{@code tabella} la tabella hash: ogni cella contiene il numero della voce più uno, 0 se è libera. */
+        private IntBuffer tabella = alloca(128);
+        /**{@code testeOperatori} per ogni identificatore di operatore, la prima voce della sua lista più uno. */
+        private IntBuffer testeOperatori = alloca(64);
+        /**{@code testeAzioni} per ogni azione del segmento, la prima voce della sua lista più uno. */
+        private IntBuffer testeAzioni = alloca(64);
+        /**{@code detentori} per ogni azione del segmento, il numero di voci della sua lista con quantità maggiore di 0. */
+        private IntBuffer detentori = alloca(64);
+
+        /*-
+         * AF:
+         *    - l'operatore o possiede q > 0 azioni a se e solo se esiste una voce v < numeroVoci con operatore o, azione a e quantità q.
+         * RI:
+         *    - esiste al più una voce non libera per ogni coppia (operatore, azione).
+         *    - tabella.capacity() è una potenza di 2 maggiore del doppio di numeroVoci e ogni voce non libera è raggiungibile
+         *      dalla sua posizione di hash; le voci libere non sono nella tabella.
+         *    - ogni voce non libera compare esattamente una volta nella lista del suo operatore e in quella della sua azione;
+         *      ogni voce libera ha quantità LIBERA e compare esattamente una volta nella lista che parte da primaLibera.
+         *    - detentori.get(a >> BIT_SEGMENTO) è il numero di voci con azione a e quantità > 0.
+         */
+
+        /**
+         * Costruisce un segmento vuoto.
+         */
+        Segmento() {
+        }
+
+        /**
+         * Restituisce il numero di azioni possedute da un operatore, come {@link Posizioni#quantita(int, int)}.
+         * @param operatore l'identificatore dell'operatore.
+         * @param azione l'identificatore di un'azione del segmento.
+         * @return il numero di azioni possedute.
+         */
+        synchronized int quantita(int operatore, int azione) {
+            int voce = tabella.get(cella(operatore, azione)) - 1;
+            return voce < 0 ? 0 : voci.get(voce * INTERI_PER_VOCE + 2);
+        }
+
+        /**
+         * Imposta il numero di azioni possedute da un operatore, come {@link Posizioni#imposta(int, int, int)}.
+         * @param operatore l'identificatore dell'operatore.
+         * @param azione l'identificatore di un'azione del segmento.
+         * @param quantita il nuovo numero di azioni possedute.
+         */
+        synchronized void imposta(int operatore, int azione, int quantita) {
+            int cella = cella(operatore, azione);
+            int voce = tabella.get(cella) - 1;
+            if (voce < 0) {
+                if (quantita <= 0) return;
+                voce = nuovaVoce(operatore, azione);
+                tabella.put(cella, voce + 1);
+                if (numeroVoci * 2 > tabella.capacity()) ridimensionaTabella();
+            }
+            int precedente = voci.get(voce * INTERI_PER_VOCE + 2);
+            int locale = azione >> BIT_SEGMENTO;
+            if ((precedente > 0) != (quantita > 0)) detentori.put(locale, detentori.get(locale) + (quantita > 0 ? 1 : -1));
+            voci.put(voce * INTERI_PER_VOCE + 2, Math.max(quantita, 0));
+        }
+
+        /**
+         * Imposta in blocco le posizioni di un'azione, come {@link Posizioni#impostaDetentori(int, int[], int[])}.
+         * @param azione l'identificatore di un'azione del segmento.
+         * @param operatori gli identificatori degli operatori, distinti.
+         * @param quantita il nuovo numero di azioni possedute da ogni operatore.
+         */
+        synchronized void impostaDetentori(int azione, int[] operatori, int[] quantita) {
+            for (int i = 0; i < operatori.length; i++) imposta(operatori[i], azione, quantita[i]);
+        }
+
+        /**
+         * Restituisce il numero di proprietari di un'azione, come {@link Posizioni#numeroDetentori(int)}.
+         * @param azione l'identificatore di un'azione del segmento.
+         * @return il numero di proprietari.
+         */
+        synchronized int numeroDetentori(int azione) {
+            int locale = azione >> BIT_SEGMENTO;
+            return locale < detentori.capacity() ? detentori.get(locale) : 0;
+        }
+
+        /**
+         * Copia le voci aperte della lista di un operatore o di un'azione, così chi le visita non tiene il monitor.
+         * @param id l'identificatore dell'operatore o dell'azione.
+         * @param diOperatore {@code true} per la lista di un operatore, {@code false} per quella di un'azione.
+         * @param trovate riceve l'identificatore dell'altra parte di ogni posizione e la quantità.
+         */
+        synchronized void copia(int id, boolean diOperatore, MappaIntera trovate) {
+            int voce = testa(id, diOperatore) - 1;
+            while (voce >= 0) {
+                int base = voce * INTERI_PER_VOCE;
+                int quantita = voci.get(base + 2);
+                if (quantita > 0) trovate.inserisci(voci.get(base + (diOperatore ? 1 : 0)), quantita);
+                voce = voci.get(base + (diOperatore ? 3 : 4)) - 1;
+            }
+        }
+
+        /**
+         * Libera le voci di un insieme di operatori e di azioni, come {@link Posizioni#rilascia(int[], int[])}.
+         * Ogni lista toccata viene ripulita una sola volta, qualunque sia il numero di voci liberate.
+         * @param operatori gli identificatori degli operatori.
+         * @param azioni gli identificatori di azioni del segmento.
+         */
+        synchronized void rilascia(int[] operatori, int[] azioni) {
+            MappaIntera segnate = new MappaIntera();
+            MappaIntera listeOperatori = new MappaIntera();
+            MappaIntera listeAzioni = new MappaIntera();
+            for (int operatore : operatori) segnaLibere(operatore, true, segnate, listeOperatori, listeAzioni);
+            for (int azione : azioni) segnaLibere(azione, false, segnate, listeOperatori, listeAzioni);
+            if (segnate.dimensione() == 0) return;
+            listeOperatori.perOgni((operatore, nonUsato) -> ripulisci(operatore, true));
+            listeAzioni.perOgni((azione, nonUsato) -> ripulisci(azione, false));
+            // solo ora, perché ripulendo le liste si leggono ancora le voci successive delle voci segnate
+            segnate.perOgni((voce, nonUsato) -> {
+                int base = voce * INTERI_PER_VOCE;
+                togliDallaTabella(cella(voci.get(base), voci.get(base + 1)));
+                voci.put(base + 3, primaLibera);
+                primaLibera = voce + 1;
+            });
+        }
+
+        /**
+         * Segna come libere le voci della lista di un operatore o di un'azione, e annota le liste che le contengono.
+         * @param id l'identificatore dell'operatore o dell'azione.
+         * @param diOperatore {@code true} per la lista di un operatore, {@code false} per quella di un'azione.
+         * @param segnate riceve le voci segnate.
+         * @param listeOperatori riceve gli operatori le cui liste contengono le voci segnate.
+         * @param listeAzioni riceve le azioni le cui liste contengono le voci segnate.
+         */
+        private void segnaLibere(int id, boolean diOperatore, MappaIntera segnate, MappaIntera listeOperatori, MappaIntera listeAzioni) {
+            for (int voce = testa(id, diOperatore) - 1; voce >= 0; voce = voci.get(voce * INTERI_PER_VOCE + (diOperatore ? 3 : 4)) - 1) {
+                int base = voce * INTERI_PER_VOCE;
+                int quantita = voci.get(base + 2);
+                if (quantita == LIBERA) continue;
+                if (quantita > 0) {
+                    int locale = voci.get(base + 1) >> BIT_SEGMENTO;
+                    detentori.put(locale, detentori.get(locale) - 1);
+                }
+                voci.put(base + 2, LIBERA);
+                segnate.inserisci(voce, 1);
+                listeOperatori.inserisci(voci.get(base), 1);
+                listeAzioni.inserisci(voci.get(base + 1), 1);
+            }
+        }
+
+        /**
+         * Toglie le voci libere dalla lista di un operatore o di un'azione, senza spostare le altre.
+         * @param id l'identificatore dell'operatore o dell'azione.
+         * @param diOperatore {@code true} per la lista di un operatore, {@code false} per quella di un'azione.
+         */
+        private void ripulisci(int id, boolean diOperatore) {
+            int campo = diOperatore ? 3 : 4;
+            IntBuffer teste = diOperatore ? testeOperatori : testeAzioni;
+            int posizione = diOperatore ? id : id >> BIT_SEGMENTO;
+            int precedente = -1;
+            for (int voce = teste.get(posizione) - 1; voce >= 0; ) {
+                int successiva = voci.get(voce * INTERI_PER_VOCE + campo);
+                if (voci.get(voce * INTERI_PER_VOCE + 2) == LIBERA) {
+                    if (precedente < 0) teste.put(posizione, successiva);
+                    else voci.put(precedente * INTERI_PER_VOCE + campo, successiva);
+                } else {
+                    precedente = voce;
+                }
+                voce = successiva - 1;
+            }
+        }
+
+        /**
+         * Restituisce la prima voce della lista di un operatore o di un'azione.
+         * @param id l'identificatore dell'operatore o dell'azione.
+         * @param diOperatore {@code true} per la lista di un operatore, {@code false} per quella di un'azione.
+         * @return la prima voce più uno, 0 se la lista è vuota.
+         */
+        private int testa(int id, boolean diOperatore) {
+            IntBuffer teste = diOperatore ? testeOperatori : testeAzioni;
+            int posizione = diOperatore ? id : id >> BIT_SEGMENTO;
+            return posizione < teste.capacity() ? teste.get(posizione) : 0;
+        }
+
+        /**
+         * Crea una nuova voce, riusandone una libera se c'è, e la inserisce in testa alle liste del suo operatore e della sua azione.
+         * @param operatore l'identificatore dell'operatore.
+         * @param azione l'identificatore dell'azione.
+         * @return il numero della nuova voce.
+         */
+        private int nuovaVoce(int operatore, int azione) {
+            int locale = azione >> BIT_SEGMENTO;
+            if (operatore >= testeOperatori.capacity()) testeOperatori = ingrandisci(testeOperatori, Math.max(operatore + 1, testeOperatori.capacity() * 2));
+            if (locale >= testeAzioni.capacity()) {
+                testeAzioni = ingrandisci(testeAzioni, Math.max(locale + 1, testeAzioni.capacity() * 2));
+                detentori = ingrandisci(detentori, testeAzioni.capacity());
+            }
+            int voce;
+            if (primaLibera > 0) {
+                voce = primaLibera - 1;
+                primaLibera = voci.get(voce * INTERI_PER_VOCE + 3);
+            } else {
+                if ((numeroVoci + 1) * INTERI_PER_VOCE > voci.capacity()) voci = ingrandisci(voci, voci.capacity() * 2);
+                voce = numeroVoci++;
+            }
+            int base = voce * INTERI_PER_VOCE;
+            voci.put(base, operatore);
+            voci.put(base + 1, azione);
+            voci.put(base + 2, 0);
+            voci.put(base + 3, testeOperatori.get(operatore));
+            voci.put(base + 4, testeAzioni.get(locale));
+            testeOperatori.put(operatore, voce + 1);
+            testeAzioni.put(locale, voce + 1);
+            return voce;
+        }
+
+        /**
+         * Cerca la cella della tabella che contiene la voce di una coppia o, se assente, la cella libera in cui andrebbe inserita.
+         * @param operatore l'identificatore dell'operatore.
+         * @param azione l'identificatore dell'azione.
+         * @return l'indice della cella.
+         */
+        private int cella(int operatore, int azione) {
+            int maschera = tabella.capacity() - 1;
+            int i = hash(operatore, azione) & maschera;
+            while (true) {
+                int voce = tabella.get(i) - 1;
+                if (voce < 0) return i;
+                int base = voce * INTERI_PER_VOCE;
+                if (voci.get(base) == operatore && voci.get(base + 1) == azione) return i;
+                i = (i + 1) & maschera;
+            }
+        }
+
+        /**
+         * Svuota una cella della tabella, riportando indietro le voci che la seguono come in {@link MappaIntera#rimuovi(int)}.
+         * @param i l'indice della cella, occupata.
+         */
+        private void togliDallaTabella(int i) {
+            int maschera = tabella.capacity() - 1;
+            int j = i;
+            while (true) {
+                j = (j + 1) & maschera;
+                int voce = tabella.get(j) - 1;
+                if (voce < 0) break;
+                int origine = hash(voci.get(voce * INTERI_PER_VOCE), voci.get(voce * INTERI_PER_VOCE + 1)) & maschera;
+                // la voce in j può occupare la cella i solo se i sta tra la sua origine e j
+                if (((j - origine) & maschera) >= ((j - i) & maschera)) {
+                    tabella.put(i, voce + 1);
+                    i = j;
+                }
+            }
+            tabella.put(i, 0);
+        }
+
+        /**
+         * Raddoppia la tabella hash reinserendo tutte le voci non libere, che restano dove sono.
+         */
+        private void ridimensionaTabella() {
+            tabella = alloca(tabella.capacity() * 2);
+            int maschera = tabella.capacity() - 1;
+            for (int voce = 0; voce < numeroVoci; voce++) {
+                int base = voce * INTERI_PER_VOCE;
+                if (voci.get(base + 2) == LIBERA) continue;
+                int i = hash(voci.get(base), voci.get(base + 1)) & maschera;
+                while (tabella.get(i) != 0) i = (i + 1) & maschera;
+                tabella.put(i, voce + 1);
+            }
+        }
+    }
+
+    /**
+     * Combina gli identificatori di una coppia in un valore di hash.
+     * @param operatore l'identificatore dell'operatore.
+     * @param azione l'identificatore dell'azione.
+     * @return il valore di hash della coppia.
+     */
+    private static int hash(int operatore, int azione) {
+        long h = (((long) operatore << 32) | (azione & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    /**
+     * Alloca in memoria diretta un buffer di interi azzerato.
+     * @param interi il numero di interi.
+     * @return il nuovo buffer.
+     */
+    private static IntBuffer alloca(int interi) {
+        return ByteBuffer.allocateDirect(interi * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Copia un buffer in un nuovo buffer più grande, azzerato nella parte aggiunta.
+     * @param buffer il buffer da copiare.
+     * @param interi la capacità del nuovo buffer.
+     * @return il nuovo buffer.
+     */
+    private static IntBuffer ingrandisci(IntBuffer buffer, int interi) {
+        IntBuffer nuovo = alloca(interi);
+        nuovo.put(buffer.duplicate().clear());
+        nuovo.clear();
+        return nuovo;
+    }
+}
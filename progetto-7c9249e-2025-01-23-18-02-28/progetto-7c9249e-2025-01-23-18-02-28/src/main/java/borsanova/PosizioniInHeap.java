@@ -0,0 +1,175 @@
+package borsanova;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Registro delle posizioni nello heap: ogni operatore e ogni azione ha una propria {@code MappaIntera}.
+ */
+final class PosizioniInHeap implements Posizioni {
+    /**{@code perOperatore} la mappa delle azioni possedute da ogni operatore, in posizione pari al suo identificatore. */
+    private volatile AtomicReferenceArray<MappaIntera> perOperatore = new AtomicReferenceArray<>(16);
+    /**{@code perAzione} la mappa dei proprietari di ogni azione, in posizione pari al suo identificatore. */
+    private volatile AtomicReferenceArray<MappaIntera> perAzione = new AtomicReferenceArray<>(16);
+
+    /*-
+     * AF:
+     *    - l'operatore o possiede q > 0 azioni a se e solo se perOperatore.get(o).valore(a) == q.
+     * RI:
+     *    - perOperatore.get(o).valore(a) == perAzione.get(a).valore(o) per ogni operatore o e azione a (le mappe assenti valgono come vuote).
+     *    - ogni valore presente nelle mappe è > 0.
+     *    - ogni mappa è letta e modificata solo tenendo il suo monitor.
+     *    - gli array vengono sostituiti e le mappe create solo tenendo il monitor del registro.
+     */
+
+    /**
+     * Costruisce un registro vuoto.
+     */
+    PosizioniInHeap() {
+    }
+
+    @Override
+    public int quantita(int operatore, int azione) {
+        MappaIntera mappa = mappa(perOperatore, operatore);
+        if (mappa == null) return 0;
+        synchronized (mappa) {
+            return mappa.valore(azione);
+        }
+    }
+
+    @Override
+    public void imposta(int operatore, int azione, int quantita) {
+        aggiorna(mappaOCrea(true, operatore), azione, quantita);
+        aggiorna(mappaOCrea(false, azione), operatore, quantita);
+    }
+
+    /**
+     * {@inheritDoc}
+     * La mappa dei proprietari dell'azione viene aggiornata con un'unica acquisizione del suo monitor,
+     * le mappe degli operatori in parallelo.
+     */
+    @Override
+    public void impostaDetentori(int azione, int[] operatori, int[] quantita) {
+        MappaIntera detentori = mappaOCrea(false, azione);
+        synchronized (detentori) {
+            for (int i = 0; i < operatori.length; i++) {
+                if (quantita[i] > 0) detentori.inserisci(operatori[i], quantita[i]);
+                else detentori.rimuovi(operatori[i]);
+            }
+        }
+        IntStream.range(0, operatori.length).parallel().forEach(i -> aggiorna(mappaOCrea(true, operatori[i]), azione, quantita[i]));
+    }
+
+    @Override
+    public void perOgniAzione(int operatore, MappaIntera.Visitatore visitatore) {
+        visita(mappa(perOperatore, operatore), visitatore);
+    }
+
+    @Override
+    public void perOgniDetentore(int azione, MappaIntera.Visitatore visitatore) {
+        visita(mappa(perAzione, azione), visitatore);
+    }
+
+    @Override
+    public int numeroDetentori(int azione) {
+        MappaIntera mappa = mappa(perAzione, azione);
+        if (mappa == null) return 0;
+        synchronized (mappa) {
+            return mappa.dimensione();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Le mappe degli operatori e delle azioni rilasciati vengono eliminate.
+     */
+    @Override
+    public void rilascia(int[] operatori, int[] azioni) {
+        for (int azione : azioni) rilascia(false, azione);
+        for (int operatore : operatori) rilascia(true, operatore);
+    }
+
+    /**
+     * Chiude le posizioni di un operatore o di un'azione ed elimina la sua mappa.
+     * @param diOperatore {@code true} per un operatore, {@code false} per un'azione.
+     * @param id l'identificatore.
+     */
+    private void rilascia(boolean diOperatore, int id) {
+        MappaIntera mappa = mappa(diOperatore ? perOperatore : perAzione, id);
+        if (mappa == null) return;
+        int[] altri;
+        synchronized (mappa) {
+            altri = mappa.chiavi();
+        }
+        for (int altro : altri) {
+            MappaIntera altra = mappa(diOperatore ? perAzione : perOperatore, altro);
+            if (altra != null) aggiorna(altra, id, 0);
+        }
+        synchronized (this) {
+            (diOperatore ? perOperatore : perAzione).set(id, null);
+        }
+    }
+
+    /**
+     * Aggiorna una chiave di una mappa tenendone il monitor.
+     * @param mappa la mappa da aggiornare.
+     * @param chiave la chiave.
+     * @param quantita il nuovo valore, se è minore o uguale a 0 la chiave viene rimossa.
+     */
+    private static void aggiorna(MappaIntera mappa, int chiave, int quantita) {
+        synchronized (mappa) {
+            if (quantita > 0) mappa.inserisci(chiave, quantita);
+            else mappa.rimuovi(chiave);
+        }
+    }
+
+    /**
+     * Visita una copia delle associazioni di una mappa, così il visitatore non tiene il monitor.
+     * @param mappa la mappa da visitare, può essere {@code null}.
+     * @param visitatore il visitatore.
+     */
+    private static void visita(MappaIntera mappa, MappaIntera.Visitatore visitatore) {
+        if (mappa == null) return;
+        int[] chiavi;
+        int[] valori;
+        synchronized (mappa) {
+            chiavi = mappa.chiavi();
+            valori = new int[chiavi.length];
+            for (int i = 0; i < chiavi.length; i++) valori[i] = mappa.valore(chiavi[i]);
+        }
+        for (int i = 0; i < chiavi.length; i++) visitatore.visita(chiavi[i], valori[i]);
+    }
+
+    /**
+     * Restituisce la mappa di un identificatore, se esiste.
+     * @param mappe le mappe indicizzate per identificatore.
+     * @param id l'identificatore.
+     * @return la mappa di {@code id}, {@code null} se non è mai stata creata.
+     */
+    private static MappaIntera mappa(AtomicReferenceArray<MappaIntera> mappe, int id) {
+        return id < mappe.length() ? mappe.get(id) : null;
+    }
+
+    /**
+     * Restituisce la mappa di un identificatore, creandola se non esiste.
+     * @param diOperatore {@code true} per le mappe degli operatori, {@code false} per quelle delle azioni.
+     * @param id l'identificatore.
+     * @return la mappa di {@code id}.
+     */
+    private MappaIntera mappaOCrea(boolean diOperatore, int id) {
+        MappaIntera mappa = mappa(diOperatore ? perOperatore : perAzione, id);
+        if (mappa != null) return mappa;
+        synchronized (this) {
+            AtomicReferenceArray<MappaIntera> mappe = diOperatore ? perOperatore : perAzione;
+            if (id >= mappe.length()) {
+                AtomicReferenceArray<MappaIntera> nuove = new AtomicReferenceArray<>(Math.max(id + 1, mappe.length() * 2));
+                for (int i = 0; i < mappe.length(); i++) nuove.set(i, mappe.get(i));
+                mappe = nuove;
+                if (diOperatore) perOperatore = mappe;
+                else perAzione = mappe;
+            }
+            if (mappe.get(id) == null) mappe.set(id, new MappaIntera());
+            return mappe.get(id);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package borsanova;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Il registro tiene traccia di tutte le istanze di un tipo di entità identificate da un nome.
+ *
+ * Ogni registro:
+ *  - assegna ad ogni entità un identificatore denso, pari all'ordine di creazione.
+ *  - impedisce di usare due volte lo stesso nome.
+ *  - mantiene il rango di ogni nome nell'ordine alfabetico, così il confronto tra due entità è un confronto tra interi.
+ *
+ * Un'entità può essere rimossa: il suo nome torna libero e il registro non la trattiene più, ma il suo identificatore
+ * non viene riassegnato, così un identificatore rimasto in qualche struttura non indica mai un'altra entità.
+ * Il registro conserva il nome di un'entità rimossa, che resta confrontabile con le altre: a parità di nome,
+ * tra un'entità rimossa e una nuova che ne ha ripreso il nome, precede quella creata prima.
+ *
+ * I ranghi vengono ricalcolati in modo pigro: un'entità creata dopo l'ultimo ricalcolo viene confrontata per nome,
+ * e il ricalcolo avviene solo dopo un numero di confronti per nome pari al numero di entità.
+ *
+ * @param <T> il tipo delle entità registrate.
+ */
+final class Registro<T> {
+    /**{@code perNome} associa ogni nome usato all'entità che lo porta. */
+    private final Map<String, T> perNome = new HashMap<>();
+    /**{@code perId} contiene le entità in posizione pari al loro identificatore. */
+    private volatile Object[] perId = new Object[16];
+    /**{@code nomi} contiene i nomi in posizione pari all'identificatore dell'entità. */
+    private volatile String[] nomi = new String[16];
+    /**{@code dimensione} il numero di entità registrate. */
+    private volatile int dimensione;
+    /**{@code rango} il rango alfabetico di ogni entità registrata prima dell'ultimo ricalcolo. */
+    private volatile int[] rango = new int[0];
+    /**{@code confrontiPerNome} il numero di confronti eseguiti per nome dall'ultimo ricalcolo dei ranghi. */
+    private final AtomicInteger confrontiPerNome = new AtomicInteger();
+
+    /*-
+     * AF:
+     *    - l'entità con identificatore i, per 0 <= i < dimensione, è perId[i] e ha nome nomi[i]; se perId[i] == null è stata rimossa
+     *      e nomi[i] è il nome che aveva.
+     *    - rango[i] è la posizione di nomi[i] nell'ordine alfabetico dei primi rango.length nomi.
+     * RI:
+     *    - perNome.size() <= dimensione <= perId.length == nomi.length.
+     *    - nomi[i] != null per ogni 0 <= i < dimensione e perNome.get(nomi[i]) == perId[i] per ogni i con perId[i] != null.
+     *    - rango.length <= dimensione e rango è una permutazione di 0..rango.length-1.
+     */
+
+    /**
+     * Costruisce un registro vuoto.
+     */
+    Registro() {
+    }
+
+    /**
+     * Registra una nuova entità con un determinato nome.
+     * @param nome il nome della nuova entità.
+     * @param costruttore crea l'entità a partire dall'identificatore assegnato.
+     * @return la nuova entità.
+     * @throws NullPointerException se {@code nome} è {@code null}.
+     * @throws IllegalArgumentException se {@code nome} è vuoto o è già stato usato.
+     */
+    synchronized T registra(String nome, IntFunction<T> costruttore) throws NullPointerException, IllegalArgumentException {
+        if (Objects.requireNonNull(nome, "Il nome non può essere null.").isBlank())
+            throw new IllegalArgumentException("Il nome non può essere vuoto.");
+        if (perNome.containsKey(nome))
+            throw new IllegalArgumentException("Nome già usato.");
+        int id = dimensione;
+        T entita = costruttore.apply(id);
+        if (id == perId.length) {
+            perId = Arrays.copyOf(perId, id * 2);
+            nomi = Arrays.copyOf(nomi, id * 2);
+        }
+        perId[id] = entita;
+        nomi[id] = nome;
+        perNome.put(nome, entita);
+        dimensione = id + 1;
+        return entita;
+    }
+
+    /**
+     * Registra molte entità in un'unica operazione, con un solo ridimensionamento e una sola acquisizione del monitor.
+     * I nomi {@code null}, vuoti o già usati, anche da un nome precedente dello stesso blocco, vengono scartati.
+     * @param nomi i nomi delle nuove entità.
+     * @param costruttore crea ogni entità a partire dalla sua posizione in {@code nomi} e dall'identificatore assegnato.
+     * @return per ogni posizione di {@code nomi}, l'identificatore assegnato, oppure -1 se il nome è stato scartato.
+     */
+    synchronized int[] registraInBlocco(String[] nomi, CostruttoreInBlocco<T> costruttore) {
+        int[] ids = new int[nomi.length];
+        int id = dimensione;
+        if (id + nomi.length > perId.length) {
+            int capacita = Math.max(perId.length * 2, id + nomi.length);
+            perId = Arrays.copyOf(perId, capacita);
+            this.nomi = Arrays.copyOf(this.nomi, capacita);
+        }
+        Object[] entita = perId;
+        String[] nomiRegistrati = this.nomi;
+        for (int k = 0; k < nomi.length; k++) {
+            String nome = nomi[k];
+            ids[k] = -1;
+            if (nome == null || nome.isBlank()) continue;
+            T nuova = costruttore.crea(k, id);
+            if (perNome.putIfAbsent(nome, nuova) != null) continue;
+            entita[id] = nuova;
+            nomiRegistrati[id] = nome;
+            ids[k] = id++;
+        }
+        dimensione = id;
+        return ids;
+    }
+
+    /**
+     * Crea le entità di una registrazione in blocco.
+     * @param <T> il tipo delle entità create.
+     */
+    @FunctionalInterface
+    interface CostruttoreInBlocco<T> {
+        /**
+         * Crea un'entità.
+         * @param posizione la posizione del nome dell'entità nel blocco.
+         * @param id l'identificatore assegnato all'entità.
+         * @return la nuova entità.
+         */
+        T crea(int posizione, int id);
+    }
+
+    /**
+     * Rimuove un'entità: il suo nome torna libero e il suo identificatore resta inutilizzato.
+     * @param id l'identificatore dell'entità.
+     * @throws IndexOutOfBoundsException se nessuna entità ha mai avuto identificatore {@code id}.
+     */
+    synchronized void rimuovi(int id) throws IndexOutOfBoundsException {
+        Objects.checkIndex(id, dimensione);
+        if (perId[id] == null) return;
+        perNome.remove(nomi[id]);
+        perId[id] = null;
+    }
+
+    /**
+     * Restituisce l'entità con un determinato identificatore.
+     * @param id l'identificatore dell'entità.
+     * @return l'entità con identificatore {@code id}, {@code null} se è stata rimossa.
+     * @throws IndexOutOfBoundsException se nessuna entità ha mai avuto identificatore {@code id}.
+     */
+    @SuppressWarnings("unchecked")
+    T perId(int id) throws IndexOutOfBoundsException {
+        Objects.checkIndex(id, dimensione);
+        return (T) perId[id];
+    }
+
+    /**
+     * Restituisce l'entità con un determinato nome.
+     * @param nome il nome cercato.
+     * @return l'entità con nome {@code nome}, {@code null} se nessuna entità porta questo nome.
+     */
+    synchronized T perNome(String nome) {
+        return perNome.get(nome);
+    }
+
+    /**
+     * Restituisce il numero di entità registrate.
+     * @return il numero di entità registrate, comprese quelle rimosse.
+     */
+    int dimensione() {
+        return dimensione;
+    }
+
+    /**
+     * Confronta due entità secondo l'ordine alfabetico dei loro nomi.
+     * @param a l'identificatore della prima entità.
+     * @param b l'identificatore della seconda entità.
+     * @return un valore negativo, nullo o positivo se {@code a} precede, coincide o segue {@code b}.
+     */
+    int confronta(int a, int b) {
+        if (a == b) return 0;
+        int[] r = rango;
+        if (a < r.length && b < r.length) return Integer.compare(r[a], r[b]);
+        if (confrontiPerNome.incrementAndGet() > dimensione) ricalcolaRanghi();
+        String[] n = nomi;
+        int confronto = n[a].compareTo(n[b]);
+        // a parità di nome decide l'identificatore, come nell'ordinamento stabile di ricalcolaRanghi
+        return confronto != 0 ? confronto : Integer.compare(a, b);
+    }
+
+    /**
+     * Ordina un insieme di entità secondo l'ordine alfabetico dei loro nomi, portando con sé un valore per ciascuna.
+     * A parità di entità l'ordine dei valori resta quello di partenza.
+     * Se tutte le entità hanno un rango l'ordinamento è su primitivi; altrimenti si confrontano come in {@link #confronta(int, int)},
+     * così il ricalcolo dei ranghi resta ammortizzato sui confronti per nome.
+     * @param ids gli identificatori delle entità, riordinati sul posto.
+     * @param valori i valori associati alle entità, nella stessa posizione dei loro identificatori, riordinati allo stesso modo.
+     * @throws IllegalArgumentException se gli array hanno lunghezze diverse.
+     */
+    void ordina(int[] ids, int[] valori) throws IllegalArgumentException {
+        if (ids.length != valori.length) throw new IllegalArgumentException("Gli array devono avere la stessa lunghezza.");
+        int[] r = rango;
+        boolean conRango = true;
+        for (int id : ids) {
+            if (id >= r.length) {
+                conRango = false;
+                break;
+            }
+        }
+        int[] origini = new int[ids.length];
+        if (conRango) {
+            // rango e posizione in un unico long, così l'ordinamento è su primitivi
+            long[] chiavi = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) chiavi[i] = ((long) r[ids[i]] << 32) | i;
+            Arrays.sort(chiavi);
+            for (int i = 0; i < chiavi.length; i++) origini[i] = (int) chiavi[i];
+        } else {
+            // l'ordinamento di oggetti è stabile, come quello delle chiavi che includono la posizione
+            Integer[] posizioni = new Integer[ids.length];
+            for (int i = 0; i < ids.length; i++) posizioni[i] = i;
+            Arrays.sort(posizioni, (x, y) -> confronta(ids[x], ids[y]));
+            for (int i = 0; i < posizioni.length; i++) origini[i] = posizioni[i];
+        }
+        int[] idOrdinati = new int[ids.length];
+        int[] valoriOrdinati = new int[ids.length];
+        for (int i = 0; i < origini.length; i++) {
+            int origine = origini[i];
+            idOrdinati[i] = ids[origine];
+            valoriOrdinati[i] = valori[origine];
+        }
+        System.arraycopy(idOrdinati, 0, ids, 0, ids.length);
+        System.arraycopy(valoriOrdinati, 0, valori, 0, valori.length);
+    }
+
+    /**
+     * Ricalcola il rango alfabetico di tutte le entità registrate.
+     */
+    private synchronized void ricalcolaRanghi() {
+        int n = dimensione;
+        // più confronti possono superare la soglia insieme: ricalcola solo il primo che ottiene il monitor
+        if (confrontiPerNome.get() <= n) return;
+        Integer[] ordine = new Integer[n];
+        for (int i = 0; i < n; i++) ordine[i] = i;
+        String[] nomiAttuali = nomi;
+        Arrays.sort(ordine, Comparator.comparing(i -> nomiAttuali[i]));
+        int[] nuovoRango = new int[n];
+        for (int i = 0; i < n; i++) nuovoRango[ordine[i]] = i;
+        rango = nuovoRango;
+        confrontiPerNome.set(0);
+    }
+}
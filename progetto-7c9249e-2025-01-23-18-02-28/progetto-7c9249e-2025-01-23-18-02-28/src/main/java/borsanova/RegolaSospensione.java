@@ -0,0 +1,26 @@
+package borsanova;
+
+/**
+ * La regola che sospende le negoziazioni di un'azione quando il suo valore varia troppo in poco tempo.
+ *
+ * Le negoziazioni vengono sospese quando, tra i valori assunti dall'azione negli ultimi {@code finestra} millisecondi,
+ * il massimo supera il minimo di più di {@code variazione} punti base; restano sospese per {@code pausa} millisecondi,
+ * dopo i quali la variazione torna a essere misurata da zero.
+ *
+ * @param finestra la durata, in millisecondi, della finestra in cui si misura la variazione.
+ * @param variazione la variazione massima tollerata, in punti base rispetto al minimo (10000 è il 100%).
+ * @param pausa la durata, in millisecondi, della sospensione.
+ */
+public record RegolaSospensione(long finestra, int variazione, long pausa) {
+    /**
+     * Costruisce una regola di sospensione.
+     * @param finestra la durata, in millisecondi, della finestra in cui si misura la variazione.
+     * @param variazione la variazione massima tollerata, in punti base rispetto al minimo.
+     * @param pausa la durata, in millisecondi, della sospensione.
+     * @throws IllegalArgumentException se {@code finestra} o {@code pausa} non sono positive, oppure se {@code variazione} è negativa.
+     */
+    public RegolaSospensione {
+        if (finestra <= 0 || pausa <= 0) throw new IllegalArgumentException("La finestra e la pausa devono essere maggiori di zero.");
+        if (variazione < 0) throw new IllegalArgumentException("La variazione non può essere negativa.");
+    }
+}
@@ -0,0 +1,12 @@
+package borsanova;
+
+/**
+ * La richiesta di quotare un'azienda in una borsa, una riga di una quotazione in blocco.
+ *
+ * @param azienda l'azienda da quotare.
+ * @param borsa la borsa in cui quotarla.
+ * @param quantita il numero di azioni emesse.
+ * @param valore il valore per singola azione.
+ */
+public record RichiestaQuotazione(Azienda azienda, Borsa borsa, int quantita, int valore) {
+}
@@ -0,0 +1,15 @@
+package borsanova;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * Lo scambio descrive un acquisto o una vendita eseguiti in una borsa, come conservato dallo {@link StoricoScambi}.
+ *
+ * @param istante l'istante dello scambio, in millisecondi, secondo l'orologio della borsa.
+ * @param operatore l'operatore che ha acquistato o venduto.
+ * @param azione l'azione scambiata.
+ * @param prezzo il prezzo per singola azione a cui è avvenuto lo scambio.
+ * @param quantita la quantità scambiata: positiva per un acquisto, negativa per una vendita.
+ */
+public record Scambio(long istante, Operatore operatore, Azione azione, int prezzo, int quantita) {
+}
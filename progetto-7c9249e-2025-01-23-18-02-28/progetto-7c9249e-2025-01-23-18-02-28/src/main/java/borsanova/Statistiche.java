@@ -0,0 +1,19 @@
+package borsanova;
+
+/**
+ * Le statistiche degli scambi eseguiti in una finestra di tempo, per un'azione o per un'intera borsa.
+ *
+ * @param scambi il numero di acquisti e vendite eseguiti.
+ * @param volume il numero di azioni scambiate, sommando acquisti e vendite.
+ * @param controvalore la somma, su tutti gli scambi, del prezzo per singola azione moltiplicato per la quantità scambiata.
+ */
+public record Statistiche(long scambi, long volume, long controvalore) {
+
+    /**
+     * Restituisce il prezzo medio ponderato per i volumi degli scambi.
+     * @return il controvalore diviso per il volume, {@link Double#NaN} se non ci sono stati scambi.
+     */
+    public double prezzoMedio() {
+        return volume == 0 ? Double.NaN : (double) controvalore / volume;
+    }
+}
@@ -0,0 +1,433 @@
+package borsanova;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import borsanova.Borsa.Azione;
+
+/**
+ * Lo storico conserva tutti gli scambi eseguiti nelle borse a cui è collegato e li indicizza per operatore, per azione e per istante.
+ *
+ * Gli scambi arrivano dalle borse attraverso un anello di celle preallocate, come gli ordini di un sequenziatore:
+ *  - il thread che esegue lo scambio prenota una cella, vi scrive i campi dello scambio e la pubblica, senza attendere l'indicizzazione.
+ *  - un unico thread di scrittura preleva a lotti gli scambi pubblicati e li aggiunge allo storico, acquisendo il monitor una volta per lotto.
+ *
+ * Ogni scambio è conservato come una riga di colonne di primitivi, divise in pagine di {@code PAGINA} righe.
+ * Per ogni operatore e per ogni azione lo storico conserva le posizioni dei suoi scambi, in ordine di arrivo,
+ * e per ogni pagina il massimo degli istanti fino a quella pagina: le ricerche per intervallo di tempo
+ * partono da una ricerca binaria su questi massimi invece di scorrere tutti gli scambi.
+ *
+ * Gli scambi di borse diverse possono arrivare in ordine leggermente diverso da quello dei loro istanti;
+ * lo storico tiene conto del ritardo massimo osservato, così le ricerche restano esatte.
+ * Le ricerche vedono tutti gli scambi completati prima della loro invocazione.
+ */
+public final class StoricoScambi implements AutoCloseable {
+    /**{@code BIT_PAGINA} il logaritmo in base 2 del numero di righe di una pagina. */
+    private static final int BIT_PAGINA = 12;
+    /**{@code PAGINA} il numero di righe di una pagina. */
+    private static final int PAGINA = 1 << BIT_PAGINA;
+    /**{@code GIRI_ATTESA} il numero di controlli a vuoto che il thread di scrittura esegue prima di sospendersi. */
+    private static final int GIRI_ATTESA = 1 << 10;
+
+    /**{@code cIstanti} l'istante dello scambio contenuto in ogni cella dell'anello. */
+    private final long[] cIstanti;
+    /**{@code cOperatori} l'identificatore dell'operatore dello scambio contenuto in ogni cella dell'anello. */
+    private final int[] cOperatori;
+    /**{@code cAzioni} l'identificatore dell'azione dello scambio contenuto in ogni cella dell'anello. */
+    private final int[] cAzioni;
+    /**{@code cPrezzi} il prezzo dello scambio contenuto in ogni cella dell'anello. */
+    private final int[] cPrezzi;
+    /**{@code cQuantita} la quantità dello scambio contenuto in ogni cella dell'anello. */
+    private final int[] cQuantita;
+    /**{@code maschera} la maschera che riduce un numero di sequenza all'indice della sua cella. */
+    private final int maschera;
+    /**{@code pubblicati} contiene, per ogni cella, il numero di sequenza dell'ultimo scambio pubblicato in essa. */
+    private final AtomicLongArray pubblicati;
+    /**{@code prenotati} il prossimo numero di sequenza da assegnare. */
+    private final AtomicLong prenotati = new AtomicLong();
+    /**{@code consumati} il numero di scambi già aggiunti allo storico. */
+    private volatile long consumati;
+    /**{@code sospeso} indica se il thread di scrittura è sospeso in attesa di nuovi scambi. */
+    private volatile boolean sospeso;
+    /**{@code chiuso} indica se il thread di scrittura è stato fermato. */
+    private volatile boolean chiuso;
+    /**{@code scrittore} il thread che aggiunge gli scambi allo storico. */
+    private final Thread scrittore;
+
+    /**{@code istanti} l'istante di ogni scambio conservato, pagina per pagina. */
+    private long[][] istanti = new long[0][];
+    /**{@code operatori} l'identificatore dell'operatore di ogni scambio conservato, pagina per pagina. */
+    private int[][] operatori = new int[0][];
+    /**{@code azioni} l'identificatore dell'azione di ogni scambio conservato, pagina per pagina. */
+    private int[][] azioni = new int[0][];
+    /**{@code prezzi} il prezzo di ogni scambio conservato, pagina per pagina. */
+    private int[][] prezzi = new int[0][];
+    /**{@code quantita} la quantità di ogni scambio conservato, pagina per pagina. */
+    private int[][] quantita = new int[0][];
+    /**{@code massimi} per ogni pagina, il massimo degli istanti degli scambi fino alla fine di quella pagina. */
+    private long[] massimi = new long[0];
+    /**{@code righe} il numero di scambi conservati. */
+    private int righe;
+    /**{@code massimo} il massimo degli istanti degli scambi conservati. */
+    private long massimo = Long.MIN_VALUE;
+    /**{@code ritardo} il massimo, sugli scambi conservati, della differenza tra il massimo degli istanti precedenti e il loro istante. */
+    private long ritardo;
+    /**{@code perOperatore} le posizioni degli scambi di ogni operatore. */
+    private final Elenchi perOperatore = new Elenchi();
+    /**{@code perAzione} le posizioni degli scambi di ogni azione. */
+    private final Elenchi perAzione = new Elenchi();
+
+    /*-
+     * AF:
+     *    - lo scambio in posizione r, per 0 <= r < righe, ha istante istanti[r / PAGINA][r % PAGINA], e così per le altre colonne.
+     *    - gli scambi in attesa sono quelli con numero di sequenza s, consumati <= s < prenotati; lo scambio s si trova
+     *      nelle celle di indice s & maschera una volta che pubblicati.get(s & maschera) == s.
+     * RI:
+     *    - le colonne hanno lo stesso numero di pagine, ciascuna di PAGINA righe, e massimi.length è il numero di pagine.
+     *    - massimi[p] è il massimo degli istanti delle righe 0..min(righe, (p+1)*PAGINA)-1 ed è non decrescente in p.
+     *    - per ogni riga r, istante(r) >= (massimo degli istanti delle righe 0..r) - ritardo.
+     *    - perOperatore e perAzione contengono ogni riga esattamente una volta, sotto la chiave della sua colonna, in ordine crescente.
+     *    - le colonne, righe, massimo, ritardo, perOperatore e perAzione sono letti e modificati tenendo il monitor dello storico.
+     */
+
+    /**
+     * Crea uno storico vuoto e ne avvia il thread di scrittura.
+     * @param capacita il numero minimo di scambi che possono restare in attesa di essere conservati, arrotondato alla potenza di 2 successiva.
+     * @throws IllegalArgumentException se {@code capacita} non è positiva.
+     */
+    public StoricoScambi(int capacita) throws IllegalArgumentException {
+        if (capacita <= 0 || capacita > 1 << 30) throw new IllegalArgumentException("La capacità deve essere positiva.");
+        int dimensione = Integer.highestOneBit(capacita * 2 - 1);
+        cIstanti = new long[dimensione];
+        cOperatori = new int[dimensione];
+        cAzioni = new int[dimensione];
+        cPrezzi = new int[dimensione];
+        cQuantita = new int[dimensione];
+        maschera = dimensione - 1;
+        pubblicati = new AtomicLongArray(dimensione);
+        for (int i = 0; i < dimensione; i++) pubblicati.set(i, i - (long) dimensione);
+        scrittore = Thread.ofPlatform().name("storico-scambi").daemon().start(this::scrivi);
+    }
+
+    /**
+     * Accoda uno scambio, senza attendere che venga conservato.
+     * Se lo storico è chiuso lo scambio viene conservato subito, dal thread chiamante.
+     * @param istante l'istante dello scambio.
+     * @param operatore l'identificatore dell'operatore.
+     * @param azione l'identificatore dell'azione.
+     * @param prezzo il prezzo per singola azione.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa).
+     */
+    void registra(long istante, int operatore, int azione, int prezzo, int scambiate) {
+        if (chiuso) {
+            synchronized (this) {
+                aggiungi(istante, operatore, azione, prezzo, scambiate);
+            }
+            return;
+        }
+        long sequenza = prenotati.getAndIncrement();
+        // la cella è libera solo quando lo scambio di un giro prima è stato conservato
+        for (int giri = 0; sequenza - cIstanti.length >= consumati; giri++) {
+            if (giri < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+        int cella = (int) sequenza & maschera;
+        cIstanti[cella] = istante;
+        cOperatori[cella] = operatore;
+        cAzioni[cella] = azione;
+        cPrezzi[cella] = prezzo;
+        cQuantita[cella] = scambiate;
+        pubblicati.set(cella, sequenza);
+        if (sospeso) LockSupport.unpark(scrittore);
+    }
+
+    /**
+     * Restituisce il numero di scambi conservati, compresi tutti quelli completati prima dell'invocazione.
+     * @return il numero di scambi.
+     */
+    public int dimensione() {
+        allinea();
+        synchronized (this) {
+            return righe;
+        }
+    }
+
+    /**
+     * Restituisce gli scambi di un operatore avvenuti in un intervallo di tempo, in ordine di arrivo.
+     * @param operatore l'operatore.
+     * @param da l'inizio dell'intervallo, in millisecondi, incluso.
+     * @param a la fine dell'intervallo, in millisecondi, inclusa.
+     * @return gli scambi dell'operatore con istante compreso tra {@code da} e {@code a}.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public List<Scambio> perOperatore(Operatore operatore, long da, long a) throws NullPointerException {
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        allinea();
+        synchronized (this) {
+            return cerca(perOperatore, operatore.id(), da, a);
+        }
+    }
+
+    /**
+     * Restituisce gli scambi di un'azione avvenuti in un intervallo di tempo, in ordine di arrivo.
+     * @param azione l'azione.
+     * @param da l'inizio dell'intervallo, in millisecondi, incluso.
+     * @param a la fine dell'intervallo, in millisecondi, inclusa.
+     * @return gli scambi dell'azione con istante compreso tra {@code da} e {@code a}.
+     * @throws NullPointerException se {@code azione} è {@code null}.
+     */
+    public List<Scambio> perAzione(Azione azione, long da, long a) throws NullPointerException {
+        Objects.requireNonNull(azione, "L'azione non può essere null.");
+        allinea();
+        synchronized (this) {
+            return cerca(perAzione, azione.id(), da, a);
+        }
+    }
+
+    /**
+     * Restituisce tutti gli scambi avvenuti in un intervallo di tempo, in ordine di arrivo.
+     * @param da l'inizio dell'intervallo, in millisecondi, incluso.
+     * @param a la fine dell'intervallo, in millisecondi, inclusa.
+     * @return gli scambi con istante compreso tra {@code da} e {@code a}.
+     */
+    public List<Scambio> traIstanti(long da, long a) {
+        allinea();
+        synchronized (this) {
+            List<Scambio> risultato = new ArrayList<>();
+            if (da > a) return risultato;
+            int pagine = massimi.length;
+            int p = primaPagina(da);
+            for (; p < pagine && (p == 0 || massimi[p - 1] - ritardo <= a); p++) {
+                int fine = Math.min(PAGINA, righe - p * PAGINA);
+                long[] pagina = istanti[p];
+                for (int i = 0; i < fine; i++) {
+                    if (pagina[i] >= da && pagina[i] <= a) risultato.add(scambio(p * PAGINA + i));
+                }
+            }
+            return risultato;
+        }
+    }
+
+    /**
+     * Ferma il thread di scrittura dopo aver conservato tutti gli scambi accodati.
+     * Va invocato quando le borse collegate non stanno eseguendo scambi; quelli eseguiti dopo la chiusura
+     * vengono conservati subito dal thread che li esegue.
+     * Se il thread viene interrotto durante l'attesa, smette di attendere e conserva lo stato di interruzione.
+     */
+    @Override
+    public void close() {
+        chiuso = true;
+        LockSupport.unpark(scrittore);
+        try {
+            scrittore.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Attende che tutti gli scambi prenotati finora siano stati conservati.
+     */
+    private void allinea() {
+        long obiettivo = prenotati.get();
+        for (int giri = 0; consumati < obiettivo && scrittore.isAlive(); giri++) {
+            if (sospeso) LockSupport.unpark(scrittore);
+            if (giri < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+    }
+
+    /**
+     * Il ciclo del thread di scrittura: conserva a lotti gli scambi pubblicati, sospendendosi quando non ce ne sono.
+     */
+    private void scrivi() {
+        long prossimo = 0;
+        int aVuoto = 0;
+        while (true) {
+            long inizio = prossimo;
+            if (pubblicati.get((int) prossimo & maschera) == prossimo) {
+                synchronized (this) {
+                    while (pubblicati.get((int) prossimo & maschera) == prossimo) {
+                        int cella = (int) prossimo & maschera;
+                        aggiungi(cIstanti[cella], cOperatori[cella], cAzioni[cella], cPrezzi[cella], cQuantita[cella]);
+                        prossimo++;
+                    }
+                }
+            }
+            if (prossimo != inizio) {
+                consumati = prossimo;
+                aVuoto = 0;
+            } else if (chiuso && prossimo == prenotati.get()) {
+                return;
+            } else if (++aVuoto < GIRI_ATTESA) {
+                Thread.onSpinWait();
+            } else {
+                sospeso = true;
+                // uno scambio pubblicato prima di sospeso = true non risveglierebbe il thread di scrittura
+                if (pubblicati.get((int) prossimo & maschera) != prossimo && !chiuso) LockSupport.park(this);
+                sospeso = false;
+                aVuoto = 0;
+            }
+        }
+    }
+
+    /**
+     * Aggiunge uno scambio in fondo allo storico e agli elenchi di operatore e azione.
+     * @param istante l'istante dello scambio.
+     * @param operatore l'identificatore dell'operatore.
+     * @param azione l'identificatore dell'azione.
+     * @param prezzo il prezzo per singola azione.
+     * @param scambiate la quantità acquistata (positiva) o venduta (negativa).
+     */
+    private void aggiungi(long istante, int operatore, int azione, int prezzo, int scambiate) {
+        int p = righe >>> BIT_PAGINA;
+        int i = righe & (PAGINA - 1);
+        if (p == massimi.length) {
+            istanti = Arrays.copyOf(istanti, p + 1);
+            operatori = Arrays.copyOf(operatori, p + 1);
+            azioni = Arrays.copyOf(azioni, p + 1);
+            prezzi = Arrays.copyOf(prezzi, p + 1);
+            quantita = Arrays.copyOf(quantita, p + 1);
+            istanti[p] = new long[PAGINA];
+            operatori[p] = new int[PAGINA];
+            azioni[p] = new int[PAGINA];
+            prezzi[p] = new int[PAGINA];
+            quantita[p] = new int[PAGINA];
+            massimi = Arrays.copyOf(massimi, p + 1);
+        }
+        istanti[p][i] = istante;
+        operatori[p][i] = operatore;
+        azioni[p][i] = azione;
+        prezzi[p][i] = prezzo;
+        quantita[p][i] = scambiate;
+        if (istante > massimo) massimo = istante;
+        else ritardo = Math.max(ritardo, massimo - istante);
+        massimi[p] = massimo;
+        perOperatore.aggiungi(operatore, righe);
+        perAzione.aggiungi(azione, righe);
+        righe++;
+    }
+
+    /**
+     * Restituisce la prima pagina che può contenere scambi con istante non inferiore a un determinato istante.
+     * @param da l'istante.
+     * @return l'indice della pagina, pari al numero di pagine se nessuna può contenerne.
+     */
+    private int primaPagina(long da) {
+        int basso = 0, alto = massimi.length;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (massimi[medio] < da) basso = medio + 1;
+            else alto = medio;
+        }
+        return basso;
+    }
+
+    /**
+     * Cerca in un elenco di posizioni gli scambi avvenuti in un intervallo di tempo.
+     * @param elenchi gli elenchi in cui cercare.
+     * @param chiave la chiave dell'elenco.
+     * @param da l'inizio dell'intervallo, incluso.
+     * @param a la fine dell'intervallo, inclusa.
+     * @return gli scambi trovati, in ordine di arrivo.
+     */
+    private List<Scambio> cerca(Elenchi elenchi, int chiave, long da, long a) {
+        List<Scambio> risultato = new ArrayList<>();
+        int[] posizioni = elenchi.posizioni(chiave);
+        int n = elenchi.lunghezza(chiave);
+        if (da > a || n == 0) return risultato;
+        // le posizioni sono crescenti, quindi lo è anche il massimo della pagina di ciascuna
+        int basso = 0, alto = n;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (massimi[posizioni[medio] >>> BIT_PAGINA] < da) basso = medio + 1;
+            else alto = medio;
+        }
+        for (int k = basso; k < n; k++) {
+            int r = posizioni[k];
+            int p = r >>> BIT_PAGINA;
+            // dopo questa pagina ogni scambio ha istante maggiore di a
+            if (p > 0 && massimi[p - 1] - ritardo > a) break;
+            long istante = istanti[p][r & (PAGINA - 1)];
+            if (istante >= da && istante <= a) risultato.add(scambio(r));
+        }
+        return risultato;
+    }
+
+    /**
+     * Ricostruisce uno scambio conservato.
+     * @param r la posizione dello scambio.
+     * @return lo scambio.
+     */
+    private Scambio scambio(int r) {
+        int p = r >>> BIT_PAGINA;
+        int i = r & (PAGINA - 1);
+        return new Scambio(istanti[p][i], Operatore.perId(operatori[p][i]), Borsa.azionePerId(azioni[p][i]), prezzi[p][i], quantita[p][i]);
+    }
+
+    /**
+     * Elenchi di posizioni crescenti, uno per ogni chiave intera non negativa.
+     */
+    private static final class Elenchi {
+        /**{@code elenchi} le posizioni di ogni chiave, nella posizione pari alla chiave. */
+        private int[][] elenchi = new int[16][];
+        /**{@code lunghezze} il numero di posizioni di ogni chiave. */
+        private int[] lunghezze = new int[16];
+
+        /*-
+         * AF:
+         *    - l'elenco della chiave c è elenchi[c][0..lunghezze[c]-1], vuoto se c >= elenchi.length o elenchi[c] == null.
+         * RI:
+         *    - elenchi.length == lunghezze.length.
+         *    - lunghezze[c] <= elenchi[c].length per ogni elenchi[c] != null, e lunghezze[c] == 0 altrimenti.
+         */
+
+        /**
+         * Costruisce elenchi vuoti.
+         */
+        private Elenchi() {
+        }
+
+        /**
+         * Aggiunge una posizione in fondo all'elenco di una chiave.
+         * @param chiave la chiave.
+         * @param posizione la posizione, maggiore di tutte quelle già presenti nell'elenco.
+         */
+        private void aggiungi(int chiave, int posizione) {
+            if (chiave >= elenchi.length) {
+                int capacita = Math.max(chiave + 1, elenchi.length * 2);
+                elenchi = Arrays.copyOf(elenchi, capacita);
+                lunghezze = Arrays.copyOf(lunghezze, capacita);
+            }
+            int[] elenco = elenchi[chiave];
+            int n = lunghezze[chiave];
+            if (elenco == null) elenco = elenchi[chiave] = new int[4];
+            else if (n == elenco.length) elenco = elenchi[chiave] = Arrays.copyOf(elenco, n * 2);
+            elenco[n] = posizione;
+            lunghezze[chiave] = n + 1;
+        }
+
+        /**
+         * Restituisce l'array che contiene l'elenco di una chiave.
+         * @param chiave la chiave.
+         * @return l'array, valido per le prime {@link #lunghezza(int)} posizioni.
+         */
+        private int[] posizioni(int chiave) {
+            return chiave < elenchi.length && elenchi[chiave] != null ? elenchi[chiave] : new int[0];
+        }
+
+        /**
+         * Restituisce il numero di posizioni nell'elenco di una chiave.
+         * @param chiave la chiave.
+         * @return la lunghezza dell'elenco.
+         */
+        private int lunghezza(int chiave) {
+            return chiave < lunghezze.length ? lunghezze[chiave] : 0;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package borsanova.esecuzione;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import borsanova.Operatore;
+
+/**
+ * Il limitatore ammette gli ordini di ogni operatore ad un ritmo massimo, con un secchiello di gettoni per operatore.
+ *
+ * Ogni operatore ha un secchiello che contiene al più {@code raffica} gettoni e si riempie di un gettone ogni {@code intervallo}
+ * nanosecondi; ogni ordine ammesso consuma un gettone, e un ordine che trova il secchiello vuoto viene rifiutato.
+ * Il secchiello non è riempito da un thread: di ogni operatore si conserva solo l'istante in cui il secchiello
+ * tornerà pieno, e ad ogni ordine i gettoni disponibili si ricavano dalla distanza tra quell'istante e l'istante attuale.
+ *
+ * Lo stato di ogni operatore occupa tre {@code long} (l'istante e i contatori degli ordini ammessi e rifiutati)
+ * in pagine allocate alla prima occorrenza di un operatore della pagina; un ordine costa una lettura dell'orologio,
+ * un compare-and-set e un incremento atomico, senza lock: thread diversi si contendono solo i secchielli dello stesso operatore.
+ */
+public final class Limitatore {
+    /**{@code BIT_PAGINA} il logaritmo del numero di operatori per pagina. */
+    private static final int BIT_PAGINA = 12;
+    /**{@code CAMPI} il numero di {@code long} conservati per ogni operatore. */
+    private static final int CAMPI = 3;
+    /**{@code PIENO} la posizione, tra i campi di un operatore, dell'istante in cui il suo secchiello torna pieno. */
+    private static final int PIENO = 0;
+    /**{@code AMMESSI} la posizione, tra i campi di un operatore, del numero di ordini ammessi. */
+    private static final int AMMESSI = 1;
+    /**{@code RIFIUTATI} la posizione, tra i campi di un operatore, del numero di ordini rifiutati. */
+    private static final int RIFIUTATI = 2;
+    /**{@code intervallo} i nanosecondi necessari per guadagnare un gettone. */
+    private final long intervallo;
+    /**{@code tolleranza} di quanto l'istante in cui un secchiello torna pieno può precedere l'istante attuale, pari a un gettone in meno della raffica. */
+    private final long tolleranza;
+    /**{@code orologio} fornisce l'istante attuale in nanosecondi. */
+    private final LongSupplier orologio;
+    /**{@code origine} l'istante di creazione del limitatore, da cui si misurano gli istanti conservati. */
+    private final long origine;
+    /**{@code pagine} le pagine dello stato degli operatori, {@code null} finché nessun operatore della pagina ha inviato ordini. */
+    private volatile AtomicLongArray[] pagine = new AtomicLongArray[1];
+
+    /*-
+     * AF:
+     *    - per l'operatore con identificatore o, nella pagina p = pagine[o >>> BIT_PAGINA] al campo c = (o & maschera) * CAMPI:
+     *       - p.get(c + PIENO) è l'istante, misurato da origine, in cui il secchiello torna pieno (0 se non ha mai inviato ordini).
+     *       - all'istante t il secchiello contiene raffica gettoni se p.get(c + PIENO) <= t,
+     *         altrimenti un gettone in meno per ogni intervallo, anche parziale, che separa t da p.get(c + PIENO).
+     *       - p.get(c + AMMESSI) e p.get(c + RIFIUTATI) sono il numero di ordini ammessi e rifiutati.
+     *      Un operatore la cui pagina è null non ha inviato ordini.
+     * RI:
+     *    - intervallo > 0 && tolleranza >= 0 && orologio != null && pagine != null.
+     *    - ogni pagina non null ha lunghezza CAMPI << BIT_PAGINA.
+     */
+
+    /**
+     * Crea un limitatore che misura il tempo con {@link System#nanoTime()}.
+     * @param ordiniAlSecondo il numero di ordini al secondo ammessi per ogni operatore, a regime.
+     * @param raffica il numero di ordini che un operatore può inviare di seguito dopo essere rimasto inattivo.
+     * @throws IllegalArgumentException se {@code ordiniAlSecondo} non è positivo o supera un miliardo, oppure se {@code raffica} non è positiva.
+     */
+    public Limitatore(double ordiniAlSecondo, int raffica) throws IllegalArgumentException {
+        this(ordiniAlSecondo > 0 ? Math.round(1e9 / ordiniAlSecondo) : 0, raffica, System::nanoTime);
+    }
+
+    /**
+     * Crea un limitatore con un orologio determinato, ad esempio per riprodurre una sequenza di ordini già registrata.
+     * @param intervallo i nanosecondi necessari per guadagnare un gettone.
+     * @param raffica il numero di ordini che un operatore può inviare di seguito dopo essere rimasto inattivo.
+     * @param orologio l'orologio, che restituisce l'istante attuale in nanosecondi e non torna mai indietro.
+     * @throws IllegalArgumentException se {@code intervallo} o {@code raffica} non sono positivi.
+     * @throws NullPointerException se {@code orologio} è {@code null}.
+     */
+    public Limitatore(long intervallo, int raffica, LongSupplier orologio) throws IllegalArgumentException, NullPointerException {
+        if (intervallo <= 0) throw new IllegalArgumentException("L'intervallo tra due gettoni deve essere positivo.");
+        if (raffica <= 0) throw new IllegalArgumentException("La raffica deve essere positiva.");
+        this.intervallo = intervallo;
+        this.tolleranza = raffica - 1L > Long.MAX_VALUE / 4 / intervallo ? Long.MAX_VALUE / 4 : intervallo * (raffica - 1L);
+        this.orologio = Objects.requireNonNull(orologio, "L'orologio non può essere null.");
+        this.origine = orologio.getAsLong();
+    }
+
+    /**
+     * Decide se ammettere un ordine di un operatore, consumando un gettone del suo secchiello.
+     * @param operatore l'operatore che invia l'ordine.
+     * @return {@code true} se l'ordine è ammesso, {@code false} se il secchiello dell'operatore è vuoto.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public boolean ammetti(Operatore operatore) throws NullPointerException {
+        int id = Objects.requireNonNull(operatore, "L'operatore non può essere null.").id();
+        AtomicLongArray pagina = pagina(id);
+        int campo = (id & ((1 << BIT_PAGINA) - 1)) * CAMPI;
+        // l'istante è misurato da origine, così un secchiello mai usato (0) risulta sempre pieno
+        long adesso = orologio.getAsLong() - origine;
+        while (true) {
+            long pieno = pagina.get(campo + PIENO);
+            long base = Math.max(pieno, adesso);
+            if (base - adesso > tolleranza) {
+                pagina.getAndIncrement(campo + RIFIUTATI);
+                return false;
+            }
+            if (pagina.compareAndSet(campo + PIENO, pieno, base + intervallo)) {
+                pagina.getAndIncrement(campo + AMMESSI);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Restituisce il numero di ordini ammessi di un operatore.
+     * @param operatore l'operatore.
+     * @return il numero di ordini dell'operatore ammessi dalla creazione del limitatore.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public long ammessi(Operatore operatore) throws NullPointerException {
+        return contatore(operatore, AMMESSI);
+    }
+
+    /**
+     * Restituisce il numero di ordini rifiutati di un operatore.
+     * @param operatore l'operatore.
+     * @return il numero di ordini dell'operatore rifiutati dalla creazione del limitatore.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    public long rifiutati(Operatore operatore) throws NullPointerException {
+        return contatore(operatore, RIFIUTATI);
+    }
+
+    /**
+     * Legge un contatore di un operatore.
+     * @param operatore l'operatore.
+     * @param posizione la posizione del contatore tra i campi dell'operatore.
+     * @return il valore del contatore, 0 se l'operatore non ha mai inviato ordini.
+     * @throws NullPointerException se {@code operatore} è {@code null}.
+     */
+    private long contatore(Operatore operatore, int posizione) throws NullPointerException {
+        int id = Objects.requireNonNull(operatore, "L'operatore non può essere null.").id();
+        AtomicLongArray[] attuali = pagine;
+        int indice = id >>> BIT_PAGINA;
+        if (indice >= attuali.length || attuali[indice] == null) return 0;
+        return attuali[indice].get((id & ((1 << BIT_PAGINA) - 1)) * CAMPI + posizione);
+    }
+
+    /**
+     * Restituisce la pagina che contiene lo stato di un operatore, allocandola se necessario.
+     * @param id l'identificatore dell'operatore.
+     * @return la pagina dell'operatore.
+     */
+    private AtomicLongArray pagina(int id) {
+        AtomicLongArray[] attuali = pagine;
+        int indice = id >>> BIT_PAGINA;
+        if (indice < attuali.length && attuali[indice] != null) return attuali[indice];
+        return allocaPagina(indice);
+    }
+
+    /**
+     * Alloca una pagina, ingrandendo l'elenco delle pagine se necessario. Avviene una volta ogni {@code 1 << BIT_PAGINA} operatori.
+     * @param indice l'indice della pagina.
+     * @return la pagina, già presente o appena allocata.
+     */
+    private synchronized AtomicLongArray allocaPagina(int indice) {
+        AtomicLongArray[] attuali = pagine;
+        if (indice < attuali.length && attuali[indice] != null) return attuali[indice];
+        AtomicLongArray[] nuove = indice < attuali.length ? attuali.clone() : Arrays.copyOf(attuali, Math.max(indice + 1, attuali.length * 2));
+        nuove[indice] = new AtomicLongArray(CAMPI << BIT_PAGINA);
+        pagine = nuove;
+        return nuove[indice];
+    }
+}
@@ -0,0 +1,338 @@
+package borsanova.esecuzione;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Esito;
+import borsanova.Operatore;
+
+/**
+ * Il sequenziatore affida una borsa ad un unico thread, che esegue uno alla volta gli ordini ricevuti da più produttori.
+ *
+ * Gli ordini passano attraverso un anello di celle preallocate:
+ *  - ogni produttore prenota un numero di sequenza, scrive l'ordine nella cella corrispondente e lo pubblica.
+ *  - il consumatore esegue in ordine di sequenza tutti gli ordini pubblicati e libera le celle un lotto alla volta.
+ *  - quando non ci sono ordini il consumatore si sospende, e viene risvegliato solo dal produttore che lo trova sospeso.
+ *
+ * Gli ordini di uno stesso produttore vengono eseguiti nell'ordine di invio.
+ * L'esito di ogni ordine viene comunicato al produttore attraverso un {@code CompletableFuture},
+ * completato in modo eccezionale se l'ordine viene rifiutato, con l'eccezione che solleverebbe la borsa.
+ * Il consumatore usa i metodi della borsa che restituiscono un {@link Esito}, così un rifiuto non richiede
+ * di sollevare e catturare eccezioni nel thread che esegue gli ordini.
+ *
+ * Se l'esecuzione di un ordine solleva un'eccezione inattesa, lo stato della borsa non è più affidabile:
+ * l'ordine viene completato con quell'eccezione, il sequenziatore si considera guasto e rifiuta tutti gli ordini successivi,
+ * senza eseguirli, continuando però a liberare le celle, così i produttori in attesa di una cella non restano bloccati.
+ *
+ * Se è presente un {@link Limitatore}, gli ordini che superano il ritmo consentito all'operatore vengono rifiutati
+ * al momento dell'invio, senza occupare una cella, con un esito già completato in modo eccezionale.
+ *
+ * Finché il sequenziatore è attivo, la borsa non deve ricevere acquisti o vendite per altre vie.
+ */
+public final class Sequenziatore implements AutoCloseable {
+    /**{@code ACQUISTO} il tipo di un ordine di acquisto. */
+    private static final int ACQUISTO = 0;
+    /**{@code ACQUISTO_RISERVATO} il tipo di un ordine di acquisto pagato con una riserva. */
+    private static final int ACQUISTO_RISERVATO = 1;
+    /**{@code VENDITA} il tipo di un ordine di vendita. */
+    private static final int VENDITA = 2;
+    /**{@code GIRI_ATTESA} il numero di controlli a vuoto che il consumatore esegue prima di sospendersi. */
+    private static final int GIRI_ATTESA = 1 << 10;
+    /**{@code borsa} la borsa su cui vengono eseguiti gli ordini. */
+    private final Borsa borsa;
+    /**{@code celle} l'anello delle celle preallocate che contengono gli ordini. */
+    private final Ordine[] celle;
+    /**{@code maschera} la maschera che riduce un numero di sequenza all'indice della sua cella. */
+    private final int maschera;
+    /**{@code pubblicati} contiene, per ogni cella, il numero di sequenza dell'ultimo ordine pubblicato in essa. */
+    private final AtomicLongArray pubblicati;
+    /**{@code prenotati} il prossimo numero di sequenza da assegnare ad un produttore. */
+    private final AtomicLong prenotati = new AtomicLong();
+    /**{@code consumati} il numero di ordini già eseguiti, che è anche il prossimo numero di sequenza da eseguire. */
+    private volatile long consumati;
+    /**{@code sospeso} indica se il consumatore è sospeso in attesa di nuovi ordini. */
+    private volatile boolean sospeso;
+    /**{@code chiuso} indica se il sequenziatore ha smesso di accettare ordini. */
+    private volatile boolean chiuso;
+    /**{@code guasto} l'eccezione inattesa che ha fermato l'esecuzione degli ordini, {@code null} se non si è verificata. */
+    private volatile Throwable guasto;
+    /**{@code limitatore} limita il ritmo degli ordini di ogni operatore su questa borsa, {@code null} se non ci sono limiti. */
+    private volatile Limitatore limitatore;
+    /**{@code consumatore} il thread che esegue gli ordini. */
+    private final Thread consumatore;
+
+    /*-
+     * AF:
+     *    - gli ordini in attesa sono quelli con numero di sequenza s, consumati <= s < prenotati,
+     *      e l'ordine s si trova in celle[s & maschera] una volta che pubblicati.get(s & maschera) == s.
+     *    - consumatore: è il thread proprietario della borsa.
+     *    - guasto: se non è null, gli ordini con numero di sequenza successivo al suo vengono rifiutati senza essere eseguiti.
+     * RI:
+     *    - borsa != null && consumatore != null.
+     *    - celle.length è una potenza di 2 && maschera == celle.length - 1 && pubblicati.length() == celle.length.
+     *    - consumati <= prenotati <= consumati + celle.length, salvo i produttori in attesa di una cella libera.
+     */
+
+    /**
+     * Crea un sequenziatore per una borsa e ne avvia il consumatore.
+     * @param borsa la borsa su cui eseguire gli ordini.
+     * @param capacita il numero minimo di ordini che possono restare in attesa, arrotondato alla potenza di 2 successiva.
+     * @throws NullPointerException se {@code borsa} è {@code null}.
+     * @throws IllegalArgumentException se {@code capacita} non è positiva.
+     */
+    public Sequenziatore(Borsa borsa, int capacita) throws NullPointerException, IllegalArgumentException {
+        this.borsa = Objects.requireNonNull(borsa, "La borsa non può essere null.");
+        if (capacita <= 0 || capacita > 1 << 30) throw new IllegalArgumentException("La capacità deve essere positiva.");
+        int dimensione = Integer.highestOneBit(capacita * 2 - 1);
+        celle = new Ordine[dimensione];
+        for (int i = 0; i < dimensione; i++) celle[i] = new Ordine();
+        maschera = dimensione - 1;
+        pubblicati = new AtomicLongArray(dimensione);
+        for (int i = 0; i < dimensione; i++) pubblicati.set(i, i - (long) dimensione);
+        consumatore = Thread.ofPlatform().name("sequenziatore-" + borsa.nome()).daemon().start(this::consuma);
+    }
+
+    /**
+     * Restituisce la borsa su cui vengono eseguiti gli ordini.
+     * @return la borsa del sequenziatore.
+     */
+    public Borsa borsa() {
+        return borsa;
+    }
+
+    /**
+     * Restituisce l'eccezione inattesa che ha fermato l'esecuzione degli ordini.
+     * @return l'eccezione, {@code null} se il sequenziatore non è guasto.
+     */
+    public Throwable guasto() {
+        return guasto;
+    }
+
+    /**
+     * Limita il ritmo degli ordini che ogni operatore può inviare a questa borsa.
+     * @param limitatore il limitatore, {@code null} per rimuovere i limiti.
+     */
+    public void limitatore(Limitatore limitatore) {
+        this.limitatore = limitatore;
+    }
+
+    /**
+     * Invia un ordine di acquisto, come {@link Borsa#acquisto(Operatore, Azienda, int)}.
+     * @param operatore l'operatore che acquista.
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param investimento il capitale da investire.
+     * @return l'esito dell'ordine, completato quando l'ordine è stato eseguito o rifiutato.
+     * @throws IllegalStateException se il sequenziatore è chiuso o guasto.
+     */
+    public CompletableFuture<Void> acquisto(Operatore operatore, Azienda azienda, int investimento) throws IllegalStateException {
+        return invia(ACQUISTO, operatore, azienda, null, investimento);
+    }
+
+    /**
+     * Invia un ordine di acquisto già pagato con una riserva, come {@link Borsa#acquistoRiservato(Operatore, Azienda, int)}.
+     * @param operatore l'operatore che acquista.
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param investimento il capitale da investire, già riservato dall'operatore.
+     * @return l'esito dell'ordine, completato quando l'ordine è stato eseguito o rifiutato.
+     * @throws IllegalStateException se il sequenziatore è chiuso o guasto; in questo caso la riserva viene rilasciata.
+     */
+    public CompletableFuture<Void> acquistoRiservato(Operatore operatore, Azienda azienda, int investimento) throws IllegalStateException {
+        return invia(ACQUISTO_RISERVATO, operatore, azienda, null, investimento);
+    }
+
+    /**
+     * Invia un ordine di vendita, come {@link Borsa#vendita(Operatore, Azione, int)}.
+     * @param operatore l'operatore che vende.
+     * @param azione l'azione da vendere.
+     * @param quantita il numero di azioni da vendere.
+     * @return l'esito dell'ordine, completato quando l'ordine è stato eseguito o rifiutato.
+     * @throws IllegalStateException se il sequenziatore è chiuso o guasto.
+     */
+    public CompletableFuture<Void> vendita(Operatore operatore, Azione azione, int quantita) throws IllegalStateException {
+        return invia(VENDITA, operatore, null, azione, quantita);
+    }
+
+    /**
+     * Smette di accettare ordini, attende l'esecuzione di quelli già inviati e termina il consumatore.
+     * Va invocato quando nessun produttore sta più inviando ordini.
+     * Se il thread viene interrotto durante l'attesa, smette di attendere e conserva lo stato di interruzione.
+     */
+    @Override
+    public void close() {
+        chiuso = true;
+        LockSupport.unpark(consumatore);
+        try {
+            consumatore.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prenota una cella, vi scrive l'ordine e lo pubblica, risvegliando il consumatore se è sospeso.
+     * Un ordine senza operatore, azienda o azione, o non ammesso dal limitatore, non prenota alcuna cella
+     * e ha un esito già completato in modo eccezionale; se è un acquisto riservato, la riserva viene rilasciata.
+     * @param tipo il tipo dell'ordine.
+     * @param operatore l'operatore che invia l'ordine.
+     * @param azienda l'azienda, per un acquisto.
+     * @param azione l'azione, per una vendita.
+     * @param valore l'investimento o la quantità.
+     * @return l'esito dell'ordine.
+     * @throws IllegalStateException se il sequenziatore è chiuso o guasto; la riserva di un acquisto riservato viene rilasciata.
+     */
+    private CompletableFuture<Void> invia(int tipo, Operatore operatore, Azienda azienda, Azione azione, int valore) throws IllegalStateException {
+        if (chiuso || guasto != null) {
+            if (tipo == ACQUISTO_RISERVATO && operatore != null) operatore.rilascia(valore);
+            if (chiuso) throw new IllegalStateException("Il sequenziatore è chiuso.");
+            throw fermato();
+        }
+        // un argomento null solleverebbe un'eccezione nel consumatore, che la tratterebbe come un guasto
+        if (operatore == null) return CompletableFuture.failedFuture(new NullPointerException("L'operatore non può essere null."));
+        if (azienda == null && azione == null) {
+            if (tipo == ACQUISTO_RISERVATO) operatore.rilascia(valore);
+            return CompletableFuture.failedFuture(new NullPointerException("L'azione non può essere null."));
+        }
+        Limitatore attuale = limitatore;
+        if (attuale != null && !attuale.ammetti(operatore)) {
+            if (tipo == ACQUISTO_RISERVATO) operatore.rilascia(valore);
+            return CompletableFuture.failedFuture(new IllegalArgumentException(Esito.LIMITE_ORDINI.messaggio()));
+        }
+        CompletableFuture<Void> esito = new CompletableFuture<>();
+        long sequenza = prenotati.getAndIncrement();
+        // la cella è libera solo quando il consumatore ha eseguito l'ordine di un giro prima
+        for (int giri = 0; sequenza - celle.length >= consumati; giri++) {
+            if (giri < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+        Ordine ordine = celle[(int) sequenza & maschera];
+        ordine.tipo = tipo;
+        ordine.operatore = operatore;
+        ordine.azienda = azienda;
+        ordine.azione = azione;
+        ordine.valore = valore;
+        ordine.esito = esito;
+        pubblicati.set((int) sequenza & maschera, sequenza);
+        if (sospeso) LockSupport.unpark(consumatore);
+        return esito;
+    }
+
+    /**
+     * Il ciclo del consumatore: esegue a lotti gli ordini pubblicati, sospendendosi quando non ce ne sono.
+     */
+    private void consuma() {
+        long prossimo = 0;
+        int aVuoto = 0;
+        while (true) {
+            long inizio = prossimo;
+            while (pubblicati.get((int) prossimo & maschera) == prossimo) {
+                esegui(celle[(int) prossimo & maschera]);
+                prossimo++;
+            }
+            if (prossimo != inizio) {
+                consumati = prossimo;
+                aVuoto = 0;
+            } else if (chiuso && prossimo == prenotati.get()) {
+                return;
+            } else if (++aVuoto < GIRI_ATTESA) {
+                Thread.onSpinWait();
+            } else {
+                sospeso = true;
+                // un ordine pubblicato prima di sospeso = true non risveglierebbe il consumatore
+                if (pubblicati.get((int) prossimo & maschera) != prossimo && !chiuso) LockSupport.park(this);
+                sospeso = false;
+                aVuoto = 0;
+            }
+        }
+    }
+
+    /**
+     * Esegue un ordine sulla borsa e ne completa l'esito, liberando la cella dai riferimenti.
+     * Se il sequenziatore è guasto l'ordine viene rifiutato senza eseguirlo, rilasciando la riserva di un acquisto riservato.
+     * @param ordine l'ordine da eseguire.
+     */
+    private void esegui(Ordine ordine) {
+        CompletableFuture<Void> esito = ordine.esito;
+        try {
+            if (guasto != null) {
+                if (ordine.tipo == ACQUISTO_RISERVATO) ordine.operatore.rilascia(ordine.valore);
+                ordine.pulisci();
+                esito.completeExceptionally(fermato());
+                return;
+            }
+            Esito risultato = switch (ordine.tipo) {
+                case ACQUISTO -> borsa.tentaAcquisto(ordine.operatore, ordine.azienda, ordine.valore);
+                case ACQUISTO_RISERVATO -> borsa.tentaAcquistoRiservato(ordine.operatore, ordine.azienda, ordine.valore);
+                default -> borsa.tentaVendita(ordine.operatore, ordine.azione, ordine.valore);
+            };
+            ordine.pulisci();
+            if (risultato == Esito.ESEGUITO) esito.complete(null);
+            else esito.completeExceptionally(rifiuto(risultato));
+        } catch (Throwable e) {
+            // anche un Error deve completare l'esito, altrimenti il produttore e quelli in attesa di una cella resterebbero bloccati
+            if (guasto == null) guasto = e;
+            ordine.pulisci();
+            esito.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Crea l'eccezione che la borsa solleverebbe per un ordine rifiutato.
+     * @param esito il motivo del rifiuto.
+     * @return l'eccezione, con la descrizione dell'esito come messaggio.
+     */
+    private static RuntimeException rifiuto(Esito esito) {
+        return switch (esito) {
+            case NON_QUOTATA, NON_POSSEDUTA -> new NoSuchElementException(esito.messaggio());
+            default -> new IllegalArgumentException(esito.messaggio());
+        };
+    }
+
+    /**
+     * Crea l'eccezione con cui vengono rifiutati gli ordini dopo un guasto.
+     * @return l'eccezione, che ha come causa quella del guasto.
+     */
+    private IllegalStateException fermato() {
+        return new IllegalStateException("Il sequenziatore ha smesso di eseguire ordini dopo un errore.", guasto);
+    }
+
+    /**
+     * Una cella dell'anello, riutilizzata da un ordine ad ogni giro.
+     */
+    private static final class Ordine {
+        /**{@code tipo} il tipo dell'ordine: {@code ACQUISTO}, {@code ACQUISTO_RISERVATO} o {@code VENDITA}. */
+        private int tipo;
+        /**{@code operatore} l'operatore che ha inviato l'ordine. */
+        private Operatore operatore;
+        /**{@code azienda} l'azienda di cui acquistare le azioni. */
+        private Azienda azienda;
+        /**{@code azione} l'azione da vendere. */
+        private Azione azione;
+        /**{@code valore} l'investimento di un acquisto o la quantità di una vendita. */
+        private int valore;
+        /**{@code esito} l'esito da completare dopo l'esecuzione. */
+        private CompletableFuture<Void> esito;
+
+        /**
+         * Crea una cella vuota.
+         */
+        private Ordine() {
+        }
+
+        /**
+         * Rimuove i riferimenti dell'ordine eseguito, così la cella non trattiene oggetti.
+         */
+        private void pulisci() {
+            operatore = null;
+            azienda = null;
+            azione = null;
+            esito = null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package borsanova.esecuzione;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Esito;
+import borsanova.Operatore;
+
+/**
+ * Lo smistatore assegna ogni borsa ad un proprio thread e vi inoltra gli ordini.
+ *
+ * Le borse sono indipendenti tra loro: le azioni quotate, gli operatori e la politica prezzo di una borsa
+ * vengono toccati solo dal suo thread, attraverso un {@link Sequenziatore} dedicato, creato al primo ordine.
+ * Gli ordini per una stessa borsa vengono eseguiti in un unico ordine deterministico, quello di invio;
+ * ordini per borse diverse vengono eseguiti in parallelo.
+ *
+ * L'unico stato condiviso tra le borse è il budget degli operatori, che viene toccato solo con messaggi espliciti:
+ *  - un acquisto riserva l'investimento nel thread che lo invia, prima di inoltrarlo alla borsa.
+ *    La borsa paga con la riserva e rilascia la parte non spesa, così non può essere anticipata da un'altra borsa.
+ *  - una vendita deposita il ricavato nel budget, operazione che commuta con quelle delle altre borse.
+ *
+ * Il ritmo degli ordini di ogni operatore può essere limitato su tutte le borse insieme, con un {@link Limitatore} dello smistatore,
+ * e su una singola borsa, con un limitatore del suo sequenziatore; un ordine deve essere ammesso da entrambi.
+ */
+public final class Smistatore implements AutoCloseable {
+    /**{@code capacita} la capacità del sequenziatore di ogni borsa. */
+    private final int capacita;
+    /**{@code sequenziatori} associa ogni borsa che ha ricevuto ordini al suo sequenziatore. */
+    private final ConcurrentMap<Borsa, Sequenziatore> sequenziatori = new ConcurrentHashMap<>();
+    /**{@code limitatore} limita il ritmo degli ordini di ogni operatore su tutte le borse, {@code null} se non ci sono limiti. */
+    private volatile Limitatore limitatore;
+    /**{@code chiuso} indica se lo smistatore ha smesso di accettare ordini. */
+    private volatile boolean chiuso;
+
+    /*-
+     * AF:
+     *    - sequenziatori: per ogni borsa che ha ricevuto ordini, il thread che la possiede.
+     * RI:
+     *    - capacita > 0.
+     *    - sequenziatori.get(b).borsa() == b per ogni borsa b in sequenziatori.
+     */
+
+    /**
+     * Crea uno smistatore.
+     * @param capacita il numero di ordini che ogni borsa può avere in attesa.
+     * @throws IllegalArgumentException se {@code capacita} non è positiva.
+     */
+    public Smistatore(int capacita) throws IllegalArgumentException {
+        if (capacita <= 0) throw new IllegalArgumentException("La capacità deve essere positiva.");
+        this.capacita = capacita;
+    }
+
+    /**
+     * Limita il ritmo degli ordini che ogni operatore può inviare, sommando tutte le borse.
+     * @param limitatore il limitatore, {@code null} per rimuovere i limiti.
+     */
+    public void limitatore(Limitatore limitatore) {
+        this.limitatore = limitatore;
+    }
+
+    /**
+     * Limita il ritmo degli ordini che ogni operatore può inviare ad una borsa, in aggiunta al limite su tutte le borse.
+     * @param borsa la borsa.
+     * @param limitatore il limitatore della borsa, {@code null} per rimuovere i limiti.
+     * @throws NullPointerException se {@code borsa} è {@code null}.
+     * @throws IllegalStateException se lo smistatore è chiuso.
+     */
+    public void limitatore(Borsa borsa, Limitatore limitatore) throws NullPointerException, IllegalStateException {
+        sequenziatore(borsa).limitatore(limitatore);
+    }
+
+    /**
+     * Invia un ordine di acquisto alla borsa, dopo aver riservato l'investimento dal budget dell'operatore.
+     * @param borsa la borsa in cui acquistare.
+     * @param operatore l'operatore che acquista.
+     * @param azienda l'azienda di cui acquistare le azioni.
+     * @param investimento il capitale da investire.
+     * @return l'esito dell'ordine; se l'ordine non è ammesso dal limitatore o l'investimento non può essere riservato l'esito è già completato in modo eccezionale.
+     * @throws NullPointerException se {@code borsa} o {@code operatore} sono {@code null}.
+     * @throws IllegalStateException se lo smistatore è chiuso; se viene chiuso dopo la riserva, la riserva viene rilasciata.
+     */
+    public CompletableFuture<Void> acquisto(Borsa borsa, Operatore operatore, Azienda azienda, int investimento) throws NullPointerException, IllegalStateException {
+        Sequenziatore sequenziatore = sequenziatore(borsa);
+        Objects.requireNonNull(operatore, "L'operatore non può essere null.");
+        if (!ammesso(operatore)) return CompletableFuture.failedFuture(new IllegalArgumentException(Esito.LIMITE_ORDINI.messaggio()));
+        try {
+            operatore.riserva(investimento);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // se il sequenziatore è stato chiuso nel frattempo, rifiuta l'ordine rilasciando la riserva
+        return sequenziatore.acquistoRiservato(operatore, azienda, investimento);
+    }
+
+    /**
+     * Invia un ordine di vendita alla borsa dell'azione.
+     * @param borsa la borsa in cui vendere, che deve essere quella dell'azione.
+     * @param operatore l'operatore che vende.
+     * @param azione l'azione da vendere.
+     * @param quantita il numero di azioni da vendere.
+     * @return l'esito dell'ordine; se l'ordine non è ammesso dal limitatore l'esito è già completato in modo eccezionale.
+     * @throws NullPointerException se {@code borsa} è {@code null}.
+     * @throws IllegalStateException se lo smistatore è chiuso.
+     */
+    public CompletableFuture<Void> vendita(Borsa borsa, Operatore operatore, Azione azione, int quantita) throws NullPointerException, IllegalStateException {
+        Sequenziatore sequenziatore = sequenziatore(borsa);
+        if (operatore != null && !ammesso(operatore)) return CompletableFuture.failedFuture(new IllegalArgumentException(Esito.LIMITE_ORDINI.messaggio()));
+        return sequenziatore.vendita(operatore, azione, quantita);
+    }
+
+    /**
+     * Controlla che un ordine rispetti il limite su tutte le borse.
+     * @param operatore l'operatore che invia l'ordine.
+     * @return {@code true} se non ci sono limiti o l'ordine è ammesso.
+     */
+    private boolean ammesso(Operatore operatore) {
+        Limitatore attuale = limitatore;
+        return attuale == null || attuale.ammetti(operatore);
+    }
+
+    /**
+     * Smette di accettare ordini e attende l'esecuzione di quelli già inviati a tutte le borse.
+     * Va invocato quando nessun thread sta più inviando ordini.
+     */
+    @Override
+    public void close() {
+        chiuso = true;
+        for (Sequenziatore sequenziatore : sequenziatori.values()) sequenziatore.close();
+    }
+
+    /**
+     * Restituisce il sequenziatore di una borsa, creandolo se la borsa non ha ancora ricevuto ordini.
+     * @param borsa la borsa.
+     * @return il sequenziatore della borsa.
+     * @throws NullPointerException se {@code borsa} è {@code null}.
+     * @throws IllegalStateException se lo smistatore è chiuso.
+     */
+    private Sequenziatore sequenziatore(Borsa borsa) throws NullPointerException, IllegalStateException {
+        Objects.requireNonNull(borsa, "La borsa non può essere null.");
+        if (chiuso) throw new IllegalStateException("Lo smistatore è chiuso.");
+        Sequenziatore sequenziatore = sequenziatori.get(borsa);
+        return sequenziatore != null ? sequenziatore : sequenziatori.computeIfAbsent(borsa, b -> new Sequenziatore(b, capacita));
+    }
+}
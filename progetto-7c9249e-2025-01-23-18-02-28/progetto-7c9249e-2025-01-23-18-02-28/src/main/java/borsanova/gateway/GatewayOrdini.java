@@ -0,0 +1,245 @@
+package borsanova.gateway;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Esito;
+import borsanova.Operatore;
+import borsanova.esecuzione.Limitatore;
+
+/**
+ * Il gateway riceve ordini attraverso connessioni TCP locali e li esegue sulle borse.
+ *
+ * Il protocollo è a linee: ogni linea inviata da un client è un ordine nello stesso formato letto da {@code OperatoreClient},
+ *
+ *     nome_operatore b nome_borsa nome_azienda prezzo_totale
+ *     nome_operatore s nome_borsa nome_azienda numero_azioni
+ *     nome_operatore d valore
+ *     nome_operatore w valore
+ *
+ * e per ogni ordine il gateway risponde con una linea: {@code OK} seguito dal budget dell'operatore dopo l'ordine,
+ * oppure {@code ERRORE} seguito dal motivo del rifiuto.
+ *
+ * Ogni connessione è servita da un proprio thread virtuale. Gli acquisti e le vendite sulla stessa borsa
+ * vengono eseguiti uno alla volta, quelli su borse diverse in parallelo. Ogni borsa ha un proprio {@link ReentrantLock},
+ * e non il monitor della borsa: un thread virtuale in attesa di un lock non occupa il thread che lo esegue,
+ * e il gateway non contende il monitor con le operazioni sincronizzate della borsa.
+ *
+ * Se il socket non riesce più ad accettare connessioni, il gateway smette di accettarne e conserva l'errore,
+ * che viene restituito da {@link #guasto()} e sollevato da {@link #close()}.
+ *
+ * Se il gateway ha un {@link Limitatore}, gli acquisti e le vendite di un operatore che supera il ritmo consentito
+ * vengono rifiutati subito, senza attendere la borsa.
+ */
+public class GatewayOrdini implements AutoCloseable {
+    /**{@code SERRATURE} associa ogni borsa che ha ricevuto ordini al lock che li esegue uno alla volta. */
+    private static final ConcurrentMap<Borsa, ReentrantLock> SERRATURE = new ConcurrentHashMap<>();
+    /**{@code server} il socket che accetta le connessioni. */
+    private final ServerSocket server;
+    /**{@code sessioni} esegue ogni connessione in un thread virtuale. */
+    private final ExecutorService sessioni;
+    /**{@code limitatore} limita il ritmo degli acquisti e delle vendite di ogni operatore, {@code null} se non ci sono limiti. */
+    private final Limitatore limitatore;
+    /**{@code connessioni} i socket delle connessioni accettate e non ancora chiuse. */
+    private final Set<Socket> connessioni = ConcurrentHashMap.newKeySet();
+    /**{@code guasto} l'errore che ha impedito di accettare connessioni, {@code null} se non si è verificato. */
+    private volatile IOException guasto;
+
+    /*-
+     * AF:
+     *    - server: è il punto di ascolto del gateway sull'interfaccia locale.
+     *    - sessioni: contiene le connessioni attive, una per thread virtuale.
+     *    - connessioni: i socket delle connessioni attive, che la chiusura del gateway chiude.
+     *    - limitatore: i limiti di ritmo applicati agli ordini ricevuti, se presente.
+     *    - guasto: se non è null, il gateway ha smesso di accettare connessioni a causa di questo errore.
+     * RI:
+     *    - server != null && sessioni != null && connessioni != null.
+     */
+
+    /**
+     * Crea un gateway in ascolto sull'interfaccia locale.
+     * @param porta la porta su cui ascoltare, 0 per sceglierne una libera.
+     * @throws IOException se non è possibile aprire il socket.
+     */
+    public GatewayOrdini(int porta) throws IOException {
+        this(porta, null);
+    }
+
+    /**
+     * Crea un gateway in ascolto sull'interfaccia locale, che limita il ritmo degli acquisti e delle vendite di ogni operatore.
+     * @param porta la porta su cui ascoltare, 0 per sceglierne una libera.
+     * @param limitatore il limitatore, {@code null} per non limitare gli ordini.
+     * @throws IOException se non è possibile aprire il socket.
+     */
+    public GatewayOrdini(int porta, Limitatore limitatore) throws IOException {
+        this.limitatore = limitatore;
+        server = new ServerSocket(porta, 4096, InetAddress.getLoopbackAddress());
+        sessioni = Executors.newVirtualThreadPerTaskExecutor();
+        sessioni.submit(this::accetta);
+    }
+
+    /**
+     * Restituisce la porta su cui il gateway è in ascolto.
+     * @return la porta del gateway.
+     */
+    public int porta() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Restituisce l'errore che ha impedito al gateway di accettare connessioni.
+     * @return l'errore, {@code null} se il gateway accetta connessioni o è stato chiuso senza errori.
+     */
+    public IOException guasto() {
+        return guasto;
+    }
+
+    /**
+     * Smette di accettare connessioni, chiude quelle attive e attende la fine delle loro sessioni.
+     * Gli ordini già ricevuti da una sessione vengono completati, ma le risposte non ancora inviate vanno perse.
+     * @throws IOException se non è possibile chiudere il socket, o se il gateway aveva smesso di accettare connessioni a causa di un errore.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException errore = guasto;
+        try {
+            server.close();
+        } catch (IOException e) {
+            if (errore == null) errore = e;
+            else errore.addSuppressed(e);
+        }
+        for (Socket socket : connessioni) chiudi(socket);
+        sessioni.close();
+        if (errore != null) throw errore;
+    }
+
+    /**
+     * Accetta connessioni finché il socket resta aperto, avviando una sessione per ciascuna.
+     * Se il socket non riesce ad accettare una connessione, smette di accettarne e conserva l'errore in {@link #guasto}.
+     */
+    private void accetta() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (server.isClosed()) return;
+                guasto = e;
+                try {
+                    server.close();
+                } catch (IOException chiusura) {
+                    e.addSuppressed(chiusura);
+                }
+                return;
+            }
+            connessioni.add(socket);
+            try {
+                // una connessione accettata mentre close() chiude le altre non verrebbe chiusa
+                if (server.isClosed()) throw new RejectedExecutionException();
+                sessioni.submit(() -> sessione(socket));
+            } catch (RejectedExecutionException e) {
+                connessioni.remove(socket);
+                chiudi(socket);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Chiude una connessione, sbloccando la sessione in attesa di una linea.
+     * @param socket la connessione da chiudere.
+     */
+    private static void chiudi(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // la connessione è già inutilizzabile
+        }
+    }
+
+    /**
+     * Serve una connessione: esegue ogni linea ricevuta e ne invia la risposta.
+     * @param socket la connessione da servire.
+     */
+    private void sessione(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8)) {
+            String riga;
+            while ((riga = in.readLine()) != null) {
+                if (riga.isBlank()) continue;
+                out.println(esegui(riga, limitatore));
+                if (!in.ready()) out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // la connessione è stata chiusa dal client o dal gateway
+        } finally {
+            connessioni.remove(socket);
+        }
+    }
+
+    /**
+     * Esegue un ordine e ne restituisce l'esito.
+     * @param riga l'ordine, nel formato descritto nella documentazione della classe.
+     * @return {@code OK} seguito dal budget dell'operatore, oppure {@code ERRORE} seguito dal motivo del rifiuto.
+     */
+    public static String esegui(String riga) {
+        return esegui(riga, null);
+    }
+
+    /**
+     * Esegue un ordine e ne restituisce l'esito, rifiutando gli acquisti e le vendite non ammessi dal limitatore.
+     * @param riga l'ordine, nel formato descritto nella documentazione della classe.
+     * @param limitatore il limitatore, {@code null} per non limitare l'ordine.
+     * @return {@code OK} seguito dal budget dell'operatore, oppure {@code ERRORE} seguito dal motivo del rifiuto.
+     */
+    public static String esegui(String riga, Limitatore limitatore) {
+        String[] tokens = riga.trim().split(" ");
+        try {
+            if (tokens.length < 3) throw new IllegalArgumentException("Ordine incompleto.");
+            Operatore operatore = Operatore.cerca(tokens[0]);
+            switch (tokens[1]) {
+                case "b", "s" -> {
+                    if (tokens.length < 5) throw new IllegalArgumentException("Ordine incompleto.");
+                    if (limitatore != null && !limitatore.ammetti(operatore)) throw new IllegalArgumentException(Esito.LIMITE_ORDINI.messaggio());
+                    Borsa borsa = Borsa.cerca(tokens[2]);
+                    Azienda azienda = Azienda.cerca(tokens[3]);
+                    int valore = Integer.parseInt(tokens[4]);
+                    Esito esito;
+                    ReentrantLock serratura = SERRATURE.computeIfAbsent(borsa, b -> new ReentrantLock());
+                    serratura.lock();
+                    try {
+                        if (tokens[1].equals("b")) esito = borsa.tentaAcquisto(operatore, azienda, valore);
+                        else esito = borsa.tentaVendita(operatore, borsa.cercaAzioneBorsa(azienda), valore);
+                    } finally {
+                        serratura.unlock();
+                    }
+                    if (esito != Esito.ESEGUITO) return "ERRORE " + esito.messaggio();
+                }
+                case "d" -> operatore.deposita(Integer.parseInt(tokens[2]));
+                case "w" -> operatore.preleva(Integer.parseInt(tokens[2]));
+                default -> throw new IllegalArgumentException("Operazione sconosciuta: " + tokens[1]);
+            }
+            return "OK " + operatore.budget();
+        } catch (IllegalArgumentException | NoSuchElementException e) {
+            return "ERRORE " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package borsanova.importazione;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.RichiestaQuotazione;
+
+/**
+ * L'importatore carica operatori e quotazioni da file di grandi dimensioni.
+ *
+ * Ogni file:
+ *  - viene mappato in memoria e diviso in blocchi che terminano a fine linea.
+ *  - viene analizzato un blocco per thread, in parallelo.
+ *  - viene registrato con un'unica operazione in blocco, così la parte sequenziale non dipende dal numero di linee.
+ *
+ * Le linee contengono campi separati da spazi; quelle non valide vengono scartate senza interrompere le altre
+ * e vengono riportate con il loro numero, a partire da 1.
+ */
+public final class Importatore {
+    /**{@code MASSIMO_BLOCCO} la dimensione massima di un blocco, entro il limite di una singola mappatura. */
+    private static final long MASSIMO_BLOCCO = 1L << 30;
+    /**{@code FINE_LINEA} il carattere che termina ogni linea. */
+    private static final byte FINE_LINEA = '\n';
+
+    /**
+     * Non si creano istanze: l'importatore ha solo metodi statici.
+     */
+    private Importatore() {
+    }
+
+    /**
+     * Crea gli operatori elencati in un file, una linea per operatore nella forma {@code nome budget}.
+     * @param file il file da importare.
+     * @return per ogni linea scartata, il suo numero associato al motivo.
+     * @throws IOException se il file non può essere letto.
+     * @throws NullPointerException se {@code file} è {@code null}.
+     */
+    public static SortedMap<Integer, String> operatori(Path file) throws IOException, NullPointerException {
+        Analisi analisi = analizza(file, 1, 1);
+        String[] nomi = new String[analisi.righe.length];
+        int[] budget = new int[analisi.righe.length];
+        for (int k = 0; k < nomi.length; k++) {
+            nomi[k] = analisi.testi[k];
+            budget[k] = analisi.numeri[k];
+        }
+        for (Map.Entry<Integer, String> scartato : Operatore.creaInBlocco(nomi, budget).entrySet())
+            analisi.scartate.put(analisi.righe[scartato.getKey()], scartato.getValue());
+        return analisi.scartate;
+    }
+
+    /**
+     * Quota le aziende elencate in un file, una linea per quotazione nella forma {@code azienda borsa quantità prezzo}.
+     * Le borse e le aziende vengono create alla prima occorrenza del loro nome.
+     * @param file il file da importare.
+     * @return per ogni linea scartata, il suo numero associato al motivo.
+     * @throws IOException se il file non può essere letto.
+     * @throws NullPointerException se {@code file} è {@code null}.
+     */
+    public static SortedMap<Integer, String> quotazioni(Path file) throws IOException, NullPointerException {
+        Analisi analisi = analizza(file, 2, 2);
+        Map<String, Azienda> aziende = new HashMap<>();
+        Map<String, Borsa> borse = new HashMap<>();
+        List<RichiestaQuotazione> richieste = new ArrayList<>(analisi.righe.length);
+        for (int k = 0; k < analisi.righe.length; k++) {
+            Azienda azienda = aziende.computeIfAbsent(analisi.testi[2 * k], Importatore::azienda);
+            Borsa borsa = borse.computeIfAbsent(analisi.testi[2 * k + 1], Importatore::borsa);
+            richieste.add(new RichiestaQuotazione(azienda, borsa, analisi.numeri[2 * k], analisi.numeri[2 * k + 1]));
+        }
+        for (Map.Entry<Integer, String> scartata : Borsa.quotaInBlocco(richieste).entrySet())
+            analisi.scartate.put(analisi.righe[scartata.getKey()], scartata.getValue());
+        return analisi.scartate;
+    }
+
+    /**
+     * Restituisce l'azienda con un determinato nome, creandola se non esiste.
+     * @param nome il nome dell'azienda.
+     * @return l'azienda.
+     */
+    private static Azienda azienda(String nome) {
+        try {
+            return Azienda.cerca(nome);
+        } catch (NoSuchElementException e) {
+            return Azienda.of(nome);
+        }
+    }
+
+    /**
+     * Restituisce la borsa con un determinato nome, creandola se non esiste.
+     * @param nome il nome della borsa.
+     * @return la borsa.
+     */
+    private static Borsa borsa(String nome) {
+        try {
+            return Borsa.cerca(nome);
+        } catch (NoSuchElementException e) {
+            return Borsa.of(nome);
+        }
+    }
+
+    /**
+     * Il risultato dell'analisi di un file: i campi delle linee valide, in ordine di linea, e le linee scartate.
+     */
+    private static final class Analisi {
+        /**{@code righe} il numero di ogni linea valida. */
+        private final int[] righe;
+        /**{@code testi} i campi di testo delle linee valide, linea dopo linea. */
+        private final String[] testi;
+        /**{@code numeri} i campi numerici delle linee valide, linea dopo linea. */
+        private final int[] numeri;
+        /**{@code scartate} associa il numero di ogni linea scartata al motivo. */
+        private final SortedMap<Integer, String> scartate;
+
+        /*-
+         * AF:
+         *    - la k-esima linea valida ha numero righe[k], campi di testo testi[k*t .. k*t+t-1]
+         *      e campi numerici numeri[k*n .. k*n+n-1], dove t e n sono i campi di ogni tipo per linea.
+         * RI:
+         *    - righe è strettamente crescente e nessun suo elemento è una chiave di scartate.
+         */
+
+        /**
+         * Costruisce il risultato di un'analisi.
+         * @param righe il numero di ogni linea valida.
+         * @param testi i campi di testo delle linee valide.
+         * @param numeri i campi numerici delle linee valide.
+         * @param scartate le linee scartate con il motivo.
+         */
+        private Analisi(int[] righe, String[] testi, int[] numeri, SortedMap<Integer, String> scartate) {
+            this.righe = righe;
+            this.testi = testi;
+            this.numeri = numeri;
+            this.scartate = scartate;
+        }
+    }
+
+    /**
+     * L'analisi di un singolo blocco, con le linee numerate a partire dall'inizio del blocco.
+     */
+    private static final class Pezzo {
+        /**{@code linee} il numero di linee del blocco. */
+        private int linee;
+        /**{@code valide} il numero di linee valide del blocco. */
+        private int valide;
+        /**{@code righe} il numero, nel blocco, di ogni linea valida. */
+        private int[] righe = new int[64];
+        /**{@code testi} i campi di testo delle linee valide. */
+        private String[] testi;
+        /**{@code numeri} i campi numerici delle linee valide. */
+        private int[] numeri;
+        /**{@code scartate} associa il numero, nel blocco, di ogni linea scartata al motivo. */
+        private final SortedMap<Integer, String> scartate = new TreeMap<>();
+
+        /**
+         * Costruisce l'analisi vuota di un blocco.
+         * @param campiTesto il numero di campi di testo per linea.
+         * @param campiNumerici il numero di campi numerici per linea.
+         */
+        private Pezzo(int campiTesto, int campiNumerici) {
+            testi = new String[64 * campiTesto];
+            numeri = new int[64 * campiNumerici];
+        }
+    }
+
+    /**
+     * Mappa un file, lo divide in blocchi e li analizza in parallelo.
+     * Ogni linea deve contenere {@code campiTesto} campi di testo seguiti da {@code campiNumerici} interi.
+     * @param file il file da analizzare.
+     * @param campiTesto il numero di campi di testo per linea.
+     * @param campiNumerici il numero di campi numerici per linea.
+     * @return i campi delle linee valide e le linee scartate.
+     * @throws IOException se il file non può essere letto.
+     */
+    private static Analisi analizza(Path file, int campiTesto, int campiNumerici) throws IOException {
+        Objects.requireNonNull(file, "Il file non può essere null.");
+        MappedByteBuffer[] blocchi;
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] confini = confini(canale);
+            blocchi = new MappedByteBuffer[confini.length - 1];
+            // la mappatura resta valida anche dopo la chiusura del canale
+            for (int b = 0; b < blocchi.length; b++)
+                blocchi[b] = canale.map(FileChannel.MapMode.READ_ONLY, confini[b], confini[b + 1] - confini[b]);
+        }
+        Pezzo[] pezzi = IntStream.range(0, blocchi.length).parallel()
+                .mapToObj(b -> analizzaBlocco(blocchi[b], campiTesto, campiNumerici))
+                .toArray(Pezzo[]::new);
+        int valide = 0;
+        for (Pezzo pezzo : pezzi) valide += pezzo.valide;
+        int[] righe = new int[valide];
+        String[] testi = new String[valide * campiTesto];
+        int[] numeri = new int[valide * campiNumerici];
+        SortedMap<Integer, String> scartate = new TreeMap<>();
+        int primaLinea = 1;
+        int k = 0;
+        for (Pezzo pezzo : pezzi) {
+            for (int i = 0; i < pezzo.valide; i++) righe[k + i] = primaLinea + pezzo.righe[i];
+            System.arraycopy(pezzo.testi, 0, testi, k * campiTesto, pezzo.valide * campiTesto);
+            System.arraycopy(pezzo.numeri, 0, numeri, k * campiNumerici, pezzo.valide * campiNumerici);
+            for (Map.Entry<Integer, String> scartata : pezzo.scartate.entrySet()) scartate.put(primaLinea + scartata.getKey(), scartata.getValue());
+            k += pezzo.valide;
+            primaLinea += pezzo.linee;
+        }
+        return new Analisi(righe, testi, numeri, scartate);
+    }
+
+    /**
+     * Divide un file in blocchi che terminano subito dopo una fine linea, uno o più per processore.
+     * @param canale il canale del file.
+     * @return le posizioni di inizio dei blocchi, seguite dalla dimensione del file.
+     * @throws IOException se il file non può essere letto.
+     */
+    private static long[] confini(FileChannel canale) throws IOException {
+        long dimensione = canale.size();
+        int blocchi = (int) Math.max(Runtime.getRuntime().availableProcessors(), (dimensione + MASSIMO_BLOCCO - 1) / MASSIMO_BLOCCO);
+        long[] confini = new long[blocchi + 1];
+        ByteBuffer lettura = ByteBuffer.allocate(4096);
+        int n = 1;
+        for (int b = 1; b < blocchi; b++) {
+            long posizione = Math.max(dimensione * b / blocchi, confini[n - 1]);
+            // avanza fino alla prima fine linea, così nessuna linea resta divisa fra due blocchi
+            long fine = -1;
+            while (fine < 0 && posizione < dimensione) {
+                lettura.clear();
+                int letti = canale.read(lettura, posizione);
+                if (letti <= 0) break;
+                for (int i = 0; i < letti; i++) {
+                    if (lettura.get(i) == FINE_LINEA) {
+                        fine = posizione + i + 1;
+                        break;
+                    }
+                }
+                posizione += letti;
+            }
+            if (fine < 0 || fine >= dimensione) break;
+            if (fine - confini[n - 1] > MASSIMO_BLOCCO) throw new IOException("Linea troppo lunga.");
+            if (fine > confini[n - 1]) confini[n++] = fine;
+        }
+        if (dimensione - confini[n - 1] > MASSIMO_BLOCCO) throw new IOException("Linea troppo lunga.");
+        confini[n] = dimensione;
+        return Arrays.copyOf(confini, n + 1);
+    }
+
+    /**
+     * Analizza le linee di un blocco.
+     * @param blocco il blocco, che termina a fine linea o a fine file.
+     * @param campiTesto il numero di campi di testo per linea.
+     * @param campiNumerici il numero di campi numerici per linea.
+     * @return l'analisi del blocco.
+     */
+    private static Pezzo analizzaBlocco(ByteBuffer blocco, int campiTesto, int campiNumerici) {
+        Pezzo pezzo = new Pezzo(campiTesto, campiNumerici);
+        int campi = campiTesto + campiNumerici;
+        int[] inizi = new int[campi];
+        int[] fini = new int[campi];
+        byte[] testo = new byte[64];
+        int limite = blocco.limit();
+        int i = 0;
+        while (i < limite) {
+            int linea = pezzo.linee++;
+            int trovati = 0;
+            boolean troppi = false;
+            // individua i campi della linea, separati da uno o più spazi
+            while (i < limite && blocco.get(i) != FINE_LINEA) {
+                byte c = blocco.get(i);
+                if (c == ' ' || c == '\t' || c == '\r') {
+                    i++;
+                    continue;
+                }
+                int inizio = i;
+                while (i < limite && (c = blocco.get(i)) != FINE_LINEA && c != ' ' && c != '\t' && c != '\r') i++;
+                if (trovati < campi) {
+                    inizi[trovati] = inizio;
+                    fini[trovati] = i;
+                    trovati++;
+                } else troppi = true;
+            }
+            i++;
+            if (troppi || trovati < campi) {
+                pezzo.scartate.put(linea, "La linea deve contenere " + campi + " campi.");
+                continue;
+            }
+            int k = pezzo.valide;
+            if (k == pezzo.righe.length) {
+                pezzo.righe = Arrays.copyOf(pezzo.righe, k * 2);
+                pezzo.testi = Arrays.copyOf(pezzo.testi, k * 2 * campiTesto);
+                pezzo.numeri = Arrays.copyOf(pezzo.numeri, k * 2 * campiNumerici);
+            }
+            boolean numeriValidi = true;
+            for (int f = 0; f < campiNumerici && numeriValidi; f++) {
+                long valore = intero(blocco, inizi[campiTesto + f], fini[campiTesto + f]);
+                if (valore == Long.MIN_VALUE) numeriValidi = false;
+                else pezzo.numeri[k * campiNumerici + f] = (int) valore;
+            }
+            if (!numeriValidi) {
+                pezzo.scartate.put(linea, campiNumerici == 1 ? "L'ultimo campo deve essere un numero intero." : "Gli ultimi " + campiNumerici + " campi devono essere numeri interi.");
+                continue;
+            }
+            for (int f = 0; f < campiTesto; f++) {
+                int lunghezza = fini[f] - inizi[f];
+                if (lunghezza > testo.length) testo = new byte[Math.max(lunghezza, testo.length * 2)];
+                blocco.get(inizi[f], testo, 0, lunghezza);
+                pezzo.testi[k * campiTesto + f] = new String(testo, 0, lunghezza, StandardCharsets.UTF_8);
+            }
+            pezzo.righe[k] = linea;
+            pezzo.valide++;
+        }
+        return pezzo;
+    }
+
+    /**
+     * Legge un intero in base 10, eventualmente preceduto dal segno meno.
+     * @param blocco il blocco che contiene il campo.
+     * @param inizio la posizione del primo carattere del campo.
+     * @param fine la posizione successiva all'ultimo carattere del campo.
+     * @return il valore del campo, oppure {@code Long.MIN_VALUE} se il campo non è un intero rappresentabile con un {@code int}.
+     */
+    private static long intero(ByteBuffer blocco, int inizio, int fine) {
+        boolean negativo = blocco.get(inizio) == '-';
+        if (negativo) inizio++;
+        if (inizio == fine || fine - inizio > 10) return Long.MIN_VALUE;
+        long valore = 0;
+        for (int i = inizio; i < fine; i++) {
+            int cifra = blocco.get(i) - '0';
+            if (cifra < 0 || cifra > 9) return Long.MIN_VALUE;
+            valore = valore * 10 + cifra;
+        }
+        if (negativo) valore = -valore;
+        return valore < Integer.MIN_VALUE || valore > Integer.MAX_VALUE ? Long.MIN_VALUE : valore;
+    }
+}
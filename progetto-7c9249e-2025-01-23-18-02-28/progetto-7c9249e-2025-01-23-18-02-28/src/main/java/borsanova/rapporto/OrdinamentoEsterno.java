@@ -0,0 +1,290 @@
+package borsanova.rapporto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * L'ordinamento esterno scrive un insieme di righe in ordine di chiave usando una quantità limitata di memoria.
+ *
+ * Ogni ordinamento:
+ *  - raccoglie le righe in memoria fino a una capacità fissata.
+ *  - quando la capacità è raggiunta, ordina le righe raccolte e le scrive in una sequenza su un file temporaneo.
+ *  - al termine fonde le sequenze, al più {@code MASSIMO_FUSIONE} alla volta, e scrive le righe nel flusso d'uscita.
+ *
+ * Le chiavi sono confrontate con {@link String#compareTo(String)}; a parità di chiave l'ordine delle righe non è definito.
+ * I file temporanei vengono cancellati dalla chiusura dell'ordinamento.
+ */
+public final class OrdinamentoEsterno implements AutoCloseable {
+    /**{@code MASSIMO_FUSIONE} il numero massimo di sequenze fuse in un unico passo. */
+    private static final int MASSIMO_FUSIONE = 64;
+    /**{@code PER_CHIAVE} ordina le righe per chiave. */
+    private static final Comparator<Voce> PER_CHIAVE = Comparator.comparing(Voce::chiave);
+    /**{@code capacita} il numero massimo di righe tenute in memoria. */
+    private final int capacita;
+    /**{@code voci} le righe raccolte in memoria e non ancora scritte in una sequenza. */
+    private final Voce[] voci;
+    /**{@code raccolte} il numero di righe in {@code voci}. */
+    private int raccolte;
+    /**{@code sequenze} i file temporanei che contengono le sequenze ordinate, non ancora fuse. */
+    private final List<Path> sequenze = new ArrayList<>();
+    /**{@code scritte} il numero di sequenze scritte dalla creazione, comprese quelle prodotte dalle fusioni intermedie. */
+    private int scritte;
+    /**{@code concluso} indica se le righe sono già state scritte nel flusso d'uscita. */
+    private boolean concluso;
+
+    /*-
+     * AF:
+     *    - l'insieme delle righe aggiunte è l'unione di voci[0..raccolte-1] e delle righe contenute nei file di sequenze.
+     * RI:
+     *    - capacita > 0 && voci.length == capacita && 0 <= raccolte <= capacita.
+     *    - ogni file di sequenze contiene coppie (chiave, riga) ordinate per chiave.
+     *    - se concluso, raccolte == 0 e non si possono aggiungere righe.
+     */
+
+    /**
+     * Una riga da scrivere, con la chiave che ne determina la posizione.
+     * @param chiave la chiave della riga.
+     * @param riga il testo della riga.
+     */
+    private record Voce(String chiave, String riga) {
+    }
+
+    /**
+     * Crea un ordinamento vuoto.
+     * @param capacita il numero massimo di righe da tenere in memoria.
+     * @throws IllegalArgumentException se {@code capacita} è minore o uguale a 0.
+     */
+    public OrdinamentoEsterno(int capacita) throws IllegalArgumentException {
+        if (capacita <= 0) throw new IllegalArgumentException("La capacità deve essere maggiore di zero.");
+        this.capacita = capacita;
+        voci = new Voce[capacita];
+    }
+
+    /**
+     * Aggiunge una riga; se la memoria è piena, le righe raccolte vengono scritte in una nuova sequenza.
+     * @param chiave la chiave della riga.
+     * @param riga il testo della riga.
+     * @throws IOException se non è possibile scrivere la sequenza.
+     * @throws NullPointerException se {@code chiave} o {@code riga} è {@code null}.
+     * @throws IllegalStateException se le righe sono già state scritte.
+     */
+    public void aggiungi(String chiave, String riga) throws IOException, NullPointerException, IllegalStateException {
+        if (chiave == null || riga == null) throw new NullPointerException("La chiave e la riga non possono essere null.");
+        if (concluso) throw new IllegalStateException("Le righe sono già state scritte.");
+        if (raccolte == capacita) {
+            Arrays.sort(voci, 0, raccolte, PER_CHIAVE);
+            sequenze.add(scriviSequenza(Arrays.asList(voci).subList(0, raccolte).iterator()));
+            Arrays.fill(voci, null);
+            raccolte = 0;
+        }
+        voci[raccolte++] = new Voce(chiave, riga);
+    }
+
+    /**
+     * Restituisce il numero di sequenze scritte su file finora.
+     * @return il numero di sequenze scritte.
+     */
+    public int sequenze() {
+        return scritte;
+    }
+
+    /**
+     * Scrive tutte le righe aggiunte in ordine di chiave, una per linea, attraverso un buffer.
+     * @param out il flusso d'uscita; viene svuotato ma non chiuso.
+     * @throws IOException se non è possibile leggere le sequenze o scrivere nel flusso.
+     * @throws IllegalStateException se le righe sono già state scritte.
+     */
+    public void scrivi(Writer out) throws IOException, IllegalStateException {
+        if (concluso) throw new IllegalStateException("Le righe sono già state scritte.");
+        concluso = true;
+        Arrays.sort(voci, 0, raccolte, PER_CHIAVE);
+        List<Voce> inMemoria = Arrays.asList(voci).subList(0, raccolte);
+        // con troppe sequenze si fondono prima le più vecchie, così i file aperti insieme restano pochi
+        while (sequenze.size() + 1 > MASSIMO_FUSIONE) {
+            List<Path> gruppo = new ArrayList<>(sequenze.subList(0, MASSIMO_FUSIONE));
+            List<Cursore> cursori = new ArrayList<>();
+            try {
+                for (Path sequenza : gruppo) cursori.add(new Cursore(sequenza));
+                sequenze.add(scriviSequenza(fusione(cursori)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                for (Cursore cursore : cursori) cursore.close();
+            }
+            for (Path sequenza : gruppo) Files.delete(sequenza);
+            sequenze.subList(0, MASSIMO_FUSIONE).clear();
+        }
+        List<Cursore> cursori = new ArrayList<>();
+        BufferedWriter uscita = new BufferedWriter(out, 1 << 16);
+        try {
+            for (Path sequenza : sequenze) cursori.add(new Cursore(sequenza));
+            cursori.add(new Cursore(inMemoria));
+            for (Iterator<Voce> righe = fusione(cursori); righe.hasNext(); ) {
+                uscita.write(righe.next().riga());
+                uscita.newLine();
+            }
+            uscita.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Cursore cursore : cursori) cursore.close();
+        }
+        Arrays.fill(voci, null);
+        raccolte = 0;
+    }
+
+    /**
+     * Cancella i file temporanei delle sequenze.
+     * @throws IOException se non è possibile cancellare un file.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path sequenza : sequenze) Files.deleteIfExists(sequenza);
+        sequenze.clear();
+    }
+
+    /**
+     * Scrive una sequenza ordinata in un nuovo file temporaneo.
+     * @param righe le righe da scrivere, già in ordine di chiave.
+     * @return il file scritto.
+     * @throws IOException se non è possibile scrivere il file.
+     */
+    private Path scriviSequenza(Iterator<Voce> righe) throws IOException {
+        Path file = Files.createTempFile("borsanova-rapporto", ".seq");
+        try (DataOutputStream dati = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            while (righe.hasNext()) {
+                Voce voce = righe.next();
+                dati.writeUTF(voce.chiave());
+                dati.writeUTF(voce.riga());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        scritte++;
+        return file;
+    }
+
+    /**
+     * Prepara la fusione di più sequenze.
+     * Un errore di lettura durante la fusione viene sollevato come {@link UncheckedIOException}.
+     * @param cursori i cursori sulle sequenze da fondere.
+     * @return un iteratore sulle righe di tutte le sequenze, in ordine di chiave.
+     */
+    private static Fusione fusione(List<Cursore> cursori) {
+        PriorityQueue<Cursore> coda = new PriorityQueue<>(Math.max(1, cursori.size()), Comparator.comparing(c -> c.attuale.chiave()));
+        for (Cursore cursore : cursori) if (cursore.attuale != null) coda.add(cursore);
+        return new Fusione(coda);
+    }
+
+    /**
+     * Le righe di più sequenze, estratte in ordine di chiave dalla sequenza con la chiave minore.
+     */
+    private static final class Fusione implements Iterator<Voce> {
+        /**{@code coda} i cursori non esauriti, ordinati per chiave attuale. */
+        private final PriorityQueue<Cursore> coda;
+
+        /**
+         * Crea la fusione di un insieme di cursori.
+         * @param coda i cursori non esauriti.
+         */
+        private Fusione(PriorityQueue<Cursore> coda) {
+            this.coda = coda;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !coda.isEmpty();
+        }
+
+        @Override
+        public Voce next() {
+            Cursore primo = coda.poll();
+            if (primo == null) throw new NoSuchElementException();
+            Voce voce = primo.attuale;
+            try {
+                if (primo.avanza()) coda.add(primo);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return voce;
+        }
+    }
+
+    /**
+     * Un cursore su una sequenza ordinata, su file o in memoria.
+     */
+    private static final class Cursore implements AutoCloseable {
+        /**{@code dati} il file della sequenza, {@code null} per una sequenza in memoria. */
+        private final DataInputStream dati;
+        /**{@code memoria} la sequenza in memoria, {@code null} per una sequenza su file. */
+        private final Iterator<Voce> memoria;
+        /**{@code attuale} la riga corrente, {@code null} se la sequenza è esaurita. */
+        private Voce attuale;
+
+        /**
+         * Apre un cursore su una sequenza scritta su file.
+         * @param file il file della sequenza.
+         * @throws IOException se non è possibile leggere il file.
+         */
+        private Cursore(Path file) throws IOException {
+            dati = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            memoria = null;
+            avanza();
+        }
+
+        /**
+         * Crea un cursore su una sequenza in memoria.
+         * @param voci le righe, in ordine di chiave.
+         */
+        private Cursore(List<Voce> voci) {
+            dati = null;
+            memoria = voci.iterator();
+            attuale = memoria.hasNext() ? memoria.next() : null;
+        }
+
+        /**
+         * Passa alla riga successiva.
+         * @return {@code true} se c'è una riga successiva, {@code false} se la sequenza è esaurita.
+         * @throws IOException se non è possibile leggere il file.
+         */
+        private boolean avanza() throws IOException {
+            if (memoria != null) {
+                attuale = memoria.hasNext() ? memoria.next() : null;
+                return attuale != null;
+            }
+            try {
+                String chiave = dati.readUTF();
+                attuale = new Voce(chiave, dati.readUTF());
+            } catch (EOFException e) {
+                attuale = null;
+            }
+            return attuale != null;
+        }
+
+        /**
+         * Chiude il file della sequenza.
+         * @throws IOException se non è possibile chiudere il file.
+         */
+        @Override
+        public void close() throws IOException {
+            if (dati != null) dati.close();
+        }
+    }
+}
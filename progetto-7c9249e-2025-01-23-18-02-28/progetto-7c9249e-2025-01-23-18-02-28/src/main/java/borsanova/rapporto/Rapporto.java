@@ -0,0 +1,97 @@
+package borsanova.rapporto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Objects;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Detentori;
+import borsanova.Detenzione;
+import borsanova.Operatore;
+
+/**
+ * Il rapporto scrive lo stato delle borse e degli operatori in ordine alfabetico, con memoria limitata.
+ *
+ * Ogni linea del rapporto viene prodotta insieme a una chiave che ne determina la posizione e
+ * passa per un {@link OrdinamentoEsterno}: le borse e gli operatori possono essere forniti in qualunque ordine
+ * e il numero di linee tenute in memoria non supera la capacità richiesta.
+ *
+ * Le azioni di un singolo operatore e i proprietari di una singola azione vengono comunque letti insieme dal modello.
+ *
+ * Le chiavi sono i nomi che determinano l'ordine della linea, separati dal carattere {@code SEPARATORE},
+ * che precede qualunque altro carattere: così una linea precede quelle che ne dettagliano il contenuto.
+ */
+public final class Rapporto {
+    /**{@code SEPARATORE} separa i nomi che compongono una chiave. */
+    private static final char SEPARATORE = '\0';
+
+    /**
+     * Non si creano istanze: il rapporto ha solo metodi statici.
+     */
+    private Rapporto() {
+    }
+
+    /**
+     * Scrive, nel formato di {@code BorsaClient}, ogni borsa seguita dalle azioni quotate con la quantità disponibile
+     * (prefissate da -) e, per ogni azione, dai proprietari con la quantità posseduta (prefissati da =).
+     * @param borse le borse da descrivere, in qualunque ordine e senza ripetizioni.
+     * @param out il flusso d'uscita; viene svuotato ma non chiuso.
+     * @param capacita il numero massimo di linee da tenere in memoria.
+     * @throws IOException se non è possibile scrivere il rapporto.
+     * @throws NullPointerException se {@code borse} o {@code out} è {@code null}.
+     * @throws IllegalArgumentException se {@code capacita} è minore o uguale a 0.
+     */
+    public static void borse(Iterator<Borsa> borse, Writer out, int capacita) throws IOException, NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(borse, "Le borse non possono essere null.");
+        Objects.requireNonNull(out, "Il flusso d'uscita non può essere null.");
+        try (OrdinamentoEsterno ordinamento = new OrdinamentoEsterno(capacita)) {
+            while (borse.hasNext()) {
+                Borsa borsa = borse.next();
+                String chiaveBorsa = borsa.nome() + SEPARATORE;
+                ordinamento.aggiungi(chiaveBorsa, borsa.nome());
+                for (Iterator<Azione> azioni = borsa.azioniQuotate(); azioni.hasNext(); ) {
+                    Azione azione = azioni.next();
+                    String chiaveAzione = chiaveBorsa + azione.azienda().nome() + SEPARATORE;
+                    ordinamento.aggiungi(chiaveAzione, "- " + azione.azienda().nome() + " " + azione.quantitaDisponibile());
+                    for (Detentori detentori = azione.detentori(); detentori.hasNext(); ) {
+                        Detenzione detenzione = detentori.next();
+                        String nome = detenzione.operatore().nome();
+                        ordinamento.aggiungi(chiaveAzione + nome, "= " + nome + " " + detenzione.quantita());
+                    }
+                }
+            }
+            ordinamento.scrivi(out);
+        }
+    }
+
+    /**
+     * Scrive, nel formato di {@code OperatoreClient}, ogni operatore con il budget e il valore delle azioni possedute,
+     * seguito dalle azioni possedute (prefissate da -) con la borsa, l'azienda e la quantità.
+     * @param operatori gli operatori da descrivere, in qualunque ordine e senza ripetizioni.
+     * @param out il flusso d'uscita; viene svuotato ma non chiuso.
+     * @param capacita il numero massimo di linee da tenere in memoria.
+     * @throws IOException se non è possibile scrivere il rapporto.
+     * @throws NullPointerException se {@code operatori} o {@code out} è {@code null}.
+     * @throws IllegalArgumentException se {@code capacita} è minore o uguale a 0.
+     */
+    public static void operatori(Iterator<Operatore> operatori, Writer out, int capacita) throws IOException, NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(operatori, "Gli operatori non possono essere null.");
+        Objects.requireNonNull(out, "Il flusso d'uscita non può essere null.");
+        try (OrdinamentoEsterno ordinamento = new OrdinamentoEsterno(capacita)) {
+            while (operatori.hasNext()) {
+                Operatore operatore = operatori.next();
+                String chiaveOperatore = operatore.nome() + SEPARATORE;
+                ordinamento.aggiungi(chiaveOperatore, operatore.nome() + ", " + operatore.budget() + ", " + operatore.valoreAzioni());
+                for (Iterator<Azione> azioni = operatore.elencoAzioni(); azioni.hasNext(); ) {
+                    Azione azione = azioni.next();
+                    String azienda = azione.azienda().nome();
+                    ordinamento.aggiungi(chiaveOperatore + azione.nomeBorsa() + SEPARATORE + azienda,
+                            "- " + azione.nomeBorsa() + ", " + azienda + ", " + operatore.numeroAzioni(azione));
+                }
+            }
+            ordinamento.scrivi(out);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package borsanova.riproduzione;
+
+/**
+ * La misura di una fase della riproduzione di un giornale.
+ *
+ * @param nome il nome della fase.
+ * @param durata la durata della fase, in nanosecondi.
+ * @param operazioni il numero di ordini elaborati dalla fase.
+ * @param allocati i byte allocati dal thread della fase, -1 se la JVM non li misura.
+ */
+public record Fase(String nome, long durata, long operazioni, long allocati) {
+
+    /**
+     * Restituisce il numero di ordini elaborati al secondo.
+     * @return il throughput della fase, 0 se la durata è nulla.
+     */
+    public double throughput() {
+        return durata <= 0 ? 0 : operazioni * 1e9 / durata;
+    }
+
+    /**
+     * Restituisce il ritmo di allocazione della fase.
+     * @return i byte allocati al secondo, -1 se la JVM non li misura, 0 se la durata è nulla.
+     */
+    public double allocatiAlSecondo() {
+        if (allocati < 0) return -1;
+        return durata <= 0 ? 0 : allocati * 1e9 / durata;
+    }
+}
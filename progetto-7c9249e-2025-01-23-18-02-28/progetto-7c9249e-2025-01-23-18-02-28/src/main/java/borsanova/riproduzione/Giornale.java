@@ -0,0 +1,302 @@
+package borsanova.riproduzione;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Il giornale è un flusso di ordini registrato, già analizzato e pronto per essere riprodotto.
+ *
+ * Ogni giornale:
+ *  - contiene gli ordini in colonne di interi, uno per posizione, senza un oggetto per ordine.
+ *  - sostituisce ogni nome con la sua posizione in una tabella di nomi distinti, così la riproduzione risolve
+ *    ogni operatore, borsa e azienda una volta sola.
+ *  - si legge nel formato a linee di {@code GatewayOrdini} oppure in un formato binario, più compatto e più veloce da leggere.
+ *
+ * Il formato binario contiene, in ordine: il numero {@code MAGIA}, il numero di nomi seguito dai nomi,
+ * il numero di ordini seguito, per ogni ordine, dal tipo come byte e dall'operatore, dalla borsa, dall'azienda
+ * e dal valore come interi; la borsa e l'azienda valgono -1 per i depositi e i prelievi.
+ */
+public final class Giornale {
+    /**{@code MAGIA} il numero con cui inizia il formato binario. */
+    private static final int MAGIA = 0x424E4731;
+    /**{@code ORDINE} il numero di byte di un ordine nel formato binario. */
+    private static final int ORDINE = 17;
+    /**{@code ORDINI_PER_BLOCCO} il numero di ordini letti o scritti con un'unica operazione sul flusso. */
+    private static final int ORDINI_PER_BLOCCO = 4096;
+    /**{@code ACQUISTO} il tipo di un acquisto. */
+    static final byte ACQUISTO = 'b';
+    /**{@code VENDITA} il tipo di una vendita. */
+    static final byte VENDITA = 's';
+    /**{@code DEPOSITO} il tipo di un deposito. */
+    static final byte DEPOSITO = 'd';
+    /**{@code PRELIEVO} il tipo di un prelievo. */
+    static final byte PRELIEVO = 'w';
+    /**{@code nomi} i nomi distinti che compaiono negli ordini. */
+    final String[] nomi;
+    /**{@code tipi} il tipo di ogni ordine. */
+    final byte[] tipi;
+    /**{@code operatori} la posizione in {@code nomi} dell'operatore di ogni ordine. */
+    final int[] operatori;
+    /**{@code borse} la posizione in {@code nomi} della borsa di ogni ordine, -1 per depositi e prelievi. */
+    final int[] borse;
+    /**{@code aziende} la posizione in {@code nomi} dell'azienda di ogni ordine, -1 per depositi e prelievi. */
+    final int[] aziende;
+    /**{@code valori} l'investimento, il numero di azioni o la somma di ogni ordine. */
+    final int[] valori;
+    /**{@code scartate} le linee scartate durante la lettura, per numero, con il motivo. */
+    private final SortedMap<Integer, String> scartate;
+
+    /*-
+     * AF:
+     *    - l'ordine i-esimo è (nomi[operatori[i]], tipi[i], nomi[borse[i]], nomi[aziende[i]], valori[i]).
+     * RI:
+     *    - tipi, operatori, borse, aziende e valori hanno la stessa lunghezza.
+     *    - ogni tipo è ACQUISTO, VENDITA, DEPOSITO o PRELIEVO.
+     *    - operatori[i] è una posizione valida di nomi; borse[i] e aziende[i] lo sono per acquisti e vendite e valgono -1 altrimenti.
+     *    - i nomi sono distinti e non vuoti.
+     */
+
+    /**
+     * Costruisce un giornale a partire dalle sue colonne.
+     * @param nomi i nomi distinti.
+     * @param tipi i tipi degli ordini.
+     * @param operatori gli operatori degli ordini.
+     * @param borse le borse degli ordini.
+     * @param aziende le aziende degli ordini.
+     * @param valori i valori degli ordini.
+     * @param scartate le linee scartate.
+     */
+    private Giornale(String[] nomi, byte[] tipi, int[] operatori, int[] borse, int[] aziende, int[] valori, SortedMap<Integer, String> scartate) {
+        this.nomi = nomi;
+        this.tipi = tipi;
+        this.operatori = operatori;
+        this.borse = borse;
+        this.aziende = aziende;
+        this.valori = valori;
+        this.scartate = Collections.unmodifiableSortedMap(scartate);
+    }
+
+    /**
+     * Legge un giornale nel formato a linee di {@code GatewayOrdini}, fino alla fine del flusso o alla linea contenente solo {@code --}.
+     * Le linee vuote vengono ignorate; quelle non valide vengono scartate e riportate da {@link #scartate()}.
+     * @param in il flusso da cui leggere.
+     * @return il giornale letto.
+     * @throws IOException se non è possibile leggere il flusso.
+     * @throws NullPointerException se {@code in} è {@code null}.
+     */
+    public static Giornale leggi(BufferedReader in) throws IOException, NullPointerException {
+        Objects.requireNonNull(in, "Il flusso non può essere null.");
+        Colonne colonne = new Colonne();
+        SortedMap<Integer, String> scartate = new TreeMap<>();
+        int numero = 0;
+        String linea;
+        while ((linea = in.readLine()) != null && !linea.equals("--")) {
+            numero++;
+            if (linea.isBlank()) continue;
+            String[] tokens = linea.trim().split(" ");
+            try {
+                colonne.aggiungi(tokens);
+            } catch (IllegalArgumentException e) {
+                scartate.put(numero, e.getMessage());
+            }
+        }
+        return colonne.giornale(scartate);
+    }
+
+    /**
+     * Legge un giornale nel formato binario descritto nella documentazione della classe.
+     * Gli ordini vengono letti a blocchi, quindi il flusso non ha bisogno di un buffer.
+     * @param in il flusso da cui leggere; non viene chiuso.
+     * @return il giornale letto.
+     * @throws IOException se non è possibile leggere il flusso o se il flusso non è nel formato binario.
+     * @throws NullPointerException se {@code in} è {@code null}.
+     */
+    public static Giornale leggiBinario(InputStream in) throws IOException, NullPointerException {
+        DataInputStream dati = new DataInputStream(Objects.requireNonNull(in, "Il flusso non può essere null."));
+        if (dati.readInt() != MAGIA) throw new IOException("Il flusso non è un giornale binario.");
+        String[] nomi = new String[leggiDimensione(dati)];
+        for (int k = 0; k < nomi.length; k++) nomi[k] = dati.readUTF();
+        int n = leggiDimensione(dati);
+        byte[] tipi = new byte[n];
+        int[] operatori = new int[n];
+        int[] borse = new int[n];
+        int[] aziende = new int[n];
+        int[] valori = new int[n];
+        ByteBuffer blocco = ByteBuffer.allocate(ORDINE * ORDINI_PER_BLOCCO);
+        for (int i = 0; i < n; i++) {
+            if (!blocco.hasRemaining() || i == 0) {
+                blocco.clear().limit(ORDINE * Math.min(ORDINI_PER_BLOCCO, n - i));
+                dati.readFully(blocco.array(), 0, blocco.limit());
+            }
+            tipi[i] = blocco.get();
+            operatori[i] = blocco.getInt();
+            borse[i] = blocco.getInt();
+            aziende[i] = blocco.getInt();
+            valori[i] = blocco.getInt();
+            boolean mercato = tipi[i] == ACQUISTO || tipi[i] == VENDITA;
+            if (!mercato && tipi[i] != DEPOSITO && tipi[i] != PRELIEVO
+                    || !valido(operatori[i], nomi.length)
+                    || mercato && !(valido(borse[i], nomi.length) && valido(aziende[i], nomi.length))
+                    || !mercato && (borse[i] != -1 || aziende[i] != -1))
+                throw new IOException("Ordine " + (i + 1) + " non valido.");
+        }
+        return new Giornale(nomi, tipi, operatori, borse, aziende, valori, new TreeMap<>());
+    }
+
+    /**
+     * Scrive questo giornale nel formato binario descritto nella documentazione della classe.
+     * @param out il flusso in cui scrivere; viene svuotato ma non chiuso.
+     * @throws IOException se non è possibile scrivere nel flusso.
+     * @throws NullPointerException se {@code out} è {@code null}.
+     */
+    public void scriviBinario(OutputStream out) throws IOException, NullPointerException {
+        DataOutputStream dati = new DataOutputStream(Objects.requireNonNull(out, "Il flusso non può essere null."));
+        dati.writeInt(MAGIA);
+        dati.writeInt(nomi.length);
+        for (String nome : nomi) dati.writeUTF(nome);
+        dati.writeInt(tipi.length);
+        ByteBuffer blocco = ByteBuffer.allocate(ORDINE * ORDINI_PER_BLOCCO);
+        for (int i = 0; i < tipi.length; i++) {
+            blocco.put(tipi[i]).putInt(operatori[i]).putInt(borse[i]).putInt(aziende[i]).putInt(valori[i]);
+            if (!blocco.hasRemaining() || i == tipi.length - 1) {
+                dati.write(blocco.array(), 0, blocco.position());
+                blocco.clear();
+            }
+        }
+        dati.flush();
+    }
+
+    /**
+     * Restituisce il numero di ordini del giornale.
+     * @return il numero di ordini.
+     */
+    public int dimensione() {
+        return tipi.length;
+    }
+
+    /**
+     * Restituisce le linee scartate durante la lettura nel formato a linee.
+     * @return per ogni linea scartata, il suo numero a partire da 1 associato al motivo; la mappa non è modificabile.
+     */
+    public SortedMap<Integer, String> scartate() {
+        return scartate;
+    }
+
+    /**
+     * Legge una dimensione del formato binario.
+     * @param dati il flusso da cui leggere.
+     * @return la dimensione letta.
+     * @throws IOException se non è possibile leggere il flusso o se la dimensione è negativa.
+     */
+    private static int leggiDimensione(DataInputStream dati) throws IOException {
+        int n = dati.readInt();
+        if (n < 0) throw new IOException("Dimensione negativa nel giornale binario.");
+        return n;
+    }
+
+    /**
+     * Indica se una posizione appartiene alla tabella dei nomi.
+     * @param posizione la posizione.
+     * @param nomi il numero di nomi.
+     * @return {@code true} se {@code 0 <= posizione < nomi}.
+     */
+    private static boolean valido(int posizione, int nomi) {
+        return posizione >= 0 && posizione < nomi;
+    }
+
+    /**
+     * Le colonne di un giornale in costruzione, che crescono raddoppiando.
+     */
+    private static final class Colonne {
+        /**{@code posizioni} associa ogni nome alla sua posizione nella tabella dei nomi. */
+        private final Map<String, Integer> posizioni = new HashMap<>();
+        /**{@code nomi} la tabella dei nomi, in ordine di prima occorrenza. */
+        private final List<String> nomi = new ArrayList<>();
+        /**{@code tipi} il tipo di ogni ordine. */
+        private byte[] tipi = new byte[1024];
+        /**{@code operatori} l'operatore di ogni ordine. */
+        private int[] operatori = new int[1024];
+        /**{@code borse} la borsa di ogni ordine. */
+        private int[] borse = new int[1024];
+        /**{@code aziende} l'azienda di ogni ordine. */
+        private int[] aziende = new int[1024];
+        /**{@code valori} il valore di ogni ordine. */
+        private int[] valori = new int[1024];
+        /**{@code n} il numero di ordini aggiunti. */
+        private int n;
+
+        /**
+         * Costruisce delle colonne vuote.
+         */
+        private Colonne() {
+        }
+
+        /**
+         * Aggiunge un ordine.
+         * @param tokens i campi dell'ordine, nel formato a linee.
+         * @throws IllegalArgumentException se l'ordine non è valido.
+         */
+        private void aggiungi(String[] tokens) throws IllegalArgumentException {
+            if (tokens.length < 3 || tokens[1].length() != 1) throw new IllegalArgumentException("Ordine incompleto.");
+            byte tipo = (byte) tokens[1].charAt(0);
+            int campi = tipo == ACQUISTO || tipo == VENDITA ? 5 : tipo == DEPOSITO || tipo == PRELIEVO ? 3 : -1;
+            if (campi < 0) throw new IllegalArgumentException("Operazione sconosciuta: " + tokens[1]);
+            if (tokens.length != campi) throw new IllegalArgumentException("Numero di campi errato.");
+            int valore;
+            try {
+                valore = Integer.parseInt(tokens[campi - 1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valore non valido: " + tokens[campi - 1]);
+            }
+            if (n == tipi.length) {
+                tipi = Arrays.copyOf(tipi, n * 2);
+                operatori = Arrays.copyOf(operatori, n * 2);
+                borse = Arrays.copyOf(borse, n * 2);
+                aziende = Arrays.copyOf(aziende, n * 2);
+                valori = Arrays.copyOf(valori, n * 2);
+            }
+            tipi[n] = tipo;
+            operatori[n] = posizione(tokens[0]);
+            borse[n] = campi == 5 ? posizione(tokens[2]) : -1;
+            aziende[n] = campi == 5 ? posizione(tokens[3]) : -1;
+            valori[n] = valore;
+            n++;
+        }
+
+        /**
+         * Restituisce la posizione di un nome, aggiungendolo alla tabella alla prima occorrenza.
+         * @param nome il nome.
+         * @return la posizione del nome.
+         */
+        private int posizione(String nome) {
+            return posizioni.computeIfAbsent(nome, k -> {
+                nomi.add(k);
+                return nomi.size() - 1;
+            });
+        }
+
+        /**
+         * Costruisce il giornale con gli ordini aggiunti.
+         * @param scartate le linee scartate.
+         * @return il giornale.
+         */
+        private Giornale giornale(SortedMap<Integer, String> scartate) {
+            return new Giornale(nomi.toArray(new String[0]), Arrays.copyOf(tipi, n), Arrays.copyOf(operatori, n),
+                    Arrays.copyOf(borse, n), Arrays.copyOf(aziende, n), Arrays.copyOf(valori, n), scartate);
+        }
+    }
+}
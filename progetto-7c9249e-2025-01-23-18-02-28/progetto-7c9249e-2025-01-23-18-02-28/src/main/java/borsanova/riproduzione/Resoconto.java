@@ -0,0 +1,105 @@
+package borsanova.riproduzione;
+
+import java.util.List;
+import java.util.Objects;
+
+import borsanova.Esito;
+
+/**
+ * Il resoconto della riproduzione di un giornale: gli esiti degli ordini, le misure di ogni fase e le latenze.
+ *
+ * L'impronta riassume la sequenza degli esiti e i budget finali degli operatori del giornale: due riproduzioni
+ * dello stesso giornale sullo stesso mercato hanno la stessa impronta se e solo se, con alta probabilità,
+ * hanno prodotto gli stessi esiti nello stesso ordine e lo stesso stato finale degli operatori.
+ */
+public final class Resoconto {
+    /**{@code fasi} le misure delle fasi, in ordine di esecuzione. */
+    private final List<Fase> fasi;
+    /**{@code perEsito} il numero di ordini per ogni esito, in posizione pari all'ordinale dell'esito. */
+    private final long[] perEsito;
+    /**{@code nonValidi} il numero di ordini con nomi sconosciuti o rifiutati con un'eccezione. */
+    private final long nonValidi;
+    /**{@code impronta} l'impronta degli esiti e dei budget finali. */
+    private final long impronta;
+    /**{@code latenze} le latenze campionate, in nanosecondi, in ordine crescente. */
+    private final long[] latenze;
+
+    /*-
+     * AF:
+     *    - l'esito e ha riguardato perEsito[e.ordinal()] ordini; latenze è la distribuzione delle latenze campionate.
+     * RI:
+     *    - perEsito.length == Esito.values().length e ogni elemento è >= 0; nonValidi >= 0.
+     *    - latenze è ordinato in modo crescente.
+     */
+
+    /**
+     * Costruisce un resoconto.
+     * @param fasi le misure delle fasi.
+     * @param perEsito il numero di ordini per esito.
+     * @param nonValidi il numero di ordini non validi.
+     * @param impronta l'impronta della riproduzione.
+     * @param latenze le latenze campionate, in ordine crescente.
+     */
+    Resoconto(List<Fase> fasi, long[] perEsito, long nonValidi, long impronta, long[] latenze) {
+        this.fasi = List.copyOf(fasi);
+        this.perEsito = perEsito;
+        this.nonValidi = nonValidi;
+        this.impronta = impronta;
+        this.latenze = latenze;
+    }
+
+    /**
+     * Restituisce le misure delle fasi.
+     * @return le fasi, in ordine di esecuzione; la lista non è modificabile.
+     */
+    public List<Fase> fasi() {
+        return fasi;
+    }
+
+    /**
+     * Restituisce il numero di ordini con un determinato esito.
+     * @param esito l'esito.
+     * @return il numero di ordini con esito {@code esito}.
+     * @throws NullPointerException se {@code esito} è {@code null}.
+     */
+    public long ordini(Esito esito) throws NullPointerException {
+        return perEsito[Objects.requireNonNull(esito, "L'esito non può essere null.").ordinal()];
+    }
+
+    /**
+     * Restituisce il numero di ordini non eseguiti perché un nome è sconosciuto o perché il modello ha sollevato un'eccezione,
+     * come per un deposito non positivo.
+     * @return il numero di ordini non validi.
+     */
+    public long nonValidi() {
+        return nonValidi;
+    }
+
+    /**
+     * Restituisce l'impronta della riproduzione.
+     * @return l'impronta degli esiti e dei budget finali.
+     */
+    public long impronta() {
+        return impronta;
+    }
+
+    /**
+     * Restituisce il numero di latenze campionate.
+     * @return il numero di campioni, 0 in modo deterministico.
+     */
+    public int campioni() {
+        return latenze.length;
+    }
+
+    /**
+     * Restituisce un percentile della latenza degli ordini campionati.
+     * @param percentile il percentile, tra 0 e 100.
+     * @return la latenza in nanosecondi, 0 se non ci sono campioni.
+     * @throws IllegalArgumentException se {@code percentile} non è tra 0 e 100.
+     */
+    public long latenza(double percentile) throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("Il percentile deve essere tra 0 e 100.");
+        if (latenze.length == 0) return 0;
+        return latenze[(int) Math.min(latenze.length - 1, (long) (latenze.length * percentile / 100))];
+    }
+}
@@ -0,0 +1,220 @@
+package borsanova.riproduzione;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Esito;
+import borsanova.Operatore;
+
+/**
+ * Il riproduttore esegue un giornale di ordini sulle borse e sugli operatori il più velocemente possibile, misurandone le fasi.
+ *
+ * Ogni riproduzione:
+ *  - legge il giornale (fase {@code lettura}), se viene letto attraverso il riproduttore.
+ *  - risolve una volta sola ogni nome del giornale nell'operatore, nella borsa o nell'azienda corrispondente (fase {@code risoluzione}).
+ *  - esegue gli ordini in sequenza, nel thread chiamante e senza lock, con i metodi che non sollevano eccezioni
+ *    per i rifiuti attesi (fase {@code esecuzione}).
+ *
+ * Per ogni fase vengono misurati la durata e i byte allocati dal thread; la latenza di un ordine ogni {@code campionamento}
+ * viene misurata con {@link System#nanoTime()}, così la misura stessa pesa poco sul throughput.
+ *
+ * In modo deterministico la latenza non viene misurata e l'orologio delle borse del giornale viene sostituito
+ * con il numero dell'ordine in esecuzione, in millisecondi: le statistiche, le sospensioni e ogni altra regola
+ * che dipende dal tempo producono allora sempre gli stessi esiti, e l'impronta del resoconto permette di confrontare due riproduzioni.
+ * L'orologio sostituito resta alle borse anche dopo la riproduzione.
+ */
+public final class Riproduttore {
+    /**{@code deterministico} indica se la riproduzione è deterministica. */
+    private final boolean deterministico;
+    /**{@code campionamento} ogni quanti ordini se ne misura la latenza. */
+    private final int campionamento;
+    /**{@code fasi} le fasi misurate finora. */
+    private final List<Fase> fasi = new ArrayList<>();
+    /**{@code istante} l'istante dell'orologio deterministico, cioè il numero dell'ordine in esecuzione. */
+    private long istante;
+
+    /*-
+     * AF:
+     *    - fasi: le misure accumulate dall'ultima riproduzione, a cui si aggiungono quelle della prossima.
+     * RI:
+     *    - campionamento > 0 && fasi != null.
+     */
+
+    /**
+     * Crea un riproduttore.
+     * @param deterministico {@code true} per una riproduzione deterministica, senza misura della latenza.
+     * @param campionamento ogni quanti ordini misurare la latenza, 1 per misurarla su tutti.
+     * @throws IllegalArgumentException se {@code campionamento} non è positivo.
+     */
+    public Riproduttore(boolean deterministico, int campionamento) throws IllegalArgumentException {
+        if (campionamento <= 0) throw new IllegalArgumentException("Il campionamento deve essere maggiore di zero.");
+        this.deterministico = deterministico;
+        this.campionamento = campionamento;
+    }
+
+    /**
+     * Legge un giornale nel formato a linee, come {@link Giornale#leggi(BufferedReader)}, misurando la fase di lettura.
+     * @param in il flusso da cui leggere.
+     * @return il giornale letto.
+     * @throws IOException se non è possibile leggere il flusso.
+     * @throws NullPointerException se {@code in} è {@code null}.
+     */
+    public Giornale leggi(BufferedReader in) throws IOException, NullPointerException {
+        long inizio = System.nanoTime(), allocati = allocati();
+        Giornale giornale = Giornale.leggi(in);
+        fasi.add(fase("lettura", inizio, allocati, giornale.dimensione()));
+        return giornale;
+    }
+
+    /**
+     * Legge un giornale nel formato binario, come {@link Giornale#leggiBinario(InputStream)}, misurando la fase di lettura.
+     * @param in il flusso da cui leggere; non viene chiuso.
+     * @return il giornale letto.
+     * @throws IOException se non è possibile leggere il flusso o se il flusso non è nel formato binario.
+     * @throws NullPointerException se {@code in} è {@code null}.
+     */
+    public Giornale leggiBinario(InputStream in) throws IOException, NullPointerException {
+        long inizio = System.nanoTime(), allocati = allocati();
+        Giornale giornale = Giornale.leggiBinario(in);
+        fasi.add(fase("lettura", inizio, allocati, giornale.dimensione()));
+        return giornale;
+    }
+
+    /**
+     * Riproduce un giornale sulle borse e sugli operatori esistenti.
+     * Gli ordini delle stesse borse non devono essere eseguiti da altri thread durante la riproduzione.
+     * @param giornale il giornale da riprodurre.
+     * @return il resoconto della riproduzione, con le fasi misurate dalla creazione o dalla riproduzione precedente.
+     * @throws NullPointerException se {@code giornale} è {@code null}.
+     */
+    public Resoconto riproduci(Giornale giornale) throws NullPointerException {
+        Objects.requireNonNull(giornale, "Il giornale non può essere null.");
+        int n = giornale.dimensione();
+
+        long inizio = System.nanoTime(), allocati = allocati();
+        String[] nomi = giornale.nomi;
+        Operatore[] operatori = new Operatore[nomi.length];
+        Borsa[] borse = new Borsa[nomi.length];
+        Azienda[] aziende = new Azienda[nomi.length];
+        for (int i = 0; i < n; i++) {
+            int o = giornale.operatori[i];
+            if (operatori[o] == null) operatori[o] = cerca(() -> Operatore.cerca(nomi[o]));
+            if (giornale.borse[i] < 0) continue;
+            int b = giornale.borse[i], a = giornale.aziende[i];
+            if (borse[b] == null) {
+                borse[b] = cerca(() -> Borsa.cerca(nomi[b]));
+                if (deterministico && borse[b] != null) borse[b].orologio(() -> istante);
+            }
+            if (aziende[a] == null) aziende[a] = cerca(() -> Azienda.cerca(nomi[a]));
+        }
+        fasi.add(fase("risoluzione", inizio, allocati, n));
+
+        long[] perEsito = new long[Esito.values().length];
+        long nonValidi = 0, impronta = 1;
+        long[] latenze = new long[deterministico ? 0 : (n + campionamento - 1) / campionamento];
+        inizio = System.nanoTime();
+        allocati = allocati();
+        for (int i = 0; i < n; i++) {
+            boolean campione = !deterministico && i % campionamento == 0;
+            long t = campione ? System.nanoTime() : 0;
+            istante = i;
+            Esito esito = esegui(giornale, i, operatori, borse, aziende);
+            if (campione) latenze[i / campionamento] = System.nanoTime() - t;
+            if (esito == null) nonValidi++;
+            else perEsito[esito.ordinal()]++;
+            impronta = impronta * 31 + (esito == null ? -1 : esito.ordinal());
+        }
+        fasi.add(fase("esecuzione", inizio, allocati, n));
+
+        for (Operatore operatore : operatori) if (operatore != null) impronta = impronta * 31 + operatore.budget();
+        Arrays.sort(latenze);
+        Resoconto resoconto = new Resoconto(fasi, perEsito, nonValidi, impronta, latenze);
+        fasi.clear();
+        return resoconto;
+    }
+
+    /**
+     * Esegue un ordine del giornale.
+     * @param giornale il giornale.
+     * @param i la posizione dell'ordine.
+     * @param operatori gli operatori risolti, per posizione del nome.
+     * @param borse le borse risolte, per posizione del nome.
+     * @param aziende le aziende risolte, per posizione del nome.
+     * @return l'esito dell'ordine, {@code null} se un nome è sconosciuto o se il modello ha sollevato un'eccezione.
+     */
+    private static Esito esegui(Giornale giornale, int i, Operatore[] operatori, Borsa[] borse, Azienda[] aziende) {
+        Operatore operatore = operatori[giornale.operatori[i]];
+        if (operatore == null) return null;
+        int valore = giornale.valori[i];
+        try {
+            switch (giornale.tipi[i]) {
+                case Giornale.DEPOSITO -> operatore.deposita(valore);
+                case Giornale.PRELIEVO -> {
+                    if (valore > 0 && valore > operatore.budget()) return Esito.FONDI_INSUFFICIENTI;
+                    operatore.preleva(valore);
+                }
+                default -> {
+                    Borsa borsa = borse[giornale.borse[i]];
+                    Azienda azienda = aziende[giornale.aziende[i]];
+                    if (borsa == null || azienda == null) return null;
+                    if (giornale.tipi[i] == Giornale.ACQUISTO) return borsa.tentaAcquisto(operatore, azienda, valore);
+                    return borsa.tentaVendita(operatore, borsa.cercaAzioneBorsa(azienda), valore);
+                }
+            }
+            return Esito.ESEGUITO;
+        } catch (NoSuchElementException e) {
+            return Esito.NON_QUOTATA;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Cerca un'entità per nome.
+     * @param <T> il tipo dell'entità.
+     * @param ricerca la ricerca, che solleva {@link NoSuchElementException} se il nome è sconosciuto.
+     * @return l'entità trovata, {@code null} se il nome è sconosciuto.
+     */
+    private static <T> T cerca(Supplier<T> ricerca) {
+        try {
+            return ricerca.get();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Conclude la misura di una fase.
+     * @param nome il nome della fase.
+     * @param inizio l'istante di inizio della fase, in nanosecondi.
+     * @param allocati i byte allocati dal thread all'inizio della fase, -1 se la JVM non li misura.
+     * @param operazioni il numero di ordini elaborati dalla fase.
+     * @return la misura della fase.
+     */
+    private static Fase fase(String nome, long inizio, long allocati, long operazioni) {
+        long durata = System.nanoTime() - inizio;
+        long fine = allocati();
+        return new Fase(nome, durata, operazioni, allocati < 0 || fine < 0 ? -1 : fine - allocati);
+    }
+
+    /**
+     * Restituisce i byte allocati finora dal thread chiamante.
+     * @return i byte allocati, -1 se la JVM non li misura.
+     */
+    private static long allocati() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                && mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled())
+            return mx.getCurrentThreadAllocatedBytes();
+        return -1;
+    }
+}
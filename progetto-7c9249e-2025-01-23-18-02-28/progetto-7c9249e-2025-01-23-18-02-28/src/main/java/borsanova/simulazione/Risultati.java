@@ -0,0 +1,170 @@
+package borsanova.simulazione;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * I risultati aggregati delle esecuzioni di una simulazione.
+ *
+ * Ogni esecuzione contribuisce, appena conclusa:
+ *  - l'andamento dell'indice, cioè la somma dei valori delle azioni quotate, dopo ogni passo.
+ *  - la ricchezza finale di ogni agente, cioè il budget più il valore delle azioni possedute.
+ *
+ * Le somme sono tenute in interi lunghi, così i risultati non dipendono dall'ordine in cui le esecuzioni terminano.
+ * La distribuzione delle ricchezze è un istogramma con {@code CLASSI} classi larghe un decimo del budget iniziale;
+ * l'ultima classe raccoglie tutte le ricchezze maggiori.
+ */
+public final class Risultati {
+    /**{@code CLASSI} il numero di classi dell'istogramma delle ricchezze. */
+    public static final int CLASSI = 41;
+    /**{@code budget} il budget iniziale degli agenti, che fissa la larghezza delle classi. */
+    private final int budget;
+    /**{@code sommaIndici} per ogni passo, la somma degli indici di tutte le esecuzioni. */
+    private final long[] sommaIndici;
+    /**{@code minimoIndici} per ogni passo, l'indice minimo tra le esecuzioni. */
+    private final long[] minimoIndici;
+    /**{@code massimoIndici} per ogni passo, l'indice massimo tra le esecuzioni. */
+    private final long[] massimoIndici;
+    /**{@code istogramma} il numero di agenti in ogni classe di ricchezza. */
+    private final long[] istogramma = new long[CLASSI];
+    /**{@code esecuzioni} il numero di esecuzioni aggregate. */
+    private int esecuzioni;
+    /**{@code agenti} il numero di ricchezze aggregate. */
+    private long agenti;
+    /**{@code sommaRicchezze} la somma delle ricchezze aggregate. */
+    private long sommaRicchezze;
+    /**{@code minimaRicchezza} la ricchezza minima aggregata. */
+    private long minimaRicchezza = Long.MAX_VALUE;
+    /**{@code massimaRicchezza} la ricchezza massima aggregata. */
+    private long massimaRicchezza = Long.MIN_VALUE;
+
+    /*-
+     * AF:
+     *    - l'indice medio al passo p è sommaIndici[p] / esecuzioni, compreso tra minimoIndici[p] e massimoIndici[p].
+     *    - la ricchezza media è sommaRicchezze / agenti; istogramma[k] conta le ricchezze r con min(r * 10 / budget, CLASSI - 1) == k.
+     * RI:
+     *    - budget > 0 && sommaIndici, minimoIndici e massimoIndici hanno la stessa lunghezza.
+     *    - la somma di istogramma è agenti.
+     *    - se esecuzioni == 0, agenti == 0 e i minimi e i massimi hanno i valori iniziali.
+     */
+
+    /**
+     * Crea dei risultati vuoti.
+     * @param passi il numero di passi di ogni esecuzione.
+     * @param budget il budget iniziale degli agenti.
+     * @throws IllegalArgumentException se {@code passi} o {@code budget} non è positivo.
+     */
+    Risultati(int passi, int budget) throws IllegalArgumentException {
+        if (passi <= 0 || budget <= 0) throw new IllegalArgumentException("Passi e budget devono essere maggiori di zero.");
+        this.budget = budget;
+        sommaIndici = new long[passi + 1];
+        minimoIndici = new long[passi + 1];
+        massimoIndici = new long[passi + 1];
+        Arrays.fill(minimoIndici, Long.MAX_VALUE);
+        Arrays.fill(massimoIndici, Long.MIN_VALUE);
+    }
+
+    /**
+     * Aggrega i risultati di un'esecuzione conclusa.
+     * @param indici l'indice all'inizio e dopo ogni passo.
+     * @param ricchezze la ricchezza finale di ogni agente.
+     * @throws NullPointerException se {@code indici} o {@code ricchezze} è {@code null}.
+     * @throws IllegalArgumentException se il numero di indici non corrisponde ai passi.
+     */
+    synchronized void aggiungi(long[] indici, long[] ricchezze) throws NullPointerException, IllegalArgumentException {
+        if (Objects.requireNonNull(indici).length != sommaIndici.length) throw new IllegalArgumentException("Numero di indici errato.");
+        Objects.requireNonNull(ricchezze);
+        for (int p = 0; p < indici.length; p++) {
+            sommaIndici[p] += indici[p];
+            minimoIndici[p] = Math.min(minimoIndici[p], indici[p]);
+            massimoIndici[p] = Math.max(massimoIndici[p], indici[p]);
+        }
+        for (long ricchezza : ricchezze) {
+            istogramma[(int) Math.min(Math.max(0, ricchezza) * 10 / budget, CLASSI - 1)]++;
+            sommaRicchezze += ricchezza;
+            minimaRicchezza = Math.min(minimaRicchezza, ricchezza);
+            massimaRicchezza = Math.max(massimaRicchezza, ricchezza);
+        }
+        agenti += ricchezze.length;
+        esecuzioni++;
+    }
+
+    /**
+     * Restituisce il numero di esecuzioni aggregate.
+     * @return il numero di esecuzioni.
+     */
+    public synchronized int esecuzioni() {
+        return esecuzioni;
+    }
+
+    /**
+     * Restituisce il numero di passi di ogni esecuzione.
+     * @return il numero di passi.
+     */
+    public int passi() {
+        return sommaIndici.length - 1;
+    }
+
+    /**
+     * Restituisce l'indice medio tra le esecuzioni a un determinato passo.
+     * @param passo il passo, 0 per l'inizio dell'esecuzione.
+     * @return l'indice medio, 0 se non ci sono esecuzioni.
+     * @throws IndexOutOfBoundsException se {@code passo} non è tra 0 e {@link #passi()}.
+     */
+    public synchronized double indiceMedio(int passo) throws IndexOutOfBoundsException {
+        return esecuzioni == 0 ? 0 : (double) sommaIndici[Objects.checkIndex(passo, sommaIndici.length)] / esecuzioni;
+    }
+
+    /**
+     * Restituisce l'indice minimo tra le esecuzioni a un determinato passo.
+     * @param passo il passo, 0 per l'inizio dell'esecuzione.
+     * @return l'indice minimo, 0 se non ci sono esecuzioni.
+     * @throws IndexOutOfBoundsException se {@code passo} non è tra 0 e {@link #passi()}.
+     */
+    public synchronized long indiceMinimo(int passo) throws IndexOutOfBoundsException {
+        return esecuzioni == 0 ? 0 : minimoIndici[Objects.checkIndex(passo, minimoIndici.length)];
+    }
+
+    /**
+     * Restituisce l'indice massimo tra le esecuzioni a un determinato passo.
+     * @param passo il passo, 0 per l'inizio dell'esecuzione.
+     * @return l'indice massimo, 0 se non ci sono esecuzioni.
+     * @throws IndexOutOfBoundsException se {@code passo} non è tra 0 e {@link #passi()}.
+     */
+    public synchronized long indiceMassimo(int passo) throws IndexOutOfBoundsException {
+        return esecuzioni == 0 ? 0 : massimoIndici[Objects.checkIndex(passo, massimoIndici.length)];
+    }
+
+    /**
+     * Restituisce la ricchezza media degli agenti di tutte le esecuzioni.
+     * @return la ricchezza media, 0 se non ci sono esecuzioni.
+     */
+    public synchronized double ricchezzaMedia() {
+        return agenti == 0 ? 0 : (double) sommaRicchezze / agenti;
+    }
+
+    /**
+     * Restituisce la ricchezza minima degli agenti di tutte le esecuzioni.
+     * @return la ricchezza minima, 0 se non ci sono esecuzioni.
+     */
+    public synchronized long ricchezzaMinima() {
+        return agenti == 0 ? 0 : minimaRicchezza;
+    }
+
+    /**
+     * Restituisce la ricchezza massima degli agenti di tutte le esecuzioni.
+     * @return la ricchezza massima, 0 se non ci sono esecuzioni.
+     */
+    public synchronized long ricchezzaMassima() {
+        return agenti == 0 ? 0 : massimaRicchezza;
+    }
+
+    /**
+     * Restituisce la distribuzione delle ricchezze: la classe k conta gli agenti con ricchezza tra k e k + 1 decimi
+     * del budget iniziale, escluso l'estremo superiore; l'ultima classe conta anche tutte le ricchezze maggiori.
+     * @return una copia dell'istogramma, con {@code CLASSI} elementi.
+     */
+    public synchronized long[] istogramma() {
+        return istogramma.clone();
+    }
+}
@@ -0,0 +1,56 @@
+package borsanova.simulazione;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import borsanova.politicaprezzo.PoliticaPrezzo;
+
+/**
+ * Lo scenario descrive l'universo costruito da ogni esecuzione di una simulazione.
+ *
+ * Ogni esecuzione crea una borsa, le aziende quotate con lo stesso numero di azioni allo stesso prezzo e gli agenti,
+ * tutti con lo stesso budget; l'agente i-esimo usa la strategia in posizione i modulo il numero di strategie.
+ * I nomi delle entità create sono quelli dello scenario seguiti da un suffisso che identifica l'esecuzione,
+ * così le politiche che dipendono dal nome, come {@code Vocali}, si comportano allo stesso modo in ogni esecuzione.
+ *
+ * @param borsa il nome della borsa.
+ * @param aziende i nomi delle aziende quotate.
+ * @param azioniPerAzienda il numero di azioni quotate da ogni azienda.
+ * @param prezzoIniziale il prezzo di quotazione di ogni azione.
+ * @param agenti il numero di agenti.
+ * @param budget il budget iniziale di ogni agente.
+ * @param passi il numero di passi di ogni esecuzione; ad ogni passo ogni agente agisce una volta.
+ * @param politica crea la politica di prezzo di ogni esecuzione, oppure restituisce {@code null} per non usarne.
+ * @param strategie le strategie degli agenti.
+ */
+public record Scenario(String borsa, List<String> aziende, int azioniPerAzienda, int prezzoIniziale,
+        int agenti, int budget, int passi, Supplier<PoliticaPrezzo> politica, List<Strategia> strategie) {
+
+    /**
+     * Crea uno scenario controllandone i parametri.
+     * @param borsa il nome della borsa.
+     * @param aziende i nomi delle aziende quotate.
+     * @param azioniPerAzienda il numero di azioni quotate da ogni azienda.
+     * @param prezzoIniziale il prezzo di quotazione di ogni azione.
+     * @param agenti il numero di agenti.
+     * @param budget il budget iniziale di ogni agente.
+     * @param passi il numero di passi di ogni esecuzione.
+     * @param politica crea la politica di prezzo di ogni esecuzione.
+     * @param strategie le strategie degli agenti.
+     * @throws NullPointerException se un parametro, un'azienda o una strategia è {@code null}.
+     * @throws IllegalArgumentException se un nome è vuoto, se non ci sono aziende o strategie,
+     *         se due aziende hanno lo stesso nome o se un numero non è positivo.
+     */
+    public Scenario {
+        Objects.requireNonNull(borsa, "Il nome della borsa non può essere null.");
+        Objects.requireNonNull(politica, "La politica non può essere null.");
+        aziende = List.copyOf(Objects.requireNonNull(aziende, "Le aziende non possono essere null."));
+        strategie = List.copyOf(Objects.requireNonNull(strategie, "Le strategie non possono essere null."));
+        if (borsa.isBlank() || aziende.stream().anyMatch(String::isBlank)) throw new IllegalArgumentException("I nomi non possono essere vuoti.");
+        if (aziende.isEmpty() || strategie.isEmpty()) throw new IllegalArgumentException("Servono almeno un'azienda e una strategia.");
+        if (aziende.stream().distinct().count() != aziende.size()) throw new IllegalArgumentException("Le aziende devono avere nomi diversi.");
+        if (azioniPerAzienda <= 0 || prezzoIniziale <= 0 || agenti <= 0 || budget <= 0 || passi <= 0)
+            throw new IllegalArgumentException("Azioni, prezzo, agenti, budget e passi devono essere maggiori di zero.");
+    }
+}
@@ -0,0 +1,126 @@
+package borsanova.simulazione;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.politicaprezzo.PoliticaPrezzo;
+
+/**
+ * La simulazione esegue molte volte uno scenario, in parallelo, e ne aggrega i risultati.
+ *
+ * Ogni esecuzione:
+ *  - costruisce un universo proprio (borsa, aziende, agenti) e non condivide entità con le altre esecuzioni.
+ *  - usa un generatore casuale ricavato dal seme della simulazione e dal proprio numero, così il risultato
+ *    di una simulazione dipende solo dallo scenario, dal numero di esecuzioni e dal seme, non dal numero di processori.
+ *  - ad ogni passo fissa il prezzo di riferimento delle azioni e fa agire ogni agente una volta,
+ *    partendo da un agente scelto a caso.
+ *  - al termine contribuisce ai {@link Risultati}, senza attendere le altre esecuzioni.
+ *  - cancella le proprie entità, anche se viene interrotta da un'eccezione.
+ *
+ * Le entità dell'esecuzione i della simulazione s, contate a partire da 0 e da 1, hanno il nome indicato dallo scenario
+ * seguito da {@code #s-i}; quelle degli agenti sono {@code agente} seguito dal numero dell'agente.
+ * Le entità di ogni esecuzione sono comunque registrate, finché esistono, negli stessi registri di tutte le altre:
+ * le esecuzioni si contendono i loro monitor solo durante la costruzione dell'universo e la cancellazione.
+ * Dopo la cancellazione di un'esecuzione restano solo i suoi identificatori inutilizzati.
+ * Un'eccezione interrompe l'esecuzione, che cancella comunque le entità create fino a quel momento, e viene rilanciata.
+ */
+public final class Simulazione {
+    /**{@code SIMULAZIONI} il numero di simulazioni avviate, che rende unici i nomi delle entità create. */
+    private static final AtomicLong SIMULAZIONI = new AtomicLong();
+    /**{@code MESCOLA} l'incremento tra i semi di due esecuzioni consecutive. */
+    private static final long MESCOLA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Non si creano istanze: la simulazione ha solo metodi statici.
+     */
+    private Simulazione() {
+    }
+
+    /**
+     * Esegue uno scenario più volte, in parallelo sui processori disponibili.
+     * Un'eccezione sollevata da una strategia o da una politica di prezzo interrompe la simulazione e viene rilanciata.
+     * @param scenario lo scenario da eseguire.
+     * @param esecuzioni il numero di esecuzioni.
+     * @param seme il seme da cui si ricava il generatore casuale di ogni esecuzione.
+     * @return i risultati aggregati di tutte le esecuzioni.
+     * @throws NullPointerException se {@code scenario} è {@code null}.
+     * @throws IllegalArgumentException se {@code esecuzioni} non è positivo.
+     */
+    public static Risultati esegui(Scenario scenario, int esecuzioni, long seme) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(scenario, "Lo scenario non può essere null.");
+        if (esecuzioni <= 0) throw new IllegalArgumentException("Il numero di esecuzioni deve essere maggiore di zero.");
+        Risultati risultati = new Risultati(scenario.passi(), scenario.budget());
+        String suffisso = "#" + SIMULAZIONI.incrementAndGet() + "-";
+        IntStream.range(0, esecuzioni).parallel()
+                .forEach(i -> esegui(scenario, suffisso + i, new SplittableRandom(seme + i * MESCOLA), risultati));
+        return risultati;
+    }
+
+    /**
+     * Esegue lo scenario una volta e ne aggiunge i risultati, cancellando poi le entità create anche se viene sollevata un'eccezione.
+     * @param scenario lo scenario da eseguire.
+     * @param suffisso il suffisso dei nomi delle entità dell'esecuzione.
+     * @param caso il generatore casuale dell'esecuzione.
+     * @param risultati i risultati a cui aggiungere quelli dell'esecuzione.
+     */
+    private static void esegui(Scenario scenario, String suffisso, SplittableRandom caso, Risultati risultati) {
+        Borsa borsa = Borsa.of(scenario.borsa() + suffisso);
+        List<Azienda> aziende = new ArrayList<>(scenario.aziende().size());
+        List<Operatore> agenti = new ArrayList<>(scenario.agenti());
+        try {
+            PoliticaPrezzo politica = scenario.politica().get();
+            if (politica != null) borsa.politicaPrezzo(politica);
+            List<Azione> azioni = new ArrayList<>(scenario.aziende().size());
+            for (String nome : scenario.aziende()) {
+                Azienda azienda = Azienda.of(nome + suffisso);
+                aziende.add(azienda);
+                azienda.quotazioneInBorsa(borsa, scenario.azioniPerAzienda(), scenario.prezzoIniziale());
+                azioni.add(borsa.cercaAzioneBorsa(azienda));
+            }
+            List<Strategia> strategie = scenario.strategie();
+            for (int k = 0; k < scenario.agenti(); k++) {
+                Operatore agente = Operatore.of("agente" + k + suffisso);
+                agenti.add(agente);
+                agente.deposita(scenario.budget());
+            }
+            long[] indici = new long[scenario.passi() + 1];
+            indici[0] = indice(azioni);
+            for (int passo = 1; passo <= scenario.passi(); passo++) {
+                borsa.fissaRiferimento();
+                int primo = caso.nextInt(agenti.size());
+                for (int k = 0; k < agenti.size(); k++) {
+                    int agente = (primo + k) % agenti.size();
+                    strategie.get(agente % strategie.size()).agisci(agenti.get(agente), borsa, azioni, caso);
+                }
+                indici[passo] = indice(azioni);
+            }
+            long[] ricchezze = new long[agenti.size()];
+            for (int k = 0; k < agenti.size(); k++) ricchezze[k] = (long) agenti.get(k).budget() + agenti.get(k).valoreAzioni();
+            risultati.aggiungi(indici, ricchezze);
+        } finally {
+            // la cancellazione della borsa chiude le posizioni, che impedirebbero di cancellare aziende e agenti
+            borsa.cancella();
+            for (Azienda azienda : aziende) azienda.cancella();
+            for (Operatore agente : agenti) agente.cancella();
+        }
+    }
+
+    /**
+     * Restituisce la somma dei valori di un insieme di azioni.
+     * @param azioni le azioni.
+     * @return la somma dei loro valori.
+     */
+    private static long indice(List<Azione> azioni) {
+        long somma = 0;
+        for (Azione azione : azioni) somma += azione.valore();
+        return somma;
+    }
+}
@@ -0,0 +1,29 @@
+package borsanova.simulazione;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+
+/**
+ * La strategia decide, ad ogni passo di una simulazione, gli ordini che un agente invia alla borsa.
+ *
+ * La variazione di un'azione è misurata rispetto al suo valore all'inizio del passo.
+ * Una strategia viene usata da molti agenti e da più esecuzioni in parallelo: lo stato di cui ha bisogno
+ * va ricavato dall'operatore e dalla borsa, e ogni scelta casuale va fatta con il generatore ricevuto,
+ * così ogni esecuzione dipende solo dal proprio seme.
+ */
+@FunctionalInterface
+public interface Strategia {
+    /**
+     * Invia gli ordini di un agente per un passo della simulazione, di solito con
+     * {@link Borsa#tentaAcquisto(Operatore, borsanova.Azienda, int)} e {@link Borsa#tentaVendita(Operatore, Azione, int)}.
+     * @param operatore l'operatore dell'agente.
+     * @param borsa la borsa dell'esecuzione.
+     * @param azioni le azioni quotate nella borsa, nell'ordine delle aziende dello scenario.
+     * @param caso il generatore casuale dell'esecuzione.
+     */
+    void agisci(Operatore operatore, Borsa borsa, List<Azione> azioni, SplittableRandom caso);
+}
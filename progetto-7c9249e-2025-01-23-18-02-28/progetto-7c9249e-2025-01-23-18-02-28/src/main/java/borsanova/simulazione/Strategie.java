@@ -0,0 +1,110 @@
+package borsanova.simulazione;
+
+import java.util.List;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+
+/**
+ * Le strategie predefinite degli agenti di una simulazione.
+ *
+ * Ogni strategia investe ad ogni acquisto una somma casuale fino a un massimo e, ad ogni vendita, tutte le azioni possedute
+ * di un'azione; gli ordini rifiutati dalla borsa vengono semplicemente persi.
+ */
+public final class Strategie {
+
+    /**
+     * Non si creano istanze: le strategie si ottengono con metodi statici.
+     */
+    private Strategie() {
+    }
+
+    /**
+     * Restituisce la strategia che ad ogni passo sceglie un'azione a caso e, con uguale probabilità, la compra o ne vende
+     * una quantità casuale tra quelle possedute.
+     * @param investimento l'investimento massimo di ogni acquisto.
+     * @return la strategia casuale.
+     * @throws IllegalArgumentException se {@code investimento} non è positivo.
+     */
+    public static Strategia casuale(int investimento) throws IllegalArgumentException {
+        verifica(investimento);
+        return (operatore, borsa, azioni, caso) -> {
+            Azione azione = azioni.get(caso.nextInt(azioni.size()));
+            if (caso.nextBoolean()) {
+                borsa.tentaAcquisto(operatore, azione.azienda(), 1 + caso.nextInt(investimento));
+            } else if (operatore.possiedeAzione(azione)) {
+                borsa.tentaVendita(operatore, azione, 1 + caso.nextInt(operatore.numeroAzioni(azione)));
+            }
+        };
+    }
+
+    /**
+     * Restituisce la strategia che segue la tendenza: compra l'azione salita di più rispetto al prezzo di riferimento,
+     * se è salita, e vende un'azione posseduta scesa sotto il riferimento.
+     * @param investimento l'investimento massimo di ogni acquisto.
+     * @return la strategia che segue la tendenza.
+     * @throws IllegalArgumentException se {@code investimento} non è positivo.
+     */
+    public static Strategia tendenza(int investimento) throws IllegalArgumentException {
+        verifica(investimento);
+        return (operatore, borsa, azioni, caso) -> {
+            Azione migliore = estrema(azioni, 1);
+            if (migliore.variazione() > 0) borsa.tentaAcquisto(operatore, migliore.azienda(), 1 + caso.nextInt(investimento));
+            vendiSe(operatore, borsa, azioni, -1);
+        };
+    }
+
+    /**
+     * Restituisce la strategia che va contro la tendenza: compra l'azione scesa di più rispetto al prezzo di riferimento,
+     * se è scesa, e vende un'azione posseduta salita sopra il riferimento.
+     * @param investimento l'investimento massimo di ogni acquisto.
+     * @return la strategia contro la tendenza.
+     * @throws IllegalArgumentException se {@code investimento} non è positivo.
+     */
+    public static Strategia controTendenza(int investimento) throws IllegalArgumentException {
+        verifica(investimento);
+        return (operatore, borsa, azioni, caso) -> {
+            Azione peggiore = estrema(azioni, -1);
+            if (peggiore.variazione() < 0) borsa.tentaAcquisto(operatore, peggiore.azienda(), 1 + caso.nextInt(investimento));
+            vendiSe(operatore, borsa, azioni, 1);
+        };
+    }
+
+    /**
+     * Controlla l'investimento massimo di una strategia.
+     * @param investimento l'investimento massimo.
+     * @throws IllegalArgumentException se {@code investimento} non è positivo.
+     */
+    private static void verifica(int investimento) throws IllegalArgumentException {
+        if (investimento <= 0) throw new IllegalArgumentException("L'investimento deve essere maggiore di zero.");
+    }
+
+    /**
+     * Restituisce l'azione con la variazione più alta o più bassa; a parità vince la prima.
+     * @param azioni le azioni tra cui scegliere, almeno una.
+     * @param segno 1 per la variazione più alta, -1 per la più bassa.
+     * @return l'azione scelta.
+     */
+    private static Azione estrema(List<Azione> azioni, int segno) {
+        Azione scelta = azioni.get(0);
+        for (Azione azione : azioni) if (segno * azione.variazione() > segno * scelta.variazione()) scelta = azione;
+        return scelta;
+    }
+
+    /**
+     * Vende tutte le azioni possedute della prima azione la cui variazione ha un determinato segno.
+     * @param operatore l'operatore che vende.
+     * @param borsa la borsa in cui vendere.
+     * @param azioni le azioni tra cui scegliere.
+     * @param segno 1 per vendere un'azione salita, -1 per vendere un'azione scesa.
+     */
+    private static void vendiSe(Operatore operatore, Borsa borsa, List<Azione> azioni, int segno) {
+        for (Azione azione : azioni) {
+            if (Integer.signum(azione.variazione()) == segno && operatore.possiedeAzione(azione)) {
+                borsa.tentaVendita(operatore, azione, operatore.numeroAzioni(azione));
+                return;
+            }
+        }
+    }
+}
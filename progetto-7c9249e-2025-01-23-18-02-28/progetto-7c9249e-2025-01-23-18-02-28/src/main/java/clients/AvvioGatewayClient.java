@@ -0,0 +1,58 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+
+package clients;
+
+import java.io.IOException;
+import java.util.Scanner;
+
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Avvio del <strong>gateway degli ordini</strong> come processo a sé.
+ */
+public class AvvioGatewayClient {
+
+  /** . */
+  private AvvioGatewayClient() {}
+
+  /*-
+   * Riceve sulla linea di comando la porta su cui ascoltare (di default 7070).
+   *
+   * Legge dal flusso in ingresso le quotazioni e gli operatori con budget
+   * iniziale, come in OperatoreClient, avvia il gateway ed emette nel flusso
+   * d'uscita la porta su cui è in ascolto. Serve le connessioni finché il
+   * processo non viene terminato; se il gateway smette di accettare
+   * connessioni a causa di un errore, lo solleva e termina.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int porta = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+    try (Scanner in = new Scanner(System.in)) {
+      Mercato.carica(in);
+    }
+    try (GatewayOrdini gateway = new GatewayOrdini(porta)) {
+      System.out.println("Gateway in ascolto sulla porta " + gateway.porta());
+      while (gateway.guasto() == null) Thread.sleep(1000);
+    }
+  }
+}
@@ -28,6 +28,8 @@ import java.util.TreeSet;
 
 import borsanova.Azienda;
 import borsanova.Borsa;
+import borsanova.Detentori;
+import borsanova.Detenzione;
 import borsanova.Operatore;
 
 /**
@@ -154,10 +156,9 @@ public class BorsaClient {
       while (azioniNellaBorsa.hasNext()) {
         Borsa.Azione action = azioniNellaBorsa.next();
         System.out.println("- " + action.azienda().nome() + " " + action.quantitaDisponibile());
-        for (Operatore operatore : operatori) {
-          if (operatore.possiedeAzione(action) && operatore.numeroAzioni(action) >0) {
-            System.out.println("= " + operatore.nome() + " " + operatore.numeroAzioni(action));
-          }
+        for (Detentori detentori = action.detentori(); detentori.hasNext(); ) {
+          Detenzione detenzione = detentori.next();
+          System.out.println("= " + detenzione.operatore().nome() + " " + detenzione.quantita());
         }
       }
 
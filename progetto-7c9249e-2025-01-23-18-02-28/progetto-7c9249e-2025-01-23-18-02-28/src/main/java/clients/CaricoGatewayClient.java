@@ -0,0 +1,125 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di carico per il <strong>gateway degli ordini</strong>.
+ */
+public class CaricoGatewayClient {
+
+  /** . */
+  private CaricoGatewayClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di sessioni (di default 2000) e il
+   * numero di ordini per sessione (di default 50). Crea un mercato con 4 borse,
+   * 20 aziende quotate in ciascuna e un operatore per sessione, avvia un
+   * gateway locale su una porta libera e apre tutte le sessioni
+   * contemporaneamente, ciascuna in un thread virtuale.
+   *
+   * Ogni sessione invia i propri ordini uno alla volta (deposito, acquisto,
+   * vendita, prelievo a rotazione) attendendo ogni risposta. Al termine emette
+   * il numero di ordini eseguiti e rifiutati, il throughput e i percentili
+   * della latenza.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int numeroSessioni = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int ordiniPerSessione = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    String[] borse = new String[4];
+    String[] aziende = new String[20];
+    for (int b = 0; b < borse.length; b++) borse[b] = Borsa.of("Carico" + b).nome();
+    for (int a = 0; a < aziende.length; a++) {
+      Azienda azienda = Azienda.of("Carico" + a);
+      aziende[a] = azienda.nome();
+      for (String borsa : borse) azienda.quotazioneInBorsa(Borsa.cerca(borsa), Integer.MAX_VALUE, 10);
+    }
+    for (int s = 0; s < numeroSessioni; s++) Operatore.of("Carico" + s).deposita(100000);
+
+    long[] latenze = new long[numeroSessioni * ordiniPerSessione];
+    AtomicInteger rifiutati = new AtomicInteger();
+    CountDownLatch pronti = new CountDownLatch(numeroSessioni);
+    CountDownLatch via = new CountDownLatch(1);
+    long inizio;
+    long durata;
+    try (GatewayOrdini gateway = new GatewayOrdini(0);
+        ExecutorService sessioni = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int s = 0; s < numeroSessioni; s++) {
+        int sessione = s;
+        sessioni.submit(() -> {
+          try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateway.porta());
+              BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+              PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            pronti.countDown();
+            via.await();
+            for (int i = 0; i < ordiniPerSessione; i++) {
+              String azienda = aziende[(sessione * 7 + i / 4) % aziende.length];
+              String ordine = switch (i % 4) {
+                case 0 -> "Carico" + sessione + " d 100";
+                case 1 -> "Carico" + sessione + " b " + borse[sessione % borse.length] + " " + azienda + " 100";
+                case 2 -> "Carico" + sessione + " s " + borse[sessione % borse.length] + " " + azienda + " 1";
+                default -> "Carico" + sessione + " w 50";
+              };
+              long t = System.nanoTime();
+              out.println(ordine);
+              String risposta = in.readLine();
+              latenze[sessione * ordiniPerSessione + i] = System.nanoTime() - t;
+              if (risposta == null || !risposta.startsWith("OK")) rifiutati.incrementAndGet();
+            }
+          } catch (IOException | InterruptedException e) {
+            System.err.println("Sessione " + sessione + ": " + e.getMessage());
+          }
+          return null;
+        });
+      }
+      pronti.await();
+      inizio = System.nanoTime();
+      via.countDown();
+      sessioni.shutdown();
+      sessioni.awaitTermination(1, TimeUnit.HOURS);
+      durata = System.nanoTime() - inizio;
+    }
+    Arrays.sort(latenze);
+    System.out.println("sessioni: " + numeroSessioni + ", ordini: " + latenze.length + ", rifiutati: " + rifiutati.get());
+    System.out.printf("throughput: %.0f ordini/s%n", latenze.length / (durata / 1e9));
+    System.out.printf("latenza p50: %d us, p99: %d us, massima: %d us%n", latenze[latenze.length / 2] / 1000, latenze[(int) (latenze.length * 0.99)] / 1000, latenze[latenze.length - 1] / 1000);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.OrdineCondizionato;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.politicaprezzo.Soglia;
+
+/**
+ * Client di test per gli <strong>ordini condizionati</strong>.
+ */
+public class CondizionatiClient {
+
+  /** . */
+  private CondizionatiClient() {}
+
+  /*-
+   * Riceve sulla linea di comando la soglia della politica di prezzo di tutte
+   * le borse, come in PoliticaPrezzoSogliaClient (di default 10).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e le operazioni, della forma
+   *
+   *     nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     nome_operatore s nome_borsa nome_azienda numero_azioni
+   *     nome_operatore tipo nome_borsa nome_azienda soglia valore
+   *     annulla numero_ordine
+   *
+   * dove tipo è STOP_LOSS, TAKE_PROFIT, ACQUISTO_AL_RIBASSO o
+   * ACQUISTO_AL_RIALZO e il valore è la quantità da vendere o l'investimento.
+   * Gli ordini condizionati sono numerati da 1 nell'ordine di inserimento.
+   *
+   * Per ogni operazione emette nel flusso d'uscita l'operazione seguita dalla
+   * risposta del gateway, dal numero dell'ordine condizionato inserito o
+   * dall'esito dell'annullamento. Al termine emette ogni ordine condizionato
+   * con il suo esito (oppure ANNULLATO o IN_ATTESA) e, per ogni borsa, il
+   * valore di ogni azione quotata in ordine alfabetico.
+   */
+  public static void main(String[] args) {
+    int soglia = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    StringBuilder mercato = new StringBuilder();
+    Set<String> borse = new LinkedHashSet<>();
+    List<String> operazioni = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 0) borse.add(linea.split(" ")[1]);
+        } else operazioni.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    for (String nome : borse) Borsa.cerca(nome).politicaPrezzo(new Soglia(soglia));
+    List<OrdineCondizionato> condizionati = new ArrayList<>();
+    for (String operazione : operazioni) {
+      String[] tokens = operazione.split(" ");
+      String risposta;
+      if (tokens[0].equals("annulla")) {
+        OrdineCondizionato ordine = condizionati.get(Integer.parseInt(tokens[1]) - 1);
+        risposta = String.valueOf(Borsa.cerca(ordine.azione().nomeBorsa()).annulla(ordine));
+      } else if (tokens[1].equals("b") || tokens[1].equals("s")) {
+        risposta = GatewayOrdini.esegui(operazione);
+      } else {
+        Borsa borsa = Borsa.cerca(tokens[2]);
+        OrdineCondizionato ordine = borsa.ordineCondizionato(Operatore.cerca(tokens[0]), borsa.cercaAzioneBorsa(Azienda.cerca(tokens[3])),
+            OrdineCondizionato.Tipo.valueOf(tokens[1]), Integer.parseInt(tokens[4]), Integer.parseInt(tokens[5]));
+        condizionati.add(ordine);
+        risposta = "#" + condizionati.size();
+      }
+      System.out.println(operazione + ": " + risposta);
+    }
+    for (int i = 0; i < condizionati.size(); i++) {
+      OrdineCondizionato ordine = condizionati.get(i);
+      String stato = ordine.annullato() ? "ANNULLATO" : ordine.esito() == null ? "IN_ATTESA" : ordine.esito().toString();
+      System.out.println("#" + (i + 1) + " " + ordine + ": " + stato);
+    }
+    for (String nome : borse) {
+      for (Iterator<Azione> azioni = Borsa.cerca(nome).azioniQuotate(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        System.out.println(nome + " " + azione.azienda().nome() + " " + azione.valore());
+      }
+    }
+  }
+}
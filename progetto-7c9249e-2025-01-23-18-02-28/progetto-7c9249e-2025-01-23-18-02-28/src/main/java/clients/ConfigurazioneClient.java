@@ -0,0 +1,64 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Arrays;
+
+/**
+ * Client di test per le <strong>configurazioni</strong> della memoria di borse e posizioni.
+ */
+public class ConfigurazioneClient {
+
+  /** . */
+  private ConfigurazioneClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il registro delle posizioni (fuoriheap o
+   * inheap), la disposizione in memoria delle azioni quotate (colonne o
+   * oggetti), il nome di un altro client e gli argomenti da passargli.
+   *
+   * Imposta le proprietà di sistema borsanova.posizioni e
+   * borsanova.memorizzazione prima che venga creata qualunque borsa, poi esegue
+   * il client indicato, che legge il flusso in ingresso ed emette nel flusso
+   * d'uscita quello che emetterebbe con la configurazione predefinita.
+   */
+  public static void main(String[] args) {
+    System.setProperty("borsanova.posizioni", args[0]);
+    System.setProperty("borsanova.memorizzazione", args[1]);
+    String[] argomenti = Arrays.copyOfRange(args, 3, args.length);
+    switch (args[2]) {
+      case "AzioneClient" -> AzioneClient.main(argomenti);
+      case "BorsaClient" -> BorsaClient.main(argomenti);
+      case "CondizionatiClient" -> CondizionatiClient.main(argomenti);
+      case "DetentoriAziendaClient" -> DetentoriAziendaClient.main(argomenti);
+      case "OperatoreClient" -> OperatoreClient.main(argomenti);
+      case "OperazioniSocietarieClient" -> OperazioniSocietarieClient.main(argomenti);
+      case "PoliticaPrezzoClient" -> PoliticaPrezzoClient.main(argomenti);
+      case "PosizioniConsolidateClient" -> PosizioniConsolidateClient.main(argomenti);
+      case "QuotazioneClient" -> QuotazioneClient.main(argomenti);
+      case "RischioClient" -> RischioClient.main(argomenti);
+      case "StatisticheClient" -> StatisticheClient.main(argomenti);
+      default -> throw new IllegalArgumentException("Client sconosciuto: " + args[2]);
+    }
+  }
+}
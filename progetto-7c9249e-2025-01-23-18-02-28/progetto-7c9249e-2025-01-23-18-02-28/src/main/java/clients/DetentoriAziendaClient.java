@@ -0,0 +1,86 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Scanner;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import borsanova.Azienda;
+import borsanova.Detentori;
+import borsanova.Detenzione;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per i <strong>proprietari di un'azienda</strong> su tutte le borse.
+ */
+public class DetentoriAziendaClient {
+
+  /** . */
+  private DetentoriAziendaClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso gli stessi tre blocchi letti da BorsaClient
+   * (quotazioni, operatori con budget iniziale e operazioni di acquisto e
+   * vendita) ed esegue le operazioni, ignorando quelle che non vanno a buon
+   * fine.
+   *
+   * Al termine emette, per ogni azienda in ordine alfabetico, il suo nome
+   * seguito dal numero di operatori che ne possiedono azioni in almeno una
+   * borsa; poi, per ognuno di essi in ordine alfabetico, il nome e il numero
+   * totale di azioni possedute sommando tutte le borse (prefissati da =);
+   * infine i due maggiori proprietari (prefissati da +).
+   */
+  public static void main(String[] args) {
+    SortedSet<Azienda> aziende = new TreeSet<>();
+    StringBuilder mercato = new StringBuilder();
+    try (Scanner in = new Scanner(System.in)) {
+      while (in.hasNextLine()) {
+        String line = in.nextLine();
+        mercato.append(line).append('\n');
+        if (line.equals("--")) break;
+        String nome = line.split(" ")[0];
+        if (aziende.stream().noneMatch(a -> a.nome().equals(nome))) aziende.add(Azienda.of(nome));
+      }
+      while (in.hasNextLine()) {
+        String line = in.nextLine();
+        mercato.append(line).append('\n');
+        if (line.equals("--")) break;
+      }
+      Mercato.carica(new Scanner(mercato.toString()));
+      while (in.hasNextLine()) {
+        String line = in.nextLine();
+        if (!line.isBlank()) GatewayOrdini.esegui(line);
+      }
+    }
+    for (Azienda azienda : aziende) {
+      System.out.println(azienda.nome() + " " + azienda.numeroDetentori());
+      for (Detentori detentori = azienda.detentori(); detentori.hasNext(); ) {
+        Detenzione detenzione = detentori.next();
+        System.out.println("= " + detenzione.operatore().nome() + " " + detenzione.quantita());
+      }
+      for (Detenzione detenzione : azienda.maggioriDetentori(2))
+        System.out.println("+ " + detenzione.operatore().nome() + " " + detenzione.quantita());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Detentori;
+import borsanova.Detenzione;
+import borsanova.Operatore;
+
+/**
+ * Confronta il <strong>cursore sui proprietari</strong> di un'azione con la scansione di tutti gli operatori.
+ */
+public class DetentoriBenchmark {
+
+  /** . */
+  private DetentoriBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori (di default 500000),
+   * il numero di proprietari dell'azione esaminata (di default 2000) e la
+   * dimensione delle pagine (di default 100).
+   *
+   * Emette il tempo necessario a elencare i proprietari in ordine di nome
+   * scorrendo tutti gli operatori, come fa BorsaClient con possiedeAzione, e
+   * attraverso il cursore, percorso una pagina alla volta; controlla che i due
+   * elenchi coincidano ed emette i cinque maggiori proprietari.
+   */
+  public static void main(String[] args) {
+    int numeroOperatori = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int numeroDetentori = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int dimensionePagina = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    Borsa borsa = Borsa.of("Detentori");
+    Azienda azienda = Azienda.of("Detentori");
+    azienda.quotazioneInBorsa(borsa, Integer.MAX_VALUE, 1);
+    Azione azione = borsa.cercaAzioneBorsa(azienda);
+    Operatore[] operatori = new Operatore[numeroOperatori];
+    for (int o = 0; o < numeroOperatori; o++) operatori[o] = Operatore.of("Detentori" + (numeroOperatori - o));
+    int passo = Math.max(1, numeroOperatori / numeroDetentori);
+    for (int o = 0; o < numeroOperatori; o += passo) {
+      operatori[o].deposita(1 + o % 997);
+      borsa.acquisto(operatori[o], azienda, 1 + o % 997);
+    }
+
+    long inizio = System.nanoTime();
+    SortedSet<Operatore> ordinati = new TreeSet<>(List.of(operatori));
+    StringBuilder scansione = new StringBuilder();
+    for (Operatore operatore : ordinati)
+      if (operatore.possiedeAzione(azione)) scansione.append(operatore.nome()).append(' ').append(operatore.numeroAzioni(azione)).append('\n');
+    long tempoScansione = System.nanoTime() - inizio;
+
+    inizio = System.nanoTime();
+    StringBuilder cursore = new StringBuilder();
+    Detentori detentori = azione.detentori();
+    int pagine = 0;
+    for (List<Detenzione> pagina = detentori.pagina(dimensionePagina); !pagina.isEmpty(); pagina = detentori.pagina(dimensionePagina)) {
+      pagine++;
+      for (Detenzione detenzione : pagina) cursore.append(detenzione.operatore().nome()).append(' ').append(detenzione.quantita()).append('\n');
+    }
+    long tempoCursore = System.nanoTime() - inizio;
+
+    System.out.printf("proprietari: %d, scansione: %d us, cursore: %d us in %d pagine%n", azione.numeroDetentori(), tempoScansione / 1000, tempoCursore / 1000, pagine);
+    System.out.println("elenchi coincidenti: " + scansione.toString().equals(cursore.toString()));
+    for (Detenzione detenzione : azione.maggioriDetentori(5)) System.out.println("= " + detenzione.operatore().nome() + " " + detenzione.quantita());
+  }
+}
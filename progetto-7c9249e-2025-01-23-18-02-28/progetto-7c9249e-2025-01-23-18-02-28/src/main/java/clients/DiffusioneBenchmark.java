@@ -0,0 +1,118 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Iscrizione;
+import borsanova.Operatore;
+import borsanova.politicaprezzo.VariazioneCostante;
+
+/**
+ * Misura la <strong>diffusione degli aggiornamenti</strong> a molti ascoltatori, alcuni dei quali lenti.
+ */
+public class DiffusioneBenchmark {
+
+  /** . */
+  private DiffusioneBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di ascoltatori (di default 5000),
+   * il numero di aziende (di default 50) e il numero di scambi (di default
+   * 1000000). Un ascoltatore su dieci è lento: impiega un millisecondo per ogni
+   * aggiornamento.
+   *
+   * Esegue gli scambi una prima volta senza ascoltatori e una seconda con gli
+   * ascoltatori iscritti, ed emette il throughput degli scambi nei due casi.
+   * Al termine attende che tutte le consegne siano completate ed emette il
+   * numero di aggiornamenti consegnati e scartati, distinguendo gli ascoltatori
+   * veloci da quelli lenti, e il numero di ascoltatori il cui ultimo valore
+   * ricevuto per qualche azione non è quello finale, che deve essere 0.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int numeroAscoltatori = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int numeroAziende = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int scambi = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+    for (boolean conAscoltatori : new boolean[] {false, true}) {
+      String prefisso = "Diffusione" + conAscoltatori;
+      Borsa borsa = Borsa.of(prefisso);
+      borsa.politicaPrezzo(new VariazioneCostante(1));
+      Azienda[] aziende = new Azienda[numeroAziende];
+      Azione[] azioni = new Azione[numeroAziende];
+      for (int a = 0; a < numeroAziende; a++) {
+        aziende[a] = Azienda.of(prefisso + a);
+        aziende[a].quotazioneInBorsa(borsa, Integer.MAX_VALUE, 100);
+        azioni[a] = borsa.cercaAzioneBorsa(aziende[a]);
+      }
+      Operatore operatore = Operatore.of(prefisso);
+      operatore.deposita(1000000000);
+      List<Iscrizione> iscrizioni = new ArrayList<>();
+      List<ConcurrentHashMap<Azione, Integer>> ricevuti = new ArrayList<>();
+      if (conAscoltatori) {
+        for (int i = 0; i < numeroAscoltatori; i++) {
+          ConcurrentHashMap<Azione, Integer> ultimi = new ConcurrentHashMap<>();
+          boolean lento = i % 10 == 0;
+          iscrizioni.add(borsa.iscrivi(aggiornamento -> {
+            ultimi.put(aggiornamento.azione(), aggiornamento.valore());
+            if (lento) LockSupport.parkNanos(1000000);
+          }));
+          ricevuti.add(ultimi);
+        }
+      }
+      long inizio = System.nanoTime();
+      for (int i = 0; i < scambi; i++) {
+        int a = i % numeroAziende;
+        if (i / numeroAziende % 2 == 0) borsa.acquisto(operatore, aziende[a], azioni[a].valore());
+        else borsa.vendita(operatore, azioni[a], 1);
+      }
+      long durata = System.nanoTime() - inizio;
+      System.out.printf("%s: %.0f scambi/s%n", conAscoltatori ? "con ascoltatori" : "senza ascoltatori", scambi / (durata / 1e9));
+      if (!conAscoltatori) continue;
+      long limite = System.nanoTime() + 60_000_000_000L;
+      int inRitardo;
+      do {
+        Thread.sleep(100);
+        inRitardo = 0;
+        for (ConcurrentHashMap<Azione, Integer> ultimi : ricevuti)
+          for (Azione azione : azioni) if (!Integer.valueOf(azione.valore()).equals(ultimi.get(azione))) {
+            inRitardo++;
+            break;
+          }
+      } while (inRitardo > 0 && System.nanoTime() < limite);
+      long[] consegnati = new long[2];
+      long[] scartati = new long[2];
+      for (int i = 0; i < iscrizioni.size(); i++) {
+        consegnati[i % 10 == 0 ? 1 : 0] += iscrizioni.get(i).consegnati();
+        scartati[i % 10 == 0 ? 1 : 0] += iscrizioni.get(i).scartati();
+        iscrizioni.get(i).close();
+      }
+      System.out.printf("veloci: %d consegnati, %d scartati; lenti: %d consegnati, %d scartati; non aggiornati: %d%n", consegnati[0], scartati[0], consegnati[1], scartati[1], inRitardo);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per il <strong>gateway degli ordini</strong>.
+ */
+public class GatewayClient {
+
+  /** . */
+  private GatewayClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini, ciascuno preceduto dal nome della sessione
+   * che lo invia,
+   *
+   *     nome_sessione ordine
+   *
+   * dove l'ordine è nel formato del gateway.
+   *
+   * Avvia un gateway su una porta libera e apre una connessione per ogni
+   * sessione, tutte contemporaneamente; ogni sessione invia tutti i propri
+   * ordini senza attendere le risposte, poi le legge. Al termine emette, per
+   * ogni sessione in ordine di nome, ogni ordine seguito dalla risposta del
+   * gateway.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+    StringBuilder mercato = new StringBuilder();
+    SortedMap<String, List<String>> sessioni = new TreeMap<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (gruppo < 2) mercato.append(linea).append('\n');
+        else if (!linea.isBlank()) {
+          String[] tokens = linea.split(" ", 2);
+          sessioni.computeIfAbsent(tokens[0], s -> new ArrayList<>()).add(tokens[1]);
+        }
+        if (linea.equals("--")) gruppo++;
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    SortedMap<String, Future<List<String>>> risposte = new TreeMap<>();
+    try (GatewayOrdini gateway = new GatewayOrdini(0); ExecutorService esecutore = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var sessione : sessioni.entrySet())
+        risposte.put(sessione.getKey(), esecutore.submit(() -> invia(gateway.porta(), sessione.getValue())));
+      for (var sessione : sessioni.entrySet()) {
+        List<String> ricevute = risposte.get(sessione.getKey()).get();
+        for (int i = 0; i < ricevute.size(); i++)
+          System.out.println(sessione.getKey() + " " + sessione.getValue().get(i) + ": " + ricevute.get(i));
+      }
+    }
+  }
+
+  /**
+   * Invia degli ordini al gateway su un'unica connessione e ne legge le risposte.
+   * @param porta la porta del gateway.
+   * @param ordini gli ordini da inviare.
+   * @return le risposte, nell'ordine degli ordini.
+   * @throws IOException se la connessione non riesce.
+   */
+  private static List<String> invia(int porta, List<String> ordini) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), porta);
+         PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      for (String ordine : ordini) out.println(ordine);
+      out.flush();
+      List<String> risposte = new ArrayList<>();
+      for (int i = 0; i < ordini.size(); i++) risposte.add(in.readLine());
+      return risposte;
+    }
+  }
+}
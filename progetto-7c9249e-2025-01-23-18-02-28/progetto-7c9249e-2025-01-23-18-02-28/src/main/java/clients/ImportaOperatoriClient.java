@@ -0,0 +1,79 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import borsanova.Operatore;
+import borsanova.importazione.Importatore;
+
+/**
+ * Client di test per l'<strong>importazione degli operatori</strong> da file.
+ */
+public class ImportaOperatoriClient {
+
+  /** . */
+  private ImportaOperatoriClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso una sequenza di linee della forma
+   *
+   *    nome_operatore budget
+   *
+   * le scrive in un file temporaneo e crea gli operatori importando il file.
+   *
+   * Emette nel flusso d'uscita, per ogni linea scartata in ordine di linea, il
+   * numero della linea (a partire da 1) e il motivo, nella forma
+   *
+   *    Riga n: motivo
+   *
+   * poi, in ordine alfabetico, il nome e il budget di ogni operatore creato.
+   */
+  public static void main(String[] args) throws IOException {
+    Path file = Files.createTempFile("operatori", ".txt");
+    try {
+      Files.write(file, System.in.readAllBytes());
+      for (Map.Entry<Integer, String> scartata : Importatore.operatori(file).entrySet())
+        System.out.println("Riga " + scartata.getKey() + ": " + scartata.getValue());
+      List<String> linee = Files.readAllLines(file);
+      SortedSet<Operatore> operatori = new TreeSet<>();
+      for (String linea : linee) {
+        String[] tokens = linea.trim().split("\\s+");
+        try {
+          operatori.add(Operatore.cerca(tokens[0]));
+        } catch (NoSuchElementException e) {
+          // la linea è stata scartata
+        }
+      }
+      for (Operatore operatore : operatori) System.out.println(operatore.nome() + " " + operatore.budget());
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.RichiestaQuotazione;
+
+/**
+ * Client di test per la <strong>quotazione in blocco</strong>.
+ */
+public class ImportaQuotazioniClient {
+
+  /** . */
+  private ImportaQuotazioniClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso una sequenza di linee della forma
+   *
+   *    nome_azienda nome_borsa quantità prezzo
+   *
+   * creando le borse e le aziende alla prima occorrenza del loro nome, e
+   * quota tutte le aziende con un'unica quotazione in blocco.
+   *
+   * Emette nel flusso d'uscita, per ogni linea scartata in ordine di linea, il
+   * numero della linea (a partire da 1) e il motivo, nella forma
+   *
+   *    Riga n: motivo
+   *
+   * poi, per ogni borsa in ordine alfabetico, il suo nome seguito dalle azioni
+   * quotate (in ordine alfabetico, prefissate da -) con quantità e prezzo.
+   */
+  public static void main(String[] args) {
+    SortedMap<Integer, String> scartate = new TreeMap<>();
+    SortedSet<Borsa> borse = new TreeSet<>();
+    List<RichiestaQuotazione> richieste = new ArrayList<>();
+    List<Integer> righe = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      for (int riga = 1; in.hasNextLine(); riga++) {
+        String[] tokens = in.nextLine().trim().split(" +");
+        try {
+          if (tokens.length != 4) throw new IllegalArgumentException("La linea deve contenere quattro campi.");
+          int quantita = Integer.parseInt(tokens[2]);
+          int prezzo = Integer.parseInt(tokens[3]);
+          Borsa borsa;
+          Azienda azienda;
+          try {
+            borsa = Borsa.cerca(tokens[1]);
+          } catch (NoSuchElementException e) {
+            borsa = Borsa.of(tokens[1]);
+          }
+          try {
+            azienda = Azienda.cerca(tokens[0]);
+          } catch (NoSuchElementException e) {
+            azienda = Azienda.of(tokens[0]);
+          }
+          borse.add(borsa);
+          richieste.add(new RichiestaQuotazione(azienda, borsa, quantita, prezzo));
+          righe.add(riga);
+        } catch (NumberFormatException e) {
+          scartate.put(riga, "Gli ultimi due campi devono essere numeri interi.");
+        } catch (IllegalArgumentException e) {
+          scartate.put(riga, e.getMessage());
+        }
+      }
+    }
+    for (Map.Entry<Integer, String> scartata : Borsa.quotaInBlocco(richieste).entrySet())
+      scartate.put(righe.get(scartata.getKey()), scartata.getValue());
+    for (Map.Entry<Integer, String> scartata : scartate.entrySet())
+      System.out.println("Riga " + scartata.getKey() + ": " + scartata.getValue());
+    for (Borsa borsa : borse) {
+      System.out.println(borsa.nome());
+      for (Iterator<Borsa.Azione> azioni = borsa.azioniQuotate(); azioni.hasNext(); ) {
+        Borsa.Azione azione = azioni.next();
+        System.out.println("- " + azione.azienda().nome() + " " + azione.quantita() + " " + azione.valore());
+      }
+    }
+  }
+}
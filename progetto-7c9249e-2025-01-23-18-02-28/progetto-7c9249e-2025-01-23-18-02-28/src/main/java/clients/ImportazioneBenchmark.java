@@ -0,0 +1,79 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+import borsanova.Operatore;
+import borsanova.importazione.Importatore;
+
+/**
+ * Confronta l'<strong>importazione mappata e parallela</strong> degli operatori con la lettura linea per linea.
+ */
+public class ImportazioneBenchmark {
+
+  /** . */
+  private ImportazioneBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori (di default 1000000).
+   * Scrive un file temporaneo con una linea "nome budget" per operatore e lo
+   * carica in due modi, con nomi distinti: linea per linea con Scanner,
+   * Operatore.of e deposita, e con Importatore.operatori. Un secondo argomento
+   * facoltativo ("scanner" o "mappato") esegue un solo modo, così ciascuno può
+   * essere misurato in una JVM a sé. Emette il tempo di ciascun modo.
+   */
+  public static void main(String[] args) throws IOException {
+    int numeroOperatori = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    String[] modi = args.length > 1 ? new String[] {args[1]} : new String[] {"scanner", "mappato"};
+    for (String modo : modi) {
+      Path file = Files.createTempFile("operatori", ".txt");
+      try {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+          for (int i = 0; i < numeroOperatori; i++) {
+            out.write(modo + "Operatore" + i + " " + (1 + i % 100000));
+            out.newLine();
+          }
+        }
+        long inizio = System.nanoTime();
+        int scartati = 0;
+        if (modo.equals("scanner")) {
+          try (Scanner in = new Scanner(file)) {
+            while (in.hasNextLine()) {
+              String[] tokens = in.nextLine().split(" ");
+              Operatore.of(tokens[0]).deposita(Integer.parseInt(tokens[1]));
+            }
+          }
+        } else scartati = Importatore.operatori(file).size();
+        long millis = (System.nanoTime() - inizio) / 1000000;
+        if (scartati > 0) System.out.println("Linee scartate: " + scartati);
+        System.out.printf("%s: %d operatori in %d ms (%d processori)%n", modo, numeroOperatori, millis, Runtime.getRuntime().availableProcessors());
+      } finally {
+        Files.delete(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.politicaprezzo.VariazioneCostante;
+
+/**
+ * Confronta le interrogazioni sull'<strong>indice dei prezzi</strong> con la scansione e l'ordinamento delle azioni quotate.
+ */
+public class IndicePrezziBenchmark {
+
+  /** . */
+  private IndicePrezziBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di aziende (di default 20000), il
+   * numero di scambi (di default 500000) e il numero N di azioni richieste
+   * dalle interrogazioni (di default 10).
+   *
+   * Quota tutte le aziende in una borsa con una politica a variazione
+   * costante, fissa il riferimento ed esegue acquisti casuali che cambiano i
+   * prezzi. Poi misura il tempo medio delle interrogazioni "le N più care", "le
+   * N migliori dal riferimento" e "le azioni con valore in un intervallo", sia
+   * sull'indice sia con una scansione completa seguita da un ordinamento, e
+   * controlla che i risultati coincidano.
+   */
+  public static void main(String[] args) {
+    int numeroAziende = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    int scambi = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+    int n = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    Random random = new Random(42);
+    Borsa borsa = Borsa.of("Indice");
+    borsa.politicaPrezzo(new VariazioneCostante(1));
+    Azienda[] aziende = new Azienda[numeroAziende];
+    for (int a = 0; a < numeroAziende; a++) {
+      aziende[a] = Azienda.of("Indice" + a);
+      aziende[a].quotazioneInBorsa(borsa, Integer.MAX_VALUE, 100 + random.nextInt(1000));
+    }
+    borsa.fissaRiferimento();
+    Operatore operatore = Operatore.of("Indice");
+    operatore.deposita(Integer.MAX_VALUE);
+    for (int i = 0; i < scambi; i++) {
+      Azienda azienda = aziende[(int) Math.min(numeroAziende - 1, Math.abs(random.nextGaussian()) * numeroAziende / 20)];
+      borsa.acquisto(operatore, azienda, borsa.cercaAzioneBorsa(azienda).valore());
+    }
+    Comparator<Azione> perValore = Comparator.comparingInt(Azione::valore).reversed();
+    Comparator<Azione> perVariazione = Comparator.comparingInt(Azione::variazione).reversed();
+    int ripetizioni = 200;
+    boolean coincidono = true;
+
+    long inizio = System.nanoTime();
+    List<Azione> indice = null;
+    for (int r = 0; r < ripetizioni; r++) indice = borsa.piuCare(n);
+    long tempoIndice = (System.nanoTime() - inizio) / ripetizioni;
+    inizio = System.nanoTime();
+    List<Azione> scansione = null;
+    for (int r = 0; r < ripetizioni; r++) scansione = primeOrdinate(borsa, perValore, n);
+    long tempoScansione = (System.nanoTime() - inizio) / ripetizioni;
+    coincidono &= indice.stream().map(Azione::valore).toList().equals(scansione.stream().map(Azione::valore).toList());
+    System.out.printf("piu care: indice %d ns, scansione %d ns%n", tempoIndice, tempoScansione);
+
+    inizio = System.nanoTime();
+    for (int r = 0; r < ripetizioni; r++) indice = borsa.migliori(n);
+    tempoIndice = (System.nanoTime() - inizio) / ripetizioni;
+    inizio = System.nanoTime();
+    for (int r = 0; r < ripetizioni; r++) scansione = primeOrdinate(borsa, perVariazione, n);
+    tempoScansione = (System.nanoTime() - inizio) / ripetizioni;
+    coincidono &= indice.stream().map(Azione::variazione).toList().equals(scansione.stream().map(Azione::variazione).toList());
+    System.out.printf("migliori: indice %d ns, scansione %d ns%n", tempoIndice, tempoScansione);
+
+    inizio = System.nanoTime();
+    for (int r = 0; r < ripetizioni; r++) indice = borsa.conValoreTra(500, 510);
+    tempoIndice = (System.nanoTime() - inizio) / ripetizioni;
+    inizio = System.nanoTime();
+    for (int r = 0; r < ripetizioni; r++) {
+      scansione = new ArrayList<>();
+      for (Iterator<Azione> it = borsa.azioniQuotate(); it.hasNext(); ) {
+        Azione azione = it.next();
+        if (azione.valore() >= 500 && azione.valore() <= 510) scansione.add(azione);
+      }
+      scansione.sort(Comparator.comparingInt(Azione::valore));
+    }
+    tempoScansione = (System.nanoTime() - inizio) / ripetizioni;
+    coincidono &= indice.size() == scansione.size() && indice.stream().map(Azione::valore).toList().equals(scansione.stream().map(Azione::valore).toList());
+    System.out.printf("intervallo: indice %d ns, scansione %d ns (%d azioni)%n", tempoIndice, tempoScansione, indice.size());
+    System.out.println("risultati coincidenti: " + coincidono);
+  }
+
+  /**
+   * Restituisce le prime azioni quotate in una borsa secondo un ordinamento, con una scansione completa.
+   *
+   * @param borsa la borsa.
+   * @param ordine l'ordinamento.
+   * @param n il numero di azioni.
+   * @return le prime {@code n} azioni secondo {@code ordine}.
+   */
+  private static List<Azione> primeOrdinate(Borsa borsa, Comparator<Azione> ordine, int n) {
+    List<Azione> tutte = new ArrayList<>();
+    for (Iterator<Azione> it = borsa.azioniQuotate(); it.hasNext(); ) tutte.add(it.next());
+    tutte.sort(ordine);
+    return tutte.subList(0, Math.min(n, tutte.size()));
+  }
+}
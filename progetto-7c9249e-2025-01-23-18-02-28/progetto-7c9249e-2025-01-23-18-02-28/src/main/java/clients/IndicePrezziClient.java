@@ -0,0 +1,99 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.List;
+import java.util.Scanner;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.politicaprezzo.VariazioneCostante;
+
+/**
+ * Client di test per l'<strong>indice dei prezzi</strong> di una borsa.
+ */
+public class IndicePrezziClient {
+
+  /** . */
+  private IndicePrezziClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il nome di una borsa e la variazione
+   * costante di prezzo applicata ad ogni scambio in quella borsa (di default 0).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e una sequenza di ordini, nel formato del gateway, e di
+   * interrogazioni sulla borsa,
+   *
+   *     ? care n          le n azioni più care
+   *     ? tra minimo massimo
+   *                       le azioni con valore compreso tra minimo e massimo
+   *     ? migliori n      le n azioni con la maggiore variazione dal riferimento
+   *     ? peggiori n      le n azioni con la minore variazione dal riferimento
+   *     ? riferimento     fissa il valore attuale come prezzo di riferimento
+   *
+   * Emette ogni ordine seguito dalla risposta del gateway e ogni
+   * interrogazione seguita dalle azioni trovate, nell'ordine restituito dalla
+   * borsa, ciascuna con il nome dell'azienda e il valore attuale.
+   */
+  public static void main(String[] args) {
+    StringBuilder mercato = new StringBuilder();
+    StringBuilder comandi = new StringBuilder();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (gruppo < 2) mercato.append(linea).append('\n');
+        else if (!linea.isBlank()) comandi.append(linea).append('\n');
+        if (linea.equals("--")) gruppo++;
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Borsa borsa = Borsa.cerca(args[0]);
+    if (args.length > 1) borsa.politicaPrezzo(new VariazioneCostante(Integer.parseInt(args[1])));
+    for (String comando : comandi.toString().split("\n")) {
+      if (!comando.startsWith("?")) {
+        System.out.println(comando + ": " + GatewayOrdini.esegui(comando));
+        continue;
+      }
+      String[] tokens = comando.split(" ");
+      List<Azione> trovate = switch (tokens[1]) {
+        case "care" -> borsa.piuCare(Integer.parseInt(tokens[2]));
+        case "tra" -> borsa.conValoreTra(Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
+        case "migliori" -> borsa.migliori(Integer.parseInt(tokens[2]));
+        case "peggiori" -> borsa.peggiori(Integer.parseInt(tokens[2]));
+        default -> {
+          borsa.fissaRiferimento();
+          yield List.of();
+        }
+      };
+      StringBuilder riga = new StringBuilder(comando + ":");
+      for (Azione azione : trovate) riga.append(' ').append(azione.azienda().nome()).append('=').append(azione.valore());
+      System.out.println(riga);
+    }
+  }
+}
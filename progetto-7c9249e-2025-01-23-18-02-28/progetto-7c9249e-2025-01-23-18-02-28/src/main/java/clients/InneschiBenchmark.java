@@ -0,0 +1,121 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Random;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Esito;
+import borsanova.Operatore;
+import borsanova.OrdineCondizionato;
+import borsanova.politicaprezzo.PoliticaPrezzo;
+
+/**
+ * Misura il costo degli <strong>ordini condizionati</strong> in attesa sugli scambi che cambiano il valore di un'azione.
+ */
+public class InneschiBenchmark {
+
+  /** . */
+  private InneschiBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di ordini condizionati in attesa
+   * (di default 1000000) e il numero di scambi (di default 1000000). Su due
+   * borse distinte, con una politica che alza il valore di 1 ad ogni acquisto e
+   * lo abbassa di 1 ad ogni vendita di un'azione, esegue gli scambi senza ordini
+   * in attesa e con ordini stop loss in attesa su soglie casuali che gli scambi
+   * non raggiungono, ed emette il tempo di ciascun modo. Emette poi il tempo
+   * che servirebbe a scandire tutte le soglie ad ogni cambiamento di valore e,
+   * infine, il tempo per innescare ed eseguire, con una vendita di due azioni
+   * che dimezza il valore, gli ordini con soglia nella metà superiore.
+   */
+  public static void main(String[] args) {
+    int numeroOrdini = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int scambi = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+    PoliticaPrezzo passo = new PoliticaPrezzo() {
+      @Override
+      public int vendita(Azione azione, int numeroAzioni) {
+        // gli ordini innescati vendono tre azioni e non spostano il valore
+        return switch (numeroAzioni) {
+          case 1 -> azione.valore() - 1;
+          case 2 -> azione.valore() / 2;
+          default -> azione.valore();
+        };
+      }
+
+      @Override
+      public int acquisto(Azione azione, int numeroAzioni) {
+        return azione.valore() + 1;
+      }
+    };
+    Random caso = new Random(42);
+    int[] soglie = new int[numeroOrdini];
+    for (int i = 0; i < soglie.length; i++) soglie[i] = 1 + caso.nextInt(999);
+    Borsa borsa = null;
+    Azione azione = null;
+    Operatore operatore = null;
+    OrdineCondizionato[] ordini = new OrdineCondizionato[numeroOrdini];
+    for (String modo : new String[] {"senza ordini in attesa", "con ordini in attesa"}) {
+      borsa = Borsa.of("InneschiBenchmark " + modo);
+      borsa.politicaPrezzo(passo);
+      Azienda azienda = Azienda.of("InneschiBenchmark " + modo);
+      azienda.quotazioneInBorsa(borsa, Integer.MAX_VALUE, 1000);
+      azione = borsa.cercaAzioneBorsa(azienda);
+      operatore = Operatore.of("InneschiBenchmark " + modo);
+      operatore.deposita(Integer.MAX_VALUE / 2);
+      borsa.acquisto(operatore, azienda, 1000 * 1000);
+      long inizio = System.nanoTime();
+      if (modo.equals("con ordini in attesa"))
+        for (int i = 0; i < soglie.length; i++) ordini[i] = borsa.ordineCondizionato(operatore, azione, OrdineCondizionato.Tipo.STOP_LOSS, soglie[i], 3);
+      if (numeroOrdini > 0 && modo.equals("con ordini in attesa"))
+        System.out.printf("%d ordini inseriti in %d ms%n", numeroOrdini, (System.nanoTime() - inizio) / 1000000);
+      inizio = System.nanoTime();
+      for (int i = 0; i < scambi; i++) {
+        if (i % 2 == 0) borsa.acquisto(operatore, azienda, azione.valore());
+        else borsa.vendita(operatore, azione, 1);
+      }
+      long durata = System.nanoTime() - inizio;
+      System.out.printf("%s: %d scambi in %d ms, %.0f ns per scambio%n", modo, scambi, durata / 1000000, (double) durata / scambi);
+    }
+    int valore = azione.valore();
+    int campione = Math.max(1, Math.min(scambi, 1000));
+    long inizio = System.nanoTime();
+    long innescabili = 0;
+    for (int i = 0; i < campione; i++)
+      for (int soglia : soglie) if (soglia >= valore - (i & 1)) innescabili++;
+    long durata = System.nanoTime() - inizio;
+    System.out.printf("scansione di tutte le soglie: %.0f ns per cambiamento di valore (%d innescabili)%n", (double) durata / campione, innescabili);
+    inizio = System.nanoTime();
+    borsa.vendita(operatore, azione, 2);
+    durata = System.nanoTime() - inizio;
+    int innescati = 0, eseguiti = 0;
+    for (OrdineCondizionato ordine : ordini) {
+      if (ordine.esito() != null) innescati++;
+      if (ordine.esito() == Esito.ESEGUITO) eseguiti++;
+    }
+    System.out.printf("dimezzamento del valore da %d a %d: %d ordini innescati (%d eseguiti) in %d ms%n",
+        valore, azione.valore(), innescati, eseguiti, durata / 1000000);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Iscrizione;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per le <strong>iscrizioni</strong> agli aggiornamenti di una borsa.
+ */
+public class IscrizioniClient {
+
+  /** . */
+  private IscrizioniClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il nome di una borsa e il nome di
+   * un'azienda quotata in essa.
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini, nel formato del gateway.
+   *
+   * Iscrive alla borsa due ascoltatori: uno stabile, che ricorda l'ultimo numero
+   * di azioni disponibili ricevuto per ogni azienda, e uno fragile, che solleva
+   * un'eccezione quando riceve un aggiornamento dell'azienda indicata. Esegue gli
+   * ordini, emettendo ciascuno seguito dalla risposta del gateway, e attende che
+   * l'ascoltatore stabile abbia ricevuto lo stato finale di ogni azione; poi
+   * emette, per ogni azione in ordine di azienda, il nome dell'azienda e le
+   * azioni disponibili ricevute, e se l'iscrizione fragile è chiusa con il
+   * messaggio del suo errore. Infine annulla l'iscrizione stabile ed emette se
+   * il thread che distribuisce gli aggiornamenti della borsa è ancora attivo.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    StringBuilder mercato = new StringBuilder();
+    StringBuilder ordini = new StringBuilder();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (gruppo < 2) mercato.append(linea).append('\n');
+        else if (!linea.isBlank()) ordini.append(linea).append('\n');
+        if (linea.equals("--")) gruppo++;
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Borsa borsa = Borsa.cerca(args[0]);
+    String fragile = args[1];
+    Map<Azione, Integer> ricevuti = new ConcurrentHashMap<>();
+    Iscrizione stabile = borsa.iscrivi(aggiornamento -> ricevuti.put(aggiornamento.azione(), aggiornamento.disponibili()));
+    Iscrizione guasta = borsa.iscrivi(aggiornamento -> {
+      if (aggiornamento.azione().azienda().nome().equals(fragile)) throw new IllegalStateException("Aggiornamento di " + fragile + " rifiutato.");
+    });
+    for (String ordine : ordini.toString().split("\n"))
+      if (!ordine.isEmpty()) System.out.println(ordine + ": " + GatewayOrdini.esegui(ordine));
+    long limite = System.nanoTime() + 10_000_000_000L;
+    while ((!aggiornati(borsa, ricevuti) || !guasta.chiusa()) && System.nanoTime() < limite) Thread.sleep(10);
+    for (Iterator<Azione> azioni = borsa.azioniQuotate(); azioni.hasNext(); ) {
+      Azione azione = azioni.next();
+      System.out.println(azione.azienda().nome() + " " + ricevuti.get(azione));
+    }
+    System.out.println("fragile chiusa: " + guasta.chiusa() + ", errore: " + (guasta.errore() == null ? null : guasta.errore().getMessage()));
+    stabile.close();
+    while (distributoreAttivo(borsa) && System.nanoTime() < limite) Thread.sleep(10);
+    System.out.println("diffusore attivo: " + distributoreAttivo(borsa));
+  }
+
+  /**
+   * Indica se un ascoltatore ha ricevuto le azioni disponibili attuali di ogni azione della borsa.
+   * @param borsa la borsa.
+   * @param ricevuti le ultime azioni disponibili ricevute per ogni azione.
+   * @return {@code true} se nessuna azione ha un aggiornamento ancora da ricevere.
+   */
+  private static boolean aggiornati(Borsa borsa, Map<Azione, Integer> ricevuti) {
+    for (Iterator<Azione> azioni = borsa.azioniQuotate(); azioni.hasNext(); ) {
+      Azione azione = azioni.next();
+      if (!Integer.valueOf(azione.quantitaDisponibile()).equals(ricevuti.get(azione))) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Indica se il thread che distribuisce gli aggiornamenti della borsa è attivo.
+   * @param borsa la borsa.
+   * @return {@code true} se il thread esiste ancora.
+   */
+  private static boolean distributoreAttivo(Borsa borsa) {
+    return Thread.getAllStackTraces().keySet().stream().anyMatch(t -> t.getName().equals("diffusore-" + borsa.nome()));
+  }
+}
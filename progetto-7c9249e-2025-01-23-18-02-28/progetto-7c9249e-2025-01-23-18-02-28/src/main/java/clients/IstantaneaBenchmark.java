@@ -0,0 +1,117 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Istantanea;
+import borsanova.Istantanea.Quotazione;
+import borsanova.Operatore;
+
+/**
+ * Misura gli scambi mentre un altro thread produce resoconti dalle <strong>istantanee</strong> della borsa.
+ */
+public class IstantaneaBenchmark {
+
+  /** . */
+  private IstantaneaBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di aziende (di default 200), il
+   * numero di operatori (di default 2000) e il numero di scambi (di default
+   * 2000000).
+   *
+   * Esegue gli scambi due volte su due mercati uguali: la prima senza lettori,
+   * la seconda mentre un thread legge di continuo l'ultima istantanea e ne
+   * percorre tutte le quotazioni e tutte le posizioni, controllando che siano
+   * coerenti tra loro. Emette il throughput degli scambi nei due casi, il numero
+   * di resoconti completati e il numero di resoconti incoerenti, che deve
+   * essere 0.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int numeroAziende = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int numeroOperatori = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int scambi = args.length > 2 ? Integer.parseInt(args[2]) : 2000000;
+    for (boolean conLettore : new boolean[] {false, true}) {
+      String prefisso = "Istantanea" + conLettore;
+      Borsa borsa = Borsa.of(prefisso);
+      Azienda[] aziende = new Azienda[numeroAziende];
+      Azione[] azioni = new Azione[numeroAziende];
+      for (int a = 0; a < numeroAziende; a++) {
+        aziende[a] = Azienda.of(prefisso + a);
+        aziende[a].quotazioneInBorsa(borsa, Integer.MAX_VALUE, 10);
+        azioni[a] = borsa.cercaAzioneBorsa(aziende[a]);
+      }
+      Operatore[] operatori = new Operatore[numeroOperatori];
+      for (int o = 0; o < numeroOperatori; o++) {
+        operatori[o] = Operatore.of(prefisso + o);
+        operatori[o].deposita(1000000);
+      }
+      borsa.attivaIstantanee();
+      AtomicBoolean finito = new AtomicBoolean();
+      long[] resoconti = new long[2];
+      Thread lettore = Thread.ofPlatform().start(() -> {
+        while (conLettore && !finito.get()) {
+          if (!coerente(borsa.istantanea())) resoconti[1]++;
+          resoconti[0]++;
+        }
+      });
+      long inizio = System.nanoTime();
+      for (int i = 0; i < scambi; i++) {
+        Operatore operatore = operatori[i % numeroOperatori];
+        int a = (i / numeroOperatori + i) % numeroAziende;
+        if (operatore.possiedeAzione(azioni[a]) && i % 3 == 0) borsa.vendita(operatore, azioni[a], 1);
+        else borsa.acquisto(operatore, aziende[a], 10);
+      }
+      long durata = System.nanoTime() - inizio;
+      finito.set(true);
+      lettore.join();
+      System.out.printf("%s: %.0f scambi/s, resoconti: %d, incoerenti: %d, coerenza finale: %b%n", conLettore ? "con lettore" : "senza lettore", scambi / (durata / 1e9), resoconti[0], resoconti[1], coerente(borsa.istantanea()));
+    }
+  }
+
+  /**
+   * Controlla che in un'istantanea le azioni in circolazione di ogni quotazione siano quelle possedute dagli operatori.
+   *
+   * @param istantanea l'istantanea da controllare.
+   * @return {@code true} se l'istantanea è coerente.
+   */
+  private static boolean coerente(Istantanea istantanea) {
+    long inCircolazione = 0;
+    long posseduteDaiDetentori = 0;
+    for (Iterator<Quotazione> it = istantanea.quotazioni(); it.hasNext(); ) {
+      Quotazione quotazione = it.next();
+      inCircolazione += quotazione.quantita() - quotazione.disponibili();
+      for (Map.Entry<Operatore, Integer> detentore : quotazione.detentori()) posseduteDaiDetentori += detentore.getValue();
+    }
+    long posseduteDagliOperatori = 0;
+    for (var posizione : istantanea.posizioni())
+      for (Map.Entry<Azienda, Integer> azione : posizione.getValue()) posseduteDagliOperatori += azione.getValue();
+    return inCircolazione == posseduteDaiDetentori && inCircolazione == posseduteDagliOperatori;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Istantanea;
+import borsanova.MappaPersistente;
+import borsanova.Operatore;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.politicaprezzo.VariazioneCostante;
+
+/**
+ * Client di test per le <strong>istantanee</strong> di una borsa.
+ */
+public class IstantaneeClient {
+
+  /** . */
+  private IstantaneeClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il nome di una borsa e la variazione
+   * costante di prezzo applicata ad ogni scambio in quella borsa (di default 0).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini, nel formato del gateway. Le istantanee
+   * vengono attivate dopo le quotazioni; una linea contenente solo # conserva
+   * l'istantanea attuale.
+   *
+   * Esegue gli ordini, emettendo ciascuno seguito dalla risposta del gateway;
+   * al termine conserva l'ultima istantanea ed emette, per ogni istantanea
+   * conservata, la versione, poi ogni quotazione (azienda, valore, quantità,
+   * azioni disponibili e proprietari con la quantità posseduta) e infine le
+   * azioni possedute da ogni operatore.
+   */
+  public static void main(String[] args) {
+    StringBuilder mercato = new StringBuilder();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (gruppo < 2) mercato.append(linea).append('\n');
+        else if (!linea.isBlank()) ordini.add(linea);
+        if (linea.equals("--")) gruppo++;
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Borsa borsa = Borsa.cerca(args[0]);
+    if (args.length > 1) borsa.politicaPrezzo(new VariazioneCostante(Integer.parseInt(args[1])));
+    List<Istantanea> conservate = new ArrayList<>();
+    conservate.add(borsa.attivaIstantanee());
+    for (String ordine : ordini) {
+      if (ordine.equals("#")) conservate.add(borsa.istantanea());
+      else System.out.println(ordine + ": " + GatewayOrdini.esegui(ordine));
+    }
+    conservate.add(borsa.istantanea());
+    for (Istantanea istantanea : conservate) {
+      System.out.println("versione " + istantanea.versione());
+      for (Iterator<Istantanea.Quotazione> quotazioni = istantanea.quotazioni(); quotazioni.hasNext(); ) {
+        Istantanea.Quotazione quotazione = quotazioni.next();
+        StringBuilder riga = new StringBuilder("- " + quotazione.azienda().nome() + " " + quotazione.valore() + " " + quotazione.quantita() + " " + quotazione.disponibili());
+        for (Map.Entry<Operatore, Integer> detentore : quotazione.detentori()) riga.append(' ').append(detentore.getKey().nome()).append('=').append(detentore.getValue());
+        System.out.println(riga);
+      }
+      for (Map.Entry<Operatore, MappaPersistente<Azienda, Integer>> posizione : istantanea.posizioni()) {
+        StringBuilder riga = new StringBuilder("+ " + posizione.getKey().nome());
+        for (Map.Entry<Azienda, Integer> azioni : posizione.getValue()) riga.append(' ').append(azioni.getKey().nome()).append('=').append(azioni.getValue());
+        System.out.println(riga);
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import borsanova.Operatore;
+import borsanova.esecuzione.Limitatore;
+
+/**
+ * Misura il costo per ordine del <strong>limitatore degli ordini</strong> con molti operatori.
+ */
+public class LimitatoreBenchmark {
+
+  /** . */
+  private LimitatoreBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori (di default 1000000),
+   * il numero di ordini per thread (di default 10000000) e il numero di thread
+   * (di default 4). Ogni thread invia i propri ordini a operatori scelti in modo
+   * pseudo-casuale, prima con un limite che li ammette tutti e poi con un limite
+   * di un ordine al secondo, che rifiuta quasi tutti gli ordini. Per ciascun
+   * limite emette il tempo medio per ordine e controlla che la somma dei
+   * contatori degli operatori sia pari al numero di ordini inviati.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int numeroOperatori = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int ordini = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+    int numeroThread = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    String[] nomi = new String[numeroOperatori];
+    for (int i = 0; i < nomi.length; i++) nomi[i] = "LimitatoreBenchmark" + i;
+    Operatore.creaInBlocco(nomi, new int[numeroOperatori]);
+    Operatore[] operatori = new Operatore[numeroOperatori];
+    for (int i = 0; i < operatori.length; i++) operatori[i] = Operatore.cerca(nomi[i]);
+    for (String modo : new String[] {"ammessi", "rifiutati"}) {
+      Limitatore limitatore = modo.equals("ammessi") ? new Limitatore(1e9, Integer.MAX_VALUE) : new Limitatore(1, 1);
+      Thread[] thread = new Thread[numeroThread];
+      for (int t = 0; t < numeroThread; t++) {
+        int seme = t;
+        thread[t] = Thread.ofPlatform().unstarted(() -> {
+          int x = seme * 0x9E3779B9 + 1;
+          for (int i = 0; i < ordini; i++) {
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            limitatore.ammetti(operatori[(x & Integer.MAX_VALUE) % operatori.length]);
+          }
+        });
+      }
+      long inizio = System.nanoTime();
+      for (Thread t : thread) t.start();
+      for (Thread t : thread) t.join();
+      long durata = System.nanoTime() - inizio;
+      long ammessi = 0, rifiutati = 0;
+      for (Operatore operatore : operatori) {
+        ammessi += limitatore.ammessi(operatore);
+        rifiutati += limitatore.rifiutati(operatore);
+      }
+      long totale = (long) ordini * numeroThread;
+      System.out.printf("%s: %d ordini in %d ms, %.1f ns per ordine (%d ammessi, %d rifiutati)%n",
+          modo, totale, durata / 1000000, (double) durata / totale, ammessi, rifiutati);
+      if (ammessi + rifiutati != totale) System.out.println("I contatori non coincidono con gli ordini inviati!");
+    }
+  }
+}
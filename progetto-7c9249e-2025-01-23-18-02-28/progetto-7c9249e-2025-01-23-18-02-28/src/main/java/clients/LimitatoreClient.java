@@ -0,0 +1,93 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import borsanova.Operatore;
+import borsanova.esecuzione.Limitatore;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per il <strong>limitatore degli ordini</strong>.
+ */
+public class LimitatoreClient {
+
+  /** . */
+  private LimitatoreClient() {}
+
+  /*-
+   * Riceve sulla linea di comando i millisecondi necessari ad ogni operatore
+   * per guadagnare un ordine e la raffica, cioè il numero di ordini che un
+   * operatore inattivo può inviare di seguito (di default 1000 e 2).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini, ciascuno preceduto dall'istante in
+   * millisecondi in cui viene inviato,
+   *
+   *     istante nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     istante nome_operatore s nome_borsa nome_azienda numero_azioni
+   *     istante nome_operatore d valore
+   *     istante nome_operatore w valore
+   *
+   * Per ogni ordine emette nel flusso d'uscita l'ordine seguito dalla risposta
+   * del gateway; al termine emette, per ogni operatore, il numero di acquisti e
+   * vendite ammessi e rifiutati dal limitatore.
+   */
+  public static void main(String[] args) {
+    long intervallo = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+    int raffica = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    long[] adesso = {0};
+    StringBuilder mercato = new StringBuilder();
+    List<String> operatori = new ArrayList<>();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 1) operatori.add(linea.split(" ")[0]);
+        } else ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Limitatore limitatore = new Limitatore(intervallo * 1_000_000, raffica, () -> adesso[0] * 1_000_000);
+    for (String ordine : ordini) {
+      String[] tokens = ordine.split(" ", 2);
+      adesso[0] = Long.parseLong(tokens[0]);
+      System.out.println(ordine + ": " + GatewayOrdini.esegui(tokens[1], limitatore));
+    }
+    for (String nome : operatori) {
+      Operatore operatore = Operatore.cerca(nome);
+      System.out.println(nome + " " + limitatore.ammessi(operatore) + " " + limitatore.rifiutati(operatore));
+    }
+  }
+}
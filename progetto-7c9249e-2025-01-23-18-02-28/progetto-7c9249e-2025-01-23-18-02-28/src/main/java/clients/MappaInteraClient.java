@@ -0,0 +1,125 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import borsanova.MappaIntera;
+
+/**
+ * Client di test per la <strong>mappa da interi a interi</strong>.
+ */
+public class MappaInteraClient {
+
+  /** . */
+  private MappaInteraClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso una sequenza di comandi su un'unica mappa,
+   * uno per linea,
+   *
+   *     i chiave valore     associa il valore alla chiave
+   *     s chiave delta      somma delta al valore della chiave
+   *     r chiave            rimuove la chiave
+   *     v chiave            legge il valore della chiave
+   *     c chiave            indica se la chiave è presente
+   *     k                   elenca le chiavi
+   *     x seme operazioni chiavi
+   *                         esegue operazioni casuali su chiavi comprese tra 0
+   *                         e chiavi-1, sia sulla mappa sia su una HashMap
+   *
+   * Per ogni comando emette nel flusso d'uscita il comando seguito dal
+   * risultato: il valore restituito dalla mappa, le chiavi in ordine crescente
+   * o, per x, se la mappa e la HashMap sono rimaste uguali. Un comando che
+   * solleva un'eccezione è seguito da ERRORE e dal messaggio.
+   * Al termine emette il numero di chiavi presenti.
+   */
+  public static void main(String[] args) {
+    MappaIntera mappa = new MappaIntera();
+    try (Scanner in = new Scanner(System.in)) {
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.isBlank()) continue;
+        String[] tokens = linea.split(" ");
+        String risultato;
+        try {
+          risultato = switch (tokens[0]) {
+            case "i" -> String.valueOf(mappa.inserisci(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2])));
+            case "s" -> String.valueOf(mappa.somma(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2])));
+            case "r" -> String.valueOf(mappa.rimuovi(Integer.parseInt(tokens[1])));
+            case "v" -> String.valueOf(mappa.valore(Integer.parseInt(tokens[1])));
+            case "c" -> String.valueOf(mappa.contiene(Integer.parseInt(tokens[1])));
+            case "k" -> {
+              int[] chiavi = mappa.chiavi();
+              Arrays.sort(chiavi);
+              yield Arrays.toString(chiavi);
+            }
+            case "x" -> String.valueOf(confronta(mappa, Long.parseLong(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3])));
+            default -> throw new IllegalArgumentException("Comando sconosciuto: " + tokens[0]);
+          };
+        } catch (IllegalArgumentException e) {
+          risultato = "ERRORE " + e.getMessage();
+        }
+        System.out.println(linea + ": " + risultato);
+      }
+    }
+    System.out.println("chiavi: " + mappa.dimensione());
+  }
+
+  /**
+   * Esegue inserimenti, somme e rimozioni casuali sia sulla mappa sia su una HashMap, e le confronta.
+   * @param mappa la mappa, inizialmente vuota.
+   * @param seme il seme del generatore casuale.
+   * @param operazioni il numero di operazioni.
+   * @param chiavi il numero di chiavi distinte.
+   * @return {@code true} se ogni operazione ha restituito lo stesso risultato e al termine le due mappe coincidono.
+   */
+  private static boolean confronta(MappaIntera mappa, long seme, int operazioni, int chiavi) {
+    Map<Integer, Integer> attesa = new HashMap<>();
+    mappa.perOgni((chiave, valore) -> attesa.put(chiave, valore));
+    Random casuale = new Random(seme);
+    boolean uguali = true;
+    for (int i = 0; i < operazioni; i++) {
+      int chiave = casuale.nextInt(chiavi);
+      int valore = casuale.nextInt(1000) + 1;
+      switch (casuale.nextInt(3)) {
+        case 0 -> {
+          Integer precedente = attesa.put(chiave, valore);
+          uguali &= mappa.inserisci(chiave, valore) == (precedente == null ? 0 : precedente);
+        }
+        case 1 -> uguali &= mappa.somma(chiave, valore) == attesa.merge(chiave, valore, Integer::sum);
+        default -> {
+          Integer rimosso = attesa.remove(chiave);
+          uguali &= mappa.rimuovi(chiave) == (rimosso == null ? 0 : rimosso);
+        }
+      }
+    }
+    Map<Integer, Integer> trovata = new HashMap<>();
+    mappa.perOgni((chiave, valore) -> trovata.put(chiave, valore));
+    return uguali && trovata.equals(attesa) && mappa.dimensione() == attesa.size();
+  }
+}
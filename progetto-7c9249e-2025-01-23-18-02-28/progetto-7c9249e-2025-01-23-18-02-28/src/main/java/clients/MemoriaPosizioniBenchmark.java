@@ -0,0 +1,123 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.MappaIntera;
+import borsanova.Operatore;
+
+/**
+ * Misura l'occupazione di memoria per posizione delle mappe delle azioni possedute.
+ */
+public class MemoriaPosizioniBenchmark {
+
+  /** . */
+  private MemoriaPosizioniBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori e il numero di azioni
+   * (di default 20000 e 50). Ogni operatore detiene una posizione in ogni
+   * azione, per ciascuna posizione servono due voci: una dalla parte
+   * dell'azione (proprietari) e una dalla parte dell'operatore (azioni
+   * possedute).
+   *
+   * Il programma costruisce le stesse posizioni prima con le mappe
+   * TreeMap<Operatore,Integer> e TreeMap<Azione,Integer> usate in precedenza e
+   * poi con le MappaIntera indicizzate per identificatore, ed emette per
+   * entrambe i byte occupati per posizione.
+   */
+  public static void main(String[] args) {
+    int numeroOperatori = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    int numeroAzioni = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    Borsa borsa = Borsa.of("MemoriaPosizioni");
+    for (int i = 0; i < numeroAzioni; i++) {
+      Azienda.of("Azienda" + i).quotazioneInBorsa(borsa, Integer.MAX_VALUE, 1);
+    }
+    List<Azione> azioni = new ArrayList<>();
+    for (Iterator<Azione> it = borsa.azioniQuotate(); it.hasNext(); ) azioni.add(it.next());
+    List<Operatore> operatori = new ArrayList<>();
+    for (int i = 0; i < numeroOperatori; i++) operatori.add(Operatore.of("Operatore" + i));
+    long posizioni = (long) numeroOperatori * numeroAzioni;
+
+    long prima = memoriaUsata();
+    List<Map<Operatore, Integer>> proprietariAlbero = new ArrayList<>();
+    List<Map<Azione, Integer>> possedutiAlbero = new ArrayList<>();
+    for (int a = 0; a < numeroAzioni; a++) proprietariAlbero.add(new TreeMap<>());
+    for (int o = 0; o < numeroOperatori; o++) {
+      Map<Azione, Integer> posseduti = new TreeMap<>();
+      for (int a = 0; a < numeroAzioni; a++) {
+        // quantità oltre la cache di Integer.valueOf, come accade per posizioni reali
+        posseduti.put(azioni.get(a), Integer.valueOf(1000 + o + a));
+        proprietariAlbero.get(a).put(operatori.get(o), Integer.valueOf(1000 + o + a));
+      }
+      possedutiAlbero.add(posseduti);
+    }
+    long albero = memoriaUsata() - prima;
+
+    prima = memoriaUsata();
+    List<MappaIntera> proprietariIntere = new ArrayList<>();
+    List<MappaIntera> possedutiIntere = new ArrayList<>();
+    for (int a = 0; a < numeroAzioni; a++) proprietariIntere.add(new MappaIntera());
+    for (int o = 0; o < numeroOperatori; o++) {
+      MappaIntera posseduti = new MappaIntera();
+      for (int a = 0; a < numeroAzioni; a++) {
+        posseduti.inserisci(a, 1000 + o + a);
+        proprietariIntere.get(a).inserisci(o, 1000 + o + a);
+      }
+      possedutiIntere.add(posseduti);
+    }
+    long intere = memoriaUsata() - prima;
+
+    System.out.println("posizioni: " + posizioni);
+    System.out.printf("TreeMap: %.1f byte per posizione%n", (double) albero / posizioni);
+    System.out.printf("MappaIntera: %.1f byte per posizione%n", (double) intere / posizioni);
+    // mantiene raggiungibili le strutture fino al termine delle misure
+    System.err.println(proprietariAlbero.size() + possedutiAlbero.size() + proprietariIntere.size() + possedutiIntere.size());
+  }
+
+  /**
+   * Restituisce la memoria occupata dopo aver richiesto alcune garbage collection.
+   *
+   * @return i byte occupati nello heap.
+   */
+  private static long memoriaUsata() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+
+package clients;
+
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+
+/**
+ * Lettura del <strong>mercato</strong> comune ai client che eseguono ordini.
+ */
+final class Mercato {
+
+  /** . */
+  private Mercato() {}
+
+  /**
+   * Legge dal flusso in ingresso le quotazioni e gli operatori, nel formato dei primi due blocchi letti da {@code OperatoreClient}:
+   *
+   *     nome_azienda nome_borsa numero prezzo_unitario
+   *     ...
+   *     --
+   *     nome_operatore budget_iniziale
+   *     ...
+   *
+   * Le borse e le aziende vengono create alla prima occorrenza del loro nome.
+   * @param in il flusso da cui leggere.
+   */
+  static void carica(Scanner in) {
+    while (in.hasNextLine()) {
+      String riga = in.nextLine();
+      if (riga.equals("--")) break;
+      String[] tokens = riga.split(" ");
+      Borsa borsa;
+      Azienda azienda;
+      try {
+        borsa = Borsa.cerca(tokens[1]);
+      } catch (NoSuchElementException e) {
+        borsa = Borsa.of(tokens[1]);
+      }
+      try {
+        azienda = Azienda.cerca(tokens[0]);
+      } catch (NoSuchElementException e) {
+        azienda = Azienda.of(tokens[0]);
+      }
+      azienda.quotazioneInBorsa(borsa, Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]));
+    }
+    while (in.hasNextLine()) {
+      String riga = in.nextLine();
+      if (riga.equals("--")) break;
+      String[] tokens = riga.split(" ");
+      Operatore.of(tokens[0]).deposita(Integer.parseInt(tokens[1]));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Istantanea;
+import borsanova.Operatore;
+import borsanova.OrdineCondizionato;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per i <strong>dividendi</strong> e i <strong>frazionamenti</strong>.
+ */
+public class OperazioniSocietarieClient {
+
+  /** . */
+  private OperazioniSocietarieClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e le operazioni, che sono ordini nel formato di
+   * GatewayOrdini oppure
+   *
+   *     dividendo nome_borsa nome_azienda somma_per_azione
+   *     frazionamento nome_borsa nome_azienda nuove vecchie
+   *     stop nome_operatore nome_borsa nome_azienda soglia numero_azioni
+   *
+   * dove stop inserisce un ordine stop loss. Le istantanee di tutte le borse
+   * sono attive.
+   *
+   * Per ogni operazione emette nel flusso d'uscita l'operazione seguita
+   * dall'esito. Al termine emette, per ogni borsa e ogni azione quotata in
+   * ordine alfabetico, valore, quantità, azioni disponibili e prezzo di
+   * riferimento, e se l'ultima istantanea della borsa coincide con lo stato
+   * attuale; poi, per ogni operatore nell'ordine del secondo gruppo, il budget e
+   * le azioni possedute; infine, per ogni ordine stop loss, la soglia, la
+   * quantità e l'esito, se è stato innescato.
+   */
+  public static void main(String[] args) {
+    StringBuilder mercato = new StringBuilder();
+    Set<String> borse = new LinkedHashSet<>();
+    List<String> operatori = new ArrayList<>();
+    List<String> operazioni = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 0) borse.add(linea.split(" ")[1]);
+          else operatori.add(linea.split(" ")[0]);
+        } else operazioni.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    for (String nome : borse) Borsa.cerca(nome).attivaIstantanee();
+    List<OrdineCondizionato> stop = new ArrayList<>();
+    for (String operazione : operazioni) {
+      String[] tokens = operazione.split(" ");
+      String esito;
+      try {
+        switch (tokens[0]) {
+          case "dividendo" -> {
+            Borsa borsa = Borsa.cerca(tokens[1]);
+            esito = "OK pagati " + borsa.dividendo(borsa.cercaAzioneBorsa(Azienda.cerca(tokens[2])), Integer.parseInt(tokens[3]));
+          }
+          case "frazionamento" -> {
+            Borsa borsa = Borsa.cerca(tokens[1]);
+            borsa.frazionamento(borsa.cercaAzioneBorsa(Azienda.cerca(tokens[2])), Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4]));
+            esito = "OK";
+          }
+          case "stop" -> {
+            Borsa borsa = Borsa.cerca(tokens[2]);
+            stop.add(borsa.ordineCondizionato(Operatore.cerca(tokens[1]), borsa.cercaAzioneBorsa(Azienda.cerca(tokens[3])),
+                OrdineCondizionato.Tipo.STOP_LOSS, Integer.parseInt(tokens[4]), Integer.parseInt(tokens[5])));
+            esito = "OK";
+          }
+          default -> esito = GatewayOrdini.esegui(operazione);
+        }
+      } catch (IllegalArgumentException | NoSuchElementException e) {
+        esito = "ERRORE " + e.getMessage();
+      }
+      System.out.println(operazione + ": " + esito);
+    }
+    for (String nome : borse) {
+      Borsa borsa = Borsa.cerca(nome);
+      Istantanea istantanea = borsa.istantanea();
+      boolean coerente = true;
+      for (Iterator<Azione> azioni = borsa.azioniQuotate(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        System.out.println(nome + " " + azione.azienda().nome() + ": valore " + azione.valore() + ", quantita " + azione.quantita()
+            + ", disponibili " + azione.quantitaDisponibile() + ", riferimento " + azione.riferimento());
+        Istantanea.Quotazione quotazione = istantanea.quotazione(azione.azienda());
+        coerente &= quotazione.valore() == azione.valore() && quotazione.quantita() == azione.quantita()
+            && quotazione.disponibili() == azione.quantitaDisponibile() && quotazione.detentori().dimensione() == azione.numeroDetentori();
+        for (Map.Entry<Operatore, Integer> detentore : quotazione.detentori())
+          coerente &= detentore.getValue() == detentore.getKey().numeroAzioni(azione);
+      }
+      System.out.println(nome + ": istantanea " + (coerente ? "coerente" : "NON coerente"));
+    }
+    for (String nome : operatori) {
+      Operatore operatore = Operatore.cerca(nome);
+      System.out.println(nome + ": budget " + operatore.budget());
+      for (Iterator<Azione> azioni = operatore.elencoAzioni(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        System.out.println("- " + azione.nomeBorsa() + " " + azione.azienda().nome() + " " + operatore.numeroAzioni(azione)
+            + " (totale azienda " + azione.azienda().azioniDetenute(operatore) + ")");
+      }
+    }
+    for (OrdineCondizionato ordine : stop) {
+      System.out.println("stop " + ordine.operatore().nome() + " " + ordine.azione().azienda().nome() + ": soglia " + ordine.soglia()
+          + ", quantita " + ordine.valore() + ", esito " + (ordine.esito() == null ? "in attesa" : ordine.esito()));
+    }
+  }
+}
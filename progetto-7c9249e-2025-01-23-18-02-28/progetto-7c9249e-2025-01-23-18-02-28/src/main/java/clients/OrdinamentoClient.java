@@ -0,0 +1,99 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Operatore;
+
+/**
+ * Client di test per l'<strong>ordinamento per nome</strong> di operatori e aziende.
+ */
+public class OrdinamentoClient {
+
+  /** . */
+  private OrdinamentoClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso una sequenza di comandi, uno per linea,
+   *
+   *     o nome_operatore ...      crea gli operatori, nell'ordine indicato
+   *     a nome_azienda ...        crea le aziende, nell'ordine indicato
+   *     x nome_operatore          cancella un operatore, che resta nell'elenco
+   *     elenco                    ordina gli operatori e le aziende esistenti
+   *     confronti seme numero     confronta coppie casuali di operatori e di aziende
+   *
+   * Per elenco emette gli operatori e poi le aziende, ciascuno in una linea e
+   * nell'ordine naturale; per confronti emette se il segno di ogni confronto
+   * coincide con quello del confronto tra i nomi o, a parità di nome tra un
+   * operatore cancellato e uno nuovo, tra gli identificatori.
+   */
+  public static void main(String[] args) {
+    List<Operatore> operatori = new ArrayList<>();
+    List<Azienda> aziende = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      while (in.hasNextLine()) {
+        String[] tokens = in.nextLine().trim().split(" ");
+        switch (tokens[0]) {
+          case "o" -> {
+            for (int i = 1; i < tokens.length; i++) operatori.add(Operatore.of(tokens[i]));
+          }
+          case "a" -> {
+            for (int i = 1; i < tokens.length; i++) aziende.add(Azienda.of(tokens[i]));
+          }
+          case "x" -> {
+            Operatore operatore = Operatore.cerca(tokens[1]);
+            operatore.cancella();
+          }
+          case "elenco" -> {
+            Collections.sort(operatori);
+            Collections.sort(aziende);
+            System.out.println("operatori: " + String.join(" ", operatori.stream().map(Operatore::nome).toList()));
+            System.out.println("aziende: " + String.join(" ", aziende.stream().map(Azienda::nome).toList()));
+          }
+          case "confronti" -> {
+            Random casuale = new Random(Long.parseLong(tokens[1]));
+            boolean coerente = true;
+            for (int i = Integer.parseInt(tokens[2]); i > 0; i--) {
+              Operatore o1 = operatori.get(casuale.nextInt(operatori.size()));
+              Operatore o2 = operatori.get(casuale.nextInt(operatori.size()));
+              int atteso = o1.nome().compareTo(o2.nome());
+              if (atteso == 0) atteso = Integer.compare(o1.id(), o2.id());
+              coerente &= Integer.signum(o1.compareTo(o2)) == Integer.signum(atteso);
+              Azienda a1 = aziende.get(casuale.nextInt(aziende.size()));
+              Azienda a2 = aziende.get(casuale.nextInt(aziende.size()));
+              coerente &= Integer.signum(a1.compareTo(a2)) == Integer.signum(a1.nome().compareTo(a2.nome()));
+            }
+            System.out.println("confronti coerenti: " + coerente);
+          }
+          default -> { }
+        }
+      }
+    }
+  }
+}
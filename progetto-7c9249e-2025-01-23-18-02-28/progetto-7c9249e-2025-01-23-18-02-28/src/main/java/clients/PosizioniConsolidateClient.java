@@ -0,0 +1,121 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.PosizioneAzienda;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per la <strong>posizione consolidata</strong> degli operatori su tutte le borse.
+ */
+public class PosizioniConsolidateClient {
+
+  /** . */
+  private PosizioniConsolidateClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e le operazioni, che sono ordini nel formato di
+   * GatewayOrdini oppure
+   *
+   *     frazionamento nome_borsa nome_azienda nuove vecchie
+   *
+   * Per ogni operazione emette nel flusso d'uscita l'operazione seguita
+   * dall'esito. Al termine emette, per ogni operatore in ordine alfabetico, il
+   * budget e, per ogni azienda di cui possiede azioni in ordine alfabetico, il
+   * totale posseduto e il suo valore (prefissati da -) seguiti dalla quantità
+   * posseduta in ogni borsa (prefissata da =); infine indica se la vista
+   * consolidata coincide con le azioni possedute, sommate per azienda.
+   */
+  public static void main(String[] args) {
+    StringBuilder mercato = new StringBuilder();
+    List<String> operatori = new ArrayList<>();
+    List<String> operazioni = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 1) operatori.add(linea.split(" ")[0]);
+        } else operazioni.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    for (String operazione : operazioni) {
+      String[] tokens = operazione.split(" ");
+      String esito;
+      try {
+        if (tokens[0].equals("frazionamento")) {
+          Borsa borsa = Borsa.cerca(tokens[1]);
+          borsa.frazionamento(borsa.cercaAzioneBorsa(Azienda.cerca(tokens[2])), Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4]));
+          esito = "OK";
+        } else esito = GatewayOrdini.esegui(operazione);
+      } catch (IllegalArgumentException | NoSuchElementException e) {
+        esito = "ERRORE " + e.getMessage();
+      }
+      System.out.println(operazione + ": " + esito);
+    }
+    Collections.sort(operatori);
+    for (String nome : operatori) {
+      Operatore operatore = Operatore.cerca(nome);
+      System.out.println(nome + ", " + operatore.budget());
+      Map<Azienda, Integer> attese = new HashMap<>();
+      for (Iterator<Azione> azioni = operatore.elencoAzioni(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        attese.merge(azione.azienda(), operatore.numeroAzioni(azione), Integer::sum);
+      }
+      boolean coerente = true;
+      int aziende = 0;
+      for (Iterator<Azienda> elenco = operatore.elencoAziende(); elenco.hasNext(); aziende++) {
+        Azienda azienda = elenco.next();
+        PosizioneAzienda posizione = operatore.posizione(azienda);
+        System.out.println("- " + azienda.nome() + ", " + posizione.totale() + ", " + posizione.valore());
+        for (Map.Entry<Borsa, Integer> perBorsa : posizione.perBorsa().entrySet())
+          System.out.println("= " + perBorsa.getKey().nome() + ", " + perBorsa.getValue());
+        coerente &= posizione.totale() == operatore.azioniAzienda(azienda) && posizione.totale() == azienda.azioniDetenute(operatore)
+            && attese.getOrDefault(azienda, 0) == posizione.totale();
+      }
+      coerente &= aziende == attese.size();
+      System.out.println(nome + ": vista " + (coerente ? "coerente" : "NON coerente"));
+    }
+  }
+}
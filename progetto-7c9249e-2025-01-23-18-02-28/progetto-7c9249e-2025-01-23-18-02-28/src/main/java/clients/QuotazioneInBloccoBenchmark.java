@@ -0,0 +1,72 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.RichiestaQuotazione;
+
+/**
+ * Confronta la <strong>quotazione in blocco</strong> con una quotazione alla volta.
+ */
+public class QuotazioneInBloccoBenchmark {
+
+  /** . */
+  private QuotazioneInBloccoBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di aziende (di default 20000) e il
+   * numero di borse (di default 4). Quota ogni azienda in ogni borsa due volte,
+   * su due mercati distinti: la prima con quotazioneInBorsa, una quotazione
+   * alla volta, la seconda con un'unica quotazione in blocco, con le richieste
+   * in ordine casuale. Emette il tempo di ciascun modo. Un terzo argomento
+   * facoltativo ("singola" o "blocco") esegue un solo modo, così ciascuno può
+   * essere misurato in una JVM a sé.
+   */
+  public static void main(String[] args) {
+    int numeroAziende = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    int numeroBorse = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    String[] modi = args.length > 2 ? new String[] {args[2]} : new String[] {"singola", "blocco"};
+    for (String modo : modi) {
+      Borsa[] borse = new Borsa[numeroBorse];
+      for (int b = 0; b < numeroBorse; b++) borse[b] = Borsa.of(modo + "Borsa" + b);
+      Azienda[] aziende = new Azienda[numeroAziende];
+      for (int a = 0; a < numeroAziende; a++) aziende[a] = Azienda.of(modo + "Azienda" + (a * 7919L % numeroAziende));
+      long inizio = System.nanoTime();
+      if (modo.equals("singola")) {
+        for (Azienda azienda : aziende)
+          for (Borsa borsa : borse) azienda.quotazioneInBorsa(borsa, 1000, 10);
+      } else {
+        List<RichiestaQuotazione> richieste = new ArrayList<>(numeroAziende * numeroBorse);
+        for (Azienda azienda : aziende)
+          for (Borsa borsa : borse) richieste.add(new RichiestaQuotazione(azienda, borsa, 1000, 10));
+        int scartate = Borsa.quotaInBlocco(richieste).size();
+        if (scartate > 0) System.out.println("Richieste scartate: " + scartate);
+      }
+      System.out.printf("%s: %d quotazioni in %d ms%n", modo, numeroAziende * numeroBorse, (System.nanoTime() - inizio) / 1000000);
+    }
+  }
+}
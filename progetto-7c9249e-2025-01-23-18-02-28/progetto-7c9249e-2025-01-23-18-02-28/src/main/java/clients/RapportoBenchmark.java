@@ -0,0 +1,93 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.rapporto.Rapporto;
+
+/**
+ * Confronta il <strong>rapporto con ordinamento esterno</strong> con la scrittura da insiemi ordinati in memoria.
+ */
+public class RapportoBenchmark {
+
+  /** . */
+  private RapportoBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori (di default 200000),
+   * il numero di aziende (di default 100, quotate in 4 borse) e il numero
+   * massimo di linee da tenere in memoria (di default 10000). Ogni operatore
+   * compra azioni di 5 aziende. Scrive poi il rapporto degli operatori due
+   * volte: come OperatoreClient, da un SortedSet, e con Rapporto.operatori.
+   * Emette il tempo di ciascun modo e verifica che i due rapporti coincidano.
+   */
+  public static void main(String[] args) throws IOException {
+    int numeroOperatori = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int numeroAziende = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int capacita = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+    Borsa[] borse = new Borsa[4];
+    for (int b = 0; b < borse.length; b++) borse[b] = Borsa.of("Borsa" + b);
+    Azienda[] aziende = new Azienda[numeroAziende];
+    for (int a = 0; a < numeroAziende; a++) {
+      aziende[a] = Azienda.of("Azienda" + a);
+      for (Borsa borsa : borse) aziende[a].quotazioneInBorsa(borsa, Integer.MAX_VALUE / 2, 10);
+    }
+    List<Operatore> operatori = new ArrayList<>(numeroOperatori);
+    for (int o = 0; o < numeroOperatori; o++) {
+      // i nomi sono creati in ordine diverso da quello alfabetico
+      Operatore operatore = Operatore.of("Operatore" + (o * 7919L % numeroOperatori));
+      operatore.deposita(1000);
+      for (int k = 0; k < 5; k++) borse[(o + k) % borse.length].acquisto(operatore, aziende[(o * 31 + k * 17) % numeroAziende], 100);
+      operatori.add(operatore);
+    }
+
+    long inizio = System.nanoTime();
+    StringWriter inMemoria = new StringWriter();
+    SortedSet<Operatore> ordinati = new TreeSet<>(operatori);
+    for (Operatore o : ordinati) {
+      inMemoria.write(o.nome() + ", " + o.budget() + ", " + o.valoreAzioni() + System.lineSeparator());
+      for (Iterator<Azione> azioni = o.elencoAzioni(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        inMemoria.write("- " + azione.nomeBorsa() + ", " + azione.azienda().nome() + ", " + o.numeroAzioni(azione) + System.lineSeparator());
+      }
+    }
+    System.out.printf("in memoria: %d ms%n", (System.nanoTime() - inizio) / 1000000);
+
+    inizio = System.nanoTime();
+    Writer esterno = new StringWriter();
+    Rapporto.operatori(operatori.iterator(), esterno, capacita);
+    System.out.printf("ordinamento esterno (%d linee in memoria): %d ms%n", capacita, (System.nanoTime() - inizio) / 1000000);
+    System.out.println(inMemoria.toString().equals(esterno.toString()) ? "I rapporti coincidono." : "I rapporti sono diversi!");
+  }
+}
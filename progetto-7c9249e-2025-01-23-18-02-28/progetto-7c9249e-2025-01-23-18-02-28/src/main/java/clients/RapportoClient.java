@@ -0,0 +1,85 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.rapporto.Rapporto;
+
+/**
+ * Client di test per il <strong>rapporto</strong> scritto con ordinamento esterno.
+ */
+public class RapportoClient {
+
+  /** . */
+  private RapportoClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il tipo di rapporto ("borse" oppure
+   * "operatori") e, facoltativamente, il numero massimo di linee da tenere in
+   * memoria (di default 1000).
+   *
+   * Legge dal flusso in ingresso i tre gruppi di linee letti da OperatoreClient
+   * (quotazioni, operatori con budget iniziale e ordini, separati dalla linea
+   * contenente solo --), esegue gli ordini ignorando quelli rifiutati e emette
+   * nel flusso d'uscita il rapporto richiesto: nello stesso formato di
+   * BorsaClient per le borse, di OperatoreClient per gli operatori.
+   */
+  public static void main(String[] args) throws IOException {
+    boolean perBorsa = args.length == 0 || args[0].equals("borse");
+    int capacita = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    Set<String> borse = new LinkedHashSet<>();
+    Set<String> operatori = new LinkedHashSet<>();
+    StringBuilder mercato = new StringBuilder();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (linea.equals("--")) gruppo++;
+          else if (gruppo == 0) borse.add(linea.split(" ")[1]);
+          else operatori.add(linea.split(" ")[0]);
+        } else ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(new StringReader(mercato.toString()))) {
+      Mercato.carica(in);
+    }
+    for (String ordine : ordini) GatewayOrdini.esegui(ordine);
+    Writer out = new OutputStreamWriter(System.out);
+    if (perBorsa) Rapporto.borse(borse.stream().map(Borsa::cerca).iterator(), out, capacita);
+    else Rapporto.operatori(operatori.stream().map(Operatore::cerca).iterator(), out, capacita);
+  }
+}
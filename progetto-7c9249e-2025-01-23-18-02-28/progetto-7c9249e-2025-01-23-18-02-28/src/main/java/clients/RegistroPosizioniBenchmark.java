@@ -0,0 +1,156 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+
+/**
+ * Confronta occupazione di memoria e tempo di garbage collection dei due registri delle posizioni.
+ */
+public class RegistroPosizioniBenchmark {
+
+  /** . */
+  private RegistroPosizioniBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di operatori (di default
+   * 1000000), il numero di azioni possedute da ogni operatore (di default 5)
+   * e il numero di azioni quotate (di default 100).
+   *
+   * Il registro delle posizioni si sceglie all'avvio della JVM, quindi il
+   * programma esegue la misura in due JVM figlie, una con il registro nello
+   * heap e una con quello fuori heap (proprietà borsanova.posizioni), e ne
+   * emette i risultati: memoria occupata nello heap e in memoria diretta
+   * dopo il caricamento, tempo di garbage collection durante il caricamento
+   * e durata di una garbage collection completa a caricamento terminato.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length > 0 && args[0].equals("misura")) {
+      misura(intero(args, 1, 1000000), intero(args, 2, 5), intero(args, 3, 100));
+      return;
+    }
+    String java = ProcessHandle.current().info().command().orElse("java");
+    for (String registro : List.of("inheap", "fuoriheap")) {
+      List<String> comando = new ArrayList<>(List.of(java, "-Dborsanova.posizioni=" + registro, "-cp", System.getProperty("java.class.path"), RegistroPosizioniBenchmark.class.getName(), "misura"));
+      for (String arg : args) comando.add(arg);
+      System.out.println("registro " + registro);
+      new ProcessBuilder(comando).inheritIO().start().waitFor();
+    }
+  }
+
+  /**
+   * Carica le posizioni nel registro scelto per questa JVM ed emette le misure.
+   *
+   * @param numeroOperatori il numero di operatori.
+   * @param azioniPerOperatore il numero di azioni possedute da ogni operatore.
+   * @param numeroAzioni il numero di azioni quotate.
+   */
+  private static void misura(int numeroOperatori, int azioniPerOperatore, int numeroAzioni) {
+    Borsa borsa = Borsa.of("RegistroPosizioni");
+    List<Azienda> aziende = new ArrayList<>();
+    for (int i = 0; i < numeroAzioni; i++) {
+      Azienda azienda = Azienda.of("Registro" + i);
+      azienda.quotazioneInBorsa(borsa, Integer.MAX_VALUE, 1);
+      aziende.add(azienda);
+    }
+    List<Operatore> operatori = new ArrayList<>();
+    for (int i = 0; i < numeroOperatori; i++) {
+      Operatore operatore = Operatore.of("Registro" + i);
+      operatore.deposita(1000);
+      operatori.add(operatore);
+    }
+    long memoriaEntita = memoriaHeap();
+    long gcPrima = tempoGc();
+    long inizio = System.nanoTime();
+    for (int i = 0; i < numeroOperatori; i++) {
+      for (int k = 0; k < azioniPerOperatore; k++) {
+        borsa.acquisto(operatori.get(i), aziende.get((i + k * 7) % numeroAzioni), 1 + k);
+      }
+    }
+    long caricamento = System.nanoTime() - inizio;
+    long gcCaricamento = tempoGc() - gcPrima;
+    long posizioni = (long) numeroOperatori * azioniPerOperatore;
+    long heap = memoriaHeap() - memoriaEntita;
+    inizio = System.nanoTime();
+    System.gc();
+    long gcCompleta = System.nanoTime() - inizio;
+    System.out.printf("  caricamento: %d ms, di cui garbage collection: %d ms%n", caricamento / 1000000, gcCaricamento);
+    System.out.printf("  heap: %.1f byte per posizione, memoria diretta: %.1f byte per posizione%n", (double) heap / posizioni, (double) memoriaDiretta() / posizioni);
+    System.out.printf("  garbage collection completa: %d ms%n", gcCompleta / 1000000);
+  }
+
+  /**
+   * Restituisce un argomento intero della linea di comando.
+   *
+   * @param args gli argomenti.
+   * @param i la posizione dell'argomento.
+   * @param predefinito il valore da usare se l'argomento manca.
+   * @return il valore dell'argomento.
+   */
+  private static int intero(String[] args, int i, int predefinito) {
+    return args.length > i ? Integer.parseInt(args[i]) : predefinito;
+  }
+
+  /**
+   * Restituisce la memoria occupata nello heap dopo una garbage collection.
+   *
+   * @return i byte occupati nello heap.
+   */
+  private static long memoriaHeap() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Restituisce la memoria diretta occupata dai buffer.
+   *
+   * @return i byte occupati in memoria diretta.
+   */
+  private static long memoriaDiretta() {
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+    }
+    return 0;
+  }
+
+  /**
+   * Restituisce il tempo complessivo speso in garbage collection dall'avvio.
+   *
+   * @return i millisecondi spesi in garbage collection.
+   */
+  private static long tempoGc() {
+    long totale = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) totale += Math.max(0, gc.getCollectionTime());
+    return totale;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.SplittableRandom;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Esito;
+import borsanova.Operatore;
+import borsanova.riproduzione.Fase;
+import borsanova.riproduzione.Giornale;
+import borsanova.riproduzione.Resoconto;
+import borsanova.riproduzione.Riproduttore;
+
+/**
+ * Misura la velocità massima della <strong>riproduzione</strong> di un giornale di ordini.
+ */
+public class RiproduzioneBenchmark {
+
+  /** . */
+  private RiproduzioneBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di ordini (di default 2000000), il
+   * numero di operatori (di default 10000), il numero di aziende quotate in
+   * ciascuna di due borse (di default 50), ogni quanti ordini misurare la
+   * latenza (di default 1) e il seme (di default 42).
+   *
+   * Genera un giornale casuale nel formato di GatewayOrdini, con acquisti,
+   * vendite, depositi e prelievi, lo legge nel formato a linee e, dopo averlo
+   * convertito, nel formato binario, e riproduce il giornale binario. Emette,
+   * per ogni fase, la durata, il throughput e l'allocazione; poi i percentili
+   * della latenza dell'esecuzione e il numero di ordini per esito.
+   */
+  public static void main(String[] args) throws IOException {
+    int ordini = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    int numeroOperatori = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+    int numeroAziende = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    int campionamento = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+    long seme = args.length > 4 ? Long.parseLong(args[4]) : 42;
+    String[] borse = {"RiproduzioneBenchmarkA", "RiproduzioneBenchmarkB"};
+    for (String nome : borse) Borsa.of(nome);
+    for (int a = 0; a < numeroAziende; a++) {
+      Azienda azienda = Azienda.of("RiproduzioneBenchmark" + a);
+      for (String nome : borse) azienda.quotazioneInBorsa(Borsa.cerca(nome), 1000000000, 10 + a);
+    }
+    for (int o = 0; o < numeroOperatori; o++) Operatore.of("RiproduzioneBenchmark" + o).deposita(1000000);
+    SplittableRandom caso = new SplittableRandom(seme);
+    StringBuilder testo = new StringBuilder();
+    for (int i = 0; i < ordini; i++) {
+      String operatore = "RiproduzioneBenchmark" + caso.nextInt(numeroOperatori);
+      int tipo = caso.nextInt(20);
+      if (tipo == 0) testo.append(operatore).append(" d ").append(1 + caso.nextInt(1000));
+      else if (tipo == 1) testo.append(operatore).append(" w ").append(1 + caso.nextInt(1000));
+      else {
+        testo.append(operatore).append(tipo < 11 ? " b " : " s ").append(borse[caso.nextInt(borse.length)])
+            .append(" RiproduzioneBenchmark").append(caso.nextInt(numeroAziende)).append(' ')
+            .append(tipo < 11 ? 1 + caso.nextInt(2000) : 1 + caso.nextInt(20));
+      }
+      testo.append('\n');
+    }
+    Riproduttore riproduttore = new Riproduttore(false, campionamento);
+    Giornale giornale = riproduttore.leggi(new BufferedReader(new StringReader(testo.toString()), 1 << 16));
+    testo = null;
+    ByteArrayOutputStream binario = new ByteArrayOutputStream();
+    giornale.scriviBinario(binario);
+    System.out.printf("giornale: %d ordini, %d byte nel formato binario%n", giornale.dimensione(), binario.size());
+    giornale = riproduttore.leggiBinario(new ByteArrayInputStream(binario.toByteArray()));
+    binario = null;
+    Resoconto resoconto = riproduttore.riproduci(giornale);
+    for (Fase fase : resoconto.fasi()) {
+      System.out.printf("%s: %d ms, %.0f ordini/s, %.1f MB allocati, %.1f MB/s%n", fase.nome(), fase.durata() / 1000000,
+          fase.throughput(), fase.allocati() / 1e6, fase.allocatiAlSecondo() / 1e6);
+    }
+    System.out.printf("latenza su %d campioni: p50 %d ns, p90 %d ns, p99 %d ns, p99.9 %d ns, massima %d us%n", resoconto.campioni(),
+        resoconto.latenza(50), resoconto.latenza(90), resoconto.latenza(99), resoconto.latenza(99.9), resoconto.latenza(100) / 1000);
+    for (Esito esito : Esito.values()) if (resoconto.ordini(esito) > 0) System.out.println(esito + ": " + resoconto.ordini(esito));
+    System.out.println("non validi: " + resoconto.nonValidi());
+  }
+}
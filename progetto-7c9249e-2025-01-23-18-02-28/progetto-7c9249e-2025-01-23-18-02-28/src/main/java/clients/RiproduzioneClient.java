@@ -0,0 +1,93 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Scanner;
+
+import borsanova.Esito;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.riproduzione.Giornale;
+import borsanova.riproduzione.Resoconto;
+import borsanova.riproduzione.Riproduttore;
+
+/**
+ * Client di test per la <strong>riproduzione deterministica</strong> di un giornale di ordini.
+ */
+public class RiproduzioneClient {
+
+  /** . */
+  private RiproduzioneClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il formato in cui riprodurre il giornale:
+   * testo (di default) oppure binario, nel qual caso il giornale viene prima
+   * convertito nel formato binario e poi riletto da quello.
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e il giornale, nel formato di GatewayOrdini.
+   *
+   * Riproduce il giornale in modo deterministico ed emette nel flusso d'uscita
+   * le linee scartate del giornale con il motivo, il numero di ordini per ogni
+   * esito, in ordine di dichiarazione e solo se non nullo, il numero di ordini
+   * non validi e l'impronta della riproduzione, che non dipende dal formato.
+   */
+  public static void main(String[] args) throws IOException {
+    boolean binario = args.length > 0 && args[0].equals("binario");
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    StringBuilder mercato = new StringBuilder();
+    for (int gruppo = 0; gruppo < 2; ) {
+      String linea = in.readLine();
+      if (linea == null) break;
+      mercato.append(linea).append('\n');
+      if (linea.equals("--")) gruppo++;
+    }
+    try (Scanner scanner = new Scanner(new StringReader(mercato.toString()))) {
+      Mercato.carica(scanner);
+    }
+    Riproduttore riproduttore = new Riproduttore(true, 1);
+    Giornale giornale = Giornale.leggi(in);
+    for (Map.Entry<Integer, String> scartata : giornale.scartate().entrySet())
+      System.out.println("linea " + scartata.getKey() + " scartata: " + scartata.getValue());
+    if (binario) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      giornale.scriviBinario(out);
+      Giornale letto = riproduttore.leggiBinario(new ByteArrayInputStream(out.toByteArray()));
+      if (letto.dimensione() != giornale.dimensione()) throw new AssertionError("Giornale binario diverso.");
+      giornale = letto;
+    }
+    Resoconto resoconto = riproduttore.riproduci(giornale);
+    for (Esito esito : Esito.values())
+      if (resoconto.ordini(esito) > 0) System.out.println(esito + ": " + resoconto.ordini(esito));
+    System.out.println("non validi: " + resoconto.nonValidi());
+    System.out.println("impronta: " + Long.toHexString(resoconto.impronta()));
+  }
+}
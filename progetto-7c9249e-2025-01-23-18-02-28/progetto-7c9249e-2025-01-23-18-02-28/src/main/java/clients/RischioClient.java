@@ -0,0 +1,114 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Esito;
+import borsanova.LimitiRischio;
+import borsanova.Operatore;
+
+/**
+ * Client di test per i <strong>limiti di rischio</strong>.
+ */
+public class RischioClient {
+
+  /** . */
+  private RischioClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso quattro gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, i limiti di rischio, della forma
+   *
+   *     nome_borsa * azioni_per_azienda quota_flottante controvalore_borsa
+   *     nome_borsa nome_operatore azioni_per_azienda quota_flottante controvalore_borsa
+   *
+   * dove la prima forma indica i limiti predefiniti della borsa (che deve
+   * precedere i limiti dei singoli operatori) e la quota è in punti base, e
+   * gli ordini, della forma
+   *
+   *     nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     nome_operatore s nome_borsa nome_azienda numero_azioni [borsa_azione]
+   *
+   * dove borsa_azione, se presente, indica la borsa in cui è quotata l'azione
+   * da vendere, che può essere diversa da quella a cui è inviato l'ordine.
+   * Per ogni ordine emette nel flusso d'uscita l'ordine seguito dal suo esito.
+   * Al termine emette, per ogni borsa con limiti e ogni operatore, il
+   * controvalore investito dall'operatore nella borsa.
+   */
+  public static void main(String[] args) {
+    StringBuilder mercato = new StringBuilder();
+    List<String> operatori = new ArrayList<>();
+    List<String> limiti = new ArrayList<>();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 1) operatori.add(linea.split(" ")[0]);
+        } else if (gruppo == 2) limiti.add(linea);
+        else ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Map<String, LimitiRischio> perBorsa = new HashMap<>();
+    List<String> borse = new ArrayList<>();
+    for (String linea : limiti) {
+      String[] tokens = linea.split(" ");
+      LimitiRischio.Limiti valori = new LimitiRischio.Limiti(Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4]));
+      if (tokens[1].equals("*")) {
+        LimitiRischio controllo = new LimitiRischio(valori);
+        Borsa.cerca(tokens[0]).controlloRischio(controllo);
+        perBorsa.put(tokens[0], controllo);
+        borse.add(tokens[0]);
+      } else perBorsa.get(tokens[0]).limiti(Operatore.cerca(tokens[1]), valori);
+    }
+    for (String ordine : ordini) {
+      String[] tokens = ordine.split(" ");
+      Operatore operatore = Operatore.cerca(tokens[0]);
+      Borsa borsa = Borsa.cerca(tokens[2]);
+      Azienda azienda = Azienda.cerca(tokens[3]);
+      int valore = Integer.parseInt(tokens[4]);
+      Esito esito = tokens[1].equals("b")
+          ? borsa.tentaAcquisto(operatore, azienda, valore)
+          : borsa.tentaVendita(operatore, Borsa.cerca(tokens.length > 5 ? tokens[5] : tokens[2]).cercaAzioneBorsa(azienda), valore);
+      System.out.println(ordine + ": " + esito);
+    }
+    for (String borsa : borse)
+      for (String operatore : operatori)
+        System.out.println(borsa + " " + operatore + " " + perBorsa.get(borsa).investito(Operatore.cerca(operatore)));
+  }
+}
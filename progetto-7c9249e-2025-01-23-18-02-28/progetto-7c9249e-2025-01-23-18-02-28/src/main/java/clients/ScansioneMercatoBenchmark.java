@@ -0,0 +1,85 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Memorizzazione;
+import borsanova.Operatore;
+
+/**
+ * Confronta le scansioni sull'intero mercato nelle due disposizioni in memoria delle azioni quotate.
+ */
+public class ScansioneMercatoBenchmark {
+
+  /** . */
+  private ScansioneMercatoBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di aziende (di default 200000) e
+   * il numero di ripetizioni (di default 200). Quota ogni azienda sia in una
+   * borsa con memorizzazione a oggetti sia in una con memorizzazione a
+   * colonne, alternando le quotazioni e alcuni acquisti così che gli oggetti
+   * risultino sparsi nello heap come in un mercato reale.
+   *
+   * Per ciascuna borsa emette il tempo medio, in nanosecondi per azione
+   * quotata, di una scansione che calcola capitalizzazione e azioni
+   * disponibili.
+   */
+  public static void main(String[] args) {
+    int numeroAziende = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int ripetizioni = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    Borsa oggetti = Borsa.of("ScansioneOggetti", Memorizzazione.OGGETTI);
+    Borsa colonne = Borsa.of("ScansioneColonne", Memorizzazione.COLONNE);
+    Operatore operatore = Operatore.of("ScansioneOperatore");
+    Random random = new Random(42);
+    List<Azienda> aziende = new ArrayList<>();
+    for (int i = 0; i < numeroAziende; i++) {
+      Azienda azienda = Azienda.of("Scansione" + i);
+      int valore = 1 + random.nextInt(1000);
+      int quantita = 1 + random.nextInt(10000);
+      azienda.quotazioneInBorsa(oggetti, quantita, valore);
+      azienda.quotazioneInBorsa(colonne, quantita, valore);
+      aziende.add(azienda);
+    }
+    operatore.deposita(Integer.MAX_VALUE);
+    for (int i = 0; i < numeroAziende; i += 7) {
+      int valore = oggetti.cercaAzioneBorsa(aziende.get(i)).valore();
+      oggetti.acquisto(operatore, aziende.get(i), valore);
+      colonne.acquisto(operatore, aziende.get(i), valore);
+    }
+    for (Borsa borsa : List.of(oggetti, colonne, oggetti, colonne)) {
+      long controllo = 0;
+      long inizio = System.nanoTime();
+      for (int r = 0; r < ripetizioni; r++) {
+        controllo += borsa.capitalizzazione() + borsa.azioniDisponibili();
+      }
+      long durata = System.nanoTime() - inizio;
+      System.out.printf("%s: %.2f ns per azione (controllo %d)%n", borsa.nome(), (double) durata / ripetizioni / numeroAziende, controllo);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.esecuzione.Sequenziatore;
+
+/**
+ * Confronta il <strong>sequenziatore</strong> con l'accesso alla borsa protetto da un lock.
+ */
+public class SequenziatoreBenchmark {
+
+  /** . */
+  private SequenziatoreBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di produttori (di default 8), il
+   * numero di ordini per produttore (di default 200000) e il numero di ordini
+   * che ogni produttore può avere in attesa verso il sequenziatore (di default
+   * 64). Ogni produttore è un operatore che alterna l'acquisto e la vendita di
+   * un'azione.
+   *
+   * Esegue lo stesso carico due volte, prima con i produttori che invocano
+   * direttamente la borsa dentro un blocco synchronized, poi attraverso il
+   * sequenziatore, ed emette per ciascun modo il throughput e i percentili della
+   * latenza dall'invio dell'ordine al suo esito.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int produttori = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int ordini = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+    int finestra = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+    for (String modo : new String[] {"lock", "sequenziatore"}) {
+      Borsa borsa = Borsa.of("Bench" + modo);
+      Azienda azienda = Azienda.of("Bench" + modo);
+      azienda.quotazioneInBorsa(borsa, Integer.MAX_VALUE, 10);
+      Azione azione = borsa.cercaAzioneBorsa(azienda);
+      Operatore[] operatori = new Operatore[produttori];
+      for (int p = 0; p < produttori; p++) {
+        operatori[p] = Operatore.of("Bench" + modo + p);
+        operatori[p].deposita(1000);
+      }
+      long[] latenze = new long[produttori * ordini];
+      CountDownLatch via = new CountDownLatch(1);
+      Thread[] threads = new Thread[produttori];
+      try (Sequenziatore sequenziatore = new Sequenziatore(borsa, 1 << 14)) {
+        for (int p = 0; p < produttori; p++) {
+          int produttore = p;
+          threads[p] = Thread.ofPlatform().start(() -> {
+            try {
+              via.await();
+            } catch (InterruptedException e) {
+              return;
+            }
+            Operatore operatore = operatori[produttore];
+            int base = produttore * ordini;
+            if (modo.equals("lock")) {
+              for (int i = 0; i < ordini; i++) {
+                long t = System.nanoTime();
+                synchronized (borsa) {
+                  if (i % 2 == 0) borsa.acquisto(operatore, azienda, 10);
+                  else borsa.vendita(operatore, azione, 1);
+                }
+                latenze[base + i] = System.nanoTime() - t;
+              }
+            } else {
+              CompletableFuture<?>[] inAttesa = new CompletableFuture<?>[finestra];
+              long[] invio = new long[finestra];
+              for (int i = 0; i < ordini; i++) {
+                int k = i % finestra;
+                if (inAttesa[k] != null) {
+                  inAttesa[k].join();
+                  latenze[base + i - finestra] = System.nanoTime() - invio[k];
+                }
+                invio[k] = System.nanoTime();
+                inAttesa[k] = i % 2 == 0 ? sequenziatore.acquisto(operatore, azienda, 10) : sequenziatore.vendita(operatore, azione, 1);
+              }
+              for (int i = Math.max(0, ordini - finestra); i < ordini; i++) {
+                inAttesa[i % finestra].join();
+                latenze[base + i] = System.nanoTime() - invio[i % finestra];
+              }
+            }
+          });
+        }
+        long inizio = System.nanoTime();
+        via.countDown();
+        for (Thread t : threads) t.join();
+        long durata = System.nanoTime() - inizio;
+        Arrays.sort(latenze);
+        System.out.printf("%s: %.0f ordini/s, latenza p50: %d ns, p99: %d ns, massima: %d us%n", modo, latenze.length / (durata / 1e9), latenze[latenze.length / 2], latenze[(int) (latenze.length * 0.99)], latenze[latenze.length - 1] / 1000);
+      }
+      for (Operatore operatore : operatori) if (operatore.budget() != 1000) System.out.println("Budget inatteso per " + operatore.nome());
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Esito;
+import borsanova.Operatore;
+import borsanova.esecuzione.Sequenziatore;
+
+/**
+ * Client di test per il <strong>sequenziatore</strong> degli ordini di una borsa.
+ */
+public class SequenziatoreClient {
+
+  /** . */
+  private SequenziatoreClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il nome della borsa a cui inviare gli ordini
+   * e, opzionalmente, il nome di un operatore i cui ordini fanno sollevare al
+   * controllo di rischio della borsa un'eccezione inattesa.
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini,
+   *
+   *     nome_operatore b nome_azienda prezzo_totale
+   *     nome_operatore r nome_azienda prezzo_totale
+   *     nome_operatore s nome_azienda numero_azioni
+   *
+   * dove r è un acquisto pagato con una riserva fatta prima dell'invio.
+   *
+   * Invia tutti gli ordini ad un sequenziatore con una sola cella, senza
+   * attenderne l'esito, così ogni invio attende l'esecuzione dell'ordine
+   * precedente; poi emette per ogni ordine l'ordine seguito da OK o da ERRORE e
+   * dal messaggio del rifiuto. Al termine emette, per ogni operatore, il budget e
+   * la somma ancora riservata.
+   */
+  public static void main(String[] args) {
+    String guasto = args.length > 1 ? args[1] : null;
+    StringBuilder mercato = new StringBuilder();
+    List<String> operatori = new ArrayList<>();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 1) operatori.add(linea.split(" ")[0]);
+        } else if (!linea.isBlank()) ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    Borsa borsa = Borsa.cerca(args[0]);
+    borsa.controlloRischio((operatore, azione, prezzo, scambiate) -> {
+      if (operatore.nome().equals(guasto)) throw new IllegalStateException("Guasto del controllo di rischio.");
+      return Esito.ESEGUITO;
+    });
+    List<CompletableFuture<Void>> esiti = new ArrayList<>();
+    try (Sequenziatore sequenziatore = new Sequenziatore(borsa, 1)) {
+      for (String ordine : ordini) {
+        String[] tokens = ordine.split(" ");
+        Operatore operatore = Operatore.cerca(tokens[0]);
+        Azienda azienda = Azienda.cerca(tokens[2]);
+        int valore = Integer.parseInt(tokens[3]);
+        try {
+          esiti.add(switch (tokens[1]) {
+            case "b" -> sequenziatore.acquisto(operatore, azienda, valore);
+            case "r" -> {
+              operatore.riserva(valore);
+              yield sequenziatore.acquistoRiservato(operatore, azienda, valore);
+            }
+            default -> sequenziatore.vendita(operatore, borsa.cercaAzioneBorsa(azienda), valore);
+          });
+        } catch (RuntimeException e) {
+          esiti.add(CompletableFuture.failedFuture(e));
+        }
+      }
+      for (int i = 0; i < ordini.size(); i++) {
+        try {
+          esiti.get(i).join();
+          System.out.println(ordini.get(i) + ": OK");
+        } catch (CompletionException e) {
+          System.out.println(ordini.get(i) + ": ERRORE " + e.getCause().getMessage());
+        }
+      }
+    }
+    for (String nome : operatori) {
+      Operatore operatore = Operatore.cerca(nome);
+      System.out.println(nome + " " + operatore.budget() + " " + operatore.riservato());
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.politicaprezzo.Soglia;
+import borsanova.simulazione.Risultati;
+import borsanova.simulazione.Scenario;
+import borsanova.simulazione.Simulazione;
+import borsanova.simulazione.Strategia;
+import borsanova.simulazione.Strategie;
+
+/**
+ * Client di test per la <strong>simulazione</strong> in parallelo.
+ */
+public class SimulazioneClient {
+
+  /** . */
+  private SimulazioneClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di esecuzioni, il seme e,
+   * facoltativamente, la soglia della politica di prezzo di ogni esecuzione,
+   * come in PoliticaPrezzoSogliaClient (di default 20 esecuzioni, seme 1 e
+   * nessuna politica).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: lo scenario,
+   *
+   *     nome_borsa azioni_per_azienda prezzo_iniziale agenti budget passi
+   *
+   * i nomi delle aziende, uno per linea, e le strategie degli agenti,
+   *
+   *     casuale|tendenza|controtendenza investimento_massimo
+   *
+   * Emette nel flusso d'uscita l'indice medio, minimo e massimo tra le
+   * esecuzioni all'inizio, ogni quinto dei passi e alla fine; poi la ricchezza
+   * media, minima e massima degli agenti e le classi non vuote della
+   * distribuzione delle ricchezze, in decimi del budget iniziale; infine
+   * indica se le borse, le aziende e gli agenti di tutte le esecuzioni sono
+   * stati cancellati.
+   * Il risultato non dipende dal numero di processori.
+   */
+  public static void main(String[] args) {
+    int esecuzioni = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    long seme = args.length > 1 ? Long.parseLong(args[1]) : 1;
+    Integer soglia = args.length > 2 ? Integer.valueOf(args[2]) : null;
+    List<List<String>> gruppi = new ArrayList<>(List.of(new ArrayList<>()));
+    try (Scanner in = new Scanner(System.in)) {
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) gruppi.add(new ArrayList<>());
+        else if (!linea.isBlank()) gruppi.get(gruppi.size() - 1).add(linea.strip());
+      }
+    }
+    String[] parametri = gruppi.get(0).get(0).split(" ");
+    List<Strategia> strategie = new ArrayList<>();
+    for (String linea : gruppi.get(2)) {
+      String[] tokens = linea.split(" ");
+      int investimento = Integer.parseInt(tokens[1]);
+      strategie.add(switch (tokens[0]) {
+        case "casuale" -> Strategie.casuale(investimento);
+        case "tendenza" -> Strategie.tendenza(investimento);
+        case "controtendenza" -> Strategie.controTendenza(investimento);
+        default -> throw new IllegalArgumentException("Strategia sconosciuta: " + tokens[0]);
+      });
+    }
+    Scenario scenario = new Scenario(parametri[0], gruppi.get(1), Integer.parseInt(parametri[1]),
+        Integer.parseInt(parametri[2]), Integer.parseInt(parametri[3]), Integer.parseInt(parametri[4]),
+        Integer.parseInt(parametri[5]), () -> soglia == null ? null : new Soglia(soglia), strategie);
+    Risultati risultati = Simulazione.esegui(scenario, esecuzioni, seme);
+    int passo = Math.max(1, risultati.passi() / 5);
+    for (int p = 0; p <= risultati.passi(); p += passo) stampaIndice(risultati, p);
+    if (risultati.passi() % passo != 0) stampaIndice(risultati, risultati.passi());
+    System.out.println(String.format(Locale.ROOT, "ricchezza: media %.2f minima %d massima %d",
+        risultati.ricchezzaMedia(), risultati.ricchezzaMinima(), risultati.ricchezzaMassima()));
+    long[] istogramma = risultati.istogramma();
+    for (int k = 0; k < istogramma.length; k++) {
+      if (istogramma[k] == 0) continue;
+      String classe = k == istogramma.length - 1 ? k + "+" : k + "-" + (k + 1);
+      System.out.println("decimi " + classe + ": " + istogramma[k]);
+    }
+    int registrate = 0;
+    for (int i = 0; i < esecuzioni; i++) {
+      String suffisso = "#1-" + i;
+      registrate += registrata(() -> Borsa.cerca(scenario.borsa() + suffisso));
+      for (String azienda : scenario.aziende()) registrate += registrata(() -> Azienda.cerca(azienda + suffisso));
+      for (int k = 0; k < scenario.agenti(); k++) {
+        String agente = "agente" + k + suffisso;
+        registrate += registrata(() -> Operatore.cerca(agente));
+      }
+    }
+    System.out.println("entita ancora registrate: " + registrate);
+  }
+
+  /**
+   * Indica se una ricerca per nome trova un'entità.
+   * @param ricerca la ricerca.
+   * @return 1 se l'entità è registrata, 0 altrimenti.
+   */
+  private static int registrata(Runnable ricerca) {
+    try {
+      ricerca.run();
+      return 1;
+    } catch (NoSuchElementException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Emette l'indice medio, minimo e massimo a un passo.
+   * @param risultati i risultati della simulazione.
+   * @param passo il passo.
+   */
+  private static void stampaIndice(Risultati risultati, int passo) {
+    System.out.println(String.format(Locale.ROOT, "passo %d: medio %.2f minimo %d massimo %d",
+        passo, risultati.indiceMedio(passo), risultati.indiceMinimo(passo), risultati.indiceMassimo(passo)));
+  }
+}
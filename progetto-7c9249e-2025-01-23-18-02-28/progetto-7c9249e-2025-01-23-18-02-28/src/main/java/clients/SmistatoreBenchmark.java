@@ -0,0 +1,104 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.esecuzione.Smistatore;
+
+/**
+ * Misura come lo <strong>smistatore</strong> scala con il numero di borse.
+ */
+public class SmistatoreBenchmark {
+
+  /** . */
+  private SmistatoreBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero massimo di borse (di default il
+   * numero di processori), il numero di produttori (di default 8) e il numero di
+   * ordini per produttore (di default 200000).
+   *
+   * Per ogni numero di borse da 1 al massimo crea un nuovo mercato in cui ogni
+   * produttore è un operatore che alterna acquisti e vendite di un'azione,
+   * distribuendo gli ordini a rotazione su tutte le borse. Tutti gli operatori
+   * acquistano anche in borse diverse contemporaneamente, usando le riserve sul
+   * budget. Emette il throughput per ogni numero di borse e verifica che alla
+   * fine i budget siano quelli iniziali.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int massimoBorse = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+    int produttori = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    int ordini = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+    for (int numeroBorse = 1; numeroBorse <= massimoBorse; numeroBorse++) {
+      Borsa[] borse = new Borsa[numeroBorse];
+      Azione[] azioni = new Azione[numeroBorse];
+      Azienda azienda = Azienda.of("Smistamento" + numeroBorse);
+      for (int b = 0; b < numeroBorse; b++) {
+        borse[b] = Borsa.of("Smistamento" + numeroBorse + "-" + b);
+        azienda.quotazioneInBorsa(borse[b], Integer.MAX_VALUE, 10);
+        azioni[b] = borse[b].cercaAzioneBorsa(azienda);
+      }
+      Operatore[] operatori = new Operatore[produttori];
+      for (int p = 0; p < produttori; p++) {
+        operatori[p] = Operatore.of("Smistamento" + numeroBorse + "-" + p);
+        operatori[p].deposita(10 * numeroBorse);
+      }
+      CountDownLatch via = new CountDownLatch(1);
+      Thread[] threads = new Thread[produttori];
+      long durata;
+      try (Smistatore smistatore = new Smistatore(1 << 14)) {
+        for (int p = 0; p < produttori; p++) {
+          Operatore operatore = operatori[p];
+          threads[p] = Thread.ofPlatform().start(() -> {
+            try {
+              via.await();
+            } catch (InterruptedException e) {
+              return;
+            }
+            CompletableFuture<?>[] acquisti = new CompletableFuture<?>[borse.length];
+            for (int i = 0; i < ordini; i += 2 * borse.length) {
+              for (int b = 0; b < borse.length; b++) acquisti[b] = smistatore.acquisto(borse[b], operatore, azienda, 10);
+              for (int b = 0; b < borse.length; b++) {
+                acquisti[b].join();
+                smistatore.vendita(borse[b], operatore, azioni[b], 1).join();
+              }
+            }
+          });
+        }
+        long inizio = System.nanoTime();
+        via.countDown();
+        for (Thread t : threads) t.join();
+        durata = System.nanoTime() - inizio;
+      }
+      long eseguiti = (long) produttori * ((ordini + 2 * numeroBorse - 1) / (2 * numeroBorse)) * 2 * numeroBorse;
+      System.out.printf("borse: %d, %.0f ordini/s%n", numeroBorse, eseguiti / (durata / 1e9));
+      for (Operatore operatore : operatori) if (operatore.budget() != 10 * numeroBorse || operatore.riservato() != 0) System.out.println("Budget inatteso per " + operatore.nome());
+    }
+  }
+}
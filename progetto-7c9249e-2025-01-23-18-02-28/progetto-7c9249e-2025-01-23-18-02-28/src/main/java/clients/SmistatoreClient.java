@@ -0,0 +1,113 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.esecuzione.Smistatore;
+
+/**
+ * Client di test per lo <strong>smistatore</strong> degli ordini tra le borse.
+ */
+public class SmistatoreClient {
+
+  /** . */
+  private SmistatoreClient() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di ordini che ogni borsa può avere
+   * in attesa (di default 4).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini,
+   *
+   *     nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     nome_operatore s nome_borsa nome_azienda numero_azioni
+   *
+   * Invia tutti gli ordini allo smistatore senza attenderne l'esito, così gli
+   * ordini per borse diverse vengono eseguiti in parallelo; poi emette per ogni
+   * ordine l'ordine seguito da OK o da ERRORE e dal messaggio del rifiuto. Al
+   * termine emette, per ogni operatore, il budget, la somma ancora riservata e
+   * le azioni possedute in ordine di borsa e di azienda.
+   */
+  public static void main(String[] args) {
+    int capacita = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    StringBuilder mercato = new StringBuilder();
+    List<String> operatori = new ArrayList<>();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 1) operatori.add(linea.split(" ")[0]);
+        } else if (!linea.isBlank()) ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    List<CompletableFuture<Void>> esiti = new ArrayList<>();
+    try (Smistatore smistatore = new Smistatore(capacita)) {
+      for (String ordine : ordini) {
+        String[] tokens = ordine.split(" ");
+        Operatore operatore = Operatore.cerca(tokens[0]);
+        Borsa borsa = Borsa.cerca(tokens[2]);
+        Azienda azienda = Azienda.cerca(tokens[3]);
+        int valore = Integer.parseInt(tokens[4]);
+        if (tokens[1].equals("b")) esiti.add(smistatore.acquisto(borsa, operatore, azienda, valore));
+        else esiti.add(smistatore.vendita(borsa, operatore, borsa.cercaAzioneBorsa(azienda), valore));
+      }
+      for (int i = 0; i < ordini.size(); i++) {
+        try {
+          esiti.get(i).join();
+          System.out.println(ordini.get(i) + ": OK");
+        } catch (CompletionException e) {
+          System.out.println(ordini.get(i) + ": ERRORE " + e.getCause().getMessage());
+        }
+      }
+    }
+    for (String nome : operatori) {
+      Operatore operatore = Operatore.cerca(nome);
+      StringBuilder riga = new StringBuilder(nome + " " + operatore.budget() + " " + operatore.riservato());
+      for (Iterator<Azione> azioni = operatore.elencoAzioni(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        riga.append(' ').append(azione.nomeBorsa()).append(':').append(azione.azienda().nome()).append('=').append(operatore.numeroAzioni(azione));
+      }
+      System.out.println(riga);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.RegolaSospensione;
+import borsanova.gateway.GatewayOrdini;
+import borsanova.politicaprezzo.Soglia;
+
+/**
+ * Client di test per le <strong>sospensioni per volatilità</strong>.
+ */
+public class SospensioniClient {
+
+  /** . */
+  private SospensioniClient() {}
+
+  /*-
+   * Riceve sulla linea di comando la soglia della politica di prezzo di tutte
+   * le borse, come in PoliticaPrezzoSogliaClient, e la regola di sospensione:
+   * la durata della finestra in millisecondi, la variazione massima in punti
+   * base e la durata della pausa in millisecondi (di default 10, 1000, 15000 e
+   * 2000).
+   *
+   * Legge dal flusso in ingresso tre gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, e gli ordini, ciascuno preceduto dall'istante in
+   * millisecondi in cui viene eseguito,
+   *
+   *     istante nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     istante nome_operatore s nome_borsa nome_azienda numero_azioni
+   *
+   * Per ogni ordine emette nel flusso d'uscita l'ordine seguito dalla risposta
+   * del gateway; al termine emette, per ogni borsa e ogni azione quotata in
+   * ordine alfabetico, il valore dell'azione e, se l'azione è stata sospesa,
+   * l'istante in cui termina l'ultima sospensione.
+   */
+  public static void main(String[] args) {
+    int soglia = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    long finestra = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+    int variazione = args.length > 2 ? Integer.parseInt(args[2]) : 15000;
+    long pausa = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+    long[] adesso = {0};
+    StringBuilder mercato = new StringBuilder();
+    Set<String> borse = new LinkedHashSet<>();
+    List<String> ordini = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 0) borse.add(linea.split(" ")[1]);
+        } else ordini.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    RegolaSospensione regola = new RegolaSospensione(finestra, variazione, pausa);
+    for (String nome : borse) {
+      Borsa borsa = Borsa.cerca(nome);
+      borsa.orologio(() -> adesso[0]);
+      borsa.politicaPrezzo(new Soglia(soglia));
+      borsa.sospensioni(regola);
+    }
+    for (String ordine : ordini) {
+      String[] tokens = ordine.split(" ", 2);
+      adesso[0] = Long.parseLong(tokens[0]);
+      System.out.println(ordine + ": " + GatewayOrdini.esegui(tokens[1]));
+    }
+    for (String nome : borse) {
+      for (Iterator<Azione> azioni = Borsa.cerca(nome).azioniQuotate(); azioni.hasNext(); ) {
+        Azione azione = azioni.next();
+        String linea = nome + " " + azione.azienda().nome() + " " + azione.valore();
+        if (azione.sospesaFinoA() != Long.MIN_VALUE) linea += " sospesa fino a " + azione.sospesaFinoA();
+        System.out.println(linea);
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Statistiche;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per le <strong>statistiche degli scambi</strong>.
+ */
+public class StatisticheClient {
+
+  /** . */
+  private StatisticheClient() {}
+
+  /*-
+   * Riceve sulla linea di comando la larghezza degli intervalli in
+   * millisecondi e il numero di intervalli delle statistiche (di default 1000
+   * e 60).
+   *
+   * Legge dal flusso in ingresso quattro gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, gli ordini, ciascuno preceduto dall'istante in
+   * millisecondi in cui viene eseguito,
+   *
+   *     istante nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     istante nome_operatore s nome_borsa nome_azienda numero_azioni
+   *
+   * e le richieste di statistiche, della forma
+   *
+   *     istante durata nome_borsa [nome_azienda]
+   *
+   * Gli ordini rifiutati vengono ignorati. Per ogni richiesta emette nel flusso
+   * d'uscita la borsa (e l'azienda, se indicata) seguita dal numero di scambi,
+   * dal volume, dal controvalore e dal prezzo medio ponderato della finestra di
+   * durata indicata che termina nell'istante indicato, oppure il motivo per cui
+   * la richiesta non è valida.
+   */
+  public static void main(String[] args) {
+    long larghezza = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+    int intervalli = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+    long[] adesso = {0};
+    StringBuilder mercato = new StringBuilder();
+    Set<String> borse = new LinkedHashSet<>();
+    List<String> ordini = new ArrayList<>();
+    List<String> richieste = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 0) borse.add(linea.split(" ")[1]);
+        } else if (gruppo == 2) ordini.add(linea);
+        else richieste.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    for (String nome : borse) {
+      Borsa borsa = Borsa.cerca(nome);
+      borsa.orologio(() -> adesso[0]);
+      borsa.attivaStatistiche(larghezza, intervalli);
+    }
+    for (String ordine : ordini) {
+      String[] tokens = ordine.split(" ", 2);
+      adesso[0] = Long.parseLong(tokens[0]);
+      GatewayOrdini.esegui(tokens[1]);
+    }
+    for (String richiesta : richieste) {
+      String[] tokens = richiesta.split(" ");
+      adesso[0] = Long.parseLong(tokens[0]);
+      long durata = Long.parseLong(tokens[1]);
+      Borsa borsa = Borsa.cerca(tokens[2]);
+      String descrizione = tokens.length > 3 ? borsa.nome() + " " + tokens[3] : borsa.nome();
+      try {
+        Statistiche statistiche = tokens.length > 3 ? borsa.cercaAzioneBorsa(Azienda.cerca(tokens[3])).statistiche(durata) : borsa.statistiche(durata);
+        System.out.println(descrizione + ": " + statistiche.scambi() + " " + statistiche.volume() + " " + statistiche.controvalore()
+            + " " + String.format(Locale.ROOT, "%.2f", statistiche.prezzoMedio()));
+      } catch (IllegalArgumentException e) {
+        System.out.println(descrizione + ": " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Operatore;
+import borsanova.Scambio;
+import borsanova.StoricoScambi;
+import borsanova.gateway.GatewayOrdini;
+
+/**
+ * Client di test per lo <strong>storico degli scambi</strong>.
+ */
+public class StoricoClient {
+
+  /** . */
+  private StoricoClient() {}
+
+  /*-
+   * Legge dal flusso in ingresso quattro gruppi di linee separati dalla linea
+   * contenente solo --: le quotazioni e gli operatori con budget iniziale, come
+   * in OperatoreClient, gli ordini, ciascuno preceduto dall'istante in
+   * millisecondi in cui viene eseguito,
+   *
+   *     istante nome_operatore b nome_borsa nome_azienda prezzo_totale
+   *     istante nome_operatore s nome_borsa nome_azienda numero_azioni
+   *
+   * e le ricerche, della forma
+   *
+   *     o nome_operatore da a
+   *     a nome_borsa nome_azienda da a
+   *     t da a
+   *
+   * che chiedono gli scambi di un operatore, di un'azione o di tutte le borse
+   * con istante compreso tra da e a (inclusi). Tutte le borse sono collegate
+   * allo stesso storico e gli ordini rifiutati vengono ignorati.
+   *
+   * Per ogni ricerca emette nel flusso d'uscita la ricerca stessa, preceduta da
+   * >, seguita dagli scambi trovati in ordine di esecuzione, uno per linea,
+   * nella forma
+   *
+   *     istante nome_operatore nome_borsa nome_azienda prezzo quantità
+   *
+   * dove la quantità è negativa per le vendite.
+   */
+  public static void main(String[] args) {
+    long[] adesso = {0};
+    StringBuilder mercato = new StringBuilder();
+    Set<String> borse = new LinkedHashSet<>();
+    List<String> ordini = new ArrayList<>();
+    List<String> ricerche = new ArrayList<>();
+    try (Scanner in = new Scanner(System.in)) {
+      int gruppo = 0;
+      while (in.hasNextLine()) {
+        String linea = in.nextLine();
+        if (linea.equals("--")) {
+          if (gruppo++ < 2) mercato.append(linea).append('\n');
+        } else if (gruppo < 2) {
+          mercato.append(linea).append('\n');
+          if (gruppo == 0) borse.add(linea.split(" ")[1]);
+        } else if (gruppo == 2) ordini.add(linea);
+        else ricerche.add(linea);
+      }
+    }
+    try (Scanner in = new Scanner(mercato.toString())) {
+      Mercato.carica(in);
+    }
+    try (StoricoScambi storico = new StoricoScambi(16)) {
+      for (String nome : borse) {
+        Borsa borsa = Borsa.cerca(nome);
+        borsa.orologio(() -> adesso[0]);
+        borsa.storico(storico);
+      }
+      for (String ordine : ordini) {
+        String[] tokens = ordine.split(" ", 2);
+        adesso[0] = Long.parseLong(tokens[0]);
+        GatewayOrdini.esegui(tokens[1]);
+      }
+      for (String ricerca : ricerche) {
+        String[] tokens = ricerca.split(" ");
+        int n = tokens.length;
+        long da = Long.parseLong(tokens[n - 2]);
+        long a = Long.parseLong(tokens[n - 1]);
+        List<Scambio> scambi = switch (tokens[0]) {
+          case "o" -> storico.perOperatore(Operatore.cerca(tokens[1]), da, a);
+          case "a" -> storico.perAzione(Borsa.cerca(tokens[1]).cercaAzioneBorsa(Azienda.cerca(tokens[2])), da, a);
+          default -> storico.traIstanti(da, a);
+        };
+        System.out.println("> " + ricerca);
+        for (Scambio scambio : scambi)
+          System.out.println(scambio.istante() + " " + scambio.operatore().nome() + " " + scambio.azione().nomeBorsa() + " "
+              + scambio.azione().azienda().nome() + " " + scambio.prezzo() + " " + scambio.quantita());
+      }
+    }
+  }
+}
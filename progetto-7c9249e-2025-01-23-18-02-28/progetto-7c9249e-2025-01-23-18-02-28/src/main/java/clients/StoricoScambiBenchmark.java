@@ -0,0 +1,122 @@
+/*
+
+Copyright 2024 Massimo Santini
+
+This file is part of "Programmazione 2 @ UniMI" teaching material.
+
+This is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This material is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this file.  If not, see <https://www.gnu.org/licenses/>.
+
+*/
+
+package clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import borsanova.Azienda;
+import borsanova.Borsa;
+import borsanova.Borsa.Azione;
+import borsanova.Operatore;
+import borsanova.Scambio;
+import borsanova.StoricoScambi;
+
+/**
+ * Misura il costo dello <strong>storico degli scambi</strong> sugli scambi e la durata delle ricerche.
+ */
+public class StoricoScambiBenchmark {
+
+  /** . */
+  private StoricoScambiBenchmark() {}
+
+  /*-
+   * Riceve sulla linea di comando il numero di scambi per borsa (di default
+   * 1000000) e il numero di borse (di default 4), ciascuna servita da un
+   * proprio thread. Esegue gli scambi due volte, su due mercati distinti:
+   * senza storico e con tutte le borse collegate allo stesso storico, ed emette
+   * il tempo di ciascun modo. Esegue poi 1000 ricerche casuali per operatore e
+   * per azione, ne emette il tempo e le confronta con una scansione completa
+   * dello storico.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int scambi = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int numeroBorse = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    StoricoScambi storico = new StoricoScambi(1 << 16);
+    List<Operatore> operatori = new ArrayList<>();
+    List<Azione> azioni = new ArrayList<>();
+    for (String modo : new String[] {"senza storico", "con storico"}) {
+      Thread[] thread = new Thread[numeroBorse];
+      long inizio = System.nanoTime();
+      for (int b = 0; b < numeroBorse; b++) {
+        Borsa borsa = Borsa.of(modo + " Borsa" + b);
+        if (modo.equals("con storico")) borsa.storico(storico);
+        Azienda[] aziende = new Azienda[16];
+        Operatore[] propri = new Operatore[64];
+        for (int a = 0; a < aziende.length; a++) {
+          aziende[a] = Azienda.of(modo + " Azienda" + b + "-" + a);
+          aziende[a].quotazioneInBorsa(borsa, 1000000, 10);
+          azioni.add(borsa.cercaAzioneBorsa(aziende[a]));
+        }
+        for (int o = 0; o < propri.length; o++) {
+          propri[o] = Operatore.of(modo + " Operatore" + b + "-" + o);
+          propri[o].deposita(1000000);
+          operatori.add(propri[o]);
+        }
+        thread[b] = Thread.ofPlatform().unstarted(() -> {
+          for (int i = 0; i < scambi; i++) {
+            Operatore operatore = propri[i % propri.length];
+            Azienda azienda = aziende[(i / propri.length) % aziende.length];
+            if ((i / (propri.length * aziende.length)) % 2 == 0) borsa.acquisto(operatore, azienda, 10);
+            else borsa.vendita(operatore, borsa.cercaAzioneBorsa(azienda), 1);
+          }
+        });
+      }
+      inizio = System.nanoTime();
+      for (Thread t : thread) t.start();
+      for (Thread t : thread) t.join();
+      System.out.printf("%s: %d scambi in %d ms%n", modo, (long) scambi * numeroBorse, (System.nanoTime() - inizio) / 1000000);
+    }
+    long inizio = System.nanoTime();
+    List<Scambio> tutti = storico.traIstanti(Long.MIN_VALUE, Long.MAX_VALUE);
+    System.out.printf("storico allineato: %d scambi, scansione completa in %d ms%n", tutti.size(), (System.nanoTime() - inizio) / 1000000);
+    long primo = tutti.get(0).istante(), ultimo = tutti.get(tutti.size() - 1).istante();
+    Random caso = new Random(42);
+    long[][] intervalli = new long[1000][2];
+    for (long[] intervallo : intervalli) {
+      long da = primo + (long) (caso.nextDouble() * (ultimo - primo));
+      intervallo[0] = da;
+      intervallo[1] = da + (ultimo - primo) / 20;
+    }
+    Object[] chiavi = new Object[intervalli.length];
+    for (int q = 0; q < chiavi.length; q++)
+      chiavi[q] = q % 2 == 0 ? operatori.get(operatori.size() / 2 + caso.nextInt(operatori.size() / 2)) : azioni.get(azioni.size() / 2 + caso.nextInt(azioni.size() / 2));
+    List<List<Scambio>> risultati = new ArrayList<>();
+    inizio = System.nanoTime();
+    for (int q = 0; q < intervalli.length; q++) {
+      if (chiavi[q] instanceof Operatore operatore) risultati.add(storico.perOperatore(operatore, intervalli[q][0], intervalli[q][1]));
+      else risultati.add(storico.perAzione((Azione) chiavi[q], intervalli[q][0], intervalli[q][1]));
+    }
+    System.out.printf("%d ricerche indicizzate in %d ms%n", intervalli.length, (System.nanoTime() - inizio) / 1000000);
+    int errate = 0;
+    for (int q = 0; q < intervalli.length; q++) {
+      Object chiave = chiavi[q];
+      List<Scambio> attesi = new ArrayList<>();
+      for (Scambio s : tutti)
+        if ((s.operatore() == chiave || s.azione() == chiave) && s.istante() >= intervalli[q][0] && s.istante() <= intervalli[q][1]) attesi.add(s);
+      if (!attesi.equals(risultati.get(q))) errate++;
+    }
+    System.out.println(errate == 0 ? "Le ricerche coincidono con la scansione completa." : errate + " ricerche diverse dalla scansione completa!");
+    storico.close();
+  }
+}